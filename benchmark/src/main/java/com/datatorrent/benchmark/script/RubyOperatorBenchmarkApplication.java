@@ -32,6 +32,10 @@ import org.apache.hadoop.conf.Configuration;
  * Application to benchmark the performance of ruby operator.
  * The operator was tested on the DT cluster and the
  * number of tuples processed by the operator per second were around 11,500
+ * <p>
+ * Set ruby.batchSize in the configuration to run the script on batches of tuples instead of every tuple, see
+ * {@link RubyOperator#setBatchSize(int)}.
+ * </p>
  *
  * @since 1.0.4
  */
@@ -40,6 +44,7 @@ import org.apache.hadoop.conf.Configuration;
 public class RubyOperatorBenchmarkApplication implements StreamingApplication
 {
   public static final int QUEUE_CAPACITY = 16 * 1024;
+  public static final String BATCH_SIZE = "ruby.batchSize";
   private final Locality locality = null;
 
   @Override
@@ -54,10 +59,20 @@ public class RubyOperatorBenchmarkApplication implements StreamingApplication
     randMap.setKey("val");
 
     RubyOperator ruby = dag.addOperator("ruby", new RubyOperator());
-    String setupScript = "def square(val)\n";
-    setupScript += "  return val*val\nend\n";
-    ruby.addSetupScript(setupScript);
-    ruby.setInvoke("square");
+    int batchSize = conf.getInt(BATCH_SIZE, 0);
+    if (batchSize > 0) {
+      String setupScript = "def square_all(tuples)\n";
+      setupScript += "  tuples.map { |t| t['val'] * t['val'] }\nend\n";
+      ruby.addSetupScript(setupScript);
+      ruby.setInvoke("square_all");
+      ruby.setBatchSize(batchSize);
+    }
+    else {
+      String setupScript = "def square(val)\n";
+      setupScript += "  return val*val\nend\n";
+      ruby.addSetupScript(setupScript);
+      ruby.setInvoke("square");
+    }
     ruby.setPassThru(true);
 
     ConsoleOutputOperator console = dag.addOperator("console", new ConsoleOutputOperator());
@@ -20,7 +20,7 @@ import org.junit.Test;
 
 import com.datatorrent.api.LocalMode;
 /**
- * Benchmark Test for Ruby Operator in local mode.
+ * Benchmark Test for Ruby Operator in local mode, running the script for every tuple and for batches of tuples.
  */
 public class RubyOperatorBenchmarkAppTest {
 
@@ -32,4 +32,15 @@ public class RubyOperatorBenchmarkAppTest {
     LocalMode.Controller lc = lma.getController();
     lc.run(10000);
   }
+
+  @Test
+  public void testBatchedApplication() throws Exception
+  {
+    LocalMode lma = LocalMode.newInstance();
+    Configuration conf = new Configuration(false);
+    conf.setInt(RubyOperatorBenchmarkApplication.BATCH_SIZE, 1000);
+    new RubyOperatorBenchmarkApplication().populateDAG(lma.getDAG(), conf);
+    LocalMode.Controller lc = lma.getController();
+    lc.run(10000);
+  }
 }
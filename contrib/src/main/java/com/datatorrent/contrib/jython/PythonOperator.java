@@ -22,11 +22,20 @@ import org.python.util.PythonInterpreter;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
  * An operator that executes a python script and passes the input as bindings.
- * <p></p>
+ * <p>
+ * With a batchSize the script is evaluated once for a batch of tuples, the list of the tuple maps is bound to the
+ * variable tuples. When the script evaluates to a list or a tuple of results every result is emitted on the result
+ * port, any other value, like a sum over the batch, is emitted as one result:
+ * <pre>
+ * python.setScript("[t['val'] * t['val'] for t in tuples]");
+ * python.setBatchSize(1000);
+ * </pre>
+ * </p>
  * @displayName Python
  * @category Scripting
  * @tags python, script
@@ -74,9 +83,34 @@ public class PythonOperator extends ScriptOperator
     }
   }
 
+  @Override
+  protected void processBatch(List<Map<String, Object>> tuples)
+  {
+    interp.set(BATCH_VARIABLE, tuples);
+    PyObject batchResult = interp.eval(code);
+    if (batchResult instanceof PyList || batchResult instanceof PyTuple) {
+      for (PyObject o : batchResult.asIterable()) {
+        evalResult = o;
+        if (isPassThru && result.isConnected()) {
+          result.emit(o);
+        }
+      }
+    }
+    else {
+      evalResult = batchResult;
+      if (isPassThru && result.isConnected()) {
+        result.emit(batchResult);
+      }
+    }
+    if (isPassThru && outBindings.isConnected()) {
+      outBindings.emit(new HashMap<String, Object>(getBindings()));
+    }
+  }
+
   @Override
   public void endWindow()
   {
+    flushBatch();
     if (!isPassThru) {
       result.emit(evalResult);
       outBindings.emit(new HashMap<String, Object>(getBindings()));
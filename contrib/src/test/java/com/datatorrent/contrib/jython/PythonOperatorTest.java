@@ -20,6 +20,7 @@ import java.util.HashMap;
 import org.junit.Assert;
 import org.junit.Test;
 import org.python.core.PyInteger;
+import org.python.core.PyObject;
 
 import com.datatorrent.lib.testbench.CollectorTestSink;
 
@@ -58,4 +59,60 @@ public class PythonOperatorTest
     }
   }
 
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testBatch()
+  {
+    PythonOperator oper = new PythonOperator();
+    oper.setScript("[t['val'] * t['val'] for t in tuples]");
+    oper.setBatchSize(2);
+    oper.setPassThru(true);
+
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.result.setSink(sink);
+    oper.setup(null);
+    oper.beginWindow(0);
+    for (int i = 1; i <= 3; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("val", new Integer(i));
+      oper.inBindings.process(tuple);
+    }
+    Assert.assertEquals("first batch", 2, sink.collectedTuples.size());
+    oper.endWindow();
+
+    Assert.assertEquals("number emitted tuples", 3, sink.collectedTuples.size());
+    for (int i = 1; i <= 3; i++) {
+      PyInteger val = (PyInteger)sink.collectedTuples.get(i - 1);
+      Assert.assertEquals("emitted should be square", new Integer(i * i),
+                          (Integer)val.__tojava__(Integer.class));
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testBatchScalar()
+  {
+    PythonOperator oper = new PythonOperator();
+    oper.setScript("sum([t['val'] for t in tuples])");
+    oper.setBatchSize(2);
+    oper.setPassThru(true);
+
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.result.setSink(sink);
+    oper.setup(null);
+    oper.beginWindow(0);
+    for (int i = 1; i <= 3; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("val", new Integer(i));
+      oper.inBindings.process(tuple);
+    }
+    oper.endWindow();
+
+    Assert.assertEquals("one result per batch", 2, sink.collectedTuples.size());
+    Assert.assertEquals("sum of first batch", new Integer(3),
+                        (Integer)((PyObject)sink.collectedTuples.get(0)).__tojava__(Integer.class));
+    Assert.assertEquals("sum of last batch", new Integer(3),
+                        (Integer)((PyObject)sink.collectedTuples.get(1)).__tojava__(Integer.class));
+  }
+
 }
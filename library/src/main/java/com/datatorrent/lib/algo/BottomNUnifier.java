@@ -24,7 +24,7 @@ import javax.validation.constraints.Min;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.Operator.Unifier;
-import com.datatorrent.lib.util.TopNSort;
+import com.datatorrent.lib.util.TopNHeap;
 
 /**
  * This unifier takes an input stream of key value pairs is ordered by key,
@@ -41,7 +41,7 @@ public class BottomNUnifier<K, V> implements Unifier<HashMap<K, ArrayList<V>>>
   /**
    * Merged tuples map.
    */
-  protected HashMap<K, TopNSort<V>> kmap = new HashMap<K, TopNSort<V>>();
+  protected HashMap<K, TopNHeap<V>> kmap = new HashMap<K, TopNHeap<V>>();
 
   /**
    * set n value.
@@ -65,9 +65,9 @@ public class BottomNUnifier<K, V> implements Unifier<HashMap<K, ArrayList<V>>>
   @Override
   public void endWindow()
   {
-    for (Map.Entry<K, TopNSort<V>> e : kmap.entrySet()) {
+    for (Map.Entry<K, TopNHeap<V>> e : kmap.entrySet()) {
       HashMap<K, ArrayList<V>> tuple = new HashMap<K, ArrayList<V>>(1);
-      tuple.put(e.getKey(), (ArrayList<V>)e.getValue().getTopN(getN()));
+      tuple.put(e.getKey(), e.getValue().getTopN(getN()));
       mergedport.emit(tuple);
     }
     kmap.clear();
@@ -87,23 +87,20 @@ public class BottomNUnifier<K, V> implements Unifier<HashMap<K, ArrayList<V>>>
 
   }
 
-  @SuppressWarnings({ "rawtypes", "unchecked" })
+  /**
+   * Merges the bottom N tuples of a partition, a value which is not in the bottom N so far costs one comparison.
+   */
   @Override
   public void process(HashMap<K, ArrayList<V>> tuple)
   {
     for (Map.Entry<K, ArrayList<V>> e : tuple.entrySet()) {
-      TopNSort pqueue = kmap.get(e.getKey());
-      ArrayList<V> values = e.getValue();
+      TopNHeap<V> pqueue = kmap.get(e.getKey());
       if (pqueue == null) {
-        pqueue = new TopNSort<V>(5, values.size(), false);
+        pqueue = new TopNHeap<V>(n, false, false);
         kmap.put(e.getKey(), pqueue);
-        for (int i = (values.size()-1); i >= 0; i--) {
-          pqueue.offer(values.get(i));
-        }
-      } else {
-        for (int i = (values.size()-1); i >= 0; i--) {
-          pqueue.offer(values.get(i));
-        }
+      }
+      for (V value : e.getValue()) {
+        pqueue.offer(value);
       }
     }
   }
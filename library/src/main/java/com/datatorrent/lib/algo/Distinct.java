@@ -38,7 +38,7 @@ import com.datatorrent.lib.util.BaseKeyOperator;
  * <br>
  * This module is same as a "FirstOf" metric on any key, val pair
  * Even though this module produces continuous tuples, at end of window all data is flushed. Thus the data set is windowed
- * and no history is kept of previous windows<br>
+ * and no history is kept of previous windows, see {@link ExpiringDistinct} to drop duplicates across windows<br>
  * <br>
  * <b>StateFull : Yes, </b> tuple are compare across application window(s). <br>
  * <b>Partitions : Yes, </b> distinct output is unified by same operator. <br>
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import javax.validation.constraints.Min;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.annotation.OperatorAnnotation;
+import com.datatorrent.lib.util.BaseKeyOperator;
+
+/**
+ * Emits the tuples which were not seen within a horizon of application windows, that is it drops the duplicates
+ * across windows.&nbsp; Unlike {@link Distinct}, which forgets all the tuples at the end of every window, the tuples
+ * are remembered for sliceCount slices of sliceWindows application windows each.
+ * <p>
+ * Every slice keeps the 64 bit fingerprints of the tuples first seen in it in a {@link FingerprintSet}, so the memory
+ * used by a tuple does not depend on its size. When a slice is complete, the oldest slice is cleared and reused for
+ * the next windows, so a tuple is forgotten between (sliceCount - 1) * sliceWindows and sliceCount * sliceWindows
+ * windows after it was last emitted. The slices are rotated by counting windows, so the operator emits the same
+ * tuples when windows are replayed from a checkpoint.
+ * </p>
+ * <p>
+ * Tuples with the same fingerprint are duplicates. Strings and numbers are fingerprinted by their value, integral
+ * numbers have distinct fingerprints. Null, booleans and characters have fingerprints of their own, so null, false
+ * and 0 are different tuples. Other tuples are fingerprinted by their Kryo
+ * serialization, so their hash codes do not matter but equal tuples must serialize to the same bytes, which is not
+ * the case of hash maps or sets built in different orders. Override {@link #fingerprint(Object)} for such tuples.
+ * Distinct tuples have the same fingerprint with a probability of about n / 2^64 in a horizon of n tuples.
+ * </p>
+ * <p>
+ * <b>Input Port(s) : </b><br>
+ * <b>data : </b> expects K. <br>
+ * <br>
+ * <b>Output Port(s) : </b> <br>
+ * <b>distinct : </b> emits K the first time it is seen within the horizon. <br>
+ * <br>
+ * <b>Properties : </b> <br>
+ * <b>sliceWindows : </b> Number of application windows of a slice, by default 120. <br>
+ * <b>sliceCount : </b> Number of slices remembered, by default 10. <br>
+ * <br>
+ * <b>StateFull : Yes</b>, the fingerprints are kept across application windows. <br>
+ * <b>Partitions : Yes</b>, when the stream is partitioned by the tuples, which is the default, as the partitions
+ * see distinct tuples. <br>
+ * </p>
+ *
+ * @displayName Emit Distinct Over Time
+ * @category Algorithmic
+ * @tags filter, unique, dedup
+ * @since 2.0.0
+ */
+@OperatorAnnotation(partitionable = true)
+public class ExpiringDistinct<K> extends BaseKeyOperator<K>
+{
+  /**
+   * Seeds which keep the fingerprints of null, booleans and characters apart from the ones of the small integers.
+   */
+  private static final long NULL_SEED = 0x6a09e667f3bcc908L;
+  private static final long BOOLEAN_SEED = 0xbb67ae8584caa73bL;
+  private static final long CHARACTER_SEED = 0x3c6ef372fe94f82bL;
+
+  @Min(1)
+  private int sliceWindows = 120;
+  @Min(1)
+  private int sliceCount = 10;
+
+  private FingerprintSet[] slices;
+  /**
+   * Index of the slice of the current window.
+   */
+  private int current;
+  private int windowsInSlice;
+  private transient Kryo kryo;
+  private transient Output output;
+
+  /**
+   * The input port on which tuples are received.
+   */
+  public final transient DefaultInputPort<K> data = new DefaultInputPort<K>()
+  {
+    @Override
+    public void process(K tuple)
+    {
+      long fingerprint = fingerprint(tuple);
+      for (int i = 0; i < slices.length; i++) {
+        if (i != current && slices[i].contains(fingerprint)) {
+          return;
+        }
+      }
+      if (slices[current].add(fingerprint)) {
+        distinct.emit(cloneKey(tuple));
+      }
+    }
+  };
+
+  /**
+   * The output port on which distinct tuples are emitted.
+   */
+  public final transient DefaultOutputPort<K> distinct = new DefaultOutputPort<K>();
+
+  /**
+   * Override to fingerprint tuples whose Kryo serialization does not identify them.
+   *
+   * @param tuple tuple.
+   * @return 64 bit fingerprint of the tuple.
+   */
+  protected long fingerprint(K tuple)
+  {
+    if (tuple == null) {
+      return HyperLogLog.hash(NULL_SEED);
+    }
+    if (tuple instanceof CharSequence || tuple instanceof Long || tuple instanceof Integer
+        || tuple instanceof Short || tuple instanceof Byte) {
+      return HyperLogLog.hash(tuple);
+    }
+    if (tuple instanceof Double || tuple instanceof Float) {
+      return HyperLogLog.hash(Double.doubleToLongBits(((Number)tuple).doubleValue()));
+    }
+    if (tuple instanceof Boolean) {
+      return HyperLogLog.hash(BOOLEAN_SEED + ((Boolean)tuple ? 1 : 0));
+    }
+    if (tuple instanceof Character) {
+      return HyperLogLog.hash(CHARACTER_SEED + (Character)tuple);
+    }
+    if (kryo == null) {
+      kryo = new Kryo();
+      output = new Output(4096, -1);
+    }
+    output.clear();
+    kryo.writeClassAndObject(output, tuple);
+    return hash(output.getBuffer(), output.position());
+  }
+
+  /**
+   * 64 bit FNV-1a hash of bytes, with the bits spread like {@link HyperLogLog#hash(Object)}.
+   */
+  private static long hash(byte[] bytes, int length)
+  {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < length; i++) {
+      hash = (hash ^ (bytes[i] & 0xff)) * 0x100000001b3L;
+    }
+    return HyperLogLog.hash(hash);
+  }
+
+  @Override
+  public void beginWindow(long windowId)
+  {
+    if (slices == null || slices.length != sliceCount) {
+      slices = new FingerprintSet[sliceCount];
+      for (int i = 0; i < sliceCount; i++) {
+        slices[i] = new FingerprintSet();
+      }
+      current = 0;
+      windowsInSlice = 0;
+    }
+    if (windowsInSlice == sliceWindows) {
+      current = (current + 1) % slices.length;
+      slices[current].clear();
+      windowsInSlice = 0;
+    }
+    windowsInSlice++;
+  }
+
+  /**
+   * @return number of fingerprints remembered.
+   */
+  public int size()
+  {
+    int size = 0;
+    if (slices != null) {
+      for (FingerprintSet slice : slices) {
+        size += slice.size();
+      }
+    }
+    return size;
+  }
+
+  public int getSliceWindows()
+  {
+    return sliceWindows;
+  }
+
+  /**
+   * @param sliceWindows number of application windows of a slice.
+   */
+  public void setSliceWindows(int sliceWindows)
+  {
+    this.sliceWindows = sliceWindows;
+  }
+
+  public int getSliceCount()
+  {
+    return sliceCount;
+  }
+
+  /**
+   * @param sliceCount number of slices remembered, changing it forgets all the tuples.
+   */
+  public void setSliceCount(int sliceCount)
+  {
+    this.sliceCount = sliceCount;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import java.util.Arrays;
+
+/**
+ * Set of 64 bit fingerprints of values.&nbsp; The fingerprints are kept in an open addressing table of longs, so a
+ * value takes 8 to 16 bytes whatever its size.
+ * <p>
+ * Values are equal when their fingerprints are equal, so the fingerprints must use all the 64 bits, like the
+ * {@link HyperLogLog#hash(Object)} of strings and integral numbers. Fingerprints derived from a 32 bit hash code
+ * collide with a probability of about n / 2^32 per lookup in a set of n values, well distributed 64 bit fingerprints
+ * with a probability of about n / 2^64.
+ * </p>
+ * The table is reused when the set is cleared.
+ *
+ * @since 2.0.0
+ */
+public class FingerprintSet
+{
+  private static final int MIN_CAPACITY = 16;
+
+  /**
+   * Fingerprints by slot, 0 is an empty slot.
+   */
+  private long[] table;
+  private int size;
+  /**
+   * Whether the fingerprint 0 is in the set, it is not kept in the table.
+   */
+  private boolean containsZero;
+
+  public FingerprintSet()
+  {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize number of fingerprints which fit without growing the table.
+   */
+  public FingerprintSet(int expectedSize)
+  {
+    int capacity = MIN_CAPACITY;
+    while (capacity * 3 / 4 < expectedSize) {
+      capacity <<= 1;
+    }
+    table = new long[capacity];
+  }
+
+  /**
+   * @return number of fingerprints.
+   */
+  public int size()
+  {
+    return containsZero ? size + 1 : size;
+  }
+
+  public boolean isEmpty()
+  {
+    return size() == 0;
+  }
+
+  public boolean contains(long fingerprint)
+  {
+    if (fingerprint == 0) {
+      return containsZero;
+    }
+    int mask = table.length - 1;
+    for (int slot = (int)fingerprint & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      if (table[slot] == fingerprint) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds a fingerprint.
+   *
+   * @param fingerprint well distributed fingerprint of a value.
+   * @return true if the fingerprint was not in the set.
+   */
+  public boolean add(long fingerprint)
+  {
+    if (fingerprint == 0) {
+      boolean added = !containsZero;
+      containsZero = true;
+      return added;
+    }
+    int mask = table.length - 1;
+    int slot = (int)fingerprint & mask;
+    while (table[slot] != 0) {
+      if (table[slot] == fingerprint) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = fingerprint;
+    if (++size > table.length * 3 / 4) {
+      grow();
+    }
+    return true;
+  }
+
+  private void grow()
+  {
+    long[] old = table;
+    table = new long[old.length << 1];
+    int mask = table.length - 1;
+    for (long fingerprint : old) {
+      if (fingerprint != 0) {
+        int slot = (int)fingerprint & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = fingerprint;
+      }
+    }
+  }
+
+  /**
+   * Removes all the fingerprints, the table keeps its capacity.
+   */
+  public void clear()
+  {
+    if (size > 0) {
+      Arrays.fill(table, 0);
+    }
+    size = 0;
+    containsZero = false;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "FingerprintSet{size=" + size() + ", capacity=" + table.length + '}';
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import javax.validation.constraints.Min;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.annotation.OperatorAnnotation;
+import com.datatorrent.lib.util.BaseKeyOperator;
+
+/**
+ * This operator finds the most frequent keys of a stream in bounded memory.&nbsp;
+ * The keys are counted by a {@link SpaceSaving} summary of capacity counters, which is emitted at the end of the window.
+ * <p>
+ * Unlike {@link MostFrequentKey}, which counts every distinct key, the memory used does not grow with the number of
+ * distinct keys. The count of a key is at most total / capacity more than its occurrences, where total is the number
+ * of tuples, and every key which occurs more than total / capacity times is counted. The top keys are read from the
+ * summary, like summary.getTopCounts(10).
+ * </p>
+ * <p>
+ * <b>StateFull : </b> only when cumulative, then the keys are counted over all the windows. <br>
+ * <b>Partitions : Yes</b>, the summaries of the partitions are merged by {@link SpaceSavingUnifier}. <br>
+ * <br>
+ * <b>Ports</b>:<br>
+ * <b>data</b>: expects K<br>
+ * <b>summary</b>: emits SpaceSaving&lt;K&gt; at the end of the window<br>
+ * <br>
+ * <b>Properties</b>:<br>
+ * <b>capacity</b>: Maximum number of keys counted, by default 1000.<br>
+ * <b>cumulative</b>: Counts the keys of all the windows instead of the current window.<br>
+ * <br>
+ * </p>
+ * @displayName Heavy Hitters
+ * @category Algorithmic
+ * @tags count, rank, top, frequent
+ *
+ * @since 2.0.0
+ */
+@OperatorAnnotation(partitionable = true)
+public class HeavyHitters<K> extends BaseKeyOperator<K>
+{
+  @Min(1)
+  private int capacity = 1000;
+  private boolean cumulative;
+  private SpaceSaving<K> counts;
+
+  /**
+   * The input port which receives the keys.
+   */
+  public final transient DefaultInputPort<K> data = new DefaultInputPort<K>()
+  {
+    @Override
+    public void process(K tuple)
+    {
+      counts.add(cloneKey(tuple));
+    }
+  };
+
+  /**
+   * The output port which emits the summary of the counts at the end of the window.
+   */
+  public final transient DefaultOutputPort<SpaceSaving<K>> summary = new DefaultOutputPort<SpaceSaving<K>>()
+  {
+    @Override
+    public Unifier<SpaceSaving<K>> getUnifier()
+    {
+      return new SpaceSavingUnifier<K>();
+    }
+  };
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    if (counts == null || counts.getCapacity() != capacity) {
+      counts = new SpaceSaving<K>(capacity);
+    }
+  }
+
+  @Override
+  public void endWindow()
+  {
+    if (cumulative) {
+      summary.emit(new SpaceSaving<K>(counts));
+    }
+    else {
+      summary.emit(counts);
+      counts = new SpaceSaving<K>(capacity);
+    }
+  }
+
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * @param capacity maximum number of keys counted, the error of the counts is at most the number of tuples / capacity.
+   */
+  public void setCapacity(int capacity)
+  {
+    this.capacity = capacity;
+  }
+
+  public boolean isCumulative()
+  {
+    return cumulative;
+  }
+
+  /**
+   * @param cumulative whether the keys of all the windows are counted.
+   */
+  public void setCumulative(boolean cumulative)
+  {
+    this.cumulative = cumulative;
+  }
+}
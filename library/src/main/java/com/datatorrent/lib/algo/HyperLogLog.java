@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the number of distinct values in bounded memory.&nbsp; It is a HyperLogLog++ sketch with sparse and
+ * dense encodings of the registers.
+ * <p>
+ * Values are hashed to 64 bits. The first precision bits of the hash select one of 2^precision registers which keeps
+ * the largest number of leading zeros plus one seen in the remaining bits. The relative standard error of the
+ * estimate is about 1.04 / sqrt(2^precision), the dense registers use 2^precision bytes.
+ * </p>
+ * <p>
+ * While there are few values the registers are kept sparse, as a sorted list of the registers of a precision of
+ * {@value #SPARSE_PRECISION} bits, which is converted to the dense registers once it would use more memory than them.
+ * The estimate of a sparse sketch is nearly exact. Estimates of the dense registers below 3 * 2^precision use
+ * linear counting like HyperLogLog, the empirical bias correction of HyperLogLog++ is not applied.
+ * </p>
+ * Sketches of the same precision are merged into the sketch of the union of their values.
+ *
+ * @since 2.0.0
+ */
+public class HyperLogLog
+{
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 18;
+  public static final int SPARSE_PRECISION = 25;
+
+  /**
+   * Estimates below this many times the number of registers use linear counting.
+   */
+  private static final double LINEAR_COUNTING_LIMIT = 3;
+
+  private int precision;
+  /**
+   * Dense registers, null while the sketch is sparse.
+   */
+  private byte[] registers;
+  /**
+   * Sorted sparse registers, every entry is the register index shifted left by 6 bits or'ed with its value.
+   */
+  private int[] sparse;
+  private int sparseCount;
+  /**
+   * Unsorted sparse registers added since the last merge into the sorted list.
+   */
+  private int[] pending;
+  private int pendingCount;
+
+  @SuppressWarnings("unused")
+  private HyperLogLog()
+  {
+    //for kryo
+  }
+
+  /**
+   * @param precision number of bits of the register index, between {@value #MIN_PRECISION} and {@value #MAX_PRECISION}.
+   */
+  public HyperLogLog(int precision)
+  {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+    }
+    this.precision = precision;
+    sparse = new int[0];
+    pending = new int[Math.max(16, (1 << precision) / 16)];
+  }
+
+  /**
+   * Copies a sketch.
+   *
+   * @param other sketch to copy.
+   */
+  public HyperLogLog(HyperLogLog other)
+  {
+    precision = other.precision;
+    if (other.registers != null) {
+      registers = other.registers.clone();
+    }
+    else {
+      other.mergePending();
+      sparse = Arrays.copyOf(other.sparse, other.sparseCount);
+      sparseCount = other.sparseCount;
+      pending = new int[other.pending.length];
+    }
+  }
+
+  /**
+   * @param relativeError wanted relative standard error of the estimate, like 0.01 for 1%.
+   * @return smallest precision with at most the relative error.
+   */
+  public static int getPrecision(double relativeError)
+  {
+    if (relativeError <= 0) {
+      throw new IllegalArgumentException("relative error must be positive");
+    }
+    int precision = (int)Math.ceil(Math.log(Math.pow(1.04 / relativeError, 2)) / Math.log(2));
+    return Math.min(MAX_PRECISION, Math.max(MIN_PRECISION, precision));
+  }
+
+  public int getPrecision()
+  {
+    return precision;
+  }
+
+  /**
+   * @return whether the registers are sparse.
+   */
+  public boolean isSparse()
+  {
+    mergePending();
+    return registers == null;
+  }
+
+  /**
+   * Adds a value. Values are equal when they have the same hash, see {@link #hash(Object)}.
+   *
+   * @param value value to add.
+   */
+  public void add(Object value)
+  {
+    addHash(hash(value));
+  }
+
+  /**
+   * Adds the 64 bit hash of a value.
+   *
+   * @param hash well distributed hash of the value.
+   */
+  public void addHash(long hash)
+  {
+    if (registers != null) {
+      int index = (int)(hash >>> (64 - precision));
+      byte rank = (byte)(Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+      if (rank > registers[index]) {
+        registers[index] = rank;
+      }
+      return;
+    }
+    int index = (int)(hash >>> (64 - SPARSE_PRECISION));
+    int rank = Long.numberOfLeadingZeros((hash << SPARSE_PRECISION) | (1L << (SPARSE_PRECISION - 1))) + 1;
+    pending[pendingCount++] = (index << 6) | rank;
+    if (pendingCount == pending.length) {
+      mergePending();
+    }
+  }
+
+  /**
+   * Merges the pending registers into the sorted sparse registers, converts to dense registers when the sparse
+   * registers take more memory.
+   */
+  private void mergePending()
+  {
+    if (registers != null || pendingCount == 0) {
+      return;
+    }
+    Arrays.sort(pending, 0, pendingCount);
+    int[] merged = mergeSparse(sparse, sparseCount, pending, pendingCount);
+    pendingCount = 0;
+    setSparse(merged);
+  }
+
+  private void setSparse(int[] merged)
+  {
+    sparse = merged;
+    sparseCount = merged.length;
+    if (sparseCount * 4 > (1 << precision)) {
+      toDense();
+    }
+  }
+
+  /**
+   * Merges two sorted lists of sparse registers keeping the largest value of every register.
+   *
+   * @return merged registers.
+   */
+  private static int[] mergeSparse(int[] list1, int count1, int[] list2, int count2)
+  {
+    int[] merged = new int[count1 + count2];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < count1 || j < count2) {
+      int entry;
+      if (j == count2 || (i < count1 && list1[i] <= list2[j])) {
+        entry = list1[i++];
+      }
+      else {
+        entry = list2[j++];
+      }
+      // entries of the same register are sorted by value, the last one is the largest
+      if (count > 0 && (merged[count - 1] >>> 6) == (entry >>> 6)) {
+        merged[count - 1] = entry;
+      }
+      else {
+        merged[count++] = entry;
+      }
+    }
+    return count == merged.length ? merged : Arrays.copyOf(merged, count);
+  }
+
+  private void toDense()
+  {
+    registers = new byte[1 << precision];
+    mergeSparseIntoDense(sparse, sparseCount);
+    sparse = null;
+    sparseCount = 0;
+    pending = null;
+  }
+
+  private void mergeSparseIntoDense(int[] entries, int count)
+  {
+    int shift = SPARSE_PRECISION - precision;
+    for (int i = 0; i < count; i++) {
+      int sparseIndex = entries[i] >>> 6;
+      int index = sparseIndex >>> shift;
+      int bits = sparseIndex & ((1 << shift) - 1);
+      // the bits of the sparse index below the dense index come first in the hash
+      int rank = bits != 0 ? Integer.numberOfLeadingZeros(bits) - (32 - shift) + 1 : shift + (entries[i] & 0x3f);
+      if (rank > registers[index]) {
+        registers[index] = (byte)rank;
+      }
+    }
+  }
+
+  /**
+   * Adds the values of another sketch.
+   *
+   * @param other sketch of the same precision, its values are not changed.
+   */
+  public void merge(HyperLogLog other)
+  {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException("cannot merge sketches of precision " + other.precision + " and " + precision);
+    }
+    other.mergePending();
+    mergePending();
+    if (registers == null && other.registers == null) {
+      setSparse(mergeSparse(sparse, sparseCount, other.sparse, other.sparseCount));
+      return;
+    }
+    if (registers == null) {
+      toDense();
+    }
+    if (other.registers == null) {
+      mergeSparseIntoDense(other.sparse, other.sparseCount);
+    }
+    else {
+      for (int i = 0; i < registers.length; i++) {
+        if (other.registers[i] > registers[i]) {
+          registers[i] = other.registers[i];
+        }
+      }
+    }
+  }
+
+  /**
+   * @return estimated number of distinct values.
+   */
+  public long cardinality()
+  {
+    if (registers == null) {
+      mergePending();
+      if (registers == null) {
+        return Math.round(linearCounting(1 << SPARSE_PRECISION, (1 << SPARSE_PRECISION) - sparseCount));
+      }
+    }
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double alpha;
+    switch (m) {
+      case 16:
+        alpha = 0.673;
+        break;
+      case 32:
+        alpha = 0.697;
+        break;
+      case 64:
+        alpha = 0.709;
+        break;
+      default:
+        alpha = 0.7213 / (1 + 1.079 / m);
+    }
+    if (zeros > 0) {
+      // the raw estimate is biased for small cardinalities, where linear counting is accurate
+      double estimate = linearCounting(m, zeros);
+      if (estimate <= LINEAR_COUNTING_LIMIT * m) {
+        return Math.round(estimate);
+      }
+    }
+    return Math.round(alpha * m * m / sum);
+  }
+
+  private static double linearCounting(int m, int zeros)
+  {
+    return m * Math.log((double)m / zeros);
+  }
+
+  /**
+   * Hashes a value to 64 bits. Strings and integral numbers are hashed by their content, other values by their
+   * hash code, so values with a poor hash code are counted poorly.
+   *
+   * @param value value to hash.
+   * @return 64 bit hash.
+   */
+  public static long hash(Object value)
+  {
+    long hash;
+    if (value instanceof CharSequence) {
+      CharSequence chars = (CharSequence)value;
+      hash = 0xcbf29ce484222325L;
+      for (int i = 0; i < chars.length(); i++) {
+        hash = (hash ^ chars.charAt(i)) * 0x100000001b3L;
+      }
+    }
+    else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      hash = ((Number)value).longValue();
+    }
+    else {
+      hash = value == null ? 0 : value.hashCode();
+    }
+    // finalizer of murmur3 to spread the bits
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Counts the most frequent keys of a stream in bounded memory with the SpaceSaving algorithm.&nbsp;
+ * At most capacity keys are counted. When a key which is not counted arrives and all the counters are used,
+ * the key with the smallest count is replaced and the new key inherits its count as the error of its count.
+ * <p>
+ * The count of a key overestimates its occurrences by at most its error, and the error is at most
+ * total / capacity, where total is the number of occurrences of all the keys. Every key which occurs more than
+ * total / capacity times is counted. The counters are kept in a heap ordered by count, so a key is counted in
+ * O(log capacity).
+ * </p>
+ * Summaries are merged into the summary of the union of their streams, with the same error bound, so they can be
+ * computed by partitions and merged by a unifier.
+ *
+ * @param <K> type of the keys.
+ * @since 2.0.0
+ */
+public class SpaceSaving<K>
+{
+  private int capacity;
+  private long total;
+  /**
+   * Min heap of the counters by count.
+   */
+  private Counter<K>[] heap;
+  private int size;
+  private HashMap<K, Counter<K>> counters;
+
+  /**
+   * Count of a key.
+   *
+   * @param <K> type of the key.
+   */
+  public static class Counter<K>
+  {
+    private K key;
+    private long count;
+    private long error;
+    private int index;
+
+    @SuppressWarnings("unused")
+    private Counter()
+    {
+      //for kryo
+    }
+
+    Counter(K key, long count, long error)
+    {
+      this.key = key;
+      this.count = count;
+      this.error = error;
+    }
+
+    public K getKey()
+    {
+      return key;
+    }
+
+    /**
+     * @return count of the key, at most error more than its occurrences.
+     */
+    public long getCount()
+    {
+      return count;
+    }
+
+    /**
+     * @return maximum overestimation of the count.
+     */
+    public long getError()
+    {
+      return error;
+    }
+
+    @Override
+    public String toString()
+    {
+      return key + "=" + count + "(+-" + error + ")";
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private SpaceSaving()
+  {
+    //for kryo
+  }
+
+  /**
+   * @param capacity maximum number of keys counted.
+   */
+  @SuppressWarnings("unchecked")
+  public SpaceSaving(int capacity)
+  {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.capacity = capacity;
+    heap = new Counter[capacity];
+    counters = new HashMap<K, Counter<K>>();
+  }
+
+  /**
+   * Copies a summary.
+   *
+   * @param other summary to copy.
+   */
+  public SpaceSaving(SpaceSaving<K> other)
+  {
+    this(other.capacity);
+    total = other.total;
+    for (int i = 0; i < other.size; i++) {
+      Counter<K> counter = other.heap[i];
+      Counter<K> copy = new Counter<K>(counter.key, counter.count, counter.error);
+      copy.index = i;
+      heap[i] = copy;
+      counters.put(copy.key, copy);
+    }
+    size = other.size;
+  }
+
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * @return number of occurrences of all the keys.
+   */
+  public long getTotal()
+  {
+    return total;
+  }
+
+  /**
+   * @return number of keys counted.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  public void add(K key)
+  {
+    add(key, 1);
+  }
+
+  /**
+   * Counts occurrences of a key.
+   *
+   * @param key key to count.
+   * @param occurrences number of occurrences.
+   */
+  public void add(K key, long occurrences)
+  {
+    total += occurrences;
+    Counter<K> counter = counters.get(key);
+    if (counter != null) {
+      counter.count += occurrences;
+      siftDown(counter.index);
+    }
+    else if (size < capacity) {
+      counter = new Counter<K>(key, occurrences, 0);
+      counters.put(key, counter);
+      counter.index = size;
+      heap[size++] = counter;
+      siftUp(counter.index);
+    }
+    else {
+      // replace the key with the smallest count
+      counter = heap[0];
+      counters.remove(counter.key);
+      counter.key = key;
+      counter.error = counter.count;
+      counter.count += occurrences;
+      counters.put(key, counter);
+      siftDown(0);
+    }
+  }
+
+  /**
+   * @return smallest count when all the counters are used, that is the largest count of a key which is not counted,
+   * 0 otherwise.
+   */
+  public long getMinCount()
+  {
+    return size < capacity ? 0 : heap[0].count;
+  }
+
+  /**
+   * @param key key.
+   * @return count of the key, or an upper bound of its occurrences if it is not counted.
+   */
+  public long getCount(K key)
+  {
+    Counter<K> counter = counters.get(key);
+    return counter == null ? getMinCount() : counter.count;
+  }
+
+  /**
+   * Adds the counts of another summary. The error bound of the merged summary is the error bound of the summary of
+   * the union of the streams.
+   *
+   * @param other summary to merge, it is not modified.
+   */
+  public void merge(SpaceSaving<K> other)
+  {
+    long min = getMinCount();
+    long otherMin = other.getMinCount();
+    // a key missing from a full summary may have occurred up to its smallest count
+    Map<K, Counter<K>> merged = new HashMap<K, Counter<K>>();
+    for (int i = 0; i < size; i++) {
+      Counter<K> counter = heap[i];
+      Counter<K> otherCounter = other.counters.get(counter.key);
+      if (otherCounter == null) {
+        merged.put(counter.key, new Counter<K>(counter.key, counter.count + otherMin, counter.error + otherMin));
+      }
+      else {
+        merged.put(counter.key, new Counter<K>(counter.key, counter.count + otherCounter.count, counter.error + otherCounter.error));
+      }
+    }
+    for (int i = 0; i < other.size; i++) {
+      Counter<K> otherCounter = other.heap[i];
+      if (!merged.containsKey(otherCounter.key)) {
+        merged.put(otherCounter.key, new Counter<K>(otherCounter.key, otherCounter.count + min, otherCounter.error + min));
+      }
+    }
+    List<Counter<K>> sorted = new ArrayList<Counter<K>>(merged.values());
+    Collections.sort(sorted, DESCENDING_COUNT);
+    Arrays.fill(heap, null);
+    counters.clear();
+    size = Math.min(capacity, sorted.size());
+    // the counters sorted by descending count are a heap in reverse order
+    for (int i = 0; i < size; i++) {
+      Counter<K> counter = sorted.get(size - 1 - i);
+      counter.index = i;
+      heap[i] = counter;
+      counters.put(counter.key, counter);
+    }
+    total += other.total;
+  }
+
+  /**
+   * @param n number of keys.
+   * @return the counters of the n keys with the largest counts, by descending count.
+   */
+  public List<Counter<K>> getTop(int n)
+  {
+    List<Counter<K>> sorted = new ArrayList<Counter<K>>(size);
+    for (int i = 0; i < size; i++) {
+      sorted.add(heap[i]);
+    }
+    Collections.sort(sorted, DESCENDING_COUNT);
+    return sorted.size() > n ? new ArrayList<Counter<K>>(sorted.subList(0, n)) : sorted;
+  }
+
+  /**
+   * @param n number of keys.
+   * @return the n keys with the largest counts and their counts, by descending count.
+   */
+  public ArrayList<KeyValPair<K, Long>> getTopCounts(int n)
+  {
+    ArrayList<KeyValPair<K, Long>> top = new ArrayList<KeyValPair<K, Long>>();
+    for (Counter<K> counter : getTop(n)) {
+      top.add(new KeyValPair<K, Long>(counter.key, counter.count));
+    }
+    return top;
+  }
+
+  /**
+   * Removes all the counts.
+   */
+  public void clear()
+  {
+    Arrays.fill(heap, null);
+    counters.clear();
+    size = 0;
+    total = 0;
+  }
+
+  private void siftUp(int i)
+  {
+    Counter<K> counter = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent].count <= counter.count) {
+        break;
+      }
+      heap[i] = heap[parent];
+      heap[i].index = i;
+      i = parent;
+    }
+    heap[i] = counter;
+    counter.index = i;
+  }
+
+  private void siftDown(int i)
+  {
+    Counter<K> counter = heap[i];
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+        child++;
+      }
+      if (counter.count <= heap[child].count) {
+        break;
+      }
+      heap[i] = heap[child];
+      heap[i].index = i;
+      i = child;
+    }
+    heap[i] = counter;
+    counter.index = i;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "SpaceSaving{total=" + total + ", top=" + getTop(10) + '}';
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static final Comparator<Counter> DESCENDING_COUNT = new Comparator<Counter>()
+  {
+    @Override
+    public int compare(Counter c1, Counter c2)
+    {
+      return c1.count > c2.count ? -1 : (c1.count == c2.count ? 0 : 1);
+    }
+  };
+}
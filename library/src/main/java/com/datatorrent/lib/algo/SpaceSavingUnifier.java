@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.Operator.Unifier;
+import com.datatorrent.api.BaseOperator;
+
+/**
+ * This unifier merges the {@link SpaceSaving} summaries emitted by the partitions in a window and emits the summary
+ * of all the partitions at the end of the window.
+ * <p></p>
+ * @displayName Space Saving Unifier
+ * @category Algorithmic
+ * @tags count, rank, top, frequent
+ *
+ * @since 2.0.0
+ */
+public class SpaceSavingUnifier<K> extends BaseOperator implements Unifier<SpaceSaving<K>>
+{
+  private transient SpaceSaving<K> merged;
+
+  /**
+   * The output port on which the merged summary is emitted.
+   */
+  public final transient DefaultOutputPort<SpaceSaving<K>> mergedport = new DefaultOutputPort<SpaceSaving<K>>();
+
+  @Override
+  public void process(SpaceSaving<K> tuple)
+  {
+    if (merged == null) {
+      merged = new SpaceSaving<K>(tuple);
+    }
+    else {
+      merged.merge(tuple);
+    }
+  }
+
+  @Override
+  public void endWindow()
+  {
+    if (merged != null) {
+      mergedport.emit(merged);
+      merged = null;
+    }
+  }
+}
@@ -24,6 +24,7 @@ import com.datatorrent.api.Operator.Unifier;
 import com.datatorrent.api.annotation.OperatorAnnotation;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import com.datatorrent.lib.util.AbstractBaseNNonUniqueOperatorMap;
+import com.datatorrent.lib.util.TopNHeap;
 
 /**
  * This operator orders tuples per key and emits the top N tuples per key at the end of the window.
@@ -90,14 +91,20 @@ public class TopN<K, V> extends AbstractBaseNNonUniqueOperatorMap<K,V> implement
     top.emit(tuple);
   }
 
+  /**
+   * Merges the top N tuples of a partition, used when the operator is the unifier.
+   */
   @Override
   public void process(HashMap<K, ArrayList<V>> tuple)
   {
     for (Map.Entry<K, ArrayList<V>> entry : tuple.entrySet()) {
+      TopNHeap<V> pqueue = kmap.get(entry.getKey());
+      if (pqueue == null) {
+        pqueue = new TopNHeap<V>(getN(), isAscending(), false);
+        kmap.put(entry.getKey(), pqueue);
+      }
       for (V value : entry.getValue()) {
-        HashMap<K, V> item = new HashMap<K, V>();
-        item.put(entry.getKey(), value);
-        this.processTuple(item);
+        pqueue.offer(value);
       }
     }
   }
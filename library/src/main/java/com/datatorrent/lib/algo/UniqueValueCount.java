@@ -17,12 +17,13 @@ package com.datatorrent.lib.algo;
 
 import com.datatorrent.api.*;
 import com.datatorrent.api.annotation.OperatorAnnotation;
-import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.lib.util.KeyValPair;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import java.util.Map;
 import java.util.Set;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 
 /**
  * This operator counts the number of unique values corresponding to a key within a window.&nbsp;
@@ -33,8 +34,13 @@ import java.util.Set;
  * When the operator is partitioned, the unifier uses the internal set of values to
  * compute the count of unique values again.<br>
  * <br>
+ * With a relativeError the count is approximate, the values of a key are counted by a {@link HyperLogLog} sketch
+ * instead of a set, which uses at most a few kilobytes per key however many values there are. The sketches are
+ * emitted instead of the sets and merged by the unifier. With cumulative set, the sketches are kept across
+ * windows and the counts are of the values of all the windows.<br>
+ * <br>
  * Partitions: yes, uses {@link UniqueCountUnifier} to merge partitioned output.<br>
- * Stateful: no<br>
+ * Stateful: only when cumulative<br>
  * <br></br>
  * </p>
  *
@@ -46,12 +52,24 @@ import java.util.Set;
  * @since 0.3.5
  */
 
-@Stateless
 @OperatorAnnotation(partitionable = true)
 public class UniqueValueCount<K> extends BaseOperator {
 
     private final Map<K,Set<Object>>  interimUniqueValues;
 
+    private final Map<K,HyperLogLog> interimSketches;
+
+    /**
+     * Relative standard error of the approximate counts, 0 for exact counts.
+     */
+    @Min(0)
+    @Max(1)
+    private double relativeError;
+
+    private boolean cumulative;
+
+    private transient int precision;
+
     /**
      * The input port that receives key value pairs.
      */
@@ -59,6 +77,15 @@ public class UniqueValueCount<K> extends BaseOperator {
 
         @Override
         public void process(KeyValPair<K, Object> pair) {
+            if (relativeError > 0) {
+                HyperLogLog sketch = interimSketches.get(pair.getKey());
+                if (sketch == null) {
+                    sketch = new HyperLogLog(precision);
+                    interimSketches.put(pair.getKey(), sketch);
+                }
+                sketch.add(pair.getValue());
+                return;
+            }
             Set<Object> values= interimUniqueValues.get(pair.getKey());
             if(values==null){
                 values=Sets.newHashSet();
@@ -81,11 +108,53 @@ public class UniqueValueCount<K> extends BaseOperator {
 
     public UniqueValueCount (){
         this.interimUniqueValues=Maps.newHashMap();
+        this.interimSketches=Maps.newHashMap();
+    }
+
+    public double getRelativeError() {
+        return relativeError;
     }
 
+    /**
+     * Counts the values approximately with the given relative standard error, like 0.01 for 1%.
+     * @param relativeError relative standard error, 0 for exact counts.
+     */
+    public void setRelativeError(double relativeError) {
+        this.relativeError = relativeError;
+    }
+
+    public boolean isCumulative() {
+        return cumulative;
+    }
+
+    /**
+     * Keeps the sketches of the approximate counts across windows.
+     * @param cumulative
+     */
+    public void setCumulative(boolean cumulative) {
+        this.cumulative = cumulative;
+    }
+
+    @Override
+    public void setup(Context.OperatorContext context) {
+        if (cumulative && relativeError == 0) {
+            throw new IllegalArgumentException("cumulative counts must be approximate");
+        }
+        if (relativeError > 0) {
+            precision = HyperLogLog.getPrecision(relativeError);
+        }
+    }
 
     @Override
     public void endWindow() {
+        for (Map.Entry<K, HyperLogLog> entry : interimSketches.entrySet()) {
+            // the sketch keeps changing when cumulative
+            HyperLogLog sketch = cumulative ? new HyperLogLog(entry.getValue()) : entry.getValue();
+            output.emit(new InternalCountOutput<K>(entry.getKey(), (int)sketch.cardinality(), sketch));
+        }
+        if (!cumulative) {
+            interimSketches.clear();
+        }
         for (K key : interimUniqueValues.keySet()) {
             Set<Object> values= interimUniqueValues.get(key);
             output.emit(new InternalCountOutput<K>(key, values.size(),values));
@@ -94,7 +163,8 @@ public class UniqueValueCount<K> extends BaseOperator {
     }
 
     /**
-     * State which contains a key, a set of values of that key, and a count of unique values of that key.<br></br>
+     * State which contains a key, a set of values of that key, and a count of unique values of that key.<br>
+     * The approximate counts have a sketch of the values instead of the set.<br></br>
      *
      * @param <K>Type of key objects</K>
      */
@@ -102,18 +172,34 @@ public class UniqueValueCount<K> extends BaseOperator {
 
         private final Set<Object> interimUniqueValues;
 
+        private final HyperLogLog sketch;
+
         protected InternalCountOutput(){
-            this(null,null,null);
+            this(null,null,(Set<Object>)null);
         }
 
         public InternalCountOutput(K k, Integer count, Set<Object> interimUniqueValues){
             super(k,count);
             this.interimUniqueValues=interimUniqueValues;
+            this.sketch=null;
+        }
+
+        public InternalCountOutput(K k, Integer count, HyperLogLog sketch){
+            super(k,count);
+            this.interimUniqueValues=null;
+            this.sketch=sketch;
         }
 
         public Set<Object> getInternalSet(){
             return interimUniqueValues;
         }
+
+        /**
+         * @return sketch of the values of an approximate count, null for an exact count.
+         */
+        public HyperLogLog getSketch(){
+            return sketch;
+        }
     }
 
     /**
@@ -130,12 +216,25 @@ public class UniqueValueCount<K> extends BaseOperator {
 
         private final Map<K,Set<Object>> finalUniqueValues;
 
+        private final Map<K,HyperLogLog> finalSketches;
+
         public UniqueCountUnifier(){
             this.finalUniqueValues=Maps.newHashMap();
+            this.finalSketches=Maps.newHashMap();
         }
 
         @Override
         public void process(InternalCountOutput<K> tuple) {
+            if (tuple.sketch != null) {
+                HyperLogLog sketch = finalSketches.get(tuple.getKey());
+                if (sketch == null) {
+                    finalSketches.put(tuple.getKey(), new HyperLogLog(tuple.sketch));
+                }
+                else {
+                    sketch.merge(tuple.sketch);
+                }
+                return;
+            }
             Set<Object> values = finalUniqueValues.get(tuple.getKey());
             if (values == null) {
                 values = Sets.newHashSet();
@@ -154,6 +253,10 @@ public class UniqueValueCount<K> extends BaseOperator {
                 output.emit(new InternalCountOutput<K>(key,finalUniqueValues.get(key).size(),finalUniqueValues.get(key)));
             }
             finalUniqueValues.clear();
+            for (Map.Entry<K, HyperLogLog> entry : finalSketches.entrySet()) {
+                output.emit(new InternalCountOutput<K>(entry.getKey(), (int)entry.getValue().cardinality(), entry.getValue()));
+            }
+            finalSketches.clear();
         }
 
         @Override
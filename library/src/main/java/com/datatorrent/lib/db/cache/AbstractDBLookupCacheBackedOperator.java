@@ -16,17 +16,30 @@
 package com.datatorrent.lib.db.cache;
 
 import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
 import com.datatorrent.api.Context;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.Operator;
 
+import com.datatorrent.common.util.DTThrowable;
+import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.lib.db.Connectable;
 import com.datatorrent.lib.util.KeyValPair;
 
@@ -42,6 +55,14 @@ import com.datatorrent.lib.util.KeyValPair;
  * <li>Query to fetch the value of the key from tuple when the value is not present in the cache.</li>
  * </ul>
  * </p>
+ * <p>
+ * By default a cache miss blocks the operator thread while the value is fetched from the store. When asyncLookup is
+ * enabled the missed keys are collected instead and fetched in batches of lookupBatchSize with one
+ * {@link #getAll(List)} call on a lookup thread, while the operator keeps processing tuples. The fetched values are
+ * emitted from {@link #handleIdleTime()} or when the next tuple arrives, and the operator waits for all outstanding
+ * lookups in endWindow so that the results of a window are emitted in the same window.
+ * If preserveOrder is also enabled, the output follows the order of the input tuples.
+ * </p>
  * @displayName Abstract DB Lookup Cache Backed
  * @category Database
  * @tags cache, key value
@@ -50,12 +71,31 @@ import com.datatorrent.lib.util.KeyValPair;
  * @param <S> type of store
  * @since 0.9.1
  */
-public abstract class AbstractDBLookupCacheBackedOperator<T, S extends Connectable> implements Operator, CacheManager.Backup
+public abstract class AbstractDBLookupCacheBackedOperator<T, S extends Connectable> implements Operator, Operator.IdleTimeHandler, CacheManager.Backup
 {
+  public static final int DEFAULT_LOOKUP_BATCH_SIZE = 100;
+
   @NotNull
   protected S store;
   @NotNull
   protected CacheManager cacheManager;
+  private boolean asyncLookup;
+  private boolean preserveOrder;
+  @Min(1)
+  private int lookupBatchSize = DEFAULT_LOOKUP_BATCH_SIZE;
+
+  //Non check-pointed state. All outstanding lookups are completed in endWindow.
+  private transient ExecutorService lookupExecutor;
+  //missed keys which are not yet sent to the store
+  private transient List<Object> missedKeys;
+  //key -> lookups which are waiting for the key to be fetched
+  private transient Map<Object, List<Lookup>> waitingLookups;
+  //lookups in the order of arrival, only used when the order is preserved
+  private transient LinkedList<Lookup> orderedLookups;
+  private transient BlockingQueue<FetchedValues> fetchedValues;
+  private transient int pendingBatches;
+  private transient long sleepTimeMillis;
+  private transient Context.OperatorContext context;
 
   protected AbstractDBLookupCacheBackedOperator()
   {
@@ -77,6 +117,11 @@ public abstract class AbstractDBLookupCacheBackedOperator<T, S extends Connectab
   protected void processTuple(T tuple)
   {
     Object key = getKeyFromTuple(tuple);
+    if (asyncLookup) {
+      processFetchedValues();
+      lookupAsync(key);
+      return;
+    }
     Object value = cacheManager.get(key);
 
     if (value != null) {
@@ -84,6 +129,129 @@ public abstract class AbstractDBLookupCacheBackedOperator<T, S extends Connectab
     }
   }
 
+  private void lookupAsync(Object key)
+  {
+    Object value = cacheManager.getCached(key);
+    if (value != null) {
+      if (preserveOrder && !orderedLookups.isEmpty()) {
+        Lookup lookup = new Lookup(key);
+        lookup.complete(value);
+        orderedLookups.add(lookup);
+      }
+      else {
+        output.emit(new KeyValPair<Object, Object>(key, value));
+      }
+      return;
+    }
+
+    Lookup lookup = new Lookup(key);
+    List<Lookup> waitingList = waitingLookups.get(key);
+    if (waitingList == null) {
+      waitingList = Lists.newArrayList();
+      waitingLookups.put(key, waitingList);
+      missedKeys.add(key);
+    }
+    waitingList.add(lookup);
+    if (preserveOrder) {
+      orderedLookups.add(lookup);
+    }
+
+    if (missedKeys.size() >= lookupBatchSize) {
+      submitMissedKeys();
+    }
+  }
+
+  private void submitMissedKeys()
+  {
+    final List<Object> keys = missedKeys;
+    missedKeys = Lists.newArrayList();
+    pendingBatches++;
+    lookupExecutor.submit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try {
+          fetchedValues.add(new FetchedValues(keys, getAll(keys), null));
+        }
+        catch (Throwable cause) {
+          fetchedValues.add(new FetchedValues(keys, null, cause));
+        }
+      }
+
+    });
+  }
+
+  /**
+   * Puts the fetched values in the primary cache and emits the lookups which are completed.
+   *
+   * @return true if any fetched values were processed.
+   */
+  private boolean processFetchedValues()
+  {
+    FetchedValues fetched;
+    boolean processed = false;
+    while ((fetched = fetchedValues.poll()) != null) {
+      completeLookups(fetched);
+      processed = true;
+    }
+    return processed;
+  }
+
+  private void completeLookups(FetchedValues fetched)
+  {
+    pendingBatches--;
+    if (fetched.error != null) {
+      DTThrowable.rethrow(fetched.error);
+    }
+    for (int i = 0; i < fetched.keys.size(); i++) {
+      Object key = fetched.keys.get(i);
+      Object value = fetched.values.get(i);
+      if (value != null) {
+        cacheManager.cache(key, value);
+      }
+      List<Lookup> waitingList = waitingLookups.remove(key);
+      if (waitingList == null) {
+        continue;
+      }
+      for (Lookup lookup : waitingList) {
+        lookup.complete(value);
+        if (!preserveOrder && value != null) {
+          output.emit(new KeyValPair<Object, Object>(key, value));
+        }
+      }
+    }
+    if (preserveOrder) {
+      while (!orderedLookups.isEmpty() && orderedLookups.peek().completed) {
+        Lookup lookup = orderedLookups.poll();
+        if (lookup.value != null) {
+          output.emit(new KeyValPair<Object, Object>(lookup.key, lookup.value));
+        }
+      }
+    }
+  }
+
+  @Override
+  public void handleIdleTime()
+  {
+    if (!asyncLookup) {
+      return;
+    }
+    if (!missedKeys.isEmpty()) {
+      //no more tuples for now, so send the partial batch instead of waiting for it to fill up
+      submitMissedKeys();
+    }
+    if (!processFetchedValues()) {
+      /* nothing to do here, so sleep for a while to avoid busy loop */
+      try {
+        Thread.sleep(sleepTimeMillis);
+      }
+      catch (InterruptedException ie) {
+        throw new RuntimeException(ie);
+      }
+    }
+  }
+
   public final transient DefaultOutputPort<KeyValPair<Object, Object>> output = new DefaultOutputPort<KeyValPair<Object, Object>>();
 
   @Override
@@ -95,24 +263,55 @@ public abstract class AbstractDBLookupCacheBackedOperator<T, S extends Connectab
   @Override
   public void endWindow()
   {
-    //Do nothing
+    if (asyncLookup) {
+      if (!missedKeys.isEmpty()) {
+        submitMissedKeys();
+      }
+      try {
+        while (pendingBatches > 0) {
+          completeLookups(fetchedValues.take());
+        }
+      }
+      catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    //no lookup is outstanding, so the store is not used by the lookup thread
+    cacheManager.refreshDueKeys();
+    context.setCounters(cacheManager.getCounters());
   }
 
   @Override
   public void setup(Context.OperatorContext context)
   {
+    this.context = context;
     cacheManager.setBackup(this);
+    if (cacheManager.getSecondary() instanceof MappedFileCacheStore) {
+      //partitions and other operators may share the directory
+      ((MappedFileCacheStore) cacheManager.getSecondary()).setStoreName("dt-cache-" + context.getId());
+    }
     try {
       cacheManager.initialize();
     }
     catch (IOException e) {
       throw new RuntimeException(e);
     }
+    if (asyncLookup) {
+      missedKeys = Lists.newArrayList();
+      waitingLookups = Maps.newHashMap();
+      orderedLookups = Lists.newLinkedList();
+      fetchedValues = new LinkedBlockingQueue<FetchedValues>();
+      sleepTimeMillis = context.getValue(Context.OperatorContext.SPIN_MILLIS);
+      lookupExecutor = Executors.newSingleThreadExecutor(new NameableThreadFactory("DBLookup"));
+    }
   }
 
   @Override
   public void teardown()
   {
+    if (lookupExecutor != null) {
+      lookupExecutor.shutdownNow();
+    }
     try {
       cacheManager.close();
     }
@@ -159,6 +358,52 @@ public abstract class AbstractDBLookupCacheBackedOperator<T, S extends Connectab
     return cacheManager;
   }
 
+  /**
+   * When true, cache misses are fetched from the store in batches on a separate thread instead of blocking the
+   * operator thread.
+   *
+   * @param asyncLookup true to fetch the missed keys asynchronously.
+   */
+  public void setAsyncLookup(boolean asyncLookup)
+  {
+    this.asyncLookup = asyncLookup;
+  }
+
+  public boolean isAsyncLookup()
+  {
+    return asyncLookup;
+  }
+
+  /**
+   * When true, the asynchronous lookups are emitted in the order of the input tuples.
+   *
+   * @param preserveOrder true to preserve the order of input tuples.
+   */
+  public void setPreserveOrder(boolean preserveOrder)
+  {
+    this.preserveOrder = preserveOrder;
+  }
+
+  public boolean isPreserveOrder()
+  {
+    return preserveOrder;
+  }
+
+  /**
+   * Sets the number of missed keys which are fetched from the store with one call.
+   *
+   * @param lookupBatchSize number of keys in a batch.
+   */
+  public void setLookupBatchSize(int lookupBatchSize)
+  {
+    this.lookupBatchSize = lookupBatchSize;
+  }
+
+  public int getLookupBatchSize()
+  {
+    return lookupBatchSize;
+  }
+
   /**
    * <br>This operator receives tuples which encapsulates the keys. Concrete classes should
    * provide the implementation to extract a key from a tuple.</br>
@@ -168,6 +413,44 @@ public abstract class AbstractDBLookupCacheBackedOperator<T, S extends Connectab
    */
   protected abstract Object getKeyFromTuple(T tuple);
 
+  /**
+   * A tuple waiting for the value of its key.
+   */
+  private static class Lookup
+  {
+    final Object key;
+    Object value;
+    boolean completed;
+
+    Lookup(Object key)
+    {
+      this.key = key;
+    }
+
+    void complete(Object value)
+    {
+      this.value = value;
+      completed = true;
+    }
+  }
+
+  /**
+   * Result of one batched call to the store.
+   */
+  private static class FetchedValues
+  {
+    final List<Object> keys;
+    final List<Object> values;
+    final Throwable error;
+
+    FetchedValues(List<Object> keys, List<Object> values, Throwable error)
+    {
+      this.keys = keys;
+      this.values = values;
+      this.error = error;
+    }
+  }
+
   private final static Logger LOG = LoggerFactory.getLogger(AbstractDBLookupCacheBackedOperator.class);
 
 }
@@ -18,17 +18,22 @@ package com.datatorrent.lib.db.cache;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import org.apache.commons.lang.mutable.MutableLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
+import com.datatorrent.lib.counters.BasicCounters;
 import com.datatorrent.lib.db.KeyValueStore;
 
 /**
@@ -39,9 +44,24 @@ import com.datatorrent.lib.db.KeyValueStore;
  * </p>
  * <p>
  * Typically primary store is faster but has limited size like memory and backup store is slower but unlimited like databases.<br/>
- * Store Manager can also refresh the values of keys at a specified time every day. This time is in format HH:mm:ss Z.<br/>
+ * An optional secondary store, for example a {@link MappedFileCacheStore} on the local disk, is checked between the
+ * primary and the backup store. Values found in the secondary store are copied to the primary store and values fetched
+ * from the backup store are saved in both.<br/>
+ * Store Manager can also refresh the values of the keys of the primary and the secondary store at a specified time
+ * every day. This time is in format HH:mm:ss Z.
+ * The keys are refreshed in batches of refreshBatchSize keys, at most one batch per call of {@link #refreshDueKeys()}
+ * and with a pause of at least refreshBatchDelayMillis between the batches, so that the backup store is not hit with
+ * all the keys at once.<br/>
+ * If the primary store is a {@link RefreshablePrimary}, the keys it reports as close to expiry are also refreshed,
+ * one batch every refreshAheadIntervalMillis.<br/>
+ * The refreshes are only done by {@link #refreshDueKeys()}, on the thread which uses the cache, so the backup store is
+ * only used by one thread. {@link AbstractDBLookupCacheBackedOperator} calls it at the end of every window, other
+ * users of the cache manager have to call it regularly themselves, otherwise no key is refreshed.<br/>
  * This is not thread-safe.
  * </p>
+ * <p>
+ * Hits, misses and refreshes are tracked in {@link #getCounters()}.
+ * </p>
  *
  * @since 0.9.2
  */
@@ -49,10 +69,29 @@ public class CacheManager implements Closeable
 {
   @NotNull
   protected Primary primary;
+  protected Primary secondary;
   @NotNull
   protected Backup backup;
   protected String refreshTime;
+  @Min(1)
+  protected int refreshBatchSize = 1000;
+  @Min(0)
+  protected long refreshBatchDelayMillis = 0;
+  @Min(0)
+  protected long refreshAheadIntervalMillis = 1000;
   private transient Timer refresher;
+  private transient volatile boolean dailyRefreshDue;
+  //keys of the daily refresh which are not refreshed yet
+  private transient LinkedList<Object> keysToRefresh;
+  private transient long lastRefreshBatchMillis;
+  private transient long lastRefreshAheadMillis;
+  private final transient AtomicLong hits = new AtomicLong();
+  private final transient AtomicLong misses = new AtomicLong();
+  private final transient AtomicLong secondaryHits = new AtomicLong();
+  private final transient AtomicLong refreshedKeys = new AtomicLong();
+  private final transient AtomicLong refreshTimeMillis = new AtomicLong();
+  private final transient AtomicLong lastRefreshLatencyMillis = new AtomicLong();
+  private transient BasicCounters<MutableLong> counters;
 
   public CacheManager()
   {
@@ -62,6 +101,9 @@ public class CacheManager implements Closeable
   public void initialize() throws IOException
   {
     primary.connect();
+    if (secondary != null) {
+      secondary.connect();
+    }
     backup.connect();
     Map<Object, Object> initialEntries = backup.loadInitialData();
     if (initialEntries != null) {
@@ -87,57 +129,182 @@ public class CacheManager implements Closeable
         @Override
         public void run()
         {
-          List<Object> keysToRefresh = Lists.newArrayList(primary.getKeys());
-          if (keysToRefresh.size() > 0) {
-            List<Object> refreshedValues = backup.getAll(keysToRefresh);
-            if (refreshedValues != null) {
-              for (int i = 0; i < keysToRefresh.size(); i++) {
-                primary.put(keysToRefresh.get(i), refreshedValues.get(i));
-              }
-            }
-          }
+          dailyRefreshDue = true;
         }
       };
 
       refresher = new Timer();
       if (initialDelay < 0) {
-        refresher.schedule(task, 0);
-        timeToRefresh.add(Calendar.DAY_OF_MONTH, 1);
-        initialDelay = timeToRefresh.getTimeInMillis();
+        dailyRefreshDue = true;
+        initialDelay += 86400000;
       }
       refresher.scheduleAtFixedRate(task, initialDelay, 86400000);
     }
+    keysToRefresh = new LinkedList<Object>();
+    lastRefreshBatchMillis = 0;
+    lastRefreshAheadMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * Refreshes the keys which are due from the backup store: a batch of the keys of the daily refresh, at most every
+   * refreshBatchDelayMillis, and a batch of the keys reported by a {@link RefreshablePrimary} every
+   * refreshAheadIntervalMillis. The remaining keys are refreshed by the next calls.
+   * It must be called regularly by the thread which uses the cache, because the backup store is not thread-safe, for
+   * example {@link AbstractDBLookupCacheBackedOperator} calls it at the end of every window.
+   */
+  public void refreshDueKeys()
+  {
+    if (dailyRefreshDue) {
+      dailyRefreshDue = false;
+      keysToRefresh.clear();
+      Set<Object> keys = Sets.newHashSet(primary.getKeys());
+      if (secondary != null) {
+        keys.addAll(secondary.getKeys());
+      }
+      keysToRefresh.addAll(keys);
+    }
+    long now = System.currentTimeMillis();
+    if (!keysToRefresh.isEmpty() && now - lastRefreshBatchMillis >= refreshBatchDelayMillis) {
+      List<Object> batch = Lists.newArrayList();
+      while (!keysToRefresh.isEmpty() && batch.size() < refreshBatchSize) {
+        batch.add(keysToRefresh.poll());
+      }
+      refresh(batch);
+      lastRefreshBatchMillis = now;
+    }
+    if (primary instanceof RefreshablePrimary && refreshAheadIntervalMillis > 0 && now - lastRefreshAheadMillis >= refreshAheadIntervalMillis) {
+      lastRefreshAheadMillis = now;
+      refresh(((RefreshablePrimary)primary).pollKeysToRefresh(refreshBatchSize));
+    }
   }
 
+  private void refresh(List<Object> keys)
+  {
+    if (keys.isEmpty()) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    List<Object> refreshedValues = backup.getAll(keys);
+    if (refreshedValues != null) {
+      for (int i = 0; i < keys.size(); i++) {
+        Object value = refreshedValues.get(i);
+        if (value != null) {
+          cache(keys.get(i), value);
+        }
+        else {
+          primary.remove(keys.get(i));
+          if (secondary != null) {
+            secondary.remove(keys.get(i));
+          }
+        }
+      }
+    }
+    long latency = System.currentTimeMillis() - start;
+    refreshedKeys.addAndGet(keys.size());
+    refreshTimeMillis.addAndGet(latency);
+    lastRefreshLatencyMillis.set(latency);
+    LOG.debug("refreshed {} keys in {} ms", keys.size(), latency);
+  }
+
+  /**
+   * Gets the value of the key from the primary store or the secondary store, without querying the backup store.
+   *
+   * @param key key
+   * @return the cached value; null if neither the primary nor the secondary store has the key.
+   */
   @Nullable
-  public Object get(@Nonnull Object key)
+  public Object getCached(@Nonnull Object key)
   {
     Object primaryVal = primary.get(key);
     if (primaryVal != null) {
+      hits.incrementAndGet();
       return primaryVal;
     }
+    if (secondary != null) {
+      Object secondaryVal = secondary.get(key);
+      if (secondaryVal != null) {
+        secondaryHits.incrementAndGet();
+        primary.put(key, secondaryVal);
+        return secondaryVal;
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Saves a value fetched from the backup store in the primary and the secondary store.
+   *
+   * @param key   key
+   * @param value value
+   */
+  public void cache(@Nonnull Object key, @Nonnull Object value)
+  {
+    primary.put(key, value);
+    if (secondary != null) {
+      secondary.put(key, value);
+    }
+  }
+
+  @Nullable
+  public Object get(@Nonnull Object key)
+  {
+    Object cachedVal = getCached(key);
+    if (cachedVal != null) {
+      return cachedVal;
+    }
 
     Object backupVal = backup.get(key);
     if (backupVal != null) {
-      primary.put(key, backupVal);
+      cache(key, backupVal);
     }
     return backupVal;
   }
 
   public void put(@Nonnull Object key, @Nonnull Object value)
   {
-    primary.put(key, value);
+    cache(key, value);
     backup.put(key, value);
   }
 
   @Override
   public void close() throws IOException
   {
-    refresher.cancel();
+    if (refresher != null) {
+      refresher.cancel();
+    }
     primary.disconnect();
+    if (secondary != null) {
+      secondary.disconnect();
+    }
     backup.disconnect();
   }
 
+  /**
+   * Returns the counters of the cache: {@link CacheCounters}.
+   *
+   * @return counters
+   */
+  public BasicCounters<MutableLong> getCounters()
+  {
+    if (counters == null) {
+      counters = new BasicCounters<MutableLong>(MutableLong.class);
+      for (CacheCounters key : CacheCounters.values()) {
+        counters.setCounter(key, new MutableLong());
+      }
+    }
+    long hitCount = hits.get() + secondaryHits.get();
+    long total = hitCount + misses.get();
+    counters.getCounter(CacheCounters.HITS).setValue(hits.get());
+    counters.getCounter(CacheCounters.SECONDARY_HITS).setValue(secondaryHits.get());
+    counters.getCounter(CacheCounters.MISSES).setValue(misses.get());
+    counters.getCounter(CacheCounters.HIT_RATE_PERCENT).setValue(total == 0 ? 0 : hitCount * 100 / total);
+    counters.getCounter(CacheCounters.REFRESHED_KEYS).setValue(refreshedKeys.get());
+    counters.getCounter(CacheCounters.REFRESH_TIME_MILLIS).setValue(refreshTimeMillis.get());
+    counters.getCounter(CacheCounters.LAST_REFRESH_LATENCY_MILLIS).setValue(lastRefreshLatencyMillis.get());
+    return counters;
+  }
+
   public void setPrimary(Primary primary)
   {
     this.primary = primary;
@@ -148,6 +315,21 @@ public class CacheManager implements Closeable
     return primary;
   }
 
+  /**
+   * Sets the store which is checked when the primary store doesn't have a key, before the backup store is queried.
+   *
+   * @param secondary secondary store; null to only use the primary store.
+   */
+  public void setSecondary(Primary secondary)
+  {
+    this.secondary = secondary;
+  }
+
+  public Primary getSecondary()
+  {
+    return secondary;
+  }
+
   public void setBackup(Backup backup)
   {
     this.backup = backup;
@@ -174,6 +356,53 @@ public class CacheManager implements Closeable
     return refreshTime;
   }
 
+  /**
+   * Sets the number of keys which are refreshed from the backup store with one call.
+   *
+   * @param refreshBatchSize number of keys in a refresh batch.
+   */
+  public void setRefreshBatchSize(int refreshBatchSize)
+  {
+    this.refreshBatchSize = refreshBatchSize;
+  }
+
+  public int getRefreshBatchSize()
+  {
+    return refreshBatchSize;
+  }
+
+  /**
+   * Sets the pause between two refresh batches of the daily refresh. There is at most one batch per call of
+   * {@link #refreshDueKeys()} anyway.
+   *
+   * @param refreshBatchDelayMillis pause in millis; 0 for a batch on every call.
+   */
+  public void setRefreshBatchDelayMillis(long refreshBatchDelayMillis)
+  {
+    this.refreshBatchDelayMillis = refreshBatchDelayMillis;
+  }
+
+  public long getRefreshBatchDelayMillis()
+  {
+    return refreshBatchDelayMillis;
+  }
+
+  /**
+   * Sets the interval at which the keys reported by a {@link RefreshablePrimary} are refreshed.
+   * 0 disables the refresh ahead.
+   *
+   * @param refreshAheadIntervalMillis interval in millis.
+   */
+  public void setRefreshAheadIntervalMillis(long refreshAheadIntervalMillis)
+  {
+    this.refreshAheadIntervalMillis = refreshAheadIntervalMillis;
+  }
+
+  public long getRefreshAheadIntervalMillis()
+  {
+    return refreshAheadIntervalMillis;
+  }
+
   /**
    * A primary store should also provide setting the value for a key.
    */
@@ -188,6 +417,20 @@ public class CacheManager implements Closeable
     Set<Object> getKeys();
   }
 
+  /**
+   * A primary store which reports the keys that should be refreshed before they expire.
+   */
+  public static interface RefreshablePrimary extends Primary
+  {
+    /**
+     * Removes and returns keys which should be refreshed from the backup store.
+     *
+     * @param maxKeys max number of keys returned.
+     * @return keys to refresh; an empty list when there are none.
+     */
+    List<Object> pollKeysToRefresh(int maxKeys);
+  }
+
   /**
    * Backup store is queried when {@link Primary} doesn't contain a key.<br/>
    * It also provides data needed at startup.<br/>
@@ -202,6 +445,11 @@ public class CacheManager implements Closeable
     Map<Object, Object> loadInitialData();
   }
 
+  public static enum CacheCounters
+  {
+    HITS, SECONDARY_HITS, MISSES, HIT_RATE_PERCENT, REFRESHED_KEYS, REFRESH_TIME_MILLIS, LAST_REFRESH_LATENCY_MILLIS
+  }
+
   private final static Logger LOG = LoggerFactory.getLogger(CacheManager.class);
 
 }
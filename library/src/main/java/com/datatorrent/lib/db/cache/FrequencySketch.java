@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.db.cache;
+
+/**
+ * Approximate access frequency of keys, used by {@link WeightedCacheStore} to decide whether a new entry
+ * should replace an existing one.<br/>
+ * <p>
+ * This is a count-min sketch with four 4-bit counters per key, so frequencies saturate at 15.
+ * After a sample of 10 times the table capacity increments all counters are halved,
+ * which lets the sketch forget keys that were popular in the past.
+ * </p>
+ * <p>
+ * The layout of the counters, the seeds and the reset are those of the FrequencySketch of the Caffeine caching
+ * library (https://github.com/ben-manes/caffeine), Copyright 2015 Ben Manes, licensed under the Apache License,
+ * Version 2.0. See "TinyLFU: A Highly Efficient Cache Admission Policy" by Gil Einziger, Roy Friedman and
+ * Ben Manes for the algorithm.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class FrequencySketch
+{
+  private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  private long[] table;
+  private int tableMask;
+  private int sampleSize;
+  private int size;
+
+  FrequencySketch(int expectedEntries)
+  {
+    ensureCapacity(expectedEntries);
+  }
+
+  /**
+   * Grows the sketch so that it can track the given number of entries. Growing resets the frequencies.
+   *
+   * @param expectedEntries number of entries.
+   */
+  final void ensureCapacity(int expectedEntries)
+  {
+    int capacity = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+    if (table != null && table.length >= capacity) {
+      return;
+    }
+    table = new long[capacity];
+    tableMask = capacity - 1;
+    sampleSize = 10 * capacity;
+    size = 0;
+  }
+
+  int capacity()
+  {
+    return table.length;
+  }
+
+  int frequency(Object key)
+  {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  void increment(Object key)
+  {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++size >= sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter)
+  {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset()
+  {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (odd >>> 2);
+  }
+
+  private int indexOf(int hash, int i)
+  {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  private static int spread(int x)
+  {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+}
@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.db.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import gnu.trove.iterator.TLongLongIterator;
+import gnu.trove.map.hash.TLongLongHashMap;
+
+/**
+ * A {@link CacheManager.Primary} which keeps serialized key/value pairs outside the heap in memory mapped files on
+ * the local disk. It is used as the secondary store of {@link CacheManager}, between the in-heap primary store
+ * and the backup store.<br/>
+ *
+ * <p>
+ * The entries are appended to segment files of segmentSizeInBytes bytes in the directory. Only a hash of every key
+ * and the position of its latest record are kept in the heap, so the store can hold much more data than the heap.
+ * When the total size of the segments goes over maxSizeInBytes, the oldest segment is deleted along with its entries.
+ * </p>
+ * <p>
+ * The segments are kept in the subdirectory storeName of the directory, which has to be set to a path on the local
+ * disk of the node outside of the container, as the working directory of the container is deleted with it.
+ * Stores sharing a directory must have different names, {@link AbstractDBLookupCacheBackedOperator} names
+ * its store after its operator id.
+ * The files are not deleted on disconnect. A store connected to the same directory again, for example after the
+ * container is restarted on the same node, rebuilds its index from the segments and keeps serving the entries.
+ * A record which was only partly written when the container went down ends the index of its segment.
+ * </p>
+ * <p>
+ * Entries expire entryExpiryDurationInMillis after they were written, also across restarts, so the values are not
+ * older than the values of a {@link CacheStore} with the same expiry. Keys and values are serialized with Kryo.
+ * </p>
+ * This store is thread-safe.
+ *
+ * @since 2.0.0
+ */
+public class MappedFileCacheStore implements CacheManager.Primary
+{
+  private static final String SEGMENT_PREFIX = "segment-";
+  //key length, value length and write time
+  private static final int HEADER_SIZE = 16;
+  private static final int TOMBSTONE = -1;
+
+  @NotNull
+  protected String directory;
+
+  @Min(0)
+  protected int entryExpiryDurationInMillis = 60000; //1 minute
+
+  @Min(1)
+  protected int segmentSizeInBytes = 256 * 1024 * 1024;
+
+  @Min(1)
+  protected long maxSizeInBytes = 4L * 1024 * 1024 * 1024;
+
+  private transient TreeMap<Integer, MappedByteBuffer> segments;
+  //hash of serialized key -> segment id << 32 | position of the latest record
+  private transient TLongLongHashMap index;
+  private transient int currentSegmentId;
+  private transient MappedByteBuffer currentSegment;
+  private transient Kryo kryo;
+  private transient Output output;
+  private transient boolean open;
+  private transient String storeName = "dt-cache";
+
+  @Override
+  public synchronized void connect() throws IOException
+  {
+    Preconditions.checkNotNull(directory, "directory");
+    kryo = new Kryo();
+    kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
+    output = new Output(4096, -1);
+    segments = new TreeMap<Integer, MappedByteBuffer>();
+    index = new TLongLongHashMap();
+
+    File dir = getStoreDirectory();
+    if (!dir.exists() && !dir.mkdirs()) {
+      throw new IOException("cannot create " + dir);
+    }
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (file.getName().startsWith(SEGMENT_PREFIX)) {
+          int segmentId = Integer.parseInt(file.getName().substring(SEGMENT_PREFIX.length()));
+          segments.put(segmentId, map(file, file.length()));
+        }
+      }
+    }
+    for (Map.Entry<Integer, MappedByteBuffer> segment : segments.entrySet()) {
+      loadIndex(segment.getKey(), segment.getValue());
+    }
+    logger.debug("loaded {} entries from {} segments", index.size(), segments.size());
+
+    if (segments.isEmpty()) {
+      rollSegment();
+    }
+    else {
+      currentSegmentId = segments.lastKey();
+      currentSegment = segments.lastEntry().getValue();
+    }
+    open = true;
+  }
+
+  @Override
+  public synchronized boolean isConnected()
+  {
+    return open;
+  }
+
+  @Override
+  public synchronized void disconnect() throws IOException
+  {
+    open = false;
+    for (MappedByteBuffer segment : segments.values()) {
+      segment.force();
+      unmap(segment);
+    }
+    segments.clear();
+    index.clear();
+    currentSegment = null;
+  }
+
+  @Override
+  public synchronized Object get(Object key)
+  {
+    byte[] keyBytes = serialize(key);
+    long hash = hash(keyBytes);
+    if (!index.containsKey(hash)) {
+      return null;
+    }
+    long location = index.get(hash);
+    MappedByteBuffer segment = segments.get((int) (location >>> 32));
+    int position = (int) location;
+    int keyLength = segment.getInt(position);
+    int valueLength = segment.getInt(position + 4);
+    if (keyLength != keyBytes.length) {
+      return null;
+    }
+    if (isExpired(segment.getLong(position + 8))) {
+      index.remove(hash);
+      return null;
+    }
+    byte[] record = new byte[keyLength + valueLength];
+    readBytes(segment, position + HEADER_SIZE, record);
+    for (int i = 0; i < keyLength; i++) {
+      if (record[i] != keyBytes[i]) {
+        //another key with the same hash
+        return null;
+      }
+    }
+    return kryo.readClassAndObject(new Input(record, keyLength, valueLength));
+  }
+
+  @Override
+  public synchronized List<Object> getAll(List<Object> keys)
+  {
+    List<Object> values = Lists.newArrayListWithCapacity(keys.size());
+    for (Object key : keys) {
+      values.add(get(key));
+    }
+    return values;
+  }
+
+  @Override
+  public synchronized void put(Object key, Object value)
+  {
+    byte[] keyBytes = serialize(key);
+    byte[] valueBytes = serialize(value);
+    long location = append(keyBytes, valueBytes, valueBytes.length);
+    if (location >= 0) {
+      index.put(hash(keyBytes), location);
+    }
+  }
+
+  @Override
+  public synchronized void putAll(Map<Object, Object> m)
+  {
+    for (Map.Entry<Object, Object> entry : m.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public synchronized void remove(Object key)
+  {
+    byte[] keyBytes = serialize(key);
+    long hash = hash(keyBytes);
+    if (index.containsKey(hash)) {
+      index.remove(hash);
+      append(keyBytes, null, TOMBSTONE);
+    }
+  }
+
+  /**
+   * Deserializes the keys of all the entries. This is expensive for a large store.
+   */
+  @Override
+  public synchronized Set<Object> getKeys()
+  {
+    Set<Object> keys = Sets.newHashSet();
+    for (TLongLongIterator iterator = index.iterator(); iterator.hasNext(); ) {
+      iterator.advance();
+      long location = iterator.value();
+      MappedByteBuffer segment = segments.get((int) (location >>> 32));
+      int position = (int) location;
+      if (isExpired(segment.getLong(position + 8))) {
+        continue;
+      }
+      byte[] keyBytes = new byte[segment.getInt(position)];
+      readBytes(segment, position + HEADER_SIZE, keyBytes);
+      keys.add(kryo.readClassAndObject(new Input(keyBytes)));
+    }
+    return keys;
+  }
+
+  /**
+   * @return number of entries in the store.
+   */
+  public synchronized int size()
+  {
+    return index.size();
+  }
+
+  /**
+   * Appends a record to the current segment.
+   *
+   * @return location of the record; -1 if the record is larger than a segment.
+   */
+  private long append(byte[] keyBytes, byte[] valueBytes, int valueLength)
+  {
+    int recordSize = HEADER_SIZE + keyBytes.length + Math.max(valueLength, 0);
+    //the header of the next record must fit as well, a zero key length marks the end of a segment
+    if (recordSize + HEADER_SIZE > segmentSizeInBytes) {
+      logger.warn("record of {} bytes is larger than the segment size", recordSize);
+      return -1;
+    }
+    if (currentSegment.position() + recordSize + HEADER_SIZE > currentSegment.capacity()) {
+      rollSegment();
+    }
+    int position = currentSegment.position();
+    currentSegment.putInt(keyBytes.length);
+    currentSegment.putInt(valueLength);
+    currentSegment.putLong(System.currentTimeMillis());
+    currentSegment.put(keyBytes);
+    if (valueBytes != null) {
+      currentSegment.put(valueBytes);
+    }
+    return ((long) currentSegmentId << 32) | position;
+  }
+
+  private void rollSegment()
+  {
+    try {
+      if (currentSegment != null) {
+        currentSegment.force();
+        currentSegmentId++;
+      }
+      File file = new File(getStoreDirectory(), SEGMENT_PREFIX + currentSegmentId);
+      currentSegment = map(file, segmentSizeInBytes);
+      segments.put(currentSegmentId, currentSegment);
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    while ((long) segments.size() * segmentSizeInBytes > maxSizeInBytes && segments.size() > 1) {
+      int oldestId = segments.firstKey();
+      unmap(segments.remove(oldestId));
+      for (TLongLongIterator iterator = index.iterator(); iterator.hasNext(); ) {
+        iterator.advance();
+        if ((int) (iterator.value() >>> 32) == oldestId) {
+          iterator.remove();
+        }
+      }
+      File file = new File(getStoreDirectory(), SEGMENT_PREFIX + oldestId);
+      if (!file.delete()) {
+        logger.warn("could not delete {}", file);
+      }
+      logger.debug("evicted segment {}", oldestId);
+    }
+  }
+
+  private void loadIndex(int segmentId, MappedByteBuffer segment)
+  {
+    int position = 0;
+    while (position + HEADER_SIZE <= segment.capacity()) {
+      int keyLength = segment.getInt(position);
+      if (keyLength <= 0) {
+        break;
+      }
+      int valueLength = segment.getInt(position + 4);
+      if (valueLength < TOMBSTONE || (long) position + HEADER_SIZE + keyLength + Math.max(valueLength, 0) > segment.capacity()) {
+        //the record was not written completely, the next records are appended in its place
+        logger.warn("truncated record at {} of segment {}", position, segmentId);
+        break;
+      }
+      byte[] keyBytes = new byte[keyLength];
+      readBytes(segment, position + HEADER_SIZE, keyBytes);
+      long hash = hash(keyBytes);
+      if (valueLength == TOMBSTONE) {
+        index.remove(hash);
+        valueLength = 0;
+      }
+      else if (isExpired(segment.getLong(position + 8))) {
+        index.remove(hash);
+      }
+      else {
+        index.put(hash, ((long) segmentId << 32) | position);
+      }
+      position += HEADER_SIZE + keyLength + valueLength;
+    }
+    segment.position(position);
+  }
+
+  private boolean isExpired(long writeTime)
+  {
+    return entryExpiryDurationInMillis > 0 && System.currentTimeMillis() - writeTime >= entryExpiryDurationInMillis;
+  }
+
+  private File getStoreDirectory()
+  {
+    return new File(directory, storeName);
+  }
+
+  /**
+   * Releases the mapping of a segment right away instead of when the buffer is garbage collected. The segment must
+   * not be used afterwards.
+   */
+  private static void unmap(MappedByteBuffer segment)
+  {
+    try {
+      Method cleanerMethod = segment.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(segment);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    }
+    catch (Exception e) {
+      //not supported by the JVM, the mapping is released by the garbage collector
+      logger.debug("cannot unmap segment", e);
+    }
+  }
+
+  private static MappedByteBuffer map(File file, long size) throws IOException
+  {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+    finally {
+      randomAccessFile.close();
+    }
+  }
+
+  private static void readBytes(MappedByteBuffer segment, int position, byte[] bytes)
+  {
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = segment.get(position + i);
+    }
+  }
+
+  private byte[] serialize(Object object)
+  {
+    output.clear();
+    kryo.writeClassAndObject(output, object);
+    return Arrays.copyOf(output.getBuffer(), output.position());
+  }
+
+  /**
+   * 64 bit FNV-1a hash of the serialized key.
+   */
+  private static long hash(byte[] bytes)
+  {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : bytes) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Sets the directory of the stores. It should be on the local disk of the node, outside of the container.
+   *
+   * @param directory path of the directory.
+   */
+  public void setDirectory(@NotNull String directory)
+  {
+    this.directory = directory;
+  }
+
+  public String getDirectory()
+  {
+    return directory;
+  }
+
+  /**
+   * Sets the name of the subdirectory of the segment files, which must be unique among the stores of the directory.
+   *
+   * @param storeName name of the store.
+   */
+  public void setStoreName(@NotNull String storeName)
+  {
+    this.storeName = storeName;
+  }
+
+  public String getStoreName()
+  {
+    return storeName;
+  }
+
+  /**
+   * Sets the time after which an entry expires since it was written.
+   *
+   * @param durationInMillis expiry time in millis; 0 for entries which do not expire.
+   */
+  public void setEntryExpiryDurationInMillis(int durationInMillis)
+  {
+    this.entryExpiryDurationInMillis = durationInMillis;
+  }
+
+  public int getEntryExpiryDurationInMillis()
+  {
+    return entryExpiryDurationInMillis;
+  }
+
+  /**
+   * Sets the size of a segment file.
+   *
+   * @param segmentSizeInBytes size of a segment.
+   */
+  public void setSegmentSizeInBytes(int segmentSizeInBytes)
+  {
+    this.segmentSizeInBytes = segmentSizeInBytes;
+  }
+
+  public int getSegmentSizeInBytes()
+  {
+    return segmentSizeInBytes;
+  }
+
+  /**
+   * Sets the max total size of the segment files.
+   *
+   * @param maxSizeInBytes max size of the store on disk.
+   */
+  public void setMaxSizeInBytes(long maxSizeInBytes)
+  {
+    this.maxSizeInBytes = maxSizeInBytes;
+  }
+
+  public long getMaxSizeInBytes()
+  {
+    return maxSizeInBytes;
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedFileCacheStore.class);
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.db.cache;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A {@link CacheManager.Primary} which keeps key/value pairs in memory and bounds the cache by the estimated size
+ * of the entries in bytes.<br/>
+ *
+ * <p>
+ * Entries are admitted with the W-TinyLFU policy:
+ * <ul>
+ * <li>A new entry goes to a small LRU admission window (windowPercentage of the max weight).</li>
+ * <li>An entry pushed out of the window competes with the least recently used entry of the main cache. The entry with
+ * the higher access frequency, estimated by a {@link FrequencySketch}, stays.</li>
+ * <li>The main cache is a segmented LRU: an entry hit while on probation is promoted to the protected segment,
+ * which holds protectedPercentage of the main cache.</li>
+ * </ul>
+ * This keeps frequently used entries in the cache even when a scan of keys that are used only once goes through it.
+ * </p>
+ * <p>
+ * Properties of the cache store:<br/>
+ * <ul>
+ * <li>Transient: It is not checkpointed.</li>
+ * <li>Max weight: the total estimated size of the entries in bytes. The size of an entry is computed by the {@link Weigher}.</li>
+ * <li>Entry expiry time: the entries expire after the specified duration since they were written.</li>
+ * <li>Refresh ahead: an entry which is read within refreshAheadInMillis of its expiry is handed to the {@link CacheManager}
+ * for refresh through {@link #pollKeysToRefresh(int)}, so frequently read entries are reloaded before they expire.</li>
+ * </ul>
+ * </p>
+ * This store is thread-safe.
+ *
+ * @since 2.0.0
+ */
+public class WeightedCacheStore implements CacheManager.RefreshablePrimary
+{
+  @Min(1)
+  protected long maxWeightInBytes = 64 * 1024 * 1024;
+
+  @Min(0)
+  protected int entryExpiryDurationInMillis = 60000; //1 minute
+
+  @Min(0)
+  protected int refreshAheadInMillis = 10000;
+
+  @Min(0)
+  protected int windowPercentage = 1;
+
+  @Min(0)
+  protected int protectedPercentage = 80;
+
+  @NotNull
+  protected Weigher weigher = new DefaultWeigher();
+
+  private transient Map<Object, Node> data;
+  private transient LinkedHashMap<Object, Node> window;
+  private transient LinkedHashMap<Object, Node> probation;
+  private transient LinkedHashMap<Object, Node> protectedSegment;
+  private transient LinkedHashSet<Object> keysToRefresh;
+  private transient FrequencySketch sketch;
+  private transient long windowWeight;
+  private transient long probationWeight;
+  private transient long protectedWeight;
+  private transient long evictionCount;
+  private transient long rejectionCount;
+  private transient boolean open;
+
+  @Override
+  public synchronized void connect() throws IOException
+  {
+    data = Maps.newHashMap();
+    window = new LinkedHashMap<Object, Node>();
+    probation = new LinkedHashMap<Object, Node>();
+    protectedSegment = new LinkedHashMap<Object, Node>();
+    keysToRefresh = Sets.newLinkedHashSet();
+    sketch = new FrequencySketch(1024);
+    windowWeight = probationWeight = protectedWeight = 0;
+    open = true;
+  }
+
+  @Override
+  public synchronized boolean isConnected()
+  {
+    return open;
+  }
+
+  @Override
+  public synchronized void disconnect() throws IOException
+  {
+    open = false;
+    data.clear();
+    window.clear();
+    probation.clear();
+    protectedSegment.clear();
+    keysToRefresh.clear();
+  }
+
+  @Override
+  public synchronized Object get(Object key)
+  {
+    sketch.increment(key);
+    Node node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    long age = now - node.writeTime;
+    if (entryExpiryDurationInMillis > 0) {
+      if (age >= entryExpiryDurationInMillis) {
+        removeNode(node);
+        return null;
+      }
+      if (!node.refreshRequested && age >= entryExpiryDurationInMillis - refreshAheadInMillis) {
+        node.refreshRequested = true;
+        keysToRefresh.add(key);
+      }
+    }
+    onHit(node);
+    return node.value;
+  }
+
+  @Override
+  public synchronized List<Object> getAll(List<Object> keys)
+  {
+    List<Object> values = Lists.newArrayListWithCapacity(keys.size());
+    for (Object key : keys) {
+      values.add(get(key));
+    }
+    return values;
+  }
+
+  @Override
+  public synchronized void put(Object key, Object value)
+  {
+    long weight = weigher.weigh(key, value);
+    Node node = data.get(key);
+    if (node != null) {
+      updateSegmentWeight(node.segment, weight - node.weight);
+      node.value = value;
+      node.weight = weight;
+      node.writeTime = System.currentTimeMillis();
+      node.refreshRequested = false;
+      keysToRefresh.remove(key);
+      evict();
+      return;
+    }
+
+    if (weight > maxWeightInBytes) {
+      rejectionCount++;
+      return;
+    }
+    node = new Node(key, value, weight, System.currentTimeMillis());
+    data.put(key, node);
+    if (data.size() > sketch.capacity()) {
+      sketch.ensureCapacity(data.size() * 2);
+    }
+    node.segment = Segment.WINDOW;
+    window.put(key, node);
+    windowWeight += weight;
+    evict();
+  }
+
+  @Override
+  public synchronized void putAll(Map<Object, Object> m)
+  {
+    for (Map.Entry<Object, Object> entry : m.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public synchronized void remove(Object key)
+  {
+    Node node = data.get(key);
+    if (node != null) {
+      removeNode(node);
+    }
+  }
+
+  @Override
+  public synchronized Set<Object> getKeys()
+  {
+    return Sets.newHashSet(data.keySet());
+  }
+
+  @Override
+  public synchronized List<Object> pollKeysToRefresh(int maxKeys)
+  {
+    List<Object> keys = Lists.newArrayList();
+    Iterator<Object> iterator = keysToRefresh.iterator();
+    while (iterator.hasNext() && keys.size() < maxKeys) {
+      Object key = iterator.next();
+      iterator.remove();
+      if (data.containsKey(key)) {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * @return total estimated size of the entries in bytes.
+   */
+  public synchronized long getWeight()
+  {
+    return windowWeight + probationWeight + protectedWeight;
+  }
+
+  /**
+   * @return number of entries evicted because the cache was full.
+   */
+  public synchronized long getEvictionCount()
+  {
+    return evictionCount;
+  }
+
+  /**
+   * @return number of new entries which were not admitted because they were accessed less often than the entry they would replace.
+   */
+  public synchronized long getRejectionCount()
+  {
+    return rejectionCount;
+  }
+
+  private void onHit(Node node)
+  {
+    switch (node.segment) {
+      case WINDOW:
+        window.remove(node.key);
+        window.put(node.key, node);
+        break;
+      case PROBATION:
+        probation.remove(node.key);
+        probationWeight -= node.weight;
+        node.segment = Segment.PROTECTED;
+        protectedSegment.put(node.key, node);
+        protectedWeight += node.weight;
+        long maxProtected = mainMaxWeight() * protectedPercentage / 100;
+        while (protectedWeight > maxProtected && protectedSegment.size() > 1) {
+          Node demoted = protectedSegment.values().iterator().next();
+          protectedSegment.remove(demoted.key);
+          protectedWeight -= demoted.weight;
+          demoted.segment = Segment.PROBATION;
+          probation.put(demoted.key, demoted);
+          probationWeight += demoted.weight;
+        }
+        break;
+      default:
+        protectedSegment.remove(node.key);
+        protectedSegment.put(node.key, node);
+        break;
+    }
+  }
+
+  private long mainMaxWeight()
+  {
+    return maxWeightInBytes - maxWeightInBytes * windowPercentage / 100;
+  }
+
+  private void evict()
+  {
+    long maxWindow = maxWeightInBytes * windowPercentage / 100;
+    //Entries pushed out of the window become candidates on probation
+    Deque<Node> candidates = new ArrayDeque<Node>();
+    while (windowWeight > maxWindow && !window.isEmpty()) {
+      Node candidate = window.values().iterator().next();
+      window.remove(candidate.key);
+      windowWeight -= candidate.weight;
+      candidate.segment = Segment.PROBATION;
+      probation.put(candidate.key, candidate);
+      probationWeight += candidate.weight;
+      candidate.candidate = true;
+      candidates.addLast(candidate);
+    }
+
+    while (getWeight() > maxWeightInBytes) {
+      Node victim = firstNonCandidate();
+      Node candidate = candidates.peekFirst();
+      if (victim == null && candidate == null) {
+        //only the window is left
+        victim = window.isEmpty() ? protectedSegment.values().iterator().next() : window.values().iterator().next();
+      }
+      else if (victim == null) {
+        victim = candidate;
+      }
+      else if (candidate != null) {
+        if (sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+          rejectionCount++;
+          victim = candidate;
+        }
+      }
+      if (victim == candidate) {
+        candidates.pollFirst();
+      }
+      removeNode(victim);
+      evictionCount++;
+    }
+    for (Node candidate : candidates) {
+      candidate.candidate = false;
+    }
+  }
+
+  /**
+   * Finds the least recently used entry of the main cache which is not a new candidate. The candidates were
+   * appended to probation, so probation has no other entry once its eldest entry is a candidate.
+   */
+  private Node firstNonCandidate()
+  {
+    if (!probation.isEmpty()) {
+      Node node = probation.values().iterator().next();
+      if (!node.candidate) {
+        return node;
+      }
+    }
+    if (!protectedSegment.isEmpty()) {
+      return protectedSegment.values().iterator().next();
+    }
+    return null;
+  }
+
+  private void removeNode(Node node)
+  {
+    data.remove(node.key);
+    keysToRefresh.remove(node.key);
+    switch (node.segment) {
+      case WINDOW:
+        window.remove(node.key);
+        break;
+      case PROBATION:
+        probation.remove(node.key);
+        break;
+      default:
+        protectedSegment.remove(node.key);
+        break;
+    }
+    updateSegmentWeight(node.segment, -node.weight);
+  }
+
+  private void updateSegmentWeight(Segment segment, long delta)
+  {
+    switch (segment) {
+      case WINDOW:
+        windowWeight += delta;
+        break;
+      case PROBATION:
+        probationWeight += delta;
+        break;
+      default:
+        protectedWeight += delta;
+        break;
+    }
+  }
+
+  /**
+   * Sets the max total size of the entries in bytes.
+   *
+   * @param maxWeightInBytes max size of the cache.
+   */
+  public void setMaxWeightInBytes(long maxWeightInBytes)
+  {
+    this.maxWeightInBytes = maxWeightInBytes;
+  }
+
+  public long getMaxWeightInBytes()
+  {
+    return maxWeightInBytes;
+  }
+
+  /**
+   * Sets the expiry time of cache entries in millis. 0 disables expiry.
+   *
+   * @param durationInMillis the duration after a write after which a cache entry is expired.
+   */
+  public void setEntryExpiryDurationInMillis(int durationInMillis)
+  {
+    this.entryExpiryDurationInMillis = durationInMillis;
+  }
+
+  public int getEntryExpiryDurationInMillis()
+  {
+    return entryExpiryDurationInMillis;
+  }
+
+  /**
+   * Sets how long before its expiry a read entry is scheduled for refresh.
+   *
+   * @param refreshAheadInMillis the duration before expiry.
+   */
+  public void setRefreshAheadInMillis(int refreshAheadInMillis)
+  {
+    this.refreshAheadInMillis = refreshAheadInMillis;
+  }
+
+  public int getRefreshAheadInMillis()
+  {
+    return refreshAheadInMillis;
+  }
+
+  /**
+   * Sets the size of the admission window as a percentage of the max weight.
+   *
+   * @param windowPercentage percentage of the max weight.
+   */
+  public void setWindowPercentage(int windowPercentage)
+  {
+    this.windowPercentage = windowPercentage;
+  }
+
+  public int getWindowPercentage()
+  {
+    return windowPercentage;
+  }
+
+  /**
+   * Sets the size of the protected segment as a percentage of the main cache.
+   *
+   * @param protectedPercentage percentage of the main cache.
+   */
+  public void setProtectedPercentage(int protectedPercentage)
+  {
+    this.protectedPercentage = protectedPercentage;
+  }
+
+  public int getProtectedPercentage()
+  {
+    return protectedPercentage;
+  }
+
+  public void setWeigher(@NotNull Weigher weigher)
+  {
+    this.weigher = weigher;
+  }
+
+  public Weigher getWeigher()
+  {
+    return weigher;
+  }
+
+  /**
+   * Computes the size of an entry.
+   */
+  public static interface Weigher
+  {
+    /**
+     * @param key   key
+     * @param value value
+     * @return estimated size of the entry in bytes.
+     */
+    long weigh(Object key, Object value);
+  }
+
+  /**
+   * Estimates the heap size of strings, numbers and byte arrays. Other objects are counted as a fixed size.
+   */
+  public static class DefaultWeigher implements Weigher, Serializable
+  {
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int OBJECT_SIZE = 64;
+
+    @Override
+    public long weigh(Object key, Object value)
+    {
+      return ENTRY_OVERHEAD + sizeOf(key) + sizeOf(value);
+    }
+
+    protected long sizeOf(Object object)
+    {
+      if (object instanceof CharSequence) {
+        return 40 + 2 * ((CharSequence) object).length();
+      }
+      if (object instanceof byte[]) {
+        return 16 + ((byte[]) object).length;
+      }
+      if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+        return 16;
+      }
+      return OBJECT_SIZE;
+    }
+
+    private static final long serialVersionUID = 201410191200L;
+  }
+
+  private static enum Segment
+  {
+    WINDOW, PROBATION, PROTECTED
+  }
+
+  private static class Node
+  {
+    final Object key;
+    Object value;
+    long weight;
+    long writeTime;
+    boolean refreshRequested;
+    Segment segment;
+    /**
+     * Set while the entry, pushed out of the window, competes for a place on probation.
+     */
+    boolean candidate;
+
+    Node(Object key, Object value, long weight, long writeTime)
+    {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.writeTime = writeTime;
+    }
+  }
+}
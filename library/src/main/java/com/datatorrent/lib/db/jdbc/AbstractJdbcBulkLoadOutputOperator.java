@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.db.jdbc;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
+import com.datatorrent.api.Context;
+
+import com.datatorrent.lib.db.AbstractAggregateTransactionableStoreOutputOperator;
+
+/**
+ * This is the base implementation of a JDBC output operator which writes the tuples of a window using the
+ * native bulk loader of the database.&nbsp;
+ * Subclasses should implement the methods which provide the table, the columns and the column values of a tuple.
+ * <p>
+ * Tuples are encoded into a tab separated text buffer as they arrive. The buffer is loaded with
+ * <code>LOAD DATA LOCAL INFILE</code> for MySQL/MemSQL and with <code>COPY ... FROM STDIN</code> for PostgreSQL,
+ * both of which understand the same text format: tab separated fields, newline separated rows, backslash escapes
+ * and \N for null.
+ * The MySQL path uses the statement api of Connector/J 8 or Connector/J 5. For any other database, or when the
+ * driver specific bulk api is not available, the operator falls back to batched prepared inserts.
+ * </p>
+ * <p>
+ * The buffer is loaded when it reaches maxBufferedRows and at the end of the window. All the loads of a window
+ * and the window id are committed in one transaction in the end window call, so the operator
+ * writes a tuple exactly once in the database.
+ * </p>
+ * @displayName Abstract JDBC Bulk Load Output
+ * @category Database
+ * @tags output operator, transactional, bulk load
+ *
+ * @param <T> type of tuple
+ * @since 2.0.0
+ */
+public abstract class AbstractJdbcBulkLoadOutputOperator<T> extends AbstractAggregateTransactionableStoreOutputOperator<T, JdbcTransactionalStore>
+{
+  public static final int DEFAULT_MAX_BUFFERED_ROWS = 100000;
+  public static final String NULL_VALUE = "\\N";
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  /**
+   * Statement interfaces of Connector/J 8 and Connector/J 5 which take the stream of LOAD DATA LOCAL INFILE.
+   */
+  static final String[] MYSQL_STATEMENT_CLASSES = {"com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement"};
+  static final String POSTGRESQL_CONNECTION_CLASS = "org.postgresql.PGConnection";
+
+  /**
+   * The bulk load paths supported by the operator.
+   */
+  public static enum Dialect
+  {
+    /**
+     * Detect the dialect from the database url.
+     */
+    AUTO,
+    /**
+     * LOAD DATA LOCAL INFILE. Used for MySQL and MemSQL.
+     */
+    MYSQL,
+    /**
+     * COPY FROM STDIN.
+     */
+    POSTGRESQL,
+    /**
+     * Batched prepared inserts.
+     */
+    GENERIC
+  }
+
+  @NotNull
+  private Dialect dialect;
+  @Min(1)
+  private int maxBufferedRows;
+
+  private transient Dialect resolvedDialect;
+  private transient StringBuilder buffer;
+  private transient List<Object[]> rows;
+  private transient int bufferedRows;
+  private transient Object[] rowValues;
+  private transient String bulkLoadCommand;
+  private transient Method setLocalInfileInputStream;
+  private transient PreparedStatement insertCommand;
+
+  public AbstractJdbcBulkLoadOutputOperator()
+  {
+    dialect = Dialect.AUTO;
+    maxBufferedRows = DEFAULT_MAX_BUFFERED_ROWS;
+    store = new JdbcTransactionalStore();
+  }
+
+  @Override
+  public void setup(Context.OperatorContext context)
+  {
+    super.setup(context);
+    String[] columns = getColumnNames();
+    rowValues = new Object[columns.length];
+    buffer = new StringBuilder();
+    rows = Lists.newArrayList();
+
+    resolvedDialect = resolveDialect(dialect, store.getDbUrl());
+    if (resolvedDialect == Dialect.MYSQL) {
+      setLocalInfileInputStream = findMethod(MYSQL_STATEMENT_CLASSES, "setLocalInfileInputStream", InputStream.class);
+    }
+    String columnList = Joiner.on(", ").join(columns);
+    switch (resolvedDialect) {
+      case MYSQL:
+        bulkLoadCommand = "LOAD DATA LOCAL INFILE 'dt_bulk_load' INTO TABLE " + getTableName() + " CHARACTER SET utf8 (" + columnList + ")";
+        break;
+      case POSTGRESQL:
+        bulkLoadCommand = "COPY " + getTableName() + " (" + columnList + ") FROM STDIN";
+        break;
+      default:
+        break;
+    }
+    logger.debug("dialect {} bulk command {}", resolvedDialect, bulkLoadCommand);
+
+    try {
+      String[] params = new String[columns.length];
+      Arrays.fill(params, "?");
+      insertCommand = store.getConnection().prepareStatement("INSERT INTO " + getTableName() + " (" + columnList + ") VALUES (" + Joiner.on(",").join(params) + ")");
+    }
+    catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void processTuple(T tuple)
+  {
+    if (resolvedDialect == Dialect.GENERIC) {
+      Object[] row = new Object[rowValues.length];
+      getColumnValues(tuple, row);
+      rows.add(row);
+    }
+    else {
+      getColumnValues(tuple, rowValues);
+      for (int i = 0; i < rowValues.length; i++) {
+        if (i > 0) {
+          buffer.append('\t');
+        }
+        appendValue(buffer, rowValues[i]);
+        rowValues[i] = null;
+      }
+      buffer.append('\n');
+    }
+    if (++bufferedRows >= maxBufferedRows) {
+      load();
+    }
+  }
+
+  @Override
+  public void storeAggregate()
+  {
+    if (bufferedRows > 0) {
+      load();
+    }
+  }
+
+  private void load()
+  {
+    logger.debug("loading {} rows", bufferedRows);
+    try {
+      switch (resolvedDialect) {
+        case MYSQL:
+          loadMySql();
+          break;
+        case POSTGRESQL:
+          loadPostgreSql();
+          break;
+        default:
+          loadGeneric();
+          break;
+      }
+    }
+    catch (SQLException e) {
+      throw new RuntimeException("bulk load", e);
+    }
+    buffer.setLength(0);
+    rows.clear();
+    bufferedRows = 0;
+  }
+
+  private void loadMySql() throws SQLException
+  {
+    Statement statement = store.getConnection().createStatement();
+    try {
+      Object mysqlStatement = statement.unwrap(setLocalInfileInputStream.getDeclaringClass());
+      setLocalInfileInputStream.invoke(mysqlStatement, new ByteArrayInputStream(buffer.toString().getBytes(UTF8)));
+      statement.execute(bulkLoadCommand);
+    }
+    catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+    catch (InvocationTargetException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    finally {
+      statement.close();
+    }
+  }
+
+  private void loadPostgreSql() throws SQLException
+  {
+    try {
+      Class<?> pgConnectionClass = Class.forName(POSTGRESQL_CONNECTION_CLASS);
+      Object pgConnection = store.getConnection().unwrap(pgConnectionClass);
+      Object copyManager = pgConnectionClass.getMethod("getCopyAPI").invoke(pgConnection);
+      Method copyIn = copyManager.getClass().getMethod("copyIn", String.class, Reader.class);
+      copyIn.invoke(copyManager, bulkLoadCommand, new StringReader(buffer.toString()));
+    }
+    catch (ClassNotFoundException e) {
+      throw new RuntimeException("postgresql driver not found", e);
+    }
+    catch (NoSuchMethodException e) {
+      throw new RuntimeException(e);
+    }
+    catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+    catch (InvocationTargetException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private void loadGeneric() throws SQLException
+  {
+    for (Object[] row : rows) {
+      for (int i = 0; i < row.length; i++) {
+        insertCommand.setObject(i + 1, row[i]);
+      }
+      insertCommand.addBatch();
+    }
+    insertCommand.executeBatch();
+    insertCommand.clearBatch();
+  }
+
+  /**
+   * Determines the bulk load path from the database url.
+   *
+   * @param dbUrl jdbc url
+   * @return the dialect, {@link Dialect#GENERIC} when the database has no supported bulk loader.
+   */
+  static Dialect detectDialect(String dbUrl)
+  {
+    if (dbUrl.startsWith("jdbc:mysql:") || dbUrl.startsWith("jdbc:mariadb:")) {
+      return Dialect.MYSQL;
+    }
+    if (dbUrl.startsWith("jdbc:postgresql:")) {
+      return Dialect.POSTGRESQL;
+    }
+    return Dialect.GENERIC;
+  }
+
+  /**
+   * Determines the bulk load path which can be used with the drivers on the class path.
+   *
+   * @param dialect configured dialect
+   * @param dbUrl   jdbc url
+   * @return the dialect, {@link Dialect#GENERIC} when the bulk api of the driver is not available.
+   */
+  static Dialect resolveDialect(Dialect dialect, String dbUrl)
+  {
+    Dialect resolved = dialect == Dialect.AUTO ? detectDialect(dbUrl) : dialect;
+    switch (resolved) {
+      case MYSQL:
+        if (findMethod(MYSQL_STATEMENT_CLASSES, "setLocalInfileInputStream", InputStream.class) == null) {
+          logger.warn("none of {} found, falling back to batched inserts", Arrays.toString(MYSQL_STATEMENT_CLASSES));
+          return Dialect.GENERIC;
+        }
+        return resolved;
+      case POSTGRESQL:
+        try {
+          Class.forName(POSTGRESQL_CONNECTION_CLASS);
+        }
+        catch (ClassNotFoundException e) {
+          logger.warn("{} not found, falling back to batched inserts", POSTGRESQL_CONNECTION_CLASS);
+          return Dialect.GENERIC;
+        }
+        return resolved;
+      default:
+        return resolved;
+    }
+  }
+
+  /**
+   * Finds a public method in the first of the classes which is on the class path and has it.
+   *
+   * @param classNames     names of the classes to look in, in order of preference
+   * @param name           method name
+   * @param parameterTypes method parameter types
+   * @return the method, null if none of the classes has it.
+   */
+  static Method findMethod(String[] classNames, String name, Class<?>... parameterTypes)
+  {
+    for (String className : classNames) {
+      try {
+        return Class.forName(className).getMethod(name, parameterTypes);
+      }
+      catch (ClassNotFoundException e) {
+        logger.debug("{} not found", className);
+      }
+      catch (NoSuchMethodException e) {
+        logger.debug("{} has no {}", className, name);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Appends a value in the text format of LOAD DATA and COPY.
+   *
+   * @param buffer buffer to append to
+   * @param value  value of a column
+   */
+  static void appendValue(StringBuilder buffer, Object value)
+  {
+    if (value == null) {
+      buffer.append(NULL_VALUE);
+      return;
+    }
+    if (value instanceof Boolean) {
+      buffer.append((Boolean)value ? '1' : '0');
+      return;
+    }
+    if (value instanceof Number) {
+      buffer.append(value);
+      return;
+    }
+    String text = value.toString();
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '\\':
+          buffer.append("\\\\");
+          break;
+        case '\t':
+          buffer.append("\\t");
+          break;
+        case '\n':
+          buffer.append("\\n");
+          break;
+        case '\r':
+          buffer.append("\\r");
+          break;
+        default:
+          buffer.append(c);
+      }
+    }
+  }
+
+  /**
+   * Sets the bulk load path.<br/>
+   * <b>Default:</b> {@link Dialect#AUTO}
+   *
+   * @param dialect dialect of the database.
+   */
+  public void setDialect(@NotNull Dialect dialect)
+  {
+    this.dialect = dialect;
+  }
+
+  public Dialect getDialect()
+  {
+    return dialect;
+  }
+
+  /**
+   * Sets the number of rows which are buffered before they are loaded into the database.<br/>
+   * <b>Default:</b> {@value #DEFAULT_MAX_BUFFERED_ROWS}
+   *
+   * @param maxBufferedRows maximum number of buffered rows.
+   */
+  public void setMaxBufferedRows(int maxBufferedRows)
+  {
+    this.maxBufferedRows = maxBufferedRows;
+  }
+
+  public int getMaxBufferedRows()
+  {
+    return maxBufferedRows;
+  }
+
+  /**
+   * Gets the table which is loaded.
+   *
+   * @return table name.
+   */
+  @Nonnull
+  protected abstract String getTableName();
+
+  /**
+   * Gets the columns which are loaded, in the order of the values provided by {@link #getColumnValues(Object, Object[])}.
+   *
+   * @return column names.
+   */
+  @Nonnull
+  protected abstract String[] getColumnNames();
+
+  /**
+   * Sets the values of the columns for a tuple.
+   *
+   * @param tuple  tuple
+   * @param values array which has one slot for every column returned by {@link #getColumnNames()}
+   */
+  protected abstract void getColumnValues(T tuple, Object[] values);
+
+  private static final Logger logger = LoggerFactory.getLogger(AbstractJdbcBulkLoadOutputOperator.class);
+}
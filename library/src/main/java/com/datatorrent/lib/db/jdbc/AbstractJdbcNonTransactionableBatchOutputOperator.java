@@ -18,9 +18,21 @@ package com.datatorrent.lib.db.jdbc;
 
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DAG;
+import com.datatorrent.common.util.NameableThreadFactory;
 import com.google.common.collect.Lists;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +41,12 @@ import org.slf4j.LoggerFactory;
  * A generic output operator which updates the database without using transactions
  * and batches writes to increase performance. This operator satisfies the exactly once constraint
  * when performing updates, but may not satisfy it when doing inserts.
+ * <p>
+ * When asyncBatchExecution is enabled, every full batch is handed to a pool of connectionPoolSize connections
+ * and executed there while the operator keeps accepting tuples. At most maxPendingBatches batches are outstanding
+ * at a time, and the committed window id is only stored after all the batches handed off in the window are executed.
+ * Batches may be executed out of order, so this mode should only be used when the order of the updates does not matter.
+ * </p>
  * @param <T> The type of tuples to be processed.
  * @param <S> The type of store to be used.
  *
@@ -38,10 +56,20 @@ public abstract class AbstractJdbcNonTransactionableBatchOutputOperator<T, S ext
 {
   private static transient final Logger LOG = LoggerFactory.getLogger(AbstractJdbcNonTransactionableBatchOutputOperator.class);
   public static final int DEFAULT_BATCH_SIZE = 1000;
+  public static final int DEFAULT_CONNECTION_POOL_SIZE = 2;
+  public static final int DEFAULT_MAX_PENDING_BATCHES = 4;
 
   @Min(1)
   private int batchSize = DEFAULT_BATCH_SIZE;
   private final List<T> tuples;
+  private boolean asyncBatchExecution;
+  @Min(1)
+  private int connectionPoolSize = DEFAULT_CONNECTION_POOL_SIZE;
+  @Min(1)
+  private int maxPendingBatches = DEFAULT_MAX_PENDING_BATCHES;
+  private transient ExecutorService batchExecutor;
+  private transient BlockingQueue<PreparedStatement> pooledCommands;
+  private transient Queue<Future<Void>> pendingBatches;
   private ProcessingMode mode;
   private transient boolean skipWindow = false;
   private long currentWindowId;
@@ -65,6 +93,52 @@ public abstract class AbstractJdbcNonTransactionableBatchOutputOperator<T, S ext
     return batchSize;
   }
 
+  /**
+   * When true, full batches are executed concurrently on a pool of connections while the operator keeps accepting tuples.
+   *
+   * @param asyncBatchExecution true to execute batches asynchronously.
+   */
+  public void setAsyncBatchExecution(boolean asyncBatchExecution)
+  {
+    this.asyncBatchExecution = asyncBatchExecution;
+  }
+
+  public boolean isAsyncBatchExecution()
+  {
+    return asyncBatchExecution;
+  }
+
+  /**
+   * Sets the number of connections used to execute batches when asyncBatchExecution is enabled.
+   *
+   * @param connectionPoolSize number of connections.
+   */
+  public void setConnectionPoolSize(int connectionPoolSize)
+  {
+    this.connectionPoolSize = connectionPoolSize;
+  }
+
+  public int getConnectionPoolSize()
+  {
+    return connectionPoolSize;
+  }
+
+  /**
+   * Sets the maximum number of batches which are handed off but not yet executed. Once the limit is reached
+   * the operator waits for the oldest batch to finish.
+   *
+   * @param maxPendingBatches maximum number of outstanding batches.
+   */
+  public void setMaxPendingBatches(int maxPendingBatches)
+  {
+    this.maxPendingBatches = maxPendingBatches;
+  }
+
+  public int getMaxPendingBatches()
+  {
+    return maxPendingBatches;
+  }
+
   public void setMode(ProcessingMode mode)
   {
     this.mode = mode;
@@ -97,13 +171,19 @@ public abstract class AbstractJdbcNonTransactionableBatchOutputOperator<T, S ext
       tuples.clear();
     }
 
-    try {
-      for (T tempTuple: tuples) {
-        setStatementParameters(updateCommand, tempTuple);
-        updateCommand.addBatch();
+    if (asyncBatchExecution) {
+      //Pending tuples stay in the list and go out with the next full batch.
+      setupConnectionPool();
+    }
+    else {
+      try {
+        for (T tempTuple: tuples) {
+          setStatementParameters(updateCommand, tempTuple);
+          updateCommand.addBatch();
+        }
+      } catch (SQLException e) {
+        throw new RuntimeException(e);
       }
-    } catch (SQLException e) {
-      throw new RuntimeException(e);
     }
 
     appId = context.getValue(DAG.APPLICATION_ID);
@@ -122,11 +202,54 @@ public abstract class AbstractJdbcNonTransactionableBatchOutputOperator<T, S ext
     LOG.debug("Committed window {}, current window {}", committedWindowId, currentWindowId);
   }
 
+  private void setupConnectionPool()
+  {
+    pendingBatches = Lists.newLinkedList();
+    pooledCommands = new ArrayBlockingQueue<PreparedStatement>(connectionPoolSize);
+    try {
+      for (int i = 0; i < connectionPoolSize; i++) {
+        Connection connection = DriverManager.getConnection(store.getDbUrl(), store.getConnectionProps());
+        connection.setAutoCommit(true);
+        pooledCommands.add(connection.prepareStatement(getUpdateCommand()));
+      }
+    }
+    catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+    batchExecutor = Executors.newFixedThreadPool(connectionPoolSize, new NameableThreadFactory("JdbcBatchExecutor"));
+  }
+
+  @Override
+  public void teardown()
+  {
+    if (batchExecutor != null) {
+      batchExecutor.shutdownNow();
+      batchExecutor = null;
+      for (PreparedStatement command : pooledCommands) {
+        try {
+          command.getConnection().close();
+        }
+        catch (SQLException e) {
+          LOG.warn("closing pooled connection", e);
+        }
+      }
+      pooledCommands.clear();
+    }
+    super.teardown();
+  }
+
   @Override
   public void endWindow()
   {
     super.endWindow();
 
+    if (asyncBatchExecution) {
+      //All the batches of this window must be in the database before the window is marked as committed.
+      while (!pendingBatches.isEmpty()) {
+        waitForOldestBatch();
+      }
+    }
+
     //This window is done so write it to the database.
     if(committedWindowId < currentWindowId) {
       store.storeCommittedWindowId(appId, operatorId, currentWindowId);
@@ -144,6 +267,13 @@ public abstract class AbstractJdbcNonTransactionableBatchOutputOperator<T, S ext
 
     tuples.add(tuple);
 
+    if (asyncBatchExecution) {
+      if (tuples.size() >= batchSize) {
+        submitBatch();
+      }
+      return;
+    }
+
     try {
       setStatementParameters(updateCommand, tuple);
       updateCommand.addBatch();
@@ -157,4 +287,47 @@ public abstract class AbstractJdbcNonTransactionableBatchOutputOperator<T, S ext
       throw new RuntimeException(e);
     }
   }
+
+  private void submitBatch()
+  {
+    if (pendingBatches.size() >= maxPendingBatches) {
+      waitForOldestBatch();
+    }
+    final List<T> batch = Lists.newArrayList(tuples);
+    tuples.clear();
+    pendingBatches.add(batchExecutor.submit(new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        PreparedStatement command = pooledCommands.take();
+        try {
+          for (T tuple : batch) {
+            setStatementParameters(command, tuple);
+            command.addBatch();
+          }
+          command.executeBatch();
+        }
+        finally {
+          command.clearBatch();
+          pooledCommands.put(command);
+        }
+        return null;
+      }
+
+    }));
+  }
+
+  private void waitForOldestBatch()
+  {
+    try {
+      pendingBatches.remove().get();
+    }
+    catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
 }
@@ -18,6 +18,12 @@ package com.datatorrent.lib.db.jdbc;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnull;
 import javax.validation.constraints.Min;
@@ -29,6 +35,7 @@ import com.google.common.collect.Lists;
 
 import com.datatorrent.api.Context;
 
+import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.lib.db.AbstractPassThruTransactionableStoreOutputOperator;
 
 /**
@@ -45,6 +52,12 @@ import com.datatorrent.lib.db.AbstractPassThruTransactionableStoreOutputOperator
  * This is needed for the recovery. The operator writes a tuple exactly once in the database, which is why
  * only when all the updates are executed, the transaction is committed in the end window call.
  * </p>
+ * <p>
+ * When asyncBatchExecution is enabled, a full batch is handed to a background thread which executes it while the
+ * operator keeps accepting tuples. At most maxPendingBatches batches are outstanding at a time. All the batches run on
+ * the single transactional connection of the store, so in endWindow the operator waits for the outstanding batches and
+ * then commits them together with the window id in one transaction.
+ * </p>
  * @displayName Abstract JDBC Transactionable Output
  * @category Database
  * @tags output operator, transactional
@@ -55,18 +68,25 @@ import com.datatorrent.lib.db.AbstractPassThruTransactionableStoreOutputOperator
 public abstract class AbstractJdbcTransactionableOutputOperator<T> extends AbstractPassThruTransactionableStoreOutputOperator<T, JdbcTransactionalStore>
 {
   protected static int DEFAULT_BATCH_SIZE = 1000;
+  protected static int DEFAULT_MAX_PENDING_BATCHES = 2;
 
   @Min(1)
   private int batchSize;
   private final List<T> tuples;
+  private boolean asyncBatchExecution;
+  @Min(1)
+  private int maxPendingBatches;
 
   private transient int batchStartIdx;
   private transient PreparedStatement updateCommand;
+  private transient ExecutorService batchExecutor;
+  private transient Queue<Future<Void>> pendingBatches;
 
   public AbstractJdbcTransactionableOutputOperator()
   {
     tuples = Lists.newArrayList();
     batchSize = DEFAULT_BATCH_SIZE;
+    maxPendingBatches = DEFAULT_MAX_PENDING_BATCHES;
     batchStartIdx = 0;
     store = new JdbcTransactionalStore();
   }
@@ -81,7 +101,19 @@ public abstract class AbstractJdbcTransactionableOutputOperator<T> extends Abstr
     catch (SQLException e) {
       throw new RuntimeException(e);
     }
+    if (asyncBatchExecution) {
+      pendingBatches = Lists.newLinkedList();
+      batchExecutor = Executors.newSingleThreadExecutor(new NameableThreadFactory("JdbcBatchExecutor"));
+    }
+  }
 
+  @Override
+  public void teardown()
+  {
+    if (batchExecutor != null) {
+      batchExecutor.shutdownNow();
+    }
+    super.teardown();
   }
 
   @Override
@@ -90,6 +122,11 @@ public abstract class AbstractJdbcTransactionableOutputOperator<T> extends Abstr
     if (tuples.size() - batchStartIdx > 0) {
       processBatch();
     }
+    if (asyncBatchExecution) {
+      while (!pendingBatches.isEmpty()) {
+        waitForOldestBatch();
+      }
+    }
     super.endWindow();
     tuples.clear();
     batchStartIdx = 0;
@@ -107,19 +144,56 @@ public abstract class AbstractJdbcTransactionableOutputOperator<T> extends Abstr
   private void processBatch()
   {
     logger.debug("start {} end {}", batchStartIdx, tuples.size());
-    try {
-      for (int i = batchStartIdx; i < tuples.size(); i++) {
-        setStatementParameters(updateCommand, tuples.get(i));
-        updateCommand.addBatch();
+    if (!asyncBatchExecution) {
+      try {
+        executeBatch(tuples.subList(batchStartIdx, tuples.size()));
+      }
+      catch (SQLException e) {
+        throw new RuntimeException("processing batch", e);
       }
-      updateCommand.executeBatch();
-      updateCommand.clearBatch();
+      finally {
+        batchStartIdx += tuples.size() - batchStartIdx;
+      }
+      return;
     }
-    catch (SQLException e) {
+
+    if (pendingBatches.size() >= maxPendingBatches) {
+      waitForOldestBatch();
+    }
+    final List<T> batch = Lists.newArrayList(tuples.subList(batchStartIdx, tuples.size()));
+    batchStartIdx = tuples.size();
+    pendingBatches.add(batchExecutor.submit(new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        executeBatch(batch);
+        return null;
+      }
+
+    }));
+  }
+
+  private void executeBatch(List<T> batch) throws SQLException
+  {
+    for (T tuple : batch) {
+      setStatementParameters(updateCommand, tuple);
+      updateCommand.addBatch();
+    }
+    updateCommand.executeBatch();
+    updateCommand.clearBatch();
+  }
+
+  private void waitForOldestBatch()
+  {
+    try {
+      pendingBatches.remove().get();
+    }
+    catch (InterruptedException e) {
       throw new RuntimeException("processing batch", e);
     }
-    finally {
-      batchStartIdx += tuples.size() - batchStartIdx;
+    catch (ExecutionException e) {
+      throw new RuntimeException("processing batch", e.getCause());
     }
   }
 
@@ -134,6 +208,44 @@ public abstract class AbstractJdbcTransactionableOutputOperator<T> extends Abstr
     this.batchSize = batchSize;
   }
 
+  public int getBatchSize()
+  {
+    return batchSize;
+  }
+
+  /**
+   * When true, full batches are executed on a background thread while the operator keeps accepting tuples.<br/>
+   * <b>Default:</b> false
+   *
+   * @param asyncBatchExecution true to execute batches asynchronously.
+   */
+  public void setAsyncBatchExecution(boolean asyncBatchExecution)
+  {
+    this.asyncBatchExecution = asyncBatchExecution;
+  }
+
+  public boolean isAsyncBatchExecution()
+  {
+    return asyncBatchExecution;
+  }
+
+  /**
+   * Sets the maximum number of batches which are handed off but not yet executed. Once the limit is reached
+   * the operator waits for the oldest batch to finish. Applies only when asyncBatchExecution is enabled.<br/>
+   * <b>Default:</b> {@value #DEFAULT_MAX_PENDING_BATCHES}
+   *
+   * @param maxPendingBatches maximum number of outstanding batches.
+   */
+  public void setMaxPendingBatches(int maxPendingBatches)
+  {
+    this.maxPendingBatches = maxPendingBatches;
+  }
+
+  public int getMaxPendingBatches()
+  {
+    return maxPendingBatches;
+  }
+
   /**
    * Gets the statement which insert/update the table in the database.
    *
@@ -20,6 +20,7 @@ import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.annotation.InputPortFieldAnnotation;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import com.datatorrent.lib.util.BaseNumberValueOperator;
+import com.datatorrent.lib.util.DoubleBatch;
 
 /**
  *
@@ -29,6 +30,7 @@ import com.datatorrent.lib.util.BaseNumberValueOperator;
  * this will yield incorrect result.<br>
  * <b>Ports</b>:<br>
  * <b>data</b>: expects V extends Number<br>
+ * <b>batch</b>: expects DoubleBatch, its values are processed like tuples on data<br>
  * <b>average</b>: emits V extends Number<br>
  * <br>
  * <br>
@@ -46,6 +48,7 @@ public class Average<V extends Number> extends BaseNumberValueOperator<V>
 	/**
 	 * Input port that takes a number.
 	 */
+	@InputPortFieldAnnotation(optional = true)
 	public final transient DefaultInputPort<V> data = new DefaultInputPort<V>()
 	{
 		/**
@@ -59,6 +62,20 @@ public class Average<V extends Number> extends BaseNumberValueOperator<V>
 		}
 	};
 
+	/**
+	 * Input port that receives batches of values, which are averaged with the tuples on data.
+	 */
+	@InputPortFieldAnnotation(optional = true)
+	public final transient DefaultInputPort<DoubleBatch> batch = new DefaultInputPort<DoubleBatch>()
+	{
+		@Override
+		public void process(DoubleBatch tuple)
+		{
+			sums += tuple.sum();
+			counts += tuple.size();
+		}
+	};
+
 	/**
 	 * Output port that emits average as a number.
 	 */
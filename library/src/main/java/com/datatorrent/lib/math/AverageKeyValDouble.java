@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.math;
+
+import gnu.trove.iterator.TObjectDoubleIterator;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.api.annotation.InputPortFieldAnnotation;
+import com.datatorrent.lib.util.BaseNumberKeyValueOperator;
+import com.datatorrent.lib.util.KeyValDoubleBatch;
+import com.datatorrent.lib.util.KeyValPair;
+import com.datatorrent.lib.util.TroveMaps.ObjectDoubleMap;
+import com.datatorrent.lib.util.TroveMaps.ObjectLongMap;
+
+/**
+ * Emits the average of values for each key at the end of window.&nbsp;
+ * It is a variant of {@link AverageKeyVal} for high volume streams: the sums and the counts are kept in open
+ * addressing maps of primitive values, so no object is allocated for a tuple unless its key is new.
+ * <p>
+ * This is an end window operator. Default unifier works as this operator follows sticky partition.<br> <br>
+ * <b>Ports</b>:<br>
+ * <b>data</b>: expects KeyValPair&lt;K,V extends Number&gt;<br>
+ * <b>batch</b>: expects KeyValDoubleBatch&lt;K&gt;, its pairs are processed like tuples on data. The operator cannot
+ * be partitioned when it is connected.<br>
+ * <b>average</b>: emits KeyValPair&lt;K,Double&gt;<br> <br>
+ * <b>Properties</b>:<br>
+ * <b>inverse</b>: If set to true the key in the filter will block tuple<br>
+ * <b>filterBy</b>: List of keys to filter on<br>
+ * <br>
+ * @displayName Average Key Value Double
+ * @category Math
+ * @tags average, number, key value
+ * @since 2.0.0
+ */
+public class AverageKeyValDouble<K> extends BaseNumberKeyValueOperator<K, Number>
+{
+  protected ObjectDoubleMap<K> sums = new ObjectDoubleMap<K>();
+  protected ObjectLongMap<K> counts = new ObjectLongMap<K>();
+
+  /**
+   * Input port that takes key value pairs, adds the values and counts them for each key.
+   */
+  @InputPortFieldAnnotation(optional = true)
+  public final transient DefaultInputPort<KeyValPair<K, ? extends Number>> data = new DefaultInputPort<KeyValPair<K, ? extends Number>>()
+  {
+    @Override
+    public void process(KeyValPair<K, ? extends Number> tuple)
+    {
+      K key = tuple.getKey();
+      if (!doprocessKey(key)) {
+        return;
+      }
+      add(key, tuple.getValue().doubleValue());
+    }
+
+    @Override
+    public StreamCodec<KeyValPair<K, ? extends Number>> getStreamCodec()
+    {
+      return getAverageStreamCodec();
+    }
+  };
+
+  /**
+   * Input port that receives batches of key value pairs, the values are averaged with the tuples on data.
+   * Batches are not partitioned by key, so the operator cannot be partitioned when batches are used.
+   */
+  @InputPortFieldAnnotation(optional = true)
+  public final transient DefaultInputPort<KeyValDoubleBatch<K>> batch = new DefaultInputPort<KeyValDoubleBatch<K>>()
+  {
+    @Override
+    public void process(KeyValDoubleBatch<K> tuple)
+    {
+      for (int i = 0; i < tuple.size(); i++) {
+        K key = tuple.getKey(i);
+        if (doprocessKey(key)) {
+          add(key, tuple.getValue(i));
+        }
+      }
+    }
+  };
+
+  /**
+   * Output port that emits the average of every key.
+   */
+  public final transient DefaultOutputPort<KeyValPair<K, Double>> average = new DefaultOutputPort<KeyValPair<K, Double>>();
+
+  private void add(K key, double value)
+  {
+    if (sums.adjustValue(key, value)) {
+      counts.increment(key);
+    }
+    else {
+      key = cloneKey(key);
+      sums.put(key, value);
+      counts.put(key, 1);
+    }
+  }
+
+  /**
+   * Fails when the batch port is connected and the operator is partitioned, the default unifier would emit a
+   * partial average of a key for every partition.
+   */
+  @Override
+  public void setup(OperatorContext context)
+  {
+    super.setup(context);
+    if (batch.isConnected() && context != null && context.getValue(OperatorContext.PARTITIONER) != null) {
+      throw new IllegalStateException("batch port cannot be connected to a partitioned operator");
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private StreamCodec<KeyValPair<K, ? extends Number>> getAverageStreamCodec()
+  {
+    return (StreamCodec)getKeyValPairStreamCodec();
+  }
+
+  /**
+   * Emits the average of every key and clears the sums and the counts.
+   */
+  @Override
+  public void endWindow()
+  {
+    for (TObjectDoubleIterator<K> iterator = sums.iterator(); iterator.hasNext();) {
+      iterator.advance();
+      average.emit(new KeyValPair<K, Double>(iterator.key(), iterator.value() / counts.get(iterator.key())));
+    }
+    sums.clear();
+    counts.clear();
+  }
+}
@@ -21,6 +21,7 @@ import com.datatorrent.api.Operator.Unifier;
 import com.datatorrent.api.annotation.InputPortFieldAnnotation;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import com.datatorrent.lib.util.BaseNumberValueOperator;
+import com.datatorrent.lib.util.DoubleBatch;
 
 /**
  *<p>
@@ -30,6 +31,7 @@ import com.datatorrent.lib.util.BaseNumberValueOperator;
  * <br>
  * <b>Ports</b>:<br>
  * <b>data</b>: expects V extends Number<br>
+ * <b>batch</b>: expects DoubleBatch, its values are processed like tuples on data<br>
  * <b>max</b>: emits V extends Number<br>
  * <br>
  * @displayName Maximum
@@ -42,6 +44,7 @@ public class Max<V extends Number> extends BaseNumberValueOperator<V> implements
   /**
    * Input port that takes a number and compares to max and stores the new max.
    */
+  @InputPortFieldAnnotation(optional = true)
   public final transient DefaultInputPort<V> data = new DefaultInputPort<V>()
   {
     /**
@@ -54,6 +57,21 @@ public class Max<V extends Number> extends BaseNumberValueOperator<V> implements
     }
   };
 
+  /**
+   * Input port that receives batches of values, the largest value of a batch is processed like a tuple on data.
+   */
+  @InputPortFieldAnnotation(optional = true)
+  public final transient DefaultInputPort<DoubleBatch> batch = new DefaultInputPort<DoubleBatch>()
+  {
+    @Override
+    public void process(DoubleBatch tuple)
+    {
+      if (!tuple.isEmpty()) {
+        Max.this.process(getValue(tuple.max()));
+      }
+    }
+  };
+
   /**
    * Unifier process function.
    */
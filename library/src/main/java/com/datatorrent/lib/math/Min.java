@@ -21,6 +21,7 @@ import com.datatorrent.api.Operator.Unifier;
 import com.datatorrent.api.annotation.InputPortFieldAnnotation;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import com.datatorrent.lib.util.BaseNumberValueOperator;
+import com.datatorrent.lib.util.DoubleBatch;
 
 /**
  * This operator implements Unifier interface and emits at end of window minimum of all values sub-classed from Number in the incoming stream.
@@ -30,6 +31,7 @@ import com.datatorrent.lib.util.BaseNumberValueOperator;
  * <br>
  * <b>Ports</b>:<br>
  * <b>data</b>: expects V extends Number<br>
+ * <b>batch</b>: expects DoubleBatch, its values are processed like tuples on data<br>
  * <b>min</b>: emits V extends Number<br>
  * <br>
  * <br>
@@ -51,6 +53,7 @@ public class Min<V extends Number> extends BaseNumberValueOperator<V> implements
 	 /**
           * Input port that takes a number and compares to min and stores the new min.
           */
+  @InputPortFieldAnnotation(optional = true)
   public final transient DefaultInputPort<V> data = new DefaultInputPort<V>()
   {
     /**
@@ -63,6 +66,21 @@ public class Min<V extends Number> extends BaseNumberValueOperator<V> implements
     }
   };
 
+  /**
+   * Input port that receives batches of values, the smallest value of a batch is processed like a tuple on data.
+   */
+  @InputPortFieldAnnotation(optional = true)
+  public final transient DefaultInputPort<DoubleBatch> batch = new DefaultInputPort<DoubleBatch>()
+  {
+    @Override
+    public void process(DoubleBatch tuple)
+    {
+      if (!tuple.isEmpty()) {
+        Min.this.process(getValue(tuple.min()));
+      }
+    }
+  };
+
   /**
    * Unifier process function.
    */
@@ -24,6 +24,7 @@ import com.datatorrent.api.Operator.Unifier;
 import com.datatorrent.api.annotation.InputPortFieldAnnotation;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import com.datatorrent.lib.util.BaseNumberValueOperator;
+import com.datatorrent.lib.util.DoubleBatch;
 import com.datatorrent.lib.util.UnifierSumNumber;
 
 /**
@@ -36,6 +37,7 @@ import com.datatorrent.lib.util.UnifierSumNumber;
  * <br>
  * <b>Ports</b>:<br>
  * <b>data</b>: expects V extends Number<br>
+ * <b>batch</b>: expects DoubleBatch, its values are processed like tuples on data<br>
  * <b>sum</b>: emits V extends Number<br>
  * <b>sumDouble</b>: emits Double<br>
  * <b>sumFloat</b>: emits Float<br>
@@ -74,6 +76,7 @@ public class Sum<V extends Number> extends BaseNumberValueOperator<V> implements
 	/**
 	 * Input port to receive data.&nbsp; It computes sum and count for each tuple.
 	 */
+	@InputPortFieldAnnotation(optional = true)
 	public final transient DefaultInputPort<V> data = new DefaultInputPort<V>()
 	{
 		/**
@@ -87,6 +90,22 @@ public class Sum<V extends Number> extends BaseNumberValueOperator<V> implements
 		}
 	};
 
+	/**
+	 * Input port that receives batches of values, which are added like tuples on data.
+	 */
+	@InputPortFieldAnnotation(optional = true)
+	public final transient DefaultInputPort<DoubleBatch> batch = new DefaultInputPort<DoubleBatch>()
+	{
+		@Override
+		public void process(DoubleBatch tuple)
+		{
+			if (!tuple.isEmpty()) {
+				sums += tuple.sum();
+				tupleAvailable = true;
+			}
+		}
+	};
+
 	/**
 	 * Unifier process override.
 	 */
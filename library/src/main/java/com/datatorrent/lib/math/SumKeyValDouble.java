@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.math;
+
+import gnu.trove.iterator.TObjectDoubleIterator;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.api.annotation.InputPortFieldAnnotation;
+import com.datatorrent.lib.util.BaseNumberKeyValueOperator;
+import com.datatorrent.lib.util.KeyValDoubleBatch;
+import com.datatorrent.lib.util.KeyValPair;
+import com.datatorrent.lib.util.TroveMaps.ObjectDoubleMap;
+
+/**
+ * Emits the sum of values for each key at the end of window, the sums are doubles.&nbsp;
+ * It is a variant of {@link SumKeyVal} for high volume streams: the sums are kept in an open addressing map of
+ * primitive doubles, so no object is allocated for a tuple unless its key is new.
+ * <p>
+ * This is an end window operator. Default unifier works as this operator follows sticky partition.<br> <br>
+ * <b>Ports</b>:<br>
+ * <b>data</b>: expects KeyValPair&lt;K,V extends Number&gt;<br>
+ * <b>batch</b>: expects KeyValDoubleBatch&lt;K&gt;, its pairs are processed like tuples on data. The operator cannot
+ * be partitioned when it is connected.<br>
+ * <b>sum</b>: emits KeyValPair&lt;K,Double&gt;<br> <br>
+ * <b>Properties</b>:<br>
+ * <b>inverse</b>: If set to true the key in the filter will block tuple<br>
+ * <b>filterBy</b>: List of keys to filter on<br>
+ * <b>cumulative</b>: boolean flag, if set the sum is not cleared at the end of window, hence generating cumulative
+ * sum across streaming windows. Only the sums of the keys received in the window are emitted. Default is false.<br>
+ * <br>
+ * @displayName Sum Key Value Double
+ * @category Math
+ * @tags numeric, sum, key value
+ * @since 2.0.0
+ */
+public class SumKeyValDouble<K> extends BaseNumberKeyValueOperator<K, Number>
+{
+  /**
+   * Sums of the keys in the window.
+   */
+  protected ObjectDoubleMap<K> sums = new ObjectDoubleMap<K>();
+
+  /**
+   * Sums of the keys over all windows, only used when cumulative.
+   */
+  protected ObjectDoubleMap<K> totals = new ObjectDoubleMap<K>();
+
+  /**
+   * Cumulative sum flag.
+   */
+  protected boolean cumulative = false;
+
+  /**
+   * Input port that takes key value pairs and adds the values for each key.
+   */
+  @InputPortFieldAnnotation(optional = true)
+  public final transient DefaultInputPort<KeyValPair<K, ? extends Number>> data = new DefaultInputPort<KeyValPair<K, ? extends Number>>()
+  {
+    @Override
+    public void process(KeyValPair<K, ? extends Number> tuple)
+    {
+      K key = tuple.getKey();
+      if (!doprocessKey(key)) {
+        return;
+      }
+      add(key, tuple.getValue().doubleValue());
+    }
+
+    @Override
+    public StreamCodec<KeyValPair<K, ? extends Number>> getStreamCodec()
+    {
+      return getSumStreamCodec();
+    }
+  };
+
+  /**
+   * Input port that receives batches of key value pairs, the values are added like tuples on data.
+   * Batches are not partitioned by key, so the operator cannot be partitioned when batches are used.
+   */
+  @InputPortFieldAnnotation(optional = true)
+  public final transient DefaultInputPort<KeyValDoubleBatch<K>> batch = new DefaultInputPort<KeyValDoubleBatch<K>>()
+  {
+    @Override
+    public void process(KeyValDoubleBatch<K> tuple)
+    {
+      for (int i = 0; i < tuple.size(); i++) {
+        K key = tuple.getKey(i);
+        if (doprocessKey(key)) {
+          add(key, tuple.getValue(i));
+        }
+      }
+    }
+  };
+
+  /**
+   * Output sum port.
+   */
+  public final transient DefaultOutputPort<KeyValPair<K, Double>> sum = new DefaultOutputPort<KeyValPair<K, Double>>();
+
+  private void add(K key, double value)
+  {
+    if (!sums.adjustValue(key, value)) {
+      sums.put(cloneKey(key), value);
+    }
+  }
+
+  /**
+   * Fails when the batch port is connected and the operator is partitioned, the default unifier would emit a
+   * partial sum of a key for every partition.
+   */
+  @Override
+  public void setup(OperatorContext context)
+  {
+    super.setup(context);
+    if (batch.isConnected() && context != null && context.getValue(OperatorContext.PARTITIONER) != null) {
+      throw new IllegalStateException("batch port cannot be connected to a partitioned operator");
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private StreamCodec<KeyValPair<K, ? extends Number>> getSumStreamCodec()
+  {
+    return (StreamCodec)getKeyValPairStreamCodec();
+  }
+
+  public boolean isCumulative()
+  {
+    return cumulative;
+  }
+
+  /**
+   * @param cumulative whether the sums are kept across windows.
+   */
+  public void setCumulative(boolean cumulative)
+  {
+    this.cumulative = cumulative;
+  }
+
+  /**
+   * Emits the sums of the keys received in the window.
+   */
+  @Override
+  public void endWindow()
+  {
+    for (TObjectDoubleIterator<K> iterator = sums.iterator(); iterator.hasNext();) {
+      iterator.advance();
+      K key = iterator.key();
+      double value = iterator.value();
+      if (cumulative) {
+        value = totals.adjustOrPutValue(key, value, value);
+      }
+      sum.emit(new KeyValPair<K, Double>(key, value));
+    }
+    sums.clear();
+  }
+}
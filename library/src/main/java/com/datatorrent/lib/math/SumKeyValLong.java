@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.math;
+
+import gnu.trove.iterator.TObjectLongIterator;
+
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.lib.util.BaseNumberKeyValueOperator;
+import com.datatorrent.lib.util.KeyValPair;
+import com.datatorrent.lib.util.TroveMaps.ObjectLongMap;
+
+/**
+ * Emits the sum of values for each key at the end of window, the sums are longs.&nbsp;
+ * It is a variant of {@link SumKeyVal} for high volume streams: the sums are kept in an open addressing map of
+ * primitive longs, so no object is allocated for a tuple unless its key is new. The values are truncated to longs.
+ * <p>
+ * This is an end window operator. Default unifier works as this operator follows sticky partition.<br> <br>
+ * <b>Ports</b>:<br>
+ * <b>data</b>: expects KeyValPair&lt;K,V extends Number&gt;<br>
+ * <b>sum</b>: emits KeyValPair&lt;K,Long&gt;<br> <br>
+ * <b>Properties</b>:<br>
+ * <b>inverse</b>: If set to true the key in the filter will block tuple<br>
+ * <b>filterBy</b>: List of keys to filter on<br>
+ * <b>cumulative</b>: boolean flag, if set the sum is not cleared at the end of window, hence generating cumulative
+ * sum across streaming windows. Only the sums of the keys received in the window are emitted. Default is false.<br>
+ * <br>
+ * @displayName Sum Key Value Long
+ * @category Math
+ * @tags numeric, sum, key value
+ * @since 2.0.0
+ */
+public class SumKeyValLong<K> extends BaseNumberKeyValueOperator<K, Number>
+{
+  /**
+   * Sums of the keys in the window.
+   */
+  protected ObjectLongMap<K> sums = new ObjectLongMap<K>();
+
+  /**
+   * Sums of the keys over all windows, only used when cumulative.
+   */
+  protected ObjectLongMap<K> totals = new ObjectLongMap<K>();
+
+  /**
+   * Cumulative sum flag.
+   */
+  protected boolean cumulative = false;
+
+  /**
+   * Input port that takes key value pairs and adds the values for each key.
+   */
+  public final transient DefaultInputPort<KeyValPair<K, ? extends Number>> data = new DefaultInputPort<KeyValPair<K, ? extends Number>>()
+  {
+    @Override
+    public void process(KeyValPair<K, ? extends Number> tuple)
+    {
+      K key = tuple.getKey();
+      if (!doprocessKey(key)) {
+        return;
+      }
+      long value = tuple.getValue().longValue();
+      if (!sums.adjustValue(key, value)) {
+        sums.put(cloneKey(key), value);
+      }
+    }
+
+    @Override
+    public StreamCodec<KeyValPair<K, ? extends Number>> getStreamCodec()
+    {
+      return getSumStreamCodec();
+    }
+  };
+
+  /**
+   * Output sum port.
+   */
+  public final transient DefaultOutputPort<KeyValPair<K, Long>> sum = new DefaultOutputPort<KeyValPair<K, Long>>();
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private StreamCodec<KeyValPair<K, ? extends Number>> getSumStreamCodec()
+  {
+    return (StreamCodec)getKeyValPairStreamCodec();
+  }
+
+  public boolean isCumulative()
+  {
+    return cumulative;
+  }
+
+  /**
+   * @param cumulative whether the sums are kept across windows.
+   */
+  public void setCumulative(boolean cumulative)
+  {
+    this.cumulative = cumulative;
+  }
+
+  /**
+   * Emits the sums of the keys received in the window.
+   */
+  @Override
+  public void endWindow()
+  {
+    for (TObjectLongIterator<K> iterator = sums.iterator(); iterator.hasNext();) {
+      iterator.advance();
+      K key = iterator.key();
+      long value = iterator.value();
+      if (cumulative) {
+        value = totals.adjustOrPutValue(key, value, value);
+      }
+      sum.emit(new KeyValPair<K, Long>(key, value));
+    }
+    sums.clear();
+  }
+}
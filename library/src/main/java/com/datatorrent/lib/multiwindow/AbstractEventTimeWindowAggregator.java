@@ -0,0 +1,514 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.datatorrent.api.BaseOperator;
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.annotation.InputPortFieldAnnotation;
+import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
+
+/**
+ * Aggregates the tuples of every key over windows of event time, the time at which the events of the tuples
+ * happened, instead of the streaming windows in which the tuples arrive.&nbsp;
+ * A tuple is aggregated into the windows of its event time as soon as it arrives, and the aggregate of a window is
+ * emitted once the watermark passes the end of the window.
+ * <p>
+ * The windows are tumbling, sliding or session windows. Tumbling windows of windowSize milliseconds do not overlap,
+ * sliding windows of windowSize milliseconds start every slide milliseconds, and the session windows of a key last
+ * until no tuple of the key arrives for sessionGap milliseconds, overlapping sessions of a key are merged.
+ * </p>
+ * <p>
+ * The watermark is the event time before which all the tuples are expected to have arrived. It is taken from the
+ * inputWatermark port when watermarks are sent to it, otherwise it is the largest event time seen minus
+ * maxOutOfOrderness. The watermark is advanced at the end of every streaming window and sent on the outputWatermark
+ * port after the aggregates of the windows it closes, so that operators downstream can close their windows too.
+ * </p>
+ * <p>
+ * The aggregate of a window is kept for allowedLateness milliseconds after the watermark passes its end. A late tuple
+ * of the window updates the aggregate, which is emitted again at the end of the streaming window. Tuples of windows
+ * which are not kept any more are emitted on the late port instead of being aggregated.
+ * </p>
+ * <p>
+ * <b>Properties</b>:<br>
+ * <b>K</b> is the type of the keys <br>
+ * <b>T</b> is the type of the tuples <br>
+ * <b>A</b> is the type of the aggregates <br>
+ * <b>windowType</b>: TUMBLING, SLIDING or SESSION<br>
+ * <b>windowSize</b>: Length of the tumbling and sliding windows in milliseconds<br>
+ * <b>slide</b>: Time between the starts of sliding windows in milliseconds<br>
+ * <b>sessionGap</b>: Time without tuples which ends a session in milliseconds<br>
+ * <b>allowedLateness</b>: Time a window is kept after the watermark passes its end in milliseconds<br>
+ * <b>maxOutOfOrderness</b>: Time the watermark is behind the largest event time without input watermarks<br>
+ * <br>
+ * <b>StateFull : Yes</b>, the aggregates of the windows are kept until they expire. <br>
+ * <b>Partitions : Yes</b>, when the stream is partitioned by key, as long as the input watermarks are sent to all
+ * the partitions. <br>
+ * </p>
+ *
+ * @displayName Abstract Event Time Window Aggregator
+ * @category Multi-Window
+ * @tags event time, watermark, window, session, aggregate
+ * @since 2.0.0
+ */
+public abstract class AbstractEventTimeWindowAggregator<K, T, A> extends BaseOperator
+{
+  public enum WindowType
+  {
+    TUMBLING, SLIDING, SESSION
+  }
+
+  @NotNull
+  private WindowType windowType = WindowType.TUMBLING;
+  @Min(1)
+  private long windowSize = 60000;
+  @Min(1)
+  private long slide = 60000;
+  @Min(1)
+  private long sessionGap = 60000;
+  @Min(0)
+  private long allowedLateness;
+  @Min(0)
+  private long maxOutOfOrderness;
+
+  /**
+   * Windows of every key with their aggregates, ordered by end.
+   */
+  private HashMap<K, TreeMap<EventTimeWindow, WindowState<A>>> windows = new HashMap<K, TreeMap<EventTimeWindow, WindowState<A>>>();
+  /**
+   * Keys which have windows to emit or to remove once the watermark passes a time.
+   */
+  private TreeMap<Long, HashSet<K>> timers = new TreeMap<Long, HashSet<K>>();
+  private long watermark = Long.MIN_VALUE;
+  private long maxEventTime = Long.MIN_VALUE;
+  private long upstreamWatermark = Long.MIN_VALUE;
+
+  /**
+   * Aggregate of a window of a key.
+   *
+   * @param <A> type of the aggregate.
+   */
+  public static class WindowState<A>
+  {
+    A aggregate;
+    /**
+     * Whether the aggregate was emitted since it was last changed.
+     */
+    boolean fired;
+    /**
+     * Whether the aggregate was ever emitted.
+     */
+    boolean emitted;
+  }
+
+  /**
+   * Input port that takes the tuples.
+   */
+  public final transient DefaultInputPort<T> data = new DefaultInputPort<T>()
+  {
+    @Override
+    public void process(T tuple)
+    {
+      processTuple(tuple);
+    }
+  };
+
+  /**
+   * Input port that takes the watermarks of the upstream operators.
+   */
+  @InputPortFieldAnnotation(optional = true)
+  public final transient DefaultInputPort<Long> inputWatermark = new DefaultInputPort<Long>()
+  {
+    @Override
+    public void process(Long tuple)
+    {
+      if (tuple > upstreamWatermark) {
+        upstreamWatermark = tuple;
+      }
+    }
+  };
+
+  /**
+   * Output port that emits the watermark when it advances.
+   */
+  @OutputPortFieldAnnotation(optional = true)
+  public final transient DefaultOutputPort<Long> outputWatermark = new DefaultOutputPort<Long>();
+
+  /**
+   * Output port that emits the tuples which arrive after their windows expired.
+   */
+  @OutputPortFieldAnnotation(optional = true)
+  public final transient DefaultOutputPort<T> late = new DefaultOutputPort<T>();
+
+  /**
+   * @return key of the tuple.
+   */
+  protected abstract K getKey(T tuple);
+
+  /**
+   * @return event time of the tuple in milliseconds.
+   */
+  protected abstract long getTime(T tuple);
+
+  /**
+   * @return a new aggregate of no tuples.
+   */
+  protected abstract A createAggregate();
+
+  /**
+   * Adds a tuple to an aggregate, tuples are not always added in the order of their event time.
+   *
+   * @param aggregate aggregate, it may be changed.
+   * @param tuple tuple to add.
+   */
+  protected abstract void aggregate(A aggregate, T tuple);
+
+  /**
+   * Combines the aggregates of two sessions which are merged, only called for session windows. Operators which do
+   * not override it cannot be set up with session windows.
+   *
+   * @param aggregate1 aggregate of a session, it may be changed and returned.
+   * @param aggregate2 aggregate of another session, it should not be changed.
+   * @return aggregate of the tuples of both sessions.
+   */
+  protected A merge(A aggregate1, A aggregate2)
+  {
+    throw new UnsupportedOperationException("session windows need merge");
+  }
+
+  /**
+   * Emits the aggregate of a window of a key.
+   *
+   * @param key key.
+   * @param window window.
+   * @param aggregate aggregate of the tuples of the key in the window, it should not be changed.
+   * @param update whether the aggregate of the window was emitted before and late tuples changed it.
+   */
+  protected abstract void emitAggregate(K key, EventTimeWindow window, A aggregate, boolean update);
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    if (windowType == WindowType.SLIDING && slide > windowSize) {
+      throw new IllegalArgumentException("slide " + slide + " is longer than window size " + windowSize);
+    }
+    if (windowType == WindowType.SESSION && !isMergeOverridden()) {
+      throw new IllegalArgumentException("session windows need merge, " + getClass().getName() + " does not override it");
+    }
+  }
+
+  private boolean isMergeOverridden()
+  {
+    for (Class<?> clazz = getClass(); clazz != AbstractEventTimeWindowAggregator.class; clazz = clazz.getSuperclass()) {
+      try {
+        clazz.getDeclaredMethod("merge", Object.class, Object.class);
+        return true;
+      }
+      catch (NoSuchMethodException e) {
+        // not in this class
+      }
+    }
+    return false;
+  }
+
+  protected void processTuple(T tuple)
+  {
+    K key = getKey(tuple);
+    long time = getTime(tuple);
+    if (time > maxEventTime) {
+      maxEventTime = time;
+    }
+    boolean added;
+    if (windowType == WindowType.SESSION) {
+      added = addToSession(key, time, tuple);
+    }
+    else {
+      added = false;
+      long step = windowType == WindowType.SLIDING ? slide : windowSize;
+      // the windows of the tuple from the latest one, which expires last
+      for (long start = time - ((time % step) + step) % step; start > time - windowSize; start -= step) {
+        EventTimeWindow window = new EventTimeWindow(start, start + windowSize);
+        if (isExpired(window)) {
+          break;
+        }
+        WindowState<A> state = getWindowState(key, window);
+        aggregate(state.aggregate, tuple);
+        changed(key, window, state);
+        added = true;
+      }
+    }
+    if (!added && late.isConnected()) {
+      late.emit(tuple);
+    }
+  }
+
+  private boolean isExpired(EventTimeWindow window)
+  {
+    return watermark != Long.MIN_VALUE && window.getEnd() + allowedLateness <= watermark;
+  }
+
+  private WindowState<A> getWindowState(K key, EventTimeWindow window)
+  {
+    TreeMap<EventTimeWindow, WindowState<A>> keyWindows = windows.get(key);
+    if (keyWindows == null) {
+      keyWindows = new TreeMap<EventTimeWindow, WindowState<A>>();
+      windows.put(key, keyWindows);
+    }
+    WindowState<A> state = keyWindows.get(window);
+    if (state == null) {
+      state = new WindowState<A>();
+      state.aggregate = createAggregate();
+      keyWindows.put(window, state);
+      addTimers(key, window);
+    }
+    return state;
+  }
+
+  private void addTimers(K key, EventTimeWindow window)
+  {
+    addTimer(window.getEnd(), key);
+    if (allowedLateness > 0) {
+      addTimer(window.getEnd() + allowedLateness, key);
+    }
+  }
+
+  private void addTimer(long time, K key)
+  {
+    HashSet<K> keys = timers.get(time);
+    if (keys == null) {
+      keys = new HashSet<K>();
+      timers.put(time, keys);
+    }
+    keys.add(key);
+  }
+
+  /**
+   * Marks an aggregate changed, the aggregate of a window which was emitted is emitted again at the end of the
+   * streaming window.
+   */
+  private void changed(K key, EventTimeWindow window, WindowState<A> state)
+  {
+    if (state.fired) {
+      state.fired = false;
+      addTimer(window.getEnd(), key);
+    }
+  }
+
+  /**
+   * Adds a tuple to the session of its key which it extends, merging the sessions it joins.
+   *
+   * @return whether the tuple was added.
+   */
+  private boolean addToSession(K key, long time, T tuple)
+  {
+    long start = time;
+    long end = time + sessionGap;
+    if (isExpired(new EventTimeWindow(start, end))) {
+      return false;
+    }
+    TreeMap<EventTimeWindow, WindowState<A>> keyWindows = windows.get(key);
+    if (keyWindows == null) {
+      keyWindows = new TreeMap<EventTimeWindow, WindowState<A>>();
+      windows.put(key, keyWindows);
+    }
+    WindowState<A> state = null;
+    // the sessions which end after the time may overlap
+    Iterator<Map.Entry<EventTimeWindow, WindowState<A>>> iterator =
+        keyWindows.tailMap(new EventTimeWindow(Long.MAX_VALUE, time), false).entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<EventTimeWindow, WindowState<A>> entry = iterator.next();
+      EventTimeWindow session = entry.getKey();
+      if (session.getStart() >= time + sessionGap) {
+        continue;
+      }
+      start = Math.min(start, session.getStart());
+      end = Math.max(end, session.getEnd());
+      if (state == null) {
+        state = entry.getValue();
+      }
+      else {
+        state.aggregate = merge(state.aggregate, entry.getValue().aggregate);
+        state.emitted |= entry.getValue().emitted;
+      }
+      iterator.remove();
+    }
+    if (state == null) {
+      state = new WindowState<A>();
+      state.aggregate = createAggregate();
+    }
+    aggregate(state.aggregate, tuple);
+    state.fired = false;
+    EventTimeWindow session = new EventTimeWindow(start, end);
+    keyWindows.put(session, state);
+    addTimers(key, session);
+    return true;
+  }
+
+  /**
+   * Advances the watermark, emits the aggregates of the windows it closes or which changed, then the watermark.
+   */
+  @Override
+  public void endWindow()
+  {
+    long newWatermark;
+    if (upstreamWatermark != Long.MIN_VALUE) {
+      newWatermark = upstreamWatermark;
+    }
+    else {
+      newWatermark = maxEventTime == Long.MIN_VALUE ? Long.MIN_VALUE : maxEventTime - maxOutOfOrderness;
+    }
+    boolean advanced = newWatermark > watermark;
+    if (advanced) {
+      watermark = newWatermark;
+    }
+    while (!timers.isEmpty() && timers.firstKey() <= watermark) {
+      for (K key : timers.pollFirstEntry().getValue()) {
+        fire(key);
+      }
+    }
+    if (advanced && outputWatermark.isConnected()) {
+      outputWatermark.emit(watermark);
+    }
+  }
+
+  /**
+   * Emits the aggregates of the windows of a key which the watermark passed and removes the expired windows.
+   */
+  private void fire(K key)
+  {
+    TreeMap<EventTimeWindow, WindowState<A>> keyWindows = windows.get(key);
+    if (keyWindows == null) {
+      return;
+    }
+    Iterator<Map.Entry<EventTimeWindow, WindowState<A>>> iterator = keyWindows.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<EventTimeWindow, WindowState<A>> entry = iterator.next();
+      EventTimeWindow window = entry.getKey();
+      if (window.getEnd() > watermark) {
+        break;
+      }
+      WindowState<A> state = entry.getValue();
+      if (!state.fired) {
+        emitAggregate(key, window, state.aggregate, state.emitted);
+        state.fired = true;
+        state.emitted = true;
+      }
+      if (isExpired(window)) {
+        iterator.remove();
+      }
+    }
+    if (keyWindows.isEmpty()) {
+      windows.remove(key);
+    }
+  }
+
+  /**
+   * @return event time before which all the tuples are expected to have arrived, Long.MIN_VALUE before any tuple.
+   */
+  public long getWatermark()
+  {
+    return watermark;
+  }
+
+  public WindowType getWindowType()
+  {
+    return windowType;
+  }
+
+  /**
+   * @param windowType type of the windows.
+   */
+  public void setWindowType(WindowType windowType)
+  {
+    this.windowType = windowType;
+  }
+
+  public long getWindowSize()
+  {
+    return windowSize;
+  }
+
+  /**
+   * @param windowSize length of the tumbling and sliding windows in milliseconds.
+   */
+  public void setWindowSize(long windowSize)
+  {
+    this.windowSize = windowSize;
+  }
+
+  public long getSlide()
+  {
+    return slide;
+  }
+
+  /**
+   * @param slide time between the starts of sliding windows in milliseconds.
+   */
+  public void setSlide(long slide)
+  {
+    this.slide = slide;
+  }
+
+  public long getSessionGap()
+  {
+    return sessionGap;
+  }
+
+  /**
+   * @param sessionGap time without tuples of a key which ends its session in milliseconds.
+   */
+  public void setSessionGap(long sessionGap)
+  {
+    this.sessionGap = sessionGap;
+  }
+
+  public long getAllowedLateness()
+  {
+    return allowedLateness;
+  }
+
+  /**
+   * @param allowedLateness time a window is kept after the watermark passes its end in milliseconds.
+   */
+  public void setAllowedLateness(long allowedLateness)
+  {
+    this.allowedLateness = allowedLateness;
+  }
+
+  public long getMaxOutOfOrderness()
+  {
+    return maxOutOfOrderness;
+  }
+
+  /**
+   * @param maxOutOfOrderness time the watermark is behind the largest event time when no watermarks are sent to the
+   * inputWatermark port, in milliseconds.
+   */
+  public void setMaxOutOfOrderness(long maxOutOfOrderness)
+  {
+    this.maxOutOfOrderness = maxOutOfOrderness;
+  }
+}
@@ -22,6 +22,7 @@ import javax.validation.constraints.Min;
 import com.datatorrent.api.BaseOperator;
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.StreamCodec;
 import com.datatorrent.api.annotation.InputPortFieldAnnotation;
 
 /**
@@ -52,6 +53,16 @@ public abstract class AbstractSlidingWindow<T, S> extends BaseOperator
 		{
 			processDataTuple(tuple);
 		}
+
+		@Override
+		public StreamCodec<T> getStreamCodec()
+		{
+			StreamCodec<T> streamCodec = AbstractSlidingWindow.this.getStreamCodec();
+			if (streamCodec == null) {
+				return super.getStreamCodec();
+			}
+			return streamCodec;
+		}
 	};
 
 	protected ArrayList<S> states = null;
@@ -134,7 +145,7 @@ public abstract class AbstractSlidingWindow<T, S> extends BaseOperator
 	}
 
 	/**
-	 * Sets up internal state structure
+	 * Sets up internal state structure, the states restored from a checkpoint are kept.
 	 *
 	 * @param context
 	 */
@@ -142,6 +153,9 @@ public abstract class AbstractSlidingWindow<T, S> extends BaseOperator
 	public void setup(OperatorContext context)
 	{
 	  super.setup(context);
+		if (states != null && states.size() == windowSize) {
+			return;
+		}
 		states = new ArrayList<S>(windowSize);
 		//initialize the sliding window state to null
 		for (int i = 0; i < windowSize; i++) {
@@ -149,4 +163,14 @@ public abstract class AbstractSlidingWindow<T, S> extends BaseOperator
 		}
 		currentCursor = -1;
 	}
+
+	/**
+	 * Provides ability for implemented operators to provide their own stream codec for the data port
+	 *
+	 * @return stream codec, null for the default codec
+	 */
+	protected StreamCodec<T> getStreamCodec()
+	{
+		return null;
+	}
 }
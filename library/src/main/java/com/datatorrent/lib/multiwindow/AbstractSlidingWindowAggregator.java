@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Aggregates the values of every key over a sliding window incrementally.&nbsp;
+ * Every streaming window is a pane: the values of a key in a pane are aggregated as they arrive, and at the end of
+ * the window the aggregates of the panes of the sliding window are combined without going over the panes again.
+ * <p>
+ * When the aggregate is invertible, like a sum or a count, the aggregate of a key is kept for the whole sliding window
+ * and the aggregate of the expired pane is subtracted from it. Otherwise, like for a minimum or a maximum, the panes of a
+ * key are kept in a queue made of two stacks, the older stack holds the aggregates of every pane with all the newer
+ * panes of the stack, so the aggregate of the sliding window is the combination of two aggregates. Both take constant
+ * amortized time per key and window, however large the window size is. Only the panes in which a key has values are
+ * kept for that key.
+ * </p>
+ * <p>
+ * <b>Properties</b>:<br>
+ * <b>K</b> is the type of the keys <br>
+ * <b>V</b> is the type of the values <br>
+ * <b>A</b> is the type of the aggregates <br>
+ * <b>windowSize</b>: Number of streaming windows in the sliding window<br>
+ * <br>
+ * </p>
+ *
+ * @displayName Abstract Sliding Window Aggregator
+ * @category Multi-Window
+ * @tags sliding window, aggregate, key value
+ * @since 2.0.0
+ */
+public abstract class AbstractSlidingWindowAggregator<K, V, A> extends AbstractSlidingWindow<KeyValPair<K, V>, HashMap<K, A>>
+{
+  /**
+   * Aggregates of the panes of the sliding window for every key which has values in the sliding window.
+   */
+  protected HashMap<K, PaneQueue<A>> aggregates = new HashMap<K, PaneQueue<A>>();
+
+  /**
+   * Aggregates of the panes of a key in the sliding window.
+   *
+   * @param <A> type of the aggregates.
+   */
+  public static class PaneQueue<A>
+  {
+    /**
+     * Number of panes in the queue.
+     */
+    int size;
+    /**
+     * Aggregate of all the panes when the aggregate is invertible, of the panes of the newer stack otherwise.
+     */
+    A aggregate;
+    /**
+     * Panes of the newer stack, the newest last.
+     */
+    ArrayList<A> newer;
+    /**
+     * Aggregates of every pane of the older stack with the newer panes of the stack, the oldest last.
+     */
+    ArrayList<A> older;
+  }
+
+  /**
+   * @return a new aggregate of no values.
+   */
+  protected abstract A createAggregate();
+
+  /**
+   * Adds a value to the aggregate of a pane.
+   *
+   * @param aggregate aggregate of the pane, it may be changed.
+   * @param value value to add.
+   */
+  protected abstract void aggregate(A aggregate, V value);
+
+  /**
+   * Combines the aggregates of two sets of values.
+   *
+   * @param older aggregate of the older values, it should not be changed.
+   * @param newer aggregate of the newer values, it should not be changed.
+   * @return a new aggregate of all the values.
+   */
+  protected abstract A merge(A older, A newer);
+
+  /**
+   * Override with {@link #subtract(Object, Object)} when the values of an aggregate can be removed from it.
+   *
+   * @return whether the aggregate is invertible.
+   */
+  protected boolean isInvertible()
+  {
+    return false;
+  }
+
+  /**
+   * Removes the values of an expired pane from an aggregate, only called when the aggregate is invertible.
+   *
+   * @param aggregate aggregate of the values, it may be changed.
+   * @param expired aggregate of the expired values.
+   * @return aggregate without the expired values.
+   */
+  protected A subtract(A aggregate, A expired)
+  {
+    throw new UnsupportedOperationException("aggregate is not invertible");
+  }
+
+  /**
+   * Emits the aggregate of a key over the sliding window.
+   *
+   * @param key key.
+   * @param aggregate aggregate of the values of the key, it should not be changed.
+   */
+  protected abstract void emitAggregate(K key, A aggregate);
+
+  @Override
+  public HashMap<K, A> createWindowState()
+  {
+    return new HashMap<K, A>();
+  }
+
+  @Override
+  protected void processDataTuple(KeyValPair<K, V> tuple)
+  {
+    HashMap<K, A> pane = states.get(currentCursor);
+    A aggregate = pane.get(tuple.getKey());
+    if (aggregate == null) {
+      aggregate = createAggregate();
+      pane.put(tuple.getKey(), aggregate);
+    }
+    aggregate(aggregate, tuple.getValue());
+  }
+
+  /**
+   * Removes the expired pane from the aggregates of its keys.
+   */
+  @Override
+  public void beginWindow(long windowId)
+  {
+    super.beginWindow(windowId);
+    if (lastExpiredWindowState == null) {
+      return;
+    }
+    for (Map.Entry<K, A> entry : lastExpiredWindowState.entrySet()) {
+      PaneQueue<A> queue = aggregates.get(entry.getKey());
+      if (--queue.size == 0) {
+        aggregates.remove(entry.getKey());
+      }
+      else if (isInvertible()) {
+        queue.aggregate = subtract(queue.aggregate, entry.getValue());
+      }
+      else {
+        if (queue.older.isEmpty()) {
+          // move the newer stack to the older stack, aggregating from the newest pane
+          A aggregate = null;
+          for (int i = queue.newer.size() - 1; i >= 0; i--) {
+            aggregate = aggregate == null ? queue.newer.get(i) : merge(queue.newer.get(i), aggregate);
+            queue.older.add(aggregate);
+          }
+          queue.newer.clear();
+          queue.aggregate = null;
+        }
+        queue.older.remove(queue.older.size() - 1);
+      }
+    }
+  }
+
+  /**
+   * Adds the pane of the window to the aggregates of its keys and emits the aggregate of every key.
+   */
+  @Override
+  public void endWindow()
+  {
+    for (Map.Entry<K, A> entry : states.get(currentCursor).entrySet()) {
+      PaneQueue<A> queue = aggregates.get(entry.getKey());
+      if (queue == null) {
+        queue = new PaneQueue<A>();
+        if (!isInvertible()) {
+          queue.newer = new ArrayList<A>();
+          queue.older = new ArrayList<A>();
+        }
+        aggregates.put(entry.getKey(), queue);
+      }
+      queue.size++;
+      if (isInvertible()) {
+        queue.aggregate = queue.aggregate == null ? merge(createAggregate(), entry.getValue()) : merge(queue.aggregate, entry.getValue());
+      }
+      else {
+        queue.newer.add(entry.getValue());
+        queue.aggregate = queue.aggregate == null ? entry.getValue() : merge(queue.aggregate, entry.getValue());
+      }
+    }
+    for (Iterator<Map.Entry<K, PaneQueue<A>>> iterator = aggregates.entrySet().iterator(); iterator.hasNext();) {
+      Map.Entry<K, PaneQueue<A>> entry = iterator.next();
+      PaneQueue<A> queue = entry.getValue();
+      A aggregate = queue.aggregate;
+      if (!isInvertible() && !queue.older.isEmpty()) {
+        A older = queue.older.get(queue.older.size() - 1);
+        aggregate = aggregate == null ? older : merge(older, aggregate);
+      }
+      emitAggregate(entry.getKey(), aggregate);
+    }
+  }
+}
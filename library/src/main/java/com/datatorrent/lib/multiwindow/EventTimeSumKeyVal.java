@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+import org.apache.commons.lang.mutable.MutableDouble;
+
+import com.datatorrent.api.DefaultOutputPort;
+
+/**
+ * Computes the sum of the values of every key over windows of event time.&nbsp;
+ * See {@link AbstractEventTimeWindowAggregator} for the windows, the watermark and the late tuples.
+ * <p>
+ * <b>Ports</b>:<br>
+ * <b>data</b>: expects TimedKeyValPair&lt;K,V extends Number&gt;<br>
+ * <b>inputWatermark</b>: expects Long, the watermarks of the upstream operators<br>
+ * <b>sum</b>: emits WindowedKeyValPair&lt;K,Double&gt; with the sum of a key in a window once the watermark passes
+ * its end, and again when late tuples change it<br>
+ * <b>outputWatermark</b>: emits Long, the watermark after the sums of the windows it closes<br>
+ * <b>late</b>: emits the TimedKeyValPair&lt;K,V&gt; which arrive after their windows expired<br>
+ * <br>
+ * </p>
+ *
+ * @displayName Event Time Sum Key Value
+ * @category Multi-Window
+ * @tags event time, watermark, window, session, key value, sum
+ * @since 2.0.0
+ */
+public class EventTimeSumKeyVal<K, V extends Number> extends AbstractEventTimeWindowAggregator<K, TimedKeyValPair<K, V>, MutableDouble>
+{
+  /**
+   * Output port that emits the sum of every key in every window.
+   */
+  public final transient DefaultOutputPort<WindowedKeyValPair<K, Double>> sum = new DefaultOutputPort<WindowedKeyValPair<K, Double>>();
+
+  @Override
+  protected K getKey(TimedKeyValPair<K, V> tuple)
+  {
+    return tuple.getKey();
+  }
+
+  @Override
+  protected long getTime(TimedKeyValPair<K, V> tuple)
+  {
+    return tuple.getTime();
+  }
+
+  @Override
+  protected MutableDouble createAggregate()
+  {
+    return new MutableDouble(0);
+  }
+
+  @Override
+  protected void aggregate(MutableDouble aggregate, TimedKeyValPair<K, V> tuple)
+  {
+    aggregate.add(tuple.getValue().doubleValue());
+  }
+
+  @Override
+  protected MutableDouble merge(MutableDouble aggregate1, MutableDouble aggregate2)
+  {
+    aggregate1.add(aggregate2.doubleValue());
+    return aggregate1;
+  }
+
+  @Override
+  protected void emitAggregate(K key, EventTimeWindow window, MutableDouble aggregate, boolean update)
+  {
+    sum.emit(new WindowedKeyValPair<K, Double>(key, aggregate.doubleValue(), window, update));
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+/**
+ * A window of event time, from its start included to its end excluded, in milliseconds.&nbsp;
+ * Windows are ordered by end, then by start.
+ *
+ * @since 2.0.0
+ */
+public class EventTimeWindow implements Comparable<EventTimeWindow>
+{
+  private long start;
+  private long end;
+
+  @SuppressWarnings("unused")
+  private EventTimeWindow()
+  {
+    //for kryo
+  }
+
+  /**
+   * @param start first time of the window.
+   * @param end time after the window.
+   */
+  public EventTimeWindow(long start, long end)
+  {
+    this.start = start;
+    this.end = end;
+  }
+
+  public long getStart()
+  {
+    return start;
+  }
+
+  public long getEnd()
+  {
+    return end;
+  }
+
+  @Override
+  public int compareTo(EventTimeWindow window)
+  {
+    if (end != window.end) {
+      return end < window.end ? -1 : 1;
+    }
+    return start < window.start ? -1 : (start == window.start ? 0 : 1);
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if (!(o instanceof EventTimeWindow)) {
+      return false;
+    }
+    EventTimeWindow window = (EventTimeWindow)o;
+    return start == window.start && end == window.end;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return (int)(start ^ (start >>> 32)) * 31 + (int)(end ^ (end >>> 32));
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[" + start + ", " + end + ")";
+  }
+}
@@ -24,6 +24,8 @@ import com.datatorrent.lib.util.KeyValPair;
 
 /**
  * Calculates simple moving average (SMA) of last N window. <br>
+ * The windows of a key are summed again at every window, {@link SlidingWindowAverageKeyVal} updates the average
+ * incrementally. <br>
  * <p>
  * <b>StateFull : Yes</b>, operator store values  for n-1 th windows. <br>
  * <b>Partitions : No</b>, sum is not unified on output ports. <br>
@@ -54,6 +54,28 @@ public class SimpleMovingAverageObject
     count.add(1);
   }
 
+  /**
+   * Adds the values of another object.
+   *
+   * @param other object to add, it is not changed.
+   */
+  public void add(SimpleMovingAverageObject other)
+  {
+    sum.add(other.getSum());
+    count.add(other.getCount());
+  }
+
+  /**
+   * Removes the values of another object which were added to this one.
+   *
+   * @param other object to remove, it is not changed.
+   */
+  public void subtract(SimpleMovingAverageObject other)
+  {
+    sum.subtract(other.getSum());
+    count.subtract(other.getCount());
+  }
+
   public void clear()
   {
     sum.setValue(0);
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.annotation.OperatorAnnotation;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Computes the average of the values of every key over a sliding window of streaming windows.&nbsp;
+ * Unlike {@link SimpleMovingAverage} the sum and count of a key are updated incrementally, those of the expired
+ * streaming window are subtracted from them, so the cost per window does not depend on the window size.
+ * <p>
+ * <b>StateFull : Yes</b>, the sums and counts of the last windowSize streaming windows are kept. <br>
+ * <b>Partitions : No</b>, average is not unified on output ports. <br>
+ * <br>
+ * <b>Ports</b>:<br>
+ * <b>data</b>: expects KeyValPair&lt;K,V extends Number&gt;<br>
+ * <b>average</b>: emits KeyValPair&lt;K,Double&gt; with the average of every key at the end of every streaming
+ * window<br>
+ * <br>
+ * <b>Properties</b>:<br>
+ * <b>windowSize</b>: Number of streaming windows in the sliding window<br>
+ * <br>
+ * </p>
+ *
+ * @displayName Sliding Window Average Key Value
+ * @category Multi-Window
+ * @tags sliding window, key value, numeric, average
+ * @since 2.0.0
+ */
+@OperatorAnnotation(partitionable = false)
+public class SlidingWindowAverageKeyVal<K, V extends Number> extends AbstractSlidingWindowAggregator<K, V, SimpleMovingAverageObject>
+{
+  /**
+   * Output port that emits the average of every key over the sliding window.
+   */
+  public final transient DefaultOutputPort<KeyValPair<K, Double>> average = new DefaultOutputPort<KeyValPair<K, Double>>();
+
+  @Override
+  protected SimpleMovingAverageObject createAggregate()
+  {
+    return new SimpleMovingAverageObject();
+  }
+
+  @Override
+  protected void aggregate(SimpleMovingAverageObject aggregate, V value)
+  {
+    aggregate.add(value.doubleValue());
+  }
+
+  @Override
+  protected SimpleMovingAverageObject merge(SimpleMovingAverageObject older, SimpleMovingAverageObject newer)
+  {
+    SimpleMovingAverageObject merged = new SimpleMovingAverageObject();
+    merged.add(older);
+    merged.add(newer);
+    return merged;
+  }
+
+  @Override
+  protected boolean isInvertible()
+  {
+    return true;
+  }
+
+  @Override
+  protected SimpleMovingAverageObject subtract(SimpleMovingAverageObject aggregate, SimpleMovingAverageObject expired)
+  {
+    aggregate.subtract(expired);
+    return aggregate;
+  }
+
+  @Override
+  protected void emitAggregate(K key, SimpleMovingAverageObject aggregate)
+  {
+    average.emit(new KeyValPair<K, Double>(key, aggregate.getSum() / aggregate.getCount()));
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.annotation.OperatorAnnotation;
+import com.datatorrent.lib.util.HighLow;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Computes the range of the values of every key over a sliding window of streaming windows.&nbsp;
+ * A maximum cannot be updated when values expire, so the ranges of the streaming windows of a key are kept in the
+ * queue of {@link AbstractSlidingWindowAggregator}, which combines them in constant amortized time per window.
+ * <p>
+ * <b>StateFull : Yes</b>, the ranges of the last windowSize streaming windows are kept. <br>
+ * <b>Partitions : No</b>, range is not unified on output ports. <br>
+ * <br>
+ * <b>Ports</b>:<br>
+ * <b>data</b>: expects KeyValPair&lt;K,V extends Number&gt;<br>
+ * <b>range</b>: emits KeyValPair&lt;K,HighLow&lt;V&gt;&gt; with the range of every key at the end of every
+ * streaming window<br>
+ * <br>
+ * <b>Properties</b>:<br>
+ * <b>windowSize</b>: Number of streaming windows in the sliding window<br>
+ * <br>
+ * </p>
+ *
+ * @displayName Sliding Window Range Key Value
+ * @category Multi-Window
+ * @tags sliding window, key value, numeric, range
+ * @since 2.0.0
+ */
+@OperatorAnnotation(partitionable = false)
+public class SlidingWindowRangeKeyVal<K, V extends Number> extends AbstractSlidingWindowAggregator<K, V, HighLow<V>>
+{
+  /**
+   * Output port that emits the range of every key over the sliding window.
+   */
+  public final transient DefaultOutputPort<KeyValPair<K, HighLow<V>>> range = new DefaultOutputPort<KeyValPair<K, HighLow<V>>>();
+
+  @Override
+  protected HighLow<V> createAggregate()
+  {
+    return new HighLow<V>();
+  }
+
+  @Override
+  protected void aggregate(HighLow<V> aggregate, V value)
+  {
+    if (aggregate.getHigh() == null || value.doubleValue() > aggregate.getHigh().doubleValue()) {
+      aggregate.setHigh(value);
+    }
+    if (aggregate.getLow() == null || value.doubleValue() < aggregate.getLow().doubleValue()) {
+      aggregate.setLow(value);
+    }
+  }
+
+  @Override
+  protected HighLow<V> merge(HighLow<V> older, HighLow<V> newer)
+  {
+    V high = older.getHigh().doubleValue() >= newer.getHigh().doubleValue() ? older.getHigh() : newer.getHigh();
+    V low = older.getLow().doubleValue() <= newer.getLow().doubleValue() ? older.getLow() : newer.getLow();
+    return new HighLow<V>(high, low);
+  }
+
+  @Override
+  protected void emitAggregate(K key, HighLow<V> aggregate)
+  {
+    range.emit(new KeyValPair<K, HighLow<V>>(key, new HighLow<V>(aggregate.getHigh(), aggregate.getLow())));
+  }
+}
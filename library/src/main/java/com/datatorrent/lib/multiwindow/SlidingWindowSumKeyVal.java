@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+import org.apache.commons.lang.mutable.MutableDouble;
+
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.annotation.OperatorAnnotation;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Computes the sum of the values of every key over a sliding window of streaming windows.&nbsp;
+ * The sum of a key is updated incrementally, the sum of the expired streaming window is subtracted from it, so the
+ * cost per window does not depend on the window size.
+ * <p>
+ * <b>StateFull : Yes</b>, the sums of the last windowSize streaming windows are kept. <br>
+ * <b>Partitions : No</b>, sum is not unified on output ports. <br>
+ * <br>
+ * <b>Ports</b>:<br>
+ * <b>data</b>: expects KeyValPair&lt;K,V extends Number&gt;<br>
+ * <b>sum</b>: emits KeyValPair&lt;K,Double&gt; with the sum of every key at the end of every streaming window<br>
+ * <br>
+ * <b>Properties</b>:<br>
+ * <b>windowSize</b>: Number of streaming windows in the sliding window<br>
+ * <br>
+ * </p>
+ *
+ * @displayName Sliding Window Sum Key Value
+ * @category Multi-Window
+ * @tags sliding window, key value, numeric, sum
+ * @since 2.0.0
+ */
+@OperatorAnnotation(partitionable = false)
+public class SlidingWindowSumKeyVal<K, V extends Number> extends AbstractSlidingWindowAggregator<K, V, MutableDouble>
+{
+  /**
+   * Output port that emits the sum of every key over the sliding window.
+   */
+  public final transient DefaultOutputPort<KeyValPair<K, Double>> sum = new DefaultOutputPort<KeyValPair<K, Double>>();
+
+  @Override
+  protected MutableDouble createAggregate()
+  {
+    return new MutableDouble(0);
+  }
+
+  @Override
+  protected void aggregate(MutableDouble aggregate, V value)
+  {
+    aggregate.add(value.doubleValue());
+  }
+
+  @Override
+  protected MutableDouble merge(MutableDouble older, MutableDouble newer)
+  {
+    return new MutableDouble(older.doubleValue() + newer.doubleValue());
+  }
+
+  @Override
+  protected boolean isInvertible()
+  {
+    return true;
+  }
+
+  @Override
+  protected MutableDouble subtract(MutableDouble aggregate, MutableDouble expired)
+  {
+    aggregate.subtract(expired.doubleValue());
+    return aggregate;
+  }
+
+  @Override
+  protected void emitAggregate(K key, MutableDouble aggregate)
+  {
+    sum.emit(new KeyValPair<K, Double>(key, aggregate.doubleValue()));
+  }
+}
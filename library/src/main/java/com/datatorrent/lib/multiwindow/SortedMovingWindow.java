@@ -15,10 +15,9 @@
  */
 package com.datatorrent.lib.multiwindow;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
@@ -26,7 +25,9 @@ import java.util.PriorityQueue;
 import javax.validation.constraints.NotNull;
 
 import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.StreamCodec;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
+import com.datatorrent.lib.codec.KryoSerializableStreamCodec;
 import com.google.common.base.Function;
 
 /**
@@ -43,7 +44,12 @@ import com.google.common.base.Function;
  * by default: function is SingleKeyMappingFunction which map all t to null (all tuples are grouped into one group)
  * <br><b>comparator</b>: is used to determine the order of the tuple<br>
  * by default: comparator is null which means the tuple must be comparable
- * <p></p>
+ * <br><b>partitionByKey</b>: partitions the data port by the key of the tuples, so every partition sorts the tuples of
+ * its keys. The function must be serializable because it is part of the stream codec<br>
+ * by default: false
+ * <p>
+ * The tuples of every key are kept in a priority queue, a tuple is added and emitted in O(log n).
+ * </p>
  *
  * @displayName Sorted Moving Window
  * @category Multi-Window
@@ -65,13 +71,15 @@ public class SortedMovingWindow<T, K> extends AbstractSlidingWindow<T, List<T>>
   
   private Map<K, PriorityQueue<T>> sortedListInSlidingWin = new HashMap<K, PriorityQueue<T>>();
 
-  private List<T> tuplesInCurrentStreamWindow = new LinkedList<T>();
+  private List<T> tuplesInCurrentStreamWindow = new ArrayList<T>();
 
   @NotNull
   private Function<T, K> function = new SingleKeyMappingFunction<T, K>();
 
   private Comparator<T> comparator = null;
 
+  private boolean partitionByKey = false;
+
   @Override
   protected void processDataTuple(T tuple)
   {
@@ -92,12 +100,11 @@ public class SortedMovingWindow<T, K> extends AbstractSlidingWindow<T, List<T>>
     return tuplesInCurrentStreamWindow;
   }
 
-  @SuppressWarnings("unchecked")
   @Override
   public void endWindow()
   {
     super.endWindow();
-    tuplesInCurrentStreamWindow = new LinkedList<T>();
+    tuplesInCurrentStreamWindow = new ArrayList<T>();
     if(lastExpiredWindowState == null){
       // not ready to emit value or empty in a certain window
       return;
@@ -105,33 +112,70 @@ public class SortedMovingWindow<T, K> extends AbstractSlidingWindow<T, List<T>>
     // Assumption: the expiring tuple and any tuple before are already sorted. So it's safe to emit tuples from sortedListInSlidingWin till the expiring tuple
     for (T expiredTuple : lastExpiredWindowState) {
       // Find sorted list for the given key
-      PriorityQueue<T> sortedListForE = sortedListInSlidingWin.get(function.apply(expiredTuple));
-      for (Iterator<T> iterator = sortedListForE.iterator(); iterator.hasNext();) {
-        T minElemInSortedList = iterator.next();
-        int k = 0;
-        if (comparator == null) {
-          if (expiredTuple instanceof Comparable) {
-            k = ((Comparable<T>) expiredTuple).compareTo(minElemInSortedList);
-          } else {
-            errorOutput.emit(expiredTuple);
-            throw new IllegalArgumentException("Operator \"" + getName() + "\" encounters an invalid tuple " + expiredTuple + "\nNeither the tuple is comparable Nor Comparator is specified!");
-          }
-        } else {
-          k = comparator.compare(expiredTuple, minElemInSortedList);
-        }
-        if (k < 0) {
-          // If the expiring tuple is less than the first element of the sorted list. No more tuples to emit
-          break;
-        } else {
-          // Emit the element in sorted list if it's less than the expiring tuple 
-          outputPort.emit(minElemInSortedList);
-          // remove the element from the sorted list
-          iterator.remove();
-        }
+      K key = function.apply(expiredTuple);
+      PriorityQueue<T> sortedListForE = sortedListInSlidingWin.get(key);
+      if (sortedListForE == null) {
+        // all the tuples of the key are emitted
+        continue;
+      }
+      // Emit the elements in sorted list as long as they are not greater than the expiring tuple
+      while (!sortedListForE.isEmpty() && compare(expiredTuple, sortedListForE.peek()) >= 0) {
+        outputPort.emit(sortedListForE.poll());
+      }
+      if (sortedListForE.isEmpty()) {
+        sortedListInSlidingWin.remove(key);
       }
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private int compare(T expiredTuple, T minElemInSortedList)
+  {
+    if (comparator != null) {
+      return comparator.compare(expiredTuple, minElemInSortedList);
+    }
+    if (expiredTuple instanceof Comparable) {
+      return ((Comparable<T>) expiredTuple).compareTo(minElemInSortedList);
+    }
+    errorOutput.emit(expiredTuple);
+    throw new IllegalArgumentException("Operator \"" + getName() + "\" encounters an invalid tuple " + expiredTuple + "\nNeither the tuple is comparable Nor Comparator is specified!");
+  }
+
+  /**
+   * Partitions the data port by the key of the tuples when partitionByKey is set.
+   */
+  @Override
+  protected StreamCodec<T> getStreamCodec()
+  {
+    if (partitionByKey) {
+      return new KeyPartitionStreamCodec<T, K>(function);
+    }
+    return null;
+  }
+
+  /**
+   * Stream codec which partitions the tuples by the hash code of their key.
+   * @param <T>
+   * @param <K>
+   */
+  public static class KeyPartitionStreamCodec<T, K> extends KryoSerializableStreamCodec<T>
+  {
+    private static final long serialVersionUID = 201410200001L;
+    private final Function<T, K> function;
+
+    public KeyPartitionStreamCodec(Function<T, K> function)
+    {
+      this.function = function;
+    }
+
+    @Override
+    public int getPartition(T tuple)
+    {
+      K key = function.apply(tuple);
+      return key == null ? 0 : key.hashCode();
+    }
+  }
+
   /**
    * Default grouping function that map all tuples into single group
    * @param <T>
@@ -156,4 +200,18 @@ public class SortedMovingWindow<T, K> extends AbstractSlidingWindow<T, List<T>>
     this.function = function;
   }
 
+  public boolean isPartitionByKey()
+  {
+    return partitionByKey;
+  }
+
+  /**
+   * Partitions the data port by the key of the tuples.
+   * @param partitionByKey
+   */
+  public void setPartitionByKey(boolean partitionByKey)
+  {
+    this.partitionByKey = partitionByKey;
+  }
+
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+import com.datatorrent.lib.bucket.Event;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * A key value pair with the time of the event it comes from.
+ *
+ * @param <K> type of the key.
+ * @param <V> type of the value.
+ * @since 2.0.0
+ */
+public class TimedKeyValPair<K, V> extends KeyValPair<K, V> implements Event
+{
+  private static final long serialVersionUID = 201410190001L;
+  private long time;
+
+  @SuppressWarnings("unused")
+  private TimedKeyValPair()
+  {
+    super(null, null);
+    //for kryo
+  }
+
+  /**
+   * @param k key.
+   * @param v value.
+   * @param time event time in milliseconds.
+   */
+  public TimedKeyValPair(K k, V v, long time)
+  {
+    super(k, v);
+    this.time = time;
+  }
+
+  @Override
+  public long getTime()
+  {
+    return time;
+  }
+
+  @Override
+  public String toString()
+  {
+    return super.toString() + "@" + time;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * A key value pair computed over a window of event time.
+ *
+ * @param <K> type of the key.
+ * @param <V> type of the value.
+ * @since 2.0.0
+ */
+public class WindowedKeyValPair<K, V> extends KeyValPair<K, V>
+{
+  private static final long serialVersionUID = 201410190002L;
+  private EventTimeWindow window;
+  private boolean update;
+
+  @SuppressWarnings("unused")
+  private WindowedKeyValPair()
+  {
+    super(null, null);
+    //for kryo
+  }
+
+  /**
+   * @param k key.
+   * @param v value.
+   * @param window window of the value.
+   * @param update whether the value replaces a value emitted before for the window, because of late events.
+   */
+  public WindowedKeyValPair(K k, V v, EventTimeWindow window, boolean update)
+  {
+    super(k, v);
+    this.window = window;
+    this.update = update;
+  }
+
+  public EventTimeWindow getWindow()
+  {
+    return window;
+  }
+
+  /**
+   * @return whether the value replaces a value emitted before for the window.
+   */
+  public boolean isUpdate()
+  {
+    return update;
+  }
+
+  @Override
+  public String toString()
+  {
+    return super.toString() + window + (update ? " update" : "");
+  }
+}
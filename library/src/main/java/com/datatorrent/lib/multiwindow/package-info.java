@@ -15,7 +15,7 @@
  */
 
 /**
- * Library of multi-window operators including sliding window.
+ * Library of multi-window operators including sliding window and event time windows.
  */
 
 package com.datatorrent.lib.multiwindow;
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.partitioner;
+
+import java.util.Collection;
+
+import com.datatorrent.api.Operator;
+
+/**
+ * A {@link StatelessPartitioner} for operators which aggregate their share of the tuples and whose unifier merges
+ * the partial aggregates of the partitions.
+ * <p>
+ * The partitions are told whether they emit partial aggregates for the unifier, which is the case when there is more
+ * than one partition. A single partition emits the final aggregates itself.
+ * </p>
+ * @param <T> The type of the operator
+ *
+ * @since 2.0.0
+ */
+public abstract class PartialAggregationPartitioner<T extends Operator> extends StatelessPartitioner<T>
+{
+  private static final long serialVersionUID = 201411201530L;
+
+  /**
+   * @param partitionCount The number of partitions to create.
+   */
+  public PartialAggregationPartitioner(int partitionCount)
+  {
+    super(partitionCount);
+  }
+
+  @Override
+  public Collection<Partition<T>> definePartitions(Collection<Partition<T>> partitions, PartitioningContext context)
+  {
+    Collection<Partition<T>> newPartitions = super.definePartitions(partitions, context);
+    for (Partition<T> partition : newPartitions) {
+      setPartialAggregation(partition.getPartitionedInstance(), newPartitions.size() > 1);
+    }
+    return newPartitions;
+  }
+
+  /**
+   * Sets whether a partition emits partial aggregates.
+   *
+   * @param operator partitioned instance of the operator.
+   * @param partialAggregation true when the partition emits partial aggregates for the unifier.
+   */
+  protected abstract void setPartialAggregation(T operator, boolean partialAggregation);
+}
@@ -20,14 +20,18 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.datatorrent.api.BaseOperator;
+import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.lib.pigquery.generate.Generate;
+import com.datatorrent.lib.streamquery.schema.Row;
+import com.datatorrent.lib.streamquery.schema.Schema;
 import com.datatorrent.lib.util.UnifierMap;
 
 
 /**
  * <p>An implementation of BaseOperator that implements Apache Pig ForEach Operator.</p>
+ * <p>If outputSchema is set, {@link Row}s of the schema are emitted instead of hash maps.</p>
  * @displayName Pig ForEach
  * @category Pig Query
  * @tags map, string, foreach operator
@@ -39,6 +43,16 @@ public class PigForeachOperator extends BaseOperator
    * Generate indexes.
    */
   private ArrayList<Generate> generates = new ArrayList<Generate>();
+
+  /**
+   * Schema of the output tuples, hash maps are emitted if null.
+   */
+  private Schema outputSchema;
+
+  /**
+   * Schema the output tuples ended up with.
+   */
+  private transient Schema resultSchema;
   
   /**
    * Add foreach generate indexes.
@@ -57,10 +71,13 @@ public class PigForeachOperator extends BaseOperator
     @Override
     public void process(Map<String, Object> tuple)
     {
-      Map<String, Object> collect = new HashMap<String, Object>();
+      Map<String, Object> collect = resultSchema == null ? new HashMap<String, Object>() : new Row(resultSchema);
       for (Generate index : generates) {
         index.evaluate(tuple, collect);
       }
+      if (resultSchema != null) {
+        resultSchema = ((Row) collect).getSchema();
+      }
       outport.emit(collect);
     }
   };
@@ -77,4 +94,23 @@ public class PigForeachOperator extends BaseOperator
       return new UnifierMap<String, Object>();
     }
   };
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    resultSchema = outputSchema;
+  }
+
+  public Schema getOutputSchema()
+  {
+    return outputSchema;
+  }
+
+  /**
+   * Sets the schema of the output tuples.
+   */
+  public void setOutputSchema(Schema outputSchema)
+  {
+    this.outputSchema = outputSchema;
+  }
 }
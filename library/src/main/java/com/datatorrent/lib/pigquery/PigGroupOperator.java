@@ -16,16 +16,28 @@
 package com.datatorrent.lib.pigquery;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.datatorrent.api.BaseOperator;
+import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.Operator.Unifier;
+import com.datatorrent.api.Partitioner;
+import com.datatorrent.lib.partitioner.PartialAggregationPartitioner;
 import com.datatorrent.lib.pigquery.condition.PigGroupCondition;
+import com.datatorrent.lib.pigquery.generate.Generate;
+import com.datatorrent.lib.streamquery.function.FunctionIndex;
+import com.datatorrent.lib.streamquery.function.IncrementalFunction;
 import com.datatorrent.lib.util.UnifierMap;
 
 
@@ -53,27 +65,73 @@ import com.datatorrent.lib.util.UnifierMap;
  * (19,{(Mary,19,3.8F)})
  * (20,{(Bill,20,3.9F)})
  * </pre>
+ * When the bags are only used to compute aggregates, like in
+ * <pre>
+ * C = FOREACH B GENERATE group, SUM(A.gpa + A.bonus) AS total;
+ * </pre>
+ * add the aggregates to the operator instead. The generates are evaluated for every tuple, the aggregates
+ * accumulate the tuples with the generated fields on arrival and only the aggregates of every group are kept.
+ * A tuple with the group and the aggregates is emitted on aggregateOutport for every group and nothing is
+ * emitted on outport. When partitioned, the partitions emit the partial aggregates of their groups, which are
+ * merged by the unifier. An aggregate which fails on a tuple, for example on a null value, is left out of the
+ * result of its group. <br>
+ * <br>
  * <b>Ports : </b> <br>
  * <b> inport : </b> expects tuple Map<String, Object> <br>
  * <b>outport : </b> emits Map<Object, List<Map<String, Object>>> <br>
+ * <b>aggregateOutport : </b> emits Map<String, Object> with the group under "group" and the aggregates
+ * under their output names. <br>
  *
  * <b>StateFull : </b> Yes, tuples are aggregated over application window. <br>
- * <b>Partitions : </b> Yes, map unifier on output port. <br>
+ * <b>Partitions : </b> Yes, map unifier on output port, partial aggregates are merged on aggregateOutport.
+ * The number of partitions is set by partitionCount. <br>
  *
  * <b>Properties : </b> <br>
  * <b>groupByCondition : </b> Group condition. <br>
+ * <b>generates : </b> Fields generated for every tuple before aggregation. <br>
+ * <b>aggregates : </b> Aggregates of the groups, must be {@link IncrementalFunction}s. <br>
+ * <b>partitionCount : </b> Number of partitions. <br>
  * <br>
  * @displayName Pig Group
  * @category Pig Query
  * @tags map, string, group operator, condition
  * @since 0.3.4
  */
-public class PigGroupOperator  extends BaseOperator
+public class PigGroupOperator  extends BaseOperator implements Unifier<Map<String, Object>>, Partitioner<PigGroupOperator>
 {
+  /**
+   * Name of the group in the aggregate tuples.
+   */
+  public static final String GROUP = "group";
+
+  /**
+   * Key of the partial aggregates in the tuples emitted by a partition.
+   */
+  public static final String PARTIAL_AGGREGATES = "_partialAggregates";
+
   /**
    * Aggregate tuple list.
    */
   private ArrayList<Map<String, Object>> tuples;
+
+  /**
+   * Generated fields and aggregates.
+   */
+  private ArrayList<Generate> generates = new ArrayList<Generate>();
+  private ArrayList<FunctionIndex> aggregates = new ArrayList<FunctionIndex>();
+
+  @Min(1)
+  private int partitionCount = 1;
+
+  /**
+   * Set on the partitions when the operator is partitioned.
+   */
+  private boolean partialAggregation;
+
+  /**
+   * Accumulators of the groups.
+   */
+  private transient HashMap<Object, Object[]> groups;
   
   /**
    * Group by condition.
@@ -81,9 +139,35 @@ public class PigGroupOperator  extends BaseOperator
   @NotNull
   private PigGroupCondition groupByCondition;
   
+  @SuppressWarnings("unused")
+  private PigGroupOperator()
+  {
+    //for kryo
+  }
+
   public PigGroupOperator(@NotNull PigGroupCondition groupByCondition) {
     this.groupByCondition = groupByCondition;
   }
+
+  /**
+   * Adds a field generated for every tuple before aggregation.
+   */
+  public void addGenerate(@NotNull Generate generate)
+  {
+    generates.add(generate);
+  }
+
+  /**
+   * Adds an aggregate of the groups.
+   * @param aggregate aggregate function, must implement {@link IncrementalFunction}.
+   */
+  public void addAggregate(@NotNull FunctionIndex aggregate)
+  {
+    if (!(aggregate instanceof IncrementalFunction)) {
+      throw new IllegalArgumentException(aggregate.getOutputName() + " is not incremental");
+    }
+    aggregates.add(aggregate);
+  }
   
   /**
    * Input port that takes map of &lt;String, Object&gt.
@@ -93,7 +177,31 @@ public class PigGroupOperator  extends BaseOperator
     @Override
     public void process(Map<String, Object> tuple)
     {
-      tuples.add(tuple);
+      if (aggregates.isEmpty()) {
+        tuples.add(tuple);
+        return;
+      }
+      if (!generates.isEmpty()) {
+        Map<String, Object> generated = new HashMap<String, Object>(tuple);
+        for (Generate generate : generates) {
+          generate.evaluate(tuple, generated);
+        }
+        tuple = generated;
+      }
+      Object[] accumulators = getAccumulators(groupByCondition.compute(tuple));
+      for (int i = 0; i < accumulators.length; i++) {
+        if (accumulators[i] == null) {
+          continue;
+        }
+        try {
+          ((IncrementalFunction) aggregates.get(i)).accumulate(accumulators[i], tuple);
+        }
+        catch (RuntimeException e) {
+          // an aggregate which fails is left out of the result of its group
+          logger.warn("cannot aggregate tuple {}", tuple, e);
+          accumulators[i] = null;
+        }
+      }
     }
   };
   
@@ -110,6 +218,20 @@ public class PigGroupOperator  extends BaseOperator
     }
   };
 
+  /**
+   * Output port that emits the group and the aggregates of every group.
+   */
+  public final transient DefaultOutputPort<Map<String, Object>> aggregateOutport = new DefaultOutputPort<Map<String, Object>>()
+  {
+    @Override
+    public Unifier<Map<String, Object>> getUnifier()
+    {
+      PigGroupOperator unifier = new PigGroupOperator(groupByCondition);
+      unifier.aggregates = aggregates;
+      return unifier;
+    }
+  };
+
   /**
    * Get value for groupByCondition.
    * @return GroupByCondition
@@ -128,15 +250,90 @@ public class PigGroupOperator  extends BaseOperator
     this.groupByCondition = groupByCondition;
   }
   
+  public int getPartitionCount()
+  {
+    return partitionCount;
+  }
+
+  /**
+   * @param partitionCount number of partitions.
+   */
+  public void setPartitionCount(int partitionCount)
+  {
+    this.partitionCount = partitionCount;
+  }
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    groups = new HashMap<Object, Object[]>();
+  }
+
   @Override
   public void beginWindow(long arg0)
   {
     tuples = new ArrayList<Map<String, Object>>();
   }
 
+  private Object[] getAccumulators(Object key)
+  {
+    Object[] accumulators = groups.get(key);
+    if (accumulators == null) {
+      accumulators = new Object[aggregates.size()];
+      for (int i = 0; i < accumulators.length; i++) {
+        accumulators[i] = ((IncrementalFunction) aggregates.get(i)).createAccumulator();
+      }
+      groups.put(key, accumulators);
+    }
+    return accumulators;
+  }
+
+  /**
+   * Merges the partial aggregates emitted by the partitions, used when the operator is the unifier.
+   */
+  @Override
+  public void process(Map<String, Object> tuple)
+  {
+    Object[] partials = (Object[]) tuple.get(PARTIAL_AGGREGATES);
+    if (partials == null) {
+      aggregateOutport.emit(tuple);
+      return;
+    }
+    Object[] accumulators = getAccumulators(tuple.get(GROUP));
+    for (int i = 0; i < partials.length; i++) {
+      if (partials[i] == null) {
+        // failed in a partition
+        accumulators[i] = null;
+      }
+      else if (accumulators[i] != null) {
+        ((IncrementalFunction) aggregates.get(i)).merge(accumulators[i], partials[i]);
+      }
+    }
+  }
+
   @Override
   public void endWindow()
   {
+    if (!aggregates.isEmpty()) {
+      for (Map.Entry<Object, Object[]> entry : groups.entrySet()) {
+        Map<String, Object> result = new HashMap<String, Object>();
+        result.put(GROUP, entry.getKey());
+        if (partialAggregation) {
+          result.put(PARTIAL_AGGREGATES, entry.getValue());
+        }
+        else {
+          for (int i = 0; i < aggregates.size(); i++) {
+            if (entry.getValue()[i] == null) {
+              continue;
+            }
+            result.put(aggregates.get(i).getOutputName(), ((IncrementalFunction) aggregates.get(i)).getResult(entry.getValue()[i]));
+          }
+        }
+        aggregateOutport.emit(result);
+      }
+      groups.clear();
+      return;
+    }
     Map<Object, List<Map<String, Object>>> result = new HashMap<Object, List<Map<String, Object>>>();
     for (Map<String, Object> tuple : tuples) {
       Object key = groupByCondition.compute(tuple);
@@ -151,4 +348,27 @@ public class PigGroupOperator  extends BaseOperator
     }
     outport.emit(result);
   }
+
+  /**
+   * Partitions emit partial aggregates to the unifier when there are aggregates.
+   */
+  @Override
+  public Collection<Partition<PigGroupOperator>> definePartitions(Collection<Partition<PigGroupOperator>> partitions, PartitioningContext context)
+  {
+    return new PartialAggregationPartitioner<PigGroupOperator>(partitionCount)
+    {
+      @Override
+      protected void setPartialAggregation(PigGroupOperator operator, boolean partialAggregation)
+      {
+        operator.partialAggregation = partialAggregation;
+      }
+    }.definePartitions(partitions, context);
+  }
+
+  @Override
+  public void partitioned(Map<Integer, Partition<PigGroupOperator>> partitions)
+  {
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(PigGroupOperator.class);
 }
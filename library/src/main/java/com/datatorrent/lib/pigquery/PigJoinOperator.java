@@ -23,10 +23,13 @@ import java.util.Map;
 import javax.validation.constraints.NotNull;
 
 import com.datatorrent.api.BaseOperator;
+import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.annotation.OperatorAnnotation;
 import com.datatorrent.lib.streamquery.condition.Condition;
+import com.datatorrent.lib.streamquery.schema.Row;
+import com.datatorrent.lib.streamquery.schema.Schema;
 
 /**
  * An implementation of BaseOperator that implements Pig Join(Inner) semantic on live stream.
@@ -79,7 +82,8 @@ import com.datatorrent.lib.streamquery.condition.Condition;
  * Operator is pass thru, output tuples are emitted in current time window.  <br>
  * <br>
  * <b>Properties : </b> <br>
- * <b> joinCondition : </b> Tuple join condition.
+ * <b> joinCondition : </b> Tuple join condition. <br>
+ * <b> outputSchema : </b> Schema of the joined tuples, {@link Row}s are emitted instead of hash maps if set.
  * @displayName Pig Inner Join
  * @category Pig Query
  * @tags map, string, inner join operator
@@ -103,6 +107,16 @@ public class PigJoinOperator extends BaseOperator
      * Aggregated tuples on inport 2.
      */
     private ArrayList<Map<String, Object>>  tuples2;
+
+    /**
+     * Schema of the joined tuples, hash maps are emitted if null.
+     */
+    private Schema outputSchema;
+
+    /**
+     * Schema the joined tuples ended up with.
+     */
+    private transient Schema joinSchema;
     
     /**
      * @param joinCondition   Join condition, must be non-null. 
@@ -148,6 +162,12 @@ public class PigJoinOperator extends BaseOperator
     public final transient DefaultOutputPort<Map<String, Object>> outport = 
         new DefaultOutputPort<Map<String, Object>>();
         
+    @Override
+    public void setup(OperatorContext context)
+    {
+      joinSchema = outputSchema;
+    }
+
     @Override
     public void beginWindow(long arg0)
     {
@@ -169,8 +189,16 @@ public class PigJoinOperator extends BaseOperator
         isValidJoin = joinCondition.isValidJoin(tuple1,tuple2);
       }
       if (isValidJoin) {
-        Map<String, Object> join = new HashMap<String, Object>(tuple1);
-        join.putAll(tuple2);
+        Map<String, Object> join;
+        if (joinSchema != null) {
+          join = new Row(joinSchema, tuple1);
+          join.putAll(tuple2);
+          joinSchema = ((Row) join).getSchema();
+        }
+        else {
+          join = new HashMap<String, Object>(tuple1);
+          join.putAll(tuple2);
+        }
         outport.emit(join);
       }
     }
@@ -192,5 +220,18 @@ public class PigJoinOperator extends BaseOperator
     {
       this.joinCondition = joinCondition;
     }
+
+    public Schema getOutputSchema()
+    {
+      return outputSchema;
+    }
+
+    /**
+     * Sets the schema of the joined tuples.
+     */
+    public void setOutputSchema(Schema outputSchema)
+    {
+      this.outputSchema = outputSchema;
+    }
     
 }
@@ -19,7 +19,8 @@ package com.datatorrent.lib.pigquery;
 /**
  * Limit operator which is similar to select top operator in stream query library. <br>
  * <p>
- * Please use operator : {@link com.datatorrent.lib.streamquery.SelectTopOperator}.
+ * Please use operator : {@link com.datatorrent.lib.streamquery.SelectTopOperator}, or the limit of
+ * {@link com.datatorrent.lib.streamquery.OrderByOperator} to limit ordered tuples.
  * @displayName Pig Limit
  * @category Pig Query
  * @tags limit operator, top
@@ -19,7 +19,8 @@ package com.datatorrent.lib.pigquery;
  * Implements pig order by semantic on live steam.  <br>
  * <p>
  * This semantic same as sql stream query  order by  operator. <br>
- * Please use operator  {@link com.datatorrent.lib.streamquery.OrderByOperator}
+ * Please use operator  {@link com.datatorrent.lib.streamquery.OrderByOperator}, which spills the tuples of
+ * large windows to disk.
  * @displayName Pig OrderBy
  * @category Pig Query
  * @tags orderby operator
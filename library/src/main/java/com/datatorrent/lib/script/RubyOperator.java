@@ -16,6 +16,8 @@
 
 package com.datatorrent.lib.script;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import org.jruby.embed.LocalVariableBehavior;
@@ -27,6 +29,15 @@ import com.datatorrent.api.Context.OperatorContext;
 /**
  * An implementation of ScriptOperator that executes ruby script on tuples
  * <p>
+ * With a batchSize the script is run once for a batch of tuples, the list of the tuple maps is passed as the only
+ * argument of the invoked method or bound to the variable tuples of the eval script. When the script returns an array
+ * of results every result is emitted on the result port, any other value, like a sum over the batch, is emitted as
+ * one result:
+ * <pre>
+ * ruby.addSetupScript("def square_all(tuples)\n  tuples.map { |t| t['val'] * t['val'] }\nend\n");
+ * ruby.setInvoke("square_all");
+ * ruby.setBatchSize(1000);
+ * </pre>
  * @displayName Ruby Operator
  * @category Scripting
  * @tags script operator, map, string
@@ -101,9 +112,49 @@ public class RubyOperator extends ScriptOperator {
     }
   }
 
+  @Override
+  protected void processBatch(List<Map<String, Object>> tuples) {
+
+    try {
+      Object batchResult;
+      if (type == Type.EVAL) {
+        sc.put(BATCH_VARIABLE, tuples);
+        batchResult = unit.run();
+      }
+      else {
+        batchResult = sc.callMethod(null, script, new Object[] {tuples});
+      }
+      if (batchResult instanceof Object[]) {
+        batchResult = Arrays.asList((Object[])batchResult);
+      }
+      if (batchResult instanceof List) {
+        for (Object o : (List<?>)batchResult) {
+          evalResult = o;
+          if (isPassThru && result.isConnected()) {
+            result.emit(o);
+          }
+        }
+      }
+      else {
+        evalResult = batchResult;
+        if (isPassThru && result.isConnected()) {
+          result.emit(batchResult);
+        }
+      }
+      if (isPassThru && outBindings.isConnected()) {
+        outBindings.emit(getBindings());
+      }
+      sc.clear();
+    }
+    catch (Exception ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
   @Override
   public void endWindow() {
 
+    flushBatch();
     if (!isPassThru) {
       if(result.isConnected())
         result.emit(evalResult);
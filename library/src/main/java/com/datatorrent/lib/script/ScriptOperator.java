@@ -23,6 +23,7 @@ import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 /**
@@ -30,6 +31,12 @@ import javax.validation.constraints.NotNull;
    implementation of getting the bindings and process method. 
  * Interface for language script operator.
  * <p>
+ * With a batchSize the tuples are collected and passed to {@link #processBatch(List)} batchSize at a time, which
+ * lets the script process many tuples per call into the interpreter. Subclasses call {@link #flushBatch()} at the
+ * end of the window for the tuples left, set batchSize to Integer.MAX_VALUE to process all the tuples of a window
+ * at once. Subclasses which batch eval scripts bind the tuples of a batch to the variable named
+ * {@link #BATCH_VARIABLE}.
+ * </p>
  * @displayName Script
  * @category Scripting
  * @tags script operator, map, string
@@ -37,6 +44,11 @@ import javax.validation.constraints.NotNull;
  */
 public abstract class ScriptOperator extends BaseOperator
 {
+  /**
+   * Variable of the tuples of a batch in eval scripts.
+   */
+  public static final String BATCH_VARIABLE = "tuples";
+
   /**
    * Input inBindings port that takes in a map of &lt;String, Object&gt.
    */
@@ -46,7 +58,18 @@ public abstract class ScriptOperator extends BaseOperator
     @Override
     public void process(Map<String, Object> tuple)
     {
-      ScriptOperator.this.process(tuple);
+      if (batchSize > 0) {
+        if (batch == null) {
+          batch = new ArrayList<Map<String, Object>>();
+        }
+        batch.add(tuple);
+        if (batch.size() >= batchSize) {
+          flushBatch();
+        }
+      }
+      else {
+        ScriptOperator.this.process(tuple);
+      }
     }
 
   };
@@ -66,6 +89,9 @@ public abstract class ScriptOperator extends BaseOperator
   @NotNull
   protected String script;
   protected List<String> setupScripts = new ArrayList<String>();
+  @Min(0)
+  protected int batchSize;
+  private transient List<Map<String, Object>> batch;
 
   /**
    * Operator must be set pass thru, for output results.
@@ -92,6 +118,45 @@ public abstract class ScriptOperator extends BaseOperator
     setupScripts.add(script);
   }
 
+  public int getBatchSize()
+  {
+    return batchSize;
+  }
+
+  /**
+   * Number of tuples processed by the script at once, 0 processes every tuple on its own.
+   *
+   * @param batchSize
+   */
+  public void setBatchSize(int batchSize)
+  {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Processes the collected tuples, if any.
+   */
+  protected void flushBatch()
+  {
+    if (batch != null && !batch.isEmpty()) {
+      processBatch(batch);
+      batch.clear();
+    }
+  }
+
+  /**
+   * Processes a batch of tuples. The default implementation processes the tuples one at a time, subclasses pass
+   * the batch to the script in one call and emit the results of the script.
+   *
+   * @param tuples tuples of the batch, the list is reused after the call.
+   */
+  protected void processBatch(List<Map<String, Object>> tuples)
+  {
+    for (Map<String, Object> tuple : tuples) {
+      process(tuple);
+    }
+  }
+
   public abstract void process(Map<String, Object> tuple);
   public abstract Map<String, Object> getBindings();
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.validation.constraints.Min;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.Operator.Unifier;
+import com.datatorrent.api.Partitioner;
+import com.datatorrent.lib.partitioner.StatelessPartitioner;
+import com.datatorrent.lib.util.BaseFilteredKeyValueOperator;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Computes a mergeable statistic of the values of every key over the application window.&nbsp;
+ * The values of a key are added to a state of bounded size, like {@link Moments}, which is emitted at the end of the
+ * window.
+ * <p>
+ * The states of the values of a key seen by several partitions are merged into the state of all the values, so the
+ * tuples of a key do not need to go to the same partition. The operator is its own unifier: it merges the states
+ * emitted by the partitions and emits the merged states.
+ * </p>
+ * <b>Properties : </b> <br>
+ * <b>partitionCount : </b> Number of partitions. <br>
+ * <b>inverse, filterBy : </b> Keys to block or to enable. <br>
+ *
+ * @param <K> type of the keys.
+ * @param <V> type of the values.
+ * @param <S> type of the states.
+ * @since 2.0.0
+ */
+public abstract class AbstractKeyValStatistics<K, V, S> extends BaseFilteredKeyValueOperator<K, V>
+    implements Unifier<KeyValPair<K, S>>, Partitioner<AbstractKeyValStatistics<K, V, S>>
+{
+  @Min(1)
+  private int partitionCount = 1;
+
+  private transient HashMap<K, S> states;
+
+  /**
+   * Input port that takes a key value pair.
+   */
+  public final transient DefaultInputPort<KeyValPair<K, ? extends V>> data = new DefaultInputPort<KeyValPair<K, ? extends V>>()
+  {
+    @Override
+    public void process(KeyValPair<K, ? extends V> tuple)
+    {
+      K key = tuple.getKey();
+      if (!doprocessKey(key)) {
+        return;
+      }
+      S state = states.get(key);
+      if (state == null) {
+        state = createState();
+        states.put(cloneKey(key), state);
+      }
+      add(state, tuple.getValue());
+    }
+  };
+
+  /**
+   * @return a new state of no values.
+   */
+  protected abstract S createState();
+
+  /**
+   * Adds a value to a state.
+   */
+  protected abstract void add(S state, V value);
+
+  /**
+   * Adds the values of another state to a state.
+   *
+   * @param state state to change.
+   * @param other state to merge, it should not be changed.
+   */
+  protected abstract void merge(S state, S other);
+
+  /**
+   * Emits the state of a key.
+   */
+  protected abstract void emit(K key, S state);
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    states = new HashMap<K, S>();
+  }
+
+  /**
+   * Merges the states emitted by the partitions, used when the operator is the unifier.
+   */
+  @Override
+  public void process(KeyValPair<K, S> tuple)
+  {
+    S state = states.get(tuple.getKey());
+    if (state == null) {
+      states.put(tuple.getKey(), tuple.getValue());
+    }
+    else {
+      merge(state, tuple.getValue());
+    }
+  }
+
+  @Override
+  public void endWindow()
+  {
+    for (Map.Entry<K, S> entry : states.entrySet()) {
+      emit(entry.getKey(), entry.getValue());
+    }
+    states.clear();
+  }
+
+  public int getPartitionCount()
+  {
+    return partitionCount;
+  }
+
+  /**
+   * @param partitionCount number of partitions.
+   */
+  public void setPartitionCount(int partitionCount)
+  {
+    this.partitionCount = partitionCount;
+  }
+
+  @Override
+  public Collection<Partition<AbstractKeyValStatistics<K, V, S>>> definePartitions(Collection<Partition<AbstractKeyValStatistics<K, V, S>>> partitions, PartitioningContext context)
+  {
+    return new StatelessPartitioner<AbstractKeyValStatistics<K, V, S>>(partitionCount).definePartitions(partitions, context);
+  }
+
+  @Override
+  public void partitioned(Map<Integer, Partition<AbstractKeyValStatistics<K, V, S>>> partitions)
+  {
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+/**
+ * Count, means, variances and covariance of pairs of values computed in one pass.&nbsp;
+ * It extends {@link Moments} to the co-moment of two variables, which is updated with the deviations of both values
+ * from their means.
+ * <p>
+ * Co-moments of partitions of the pairs are merged into the co-moments of all the pairs, so they can be computed by
+ * partitions and merged by a unifier.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+public class CoMoments
+{
+  private long count;
+  private double meanX;
+  private double meanY;
+  private double m2X;
+  private double m2Y;
+  /**
+   * Sum of the products of the deviations of x and y from their means.
+   */
+  private double c;
+
+  public CoMoments()
+  {
+  }
+
+  /**
+   * Adds a pair of values.
+   *
+   * @param x first value.
+   * @param y second value.
+   */
+  public void add(double x, double y)
+  {
+    count++;
+    double deltaX = x - meanX;
+    double deltaY = y - meanY;
+    meanX += deltaX / count;
+    meanY += deltaY / count;
+    m2X += deltaX * (x - meanX);
+    m2Y += deltaY * (y - meanY);
+    c += deltaX * (y - meanY);
+  }
+
+  /**
+   * Adds the pairs of other co-moments.
+   *
+   * @param other co-moments to merge, they are not changed.
+   */
+  public void merge(CoMoments other)
+  {
+    if (other.count == 0) {
+      return;
+    }
+    long total = count + other.count;
+    double deltaX = other.meanX - meanX;
+    double deltaY = other.meanY - meanY;
+    double weight = (double)count * other.count / total;
+    m2X += other.m2X + deltaX * deltaX * weight;
+    m2Y += other.m2Y + deltaY * deltaY * weight;
+    c += other.c + deltaX * deltaY * weight;
+    meanX += deltaX * other.count / total;
+    meanY += deltaY * other.count / total;
+    count = total;
+  }
+
+  /**
+   * @return number of pairs.
+   */
+  public long getCount()
+  {
+    return count;
+  }
+
+  /**
+   * @return mean of the first values, NaN if there are none.
+   */
+  public double getMeanX()
+  {
+    return count == 0 ? Double.NaN : meanX;
+  }
+
+  /**
+   * @return mean of the second values, NaN if there are none.
+   */
+  public double getMeanY()
+  {
+    return count == 0 ? Double.NaN : meanY;
+  }
+
+  /**
+   * @return population variance of the first values, NaN if there are none.
+   */
+  public double getVarianceX()
+  {
+    return count == 0 ? Double.NaN : m2X / count;
+  }
+
+  /**
+   * @return population variance of the second values, NaN if there are none.
+   */
+  public double getVarianceY()
+  {
+    return count == 0 ? Double.NaN : m2Y / count;
+  }
+
+  /**
+   * @return population covariance of the pairs, NaN if there are none.
+   */
+  public double getCovariance()
+  {
+    return count == 0 ? Double.NaN : c / count;
+  }
+
+  /**
+   * @return sample covariance of the pairs, NaN if there are less than two.
+   */
+  public double getSampleCovariance()
+  {
+    return count < 2 ? Double.NaN : c / (count - 1);
+  }
+
+  /**
+   * @return Pearson correlation of the pairs, NaN if either value is constant.
+   */
+  public double getCorrelation()
+  {
+    double denominator = Math.sqrt(m2X * m2Y);
+    return denominator == 0 ? Double.NaN : c / denominator;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "CoMoments{count=" + count + ", covariance=" + getCovariance() + ", correlation=" + getCorrelation() + '}';
+  }
+}
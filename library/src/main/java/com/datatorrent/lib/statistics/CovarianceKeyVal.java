@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Computes the covariance and correlation of pairs of values of every key over the application window.&nbsp;
+ * The {@link CoMoments} of a key are updated with every pair.
+ * <p>
+ * <b>Input Port(s) : </b><br>
+ * <b>data : </b> expects KeyValPair&lt;K, Number[]&gt;, the two values of a pair. <br>
+ * <br>
+ * <b>Output Port(s) : </b> <br>
+ * <b>comoments : </b> emits KeyValPair&lt;K, CoMoments&gt; with the means, variances, covariance and correlation of
+ * every key at the end of the window. <br>
+ * <br>
+ * <b>Properties : </b> <br>
+ * <b>partitionCount : </b> Number of partitions. <br>
+ * <b>inverse, filterBy : </b> Keys to block or to enable. <br>
+ * <br>
+ * <b>StateFull : Yes</b>, values are aggregated over application window. <br>
+ * <b>Partitions : Yes</b>, the co-moments of the partitions are merged by the unifier. <br>
+ * </p>
+ *
+ * @displayName Covariance Key Value
+ * @category Statistics
+ * @tags covariance, correlation, number, key value
+ * @since 2.0.0
+ */
+public class CovarianceKeyVal<K> extends AbstractKeyValStatistics<K, Number[], CoMoments>
+{
+  /**
+   * Output port that emits the co-moments of every key.
+   */
+  public final transient DefaultOutputPort<KeyValPair<K, CoMoments>> comoments = new DefaultOutputPort<KeyValPair<K, CoMoments>>()
+  {
+    @Override
+    public Unifier<KeyValPair<K, CoMoments>> getUnifier()
+    {
+      return new CovarianceKeyVal<K>();
+    }
+  };
+
+  @Override
+  protected CoMoments createState()
+  {
+    return new CoMoments();
+  }
+
+  @Override
+  protected void add(CoMoments state, Number[] value)
+  {
+    if (value.length != 2) {
+      throw new IllegalArgumentException("expected a pair of values but got " + value.length);
+    }
+    state.add(value[0].doubleValue(), value[1].doubleValue());
+  }
+
+  @Override
+  protected void merge(CoMoments state, CoMoments other)
+  {
+    state.merge(other);
+  }
+
+  @Override
+  protected void emit(K key, CoMoments state)
+  {
+    comoments.emit(new KeyValPair<K, CoMoments>(key, state));
+  }
+}
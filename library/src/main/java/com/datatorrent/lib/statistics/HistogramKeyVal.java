@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Computes the distribution of the values of every key over the application window.&nbsp;
+ * The values of a key are counted in a {@link LogHistogram}, which gives the mode, quantiles and buckets of the
+ * values in memory bounded by the range of the values instead of their number, unlike {@link ModeOperator}.
+ * <p>
+ * <b>Input Port(s) : </b><br>
+ * <b>data : </b> expects KeyValPair&lt;K, V extends Number&gt;. <br>
+ * <br>
+ * <b>Output Port(s) : </b> <br>
+ * <b>histogram : </b> emits KeyValPair&lt;K, LogHistogram&gt; with the histogram of every key at the end of the
+ * window. <br>
+ * <br>
+ * <b>Properties : </b> <br>
+ * <b>precision : </b> Number of bits of the values which select their bucket, see {@link LogHistogram}. <br>
+ * <b>partitionCount : </b> Number of partitions. <br>
+ * <b>inverse, filterBy : </b> Keys to block or to enable. <br>
+ * <br>
+ * <b>StateFull : Yes</b>, values are aggregated over application window. <br>
+ * <b>Partitions : Yes</b>, the histograms of the partitions are merged by the unifier. <br>
+ * </p>
+ *
+ * @displayName Histogram Key Value
+ * @category Statistics
+ * @tags histogram, mode, distribution, number, key value
+ * @since 2.0.0
+ */
+public class HistogramKeyVal<K> extends AbstractKeyValStatistics<K, Number, LogHistogram>
+{
+  @Min(LogHistogram.MIN_PRECISION)
+  @Max(LogHistogram.MAX_PRECISION)
+  private int precision = LogHistogram.DEFAULT_PRECISION;
+
+  /**
+   * Output port that emits the histogram of every key.
+   */
+  public final transient DefaultOutputPort<KeyValPair<K, LogHistogram>> histogram = new DefaultOutputPort<KeyValPair<K, LogHistogram>>()
+  {
+    @Override
+    public Unifier<KeyValPair<K, LogHistogram>> getUnifier()
+    {
+      HistogramKeyVal<K> unifier = new HistogramKeyVal<K>();
+      unifier.precision = precision;
+      return unifier;
+    }
+  };
+
+  @Override
+  protected LogHistogram createState()
+  {
+    return new LogHistogram(precision);
+  }
+
+  @Override
+  protected void add(LogHistogram state, Number value)
+  {
+    state.add(value.doubleValue());
+  }
+
+  @Override
+  protected void merge(LogHistogram state, LogHistogram other)
+  {
+    state.merge(other);
+  }
+
+  @Override
+  protected void emit(K key, LogHistogram state)
+  {
+    histogram.emit(new KeyValPair<K, LogHistogram>(key, state));
+  }
+
+  public int getPrecision()
+  {
+    return precision;
+  }
+
+  /**
+   * @param precision number of bits of the values which select their bucket.
+   */
+  public void setPrecision(int precision)
+  {
+    this.precision = precision;
+  }
+}
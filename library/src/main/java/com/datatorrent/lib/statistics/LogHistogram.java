@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gnu.trove.iterator.TLongLongIterator;
+
+import com.datatorrent.lib.util.TroveMaps;
+
+/**
+ * A mergeable histogram of values with buckets of logarithmic width, like HdrHistogram.&nbsp;
+ * Every power of two is split into 2^precision buckets of equal width, so a value is counted in a bucket at most
+ * 2^-precision times its magnitude wide whatever its magnitude. The bucket of a value is the sign, the exponent and
+ * the first precision bits of the mantissa of the double, which keeps the buckets in the order of the values.
+ * <p>
+ * Only the buckets which count values are kept, so the memory used depends on the range of the values and the
+ * precision but not on the number of values. Values closer to 0 than the smallest bucket of positive numbers are
+ * counted with 0 in the bucket of 0.
+ * </p>
+ * Histograms of the same precision are merged into the histogram of all their values, so they can be computed by
+ * partitions and merged by a unifier.
+ *
+ * @since 2.0.0
+ */
+public class LogHistogram
+{
+  public static final int MIN_PRECISION = 1;
+  public static final int MAX_PRECISION = 20;
+  public static final int DEFAULT_PRECISION = 7;
+
+  private int precision;
+  private TroveMaps.LongLongMap counts;
+  private long count;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Range of values counted in a bucket.
+   */
+  public static class Bucket
+  {
+    private double low;
+    private double high;
+    private long count;
+
+    @SuppressWarnings("unused")
+    private Bucket()
+    {
+      //for kryo
+    }
+
+    Bucket(double low, double high, long count)
+    {
+      this.low = low;
+      this.high = high;
+      this.count = count;
+    }
+
+    /**
+     * @return lowest value of the bucket.
+     */
+    public double getLow()
+    {
+      return low;
+    }
+
+    /**
+     * @return highest value of the bucket, the bound farther from 0 is excluded.
+     */
+    public double getHigh()
+    {
+      return high;
+    }
+
+    /**
+     * @return number of values in the bucket.
+     */
+    public long getCount()
+    {
+      return count;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "[" + low + ", " + high + ")=" + count;
+    }
+  }
+
+  public LogHistogram()
+  {
+    this(DEFAULT_PRECISION);
+  }
+
+  /**
+   * @param precision number of bits of the mantissa which select the bucket, between {@value #MIN_PRECISION} and
+   * {@value #MAX_PRECISION}.
+   */
+  public LogHistogram(int precision)
+  {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+    }
+    this.precision = precision;
+    counts = new TroveMaps.LongLongMap();
+  }
+
+  public int getPrecision()
+  {
+    return precision;
+  }
+
+  public void add(double value)
+  {
+    add(value, 1);
+  }
+
+  /**
+   * Counts occurrences of a value.
+   *
+   * @param value value to count.
+   * @param occurrences number of occurrences.
+   */
+  public void add(double value, long occurrences)
+  {
+    if (Double.isNaN(value)) {
+      throw new IllegalArgumentException("cannot add NaN");
+    }
+    counts.adjustOrPutValue(index(value), occurrences, occurrences);
+    count += occurrences;
+    if (value < min) {
+      min = value;
+    }
+    if (value > max) {
+      max = value;
+    }
+  }
+
+  private long index(double value)
+  {
+    long index = Double.doubleToLongBits(Math.abs(value)) >>> (52 - precision);
+    return value < 0 ? -index : index;
+  }
+
+  private double lowestOf(long index)
+  {
+    if (index <= 0) {
+      // the bucket of 0 spans both signs
+      return -highestOf(-index);
+    }
+    return Double.longBitsToDouble(index << (52 - precision));
+  }
+
+  private double highestOf(long index)
+  {
+    if (index < 0) {
+      return -lowestOf(-index);
+    }
+    return Double.longBitsToDouble((index + 1) << (52 - precision));
+  }
+
+  /**
+   * @return value standing for the values of a bucket, its middle within the smallest and largest values.
+   */
+  private double valueOf(long index)
+  {
+    double value = index == 0 ? 0 : (lowestOf(index) + highestOf(index)) / 2;
+    return Math.min(max, Math.max(min, value));
+  }
+
+  /**
+   * Adds the values of another histogram.
+   *
+   * @param other histogram of the same precision, it is not changed.
+   */
+  public void merge(LogHistogram other)
+  {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException("cannot merge histograms of precision " + other.precision + " and " + precision);
+    }
+    for (TLongLongIterator iterator = other.counts.iterator(); iterator.hasNext();) {
+      iterator.advance();
+      counts.adjustOrPutValue(iterator.key(), iterator.value(), iterator.value());
+    }
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * @return number of values.
+   */
+  public long getCount()
+  {
+    return count;
+  }
+
+  /**
+   * @return smallest value, NaN if there are none.
+   */
+  public double getMin()
+  {
+    return count == 0 ? Double.NaN : min;
+  }
+
+  /**
+   * @return largest value, NaN if there are none.
+   */
+  public double getMax()
+  {
+    return count == 0 ? Double.NaN : max;
+  }
+
+  /**
+   * @return the middle of the bucket which counts the most values, NaN if there are none.
+   */
+  public double getMode()
+  {
+    if (count == 0) {
+      return Double.NaN;
+    }
+    long mode = 0;
+    long modeCount = -1;
+    for (TLongLongIterator iterator = counts.iterator(); iterator.hasNext();) {
+      iterator.advance();
+      if (iterator.value() > modeCount || (iterator.value() == modeCount && iterator.key() < mode)) {
+        mode = iterator.key();
+        modeCount = iterator.value();
+      }
+    }
+    return valueOf(mode);
+  }
+
+  /**
+   * Estimates a quantile of the values, within the width of its bucket.
+   *
+   * @param q quantile between 0 and 1, like 0.99 for the 99th percentile.
+   * @return middle of the bucket of the quantile, NaN if there are no values.
+   */
+  public double quantile(double q)
+  {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("quantile must be between 0 and 1: " + q);
+    }
+    if (count == 0) {
+      return Double.NaN;
+    }
+    long[] indexes = counts.keys();
+    Arrays.sort(indexes);
+    long rank = Math.max(1, (long)Math.ceil(q * count));
+    long seen = 0;
+    for (long index : indexes) {
+      seen += counts.get(index);
+      if (seen >= rank) {
+        return valueOf(index);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * @return the buckets which count values, by increasing values.
+   */
+  public List<Bucket> getBuckets()
+  {
+    long[] indexes = counts.keys();
+    Arrays.sort(indexes);
+    List<Bucket> buckets = new ArrayList<Bucket>(indexes.length);
+    for (long index : indexes) {
+      buckets.add(new Bucket(lowestOf(index), highestOf(index), counts.get(index)));
+    }
+    return buckets;
+  }
+
+  /**
+   * Removes all the values.
+   */
+  public void clear()
+  {
+    counts.clear();
+    count = 0;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "LogHistogram{count=" + count + ", buckets=" + counts.size() + ", median=" + quantile(0.5) + '}';
+  }
+}
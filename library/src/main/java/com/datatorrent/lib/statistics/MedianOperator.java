@@ -15,8 +15,7 @@
  */
 package com.datatorrent.lib.statistics;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import javax.validation.constraints.Min;
 
 import com.datatorrent.api.annotation.InputPortFieldAnnotation;
 import com.datatorrent.api.annotation.OperatorAnnotation;
@@ -34,8 +33,13 @@ import com.datatorrent.api.DefaultOutputPort;
  * <b>Output Port(s) : </b> <br>
  * <b>median : </b>Median output port. <br>
  * <br>
+ * <b>Properties : </b> <br>
+ * <b>compression : </b>Accuracy of the {@link QuantileSketch} of the values, the median is exact as long as the
+ * window has less than 2 * compression values. <br>
+ * <br>
  * <b>StateFull : Yes</b>, value are aggregated over application window. <br>
- * <b>Partitions : No</b>, no will yield wrong results. <br>
+ * <b>Partitions : No</b>, no will yield wrong results. Use {@link PercentileOperator} for the median
+ * of partitioned data. <br>
  * <br>+
  * @displayName Median
  * @category Statistics
@@ -45,7 +49,9 @@ import com.datatorrent.api.DefaultOutputPort;
 @OperatorAnnotation(partitionable = false)
 public class MedianOperator extends BaseOperator
 {
-  private ArrayList<Double> values;
+  @Min(10)
+  private double compression = QuantileSketch.DEFAULT_COMPRESSION;
+  private transient QuantileSketch values;
   
   /**
    * Input data port that takes a number.
@@ -67,31 +73,33 @@ public class MedianOperator extends BaseOperator
    */
   public final transient DefaultOutputPort<Number> median = new DefaultOutputPort<Number>();
   
+  public double getCompression()
+  {
+    return compression;
+  }
+
+  /**
+   * @param compression accuracy of the sketch of the values.
+   */
+  public void setCompression(double compression)
+  {
+    this.compression = compression;
+  }
+
   @Override
   public void beginWindow(long arg0)
   {
-    values = new ArrayList<Double>();
+    if (values == null) {
+      values = new QuantileSketch(compression);
+    }
   }
 
   @Override
   public void endWindow()
   {
     if (values.size() == 0) return;
-    if (values.size() == 1) {
-      median.emit(values.get(0));
-      return;
-    }
-    
-    // median value 
-    Collections.sort(values);
-    int medianIndex = values.size() / 2;
-    if (values.size() %2 == 0) {
-      Double value = values.get(medianIndex-1);
-      value = (value + values.get(medianIndex))/2;
-      median.emit(value);
-    } else {
-      median.emit(values.get(medianIndex));
-    }
+    median.emit(values.quantile(0.5));
+    values.clear();
   }
 
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+/**
+ * Count, mean and variance of values computed in one pass with the method of Welford.&nbsp;
+ * Unlike summing the values and their squares, the variance stays accurate when the mean is large compared with the
+ * deviation.
+ * <p>
+ * Moments of partitions of the values are merged into the moments of all the values with the parallel algorithm of
+ * Chan et al., so they can be computed by partitions and merged by a unifier.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+public class Moments
+{
+  private long count;
+  private double mean;
+  /**
+   * Sum of the squares of the deviations from the mean.
+   */
+  private double m2;
+
+  public Moments()
+  {
+  }
+
+  /**
+   * Copies moments.
+   *
+   * @param other moments to copy.
+   */
+  public Moments(Moments other)
+  {
+    count = other.count;
+    mean = other.mean;
+    m2 = other.m2;
+  }
+
+  public void add(double value)
+  {
+    count++;
+    double delta = value - mean;
+    mean += delta / count;
+    m2 += delta * (value - mean);
+  }
+
+  /**
+   * Adds the values of other moments.
+   *
+   * @param other moments to merge, they are not changed.
+   */
+  public void merge(Moments other)
+  {
+    if (other.count == 0) {
+      return;
+    }
+    long total = count + other.count;
+    double delta = other.mean - mean;
+    m2 += other.m2 + delta * delta * ((double)count * other.count / total);
+    mean += delta * other.count / total;
+    count = total;
+  }
+
+  /**
+   * @return number of values.
+   */
+  public long getCount()
+  {
+    return count;
+  }
+
+  /**
+   * @return mean of the values, NaN if there are none.
+   */
+  public double getMean()
+  {
+    return count == 0 ? Double.NaN : mean;
+  }
+
+  /**
+   * @return population variance of the values, NaN if there are none.
+   */
+  public double getVariance()
+  {
+    return count == 0 ? Double.NaN : m2 / count;
+  }
+
+  /**
+   * @return sample variance of the values, NaN if there are less than two.
+   */
+  public double getSampleVariance()
+  {
+    return count < 2 ? Double.NaN : m2 / (count - 1);
+  }
+
+  /**
+   * @return population standard deviation of the values, NaN if there are none.
+   */
+  public double getStandardDeviation()
+  {
+    return Math.sqrt(getVariance());
+  }
+
+  /**
+   * Removes all the values.
+   */
+  public void clear()
+  {
+    count = 0;
+    mean = 0;
+    m2 = 0;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Moments{count=" + count + ", mean=" + getMean() + ", variance=" + getVariance() + '}';
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.Operator.Unifier;
+import com.datatorrent.api.Partitioner;
+import com.datatorrent.lib.partitioner.PartialAggregationPartitioner;
+import com.datatorrent.lib.util.BaseNumberKeyValueOperator;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Computes percentiles of the values of every key over the application window.&nbsp;
+ * The values of a key are summarized by a {@link QuantileSketch}, so the memory used per key is bounded
+ * however many values there are.
+ * <p>
+ * <b>Input Port(s) : </b><br>
+ * <b>data : </b> expects KeyValPair&lt;K, V extends Number&gt;. <br>
+ * <br>
+ * <b>Output Port(s) : </b> <br>
+ * <b>percentiles : </b> emits KeyValPair&lt;K, Percentiles&gt; with the percentiles of every key at the end of the
+ * window. <br>
+ * <br>
+ * <b>Properties : </b> <br>
+ * <b>quantiles : </b> Quantiles to compute, between 0 and 1, by default 0.5, 0.95 and 0.99. <br>
+ * <b>compression : </b> Accuracy of the sketches, see {@link QuantileSketch}. <br>
+ * <b>partitionCount : </b> Number of partitions. <br>
+ * <b>inverse, filterBy : </b> Keys to block or to enable. <br>
+ * <br>
+ * <b>StateFull : Yes</b>, values are aggregated over application window. <br>
+ * <b>Partitions : Yes</b>, the partitions emit the sketches of their keys, which are merged by the unifier.
+ * The number of partitions is set by partitionCount. <br>
+ * </p>
+ *
+ * @displayName Percentile Key Value
+ * @category Statistics
+ * @tags percentile, quantile, median, number, key value
+ * @since 2.0.0
+ */
+public class PercentileOperator<K> extends BaseNumberKeyValueOperator<K, Number>
+    implements Unifier<KeyValPair<K, PercentileOperator.Percentiles>>, Partitioner<PercentileOperator<K>>
+{
+  @NotNull
+  private double[] quantiles = {0.5, 0.95, 0.99};
+  @Min(10)
+  private double compression = QuantileSketch.DEFAULT_COMPRESSION;
+  @Min(1)
+  private int partitionCount = 1;
+  /**
+   * Set on the partitions when the operator is partitioned.
+   */
+  private boolean partialAggregation;
+
+  private transient HashMap<K, QuantileSketch> sketches;
+
+  /**
+   * Percentiles of the values of a key.
+   */
+  public static class Percentiles
+  {
+    private double[] quantiles;
+    private double[] values;
+    private long count;
+    /**
+     * Sketch of the values, only set on the percentiles emitted by a partition.
+     */
+    private QuantileSketch sketch;
+
+    @SuppressWarnings("unused")
+    private Percentiles()
+    {
+      //for kryo
+    }
+
+    Percentiles(double[] quantiles, QuantileSketch sketch, boolean partial)
+    {
+      this.quantiles = quantiles;
+      count = sketch.size();
+      if (partial) {
+        this.sketch = sketch;
+      }
+      else {
+        values = new double[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+          values[i] = sketch.quantile(quantiles[i]);
+        }
+      }
+    }
+
+    public double[] getQuantiles()
+    {
+      return quantiles;
+    }
+
+    /**
+     * @return estimated values of the quantiles, in the order of the quantiles.
+     */
+    public double[] getValues()
+    {
+      return values;
+    }
+
+    /**
+     * @param quantile one of the quantiles of the operator.
+     * @return estimated value of the quantile.
+     */
+    public double get(double quantile)
+    {
+      for (int i = 0; i < quantiles.length; i++) {
+        if (quantiles[i] == quantile) {
+          return values[i];
+        }
+      }
+      throw new IllegalArgumentException("quantile " + quantile + " is not computed");
+    }
+
+    /**
+     * @return number of values.
+     */
+    public long getCount()
+    {
+      return count;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "Percentiles{count=" + count + ", quantiles=" + Arrays.toString(quantiles) + ", values=" + Arrays.toString(values) + '}';
+    }
+  }
+
+  /**
+   * Input port that takes a key value pair.
+   */
+  public final transient DefaultInputPort<KeyValPair<K, ? extends Number>> data = new DefaultInputPort<KeyValPair<K, ? extends Number>>()
+  {
+    @Override
+    public void process(KeyValPair<K, ? extends Number> tuple)
+    {
+      K key = tuple.getKey();
+      if (!doprocessKey(key)) {
+        return;
+      }
+      getSketch(key).add(tuple.getValue().doubleValue());
+    }
+  };
+
+  /**
+   * Output port that emits the percentiles of every key.
+   */
+  public final transient DefaultOutputPort<KeyValPair<K, Percentiles>> percentiles = new DefaultOutputPort<KeyValPair<K, Percentiles>>()
+  {
+    @Override
+    public Unifier<KeyValPair<K, Percentiles>> getUnifier()
+    {
+      PercentileOperator<K> unifier = new PercentileOperator<K>();
+      unifier.quantiles = quantiles;
+      unifier.compression = compression;
+      return unifier;
+    }
+  };
+
+  private QuantileSketch getSketch(K key)
+  {
+    QuantileSketch sketch = sketches.get(key);
+    if (sketch == null) {
+      sketch = new QuantileSketch(compression);
+      sketches.put(cloneKey(key), sketch);
+    }
+    return sketch;
+  }
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    for (double quantile : quantiles) {
+      if (quantile < 0 || quantile > 1) {
+        throw new IllegalArgumentException("quantile must be between 0 and 1: " + quantile);
+      }
+    }
+    sketches = new HashMap<K, QuantileSketch>();
+  }
+
+  /**
+   * Merges the sketches emitted by the partitions, used when the operator is the unifier.
+   */
+  @Override
+  public void process(KeyValPair<K, Percentiles> tuple)
+  {
+    QuantileSketch sketch = tuple.getValue().sketch;
+    if (sketch == null) {
+      percentiles.emit(tuple);
+      return;
+    }
+    getSketch(tuple.getKey()).merge(sketch);
+  }
+
+  @Override
+  public void endWindow()
+  {
+    for (Map.Entry<K, QuantileSketch> entry : sketches.entrySet()) {
+      percentiles.emit(new KeyValPair<K, Percentiles>(entry.getKey(), new Percentiles(quantiles, entry.getValue(), partialAggregation)));
+    }
+    sketches.clear();
+  }
+
+  public double[] getQuantiles()
+  {
+    return quantiles;
+  }
+
+  /**
+   * @param quantiles quantiles to compute, between 0 and 1, like 0.99 for the 99th percentile.
+   */
+  public void setQuantiles(double... quantiles)
+  {
+    this.quantiles = quantiles;
+  }
+
+  public double getCompression()
+  {
+    return compression;
+  }
+
+  /**
+   * @param compression accuracy of the sketches.
+   */
+  public void setCompression(double compression)
+  {
+    this.compression = compression;
+  }
+
+  public int getPartitionCount()
+  {
+    return partitionCount;
+  }
+
+  /**
+   * @param partitionCount number of partitions.
+   */
+  public void setPartitionCount(int partitionCount)
+  {
+    this.partitionCount = partitionCount;
+  }
+
+  @Override
+  public Collection<Partition<PercentileOperator<K>>> definePartitions(Collection<Partition<PercentileOperator<K>>> partitions, PartitioningContext context)
+  {
+    return new PartialAggregationPartitioner<PercentileOperator<K>>(partitionCount)
+    {
+      @Override
+      protected void setPartialAggregation(PercentileOperator<K> operator, boolean partialAggregation)
+      {
+        operator.partialAggregation = partialAggregation;
+      }
+    }.definePartitions(partitions, context);
+  }
+
+  @Override
+  public void partitioned(Map<Integer, Partition<PercentileOperator<K>>> partitions)
+  {
+  }
+}
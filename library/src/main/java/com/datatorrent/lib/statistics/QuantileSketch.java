@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable sketch of a distribution of values which estimates quantiles in bounded memory.&nbsp;
+ * It is a merging t-digest: values are collected in a buffer and merged into a sorted list of centroids, each with
+ * a mean and a weight, when the buffer is full.
+ * <p>
+ * The weight of a centroid is limited by 4 * n * q * (1 - q) / compression, where q is the quantile of the centroid
+ * and n is the number of values. Centroids near the median summarize many values while those at the tails
+ * stay small, so extreme quantiles like p99 are accurate. The sketch keeps about compression centroids,
+ * a higher compression is more accurate and uses more memory. As long as no centroid has summarized more than one
+ * value, the quantiles are exact, with linear interpolation between adjacent values.
+ * </p>
+ * Sketches of partitions of the values can be merged into the sketch of all the values.
+ *
+ * @since 2.0.0
+ */
+public class QuantileSketch
+{
+  public static final double DEFAULT_COMPRESSION = 100;
+
+  private double compression;
+  private double[] means;
+  private double[] weights;
+  private int centroidCount;
+  private double[] buffer;
+  private int bufferCount;
+  private long count;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  public QuantileSketch()
+  {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param compression accuracy of the sketch, about the number of centroids kept.
+   */
+  public QuantileSketch(double compression)
+  {
+    if (compression < 10) {
+      throw new IllegalArgumentException("compression must be at least 10");
+    }
+    this.compression = compression;
+    int capacity = (int)Math.ceil(compression) * 2;
+    means = new double[capacity];
+    weights = new double[capacity];
+    buffer = new double[(int)Math.ceil(compression) * 5];
+  }
+
+  public double getCompression()
+  {
+    return compression;
+  }
+
+  /**
+   * @return number of values added to the sketch.
+   */
+  public long size()
+  {
+    return count;
+  }
+
+  public void add(double value)
+  {
+    if (Double.isNaN(value)) {
+      throw new IllegalArgumentException("cannot add NaN");
+    }
+    if (bufferCount == buffer.length) {
+      compress();
+    }
+    buffer[bufferCount++] = value;
+    count++;
+    if (value < min) {
+      min = value;
+    }
+    if (value > max) {
+      max = value;
+    }
+  }
+
+  /**
+   * Adds the values of another sketch.
+   *
+   * @param other sketch to merge, its values are not changed.
+   */
+  public void merge(QuantileSketch other)
+  {
+    if (other.count == 0) {
+      return;
+    }
+    compress();
+    other.compress();
+    merge(other.means, other.weights, other.centroidCount);
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * Merges the buffer into the centroids.
+   */
+  private void compress()
+  {
+    if (bufferCount == 0) {
+      return;
+    }
+    Arrays.sort(buffer, 0, bufferCount);
+    double[] bufferWeights = new double[bufferCount];
+    Arrays.fill(bufferWeights, 1);
+    int values = bufferCount;
+    bufferCount = 0;
+    merge(buffer, bufferWeights, values);
+  }
+
+  /**
+   * Merges sorted centroids into the centroids of the sketch.
+   */
+  private void merge(double[] otherMeans, double[] otherWeights, int otherCount)
+  {
+    int total = centroidCount + otherCount;
+    double[] allMeans = new double[total];
+    double[] allWeights = new double[total];
+    double totalWeight = 0;
+    // both lists are sorted, merge them
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < total; k++) {
+      if (j == otherCount || (i < centroidCount && means[i] <= otherMeans[j])) {
+        allMeans[k] = means[i];
+        allWeights[k] = weights[i++];
+      }
+      else {
+        allMeans[k] = otherMeans[j];
+        allWeights[k] = otherWeights[j++];
+      }
+      totalWeight += allWeights[k];
+    }
+
+    int merged = 0;
+    double mergedWeight = 0;
+    double mean = allMeans[0];
+    double weight = allWeights[0];
+    for (int k = 1; k < total; k++) {
+      double proposedWeight = weight + allWeights[k];
+      double q = (mergedWeight + proposedWeight / 2) / totalWeight;
+      if (proposedWeight <= Math.max(1, 4 * totalWeight * q * (1 - q) / compression)) {
+        mean += (allMeans[k] - mean) * allWeights[k] / proposedWeight;
+        weight = proposedWeight;
+      }
+      else {
+        allMeans[merged] = mean;
+        allWeights[merged++] = weight;
+        mergedWeight += weight;
+        mean = allMeans[k];
+        weight = allWeights[k];
+      }
+    }
+    allMeans[merged] = mean;
+    allWeights[merged++] = weight;
+
+    if (merged > means.length) {
+      means = Arrays.copyOf(allMeans, merged);
+      weights = Arrays.copyOf(allWeights, merged);
+    }
+    else {
+      System.arraycopy(allMeans, 0, means, 0, merged);
+      System.arraycopy(allWeights, 0, weights, 0, merged);
+    }
+    centroidCount = merged;
+  }
+
+  /**
+   * Estimates a quantile of the values.
+   *
+   * @param q quantile between 0 and 1, like 0.99 for the 99th percentile.
+   * @return estimated value of the quantile, NaN if the sketch is empty.
+   */
+  public double quantile(double q)
+  {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("quantile must be between 0 and 1: " + q);
+    }
+    if (count == 0) {
+      return Double.NaN;
+    }
+    compress();
+    if (centroidCount == 1) {
+      return means[0];
+    }
+    // every centroid is at the middle of its weight, interpolate between the centroids around the index
+    double index = q * count;
+    if (index <= weights[0] / 2) {
+      // a single value is the minimum
+      return weights[0] == 1 ? means[0] : min + (means[0] - min) * index / (weights[0] / 2);
+    }
+    double weightSoFar = 0;
+    for (int i = 0; i < centroidCount - 1; i++) {
+      double left = weightSoFar + weights[i] / 2;
+      double right = weightSoFar + weights[i] + weights[i + 1] / 2;
+      if (index <= right) {
+        return means[i] + (means[i + 1] - means[i]) * (index - left) / (right - left);
+      }
+      weightSoFar += weights[i];
+    }
+    int last = centroidCount - 1;
+    if (weights[last] == 1) {
+      return means[last];
+    }
+    double left = count - weights[last] / 2;
+    return means[last] + (max - means[last]) * (index - left) / (weights[last] / 2);
+  }
+
+  /**
+   * @return smallest value added, NaN if the sketch is empty.
+   */
+  public double getMin()
+  {
+    return count == 0 ? Double.NaN : min;
+  }
+
+  /**
+   * @return largest value added, NaN if the sketch is empty.
+   */
+  public double getMax()
+  {
+    return count == 0 ? Double.NaN : max;
+  }
+
+  /**
+   * Removes all the values.
+   */
+  public void clear()
+  {
+    centroidCount = 0;
+    bufferCount = 0;
+    count = 0;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+  }
+}
@@ -15,8 +15,6 @@
  */
 package com.datatorrent.lib.statistics;
 
-import java.util.ArrayList;
-
 import com.datatorrent.api.BaseOperator;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
@@ -26,6 +24,8 @@ import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 
 /**
  * An implementation of BaseOperator that computes variance and standard deviation over incoming data. <br>
+ * The values are not kept, their {@link Moments} are updated with every value. See {@link VarianceKeyVal} for
+ * keyed and partitionable variances. <br>
  * <p>
  * <b>Input Port(s) : </b><br>
  * <b>data : </b> Data values input port. <br>
@@ -45,7 +45,7 @@ import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 @OperatorAnnotation(partitionable = false)
 public class StandardDeviation extends BaseOperator
 {
-  private ArrayList<Double> values = new ArrayList<Double>();
+  private Moments moments = new Moments();
   
   /**
    * Input data port that takes in a number.
@@ -58,7 +58,7 @@ public class StandardDeviation extends BaseOperator
     @Override
     public void process(Number tuple)
     {
-      values.add(tuple.doubleValue());
+      moments.add(tuple.doubleValue());
     }
   };
   
@@ -80,21 +80,9 @@ public class StandardDeviation extends BaseOperator
   public void endWindow()
   {
     // no values.
-    if (values.size() == 0) return;
-    
-    // get mean first.
-    double mean = 0.0;
-    for (Double value : values) {
-      mean += value;
-    }
-    mean = mean/values.size();
+    if (moments.getCount() == 0) return;
     
-    // get variance  
-    double outVal = 0.0;
-    for (Double value : values) {
-      outVal += (value-mean)*(value-mean);
-    }
-    outVal = outVal / values.size();
+    double outVal = moments.getVariance();
     if (variance.isConnected()) {
       variance.emit(outVal);
     }
@@ -102,6 +90,6 @@ public class StandardDeviation extends BaseOperator
     // get standard deviation
     standardDeviation.emit(Math.sqrt(outVal));
     
-    values = new ArrayList<Double>();
+    moments.clear();
   }
 }
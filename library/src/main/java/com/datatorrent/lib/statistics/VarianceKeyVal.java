@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Computes the mean, variance and standard deviation of the values of every key over the application window.&nbsp;
+ * Unlike {@link StandardDeviation} the values are not kept, the {@link Moments} of a key are updated with every value.
+ * <p>
+ * <b>Input Port(s) : </b><br>
+ * <b>data : </b> expects KeyValPair&lt;K, V extends Number&gt;. <br>
+ * <br>
+ * <b>Output Port(s) : </b> <br>
+ * <b>moments : </b> emits KeyValPair&lt;K, Moments&gt; with the count, mean and variance of every key at the end of
+ * the window. <br>
+ * <br>
+ * <b>Properties : </b> <br>
+ * <b>partitionCount : </b> Number of partitions. <br>
+ * <b>inverse, filterBy : </b> Keys to block or to enable. <br>
+ * <br>
+ * <b>StateFull : Yes</b>, values are aggregated over application window. <br>
+ * <b>Partitions : Yes</b>, the moments of the partitions are merged by the unifier. <br>
+ * </p>
+ *
+ * @displayName Variance Key Value
+ * @category Statistics
+ * @tags variance, standard deviation, mean, number, key value
+ * @since 2.0.0
+ */
+public class VarianceKeyVal<K> extends AbstractKeyValStatistics<K, Number, Moments>
+{
+  /**
+   * Output port that emits the moments of every key.
+   */
+  public final transient DefaultOutputPort<KeyValPair<K, Moments>> moments = new DefaultOutputPort<KeyValPair<K, Moments>>()
+  {
+    @Override
+    public Unifier<KeyValPair<K, Moments>> getUnifier()
+    {
+      return new VarianceKeyVal<K>();
+    }
+  };
+
+  @Override
+  protected Moments createState()
+  {
+    return new Moments();
+  }
+
+  @Override
+  protected void add(Moments state, Number value)
+  {
+    state.add(value.doubleValue());
+  }
+
+  @Override
+  protected void merge(Moments state, Moments other)
+  {
+    state.merge(other);
+  }
+
+  @Override
+  protected void emit(K key, Moments state)
+  {
+    moments.emit(new KeyValPair<K, Moments>(key, state));
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+import com.datatorrent.lib.codec.KryoSerializableStreamCodec;
+
+/**
+ * A stream codec for table rows which partitions the rows by the values of the given columns.&nbsp;
+ * Rows with equal values in these columns always go to the same partition.
+ * <p>
+ * It is used by the streamquery operators whose result for a row only depends on rows with the same
+ * values in some columns, like the rows of an equi-join or of a group.
+ * </p>
+ * @since 2.0.0
+ */
+public class ColumnPartitionStreamCodec extends KryoSerializableStreamCodec<Map<String, Object>>
+{
+  @NotNull
+  private String[] columns;
+
+  @SuppressWarnings("unused")
+  private ColumnPartitionStreamCodec()
+  {
+    //for kryo
+  }
+
+  public ColumnPartitionStreamCodec(@NotNull String... columns)
+  {
+    this.columns = columns;
+  }
+
+  @Override
+  public int getPartition(Map<String, Object> row)
+  {
+    if (columns.length == 1) {
+      Object value = row.get(columns[0]);
+      return value == null ? 0 : value.hashCode();
+    }
+    Object[] values = new Object[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      values[i] = row.get(columns[i]);
+    }
+    return Arrays.hashCode(values);
+  }
+
+  public String[] getColumns()
+  {
+    return columns;
+  }
+
+  private static final long serialVersionUID = 201410191530L;
+}
@@ -18,6 +18,7 @@ package com.datatorrent.lib.streamquery;
 import java.util.Map;
 
 import com.datatorrent.api.BaseOperator;
+import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.lib.streamquery.condition.Condition;
@@ -53,6 +54,11 @@ public class DeleteOperator extends BaseOperator
    */
   private Condition condition = null;
 
+  /**
+   * condition compiled in setup.
+   */
+  private transient ExpressionCompiler.CompiledCondition compiledCondition;
+
   /**
    * set condition.
    */
@@ -70,7 +76,7 @@ public class DeleteOperator extends BaseOperator
     @Override
     public void process(Map<String, Object> tuple)
     {
-      if ((condition != null) && (!condition.isValidRow(tuple))) {
+      if ((compiledCondition != null) && (!compiledCondition.isValidRow(tuple))) {
         outport.emit(tuple);
       }
     }
@@ -80,4 +86,10 @@ public class DeleteOperator extends BaseOperator
    * Output port emits a map of &lt;string,object&gt;.
    */
   public final transient DefaultOutputPort<Map<String, Object>> outport = new DefaultOutputPort<Map<String, Object>>();
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    compiledCondition = ExpressionCompiler.compile(condition);
+  }
 }
@@ -27,6 +27,9 @@ import java.util.Map;
 /**
  * An implementation of AbstractSqlStreamOperator that provides embedded derby sql input operator. 
  * <p>
+ * Every tuple goes through a JDBC insert, {@link NativeSqlStreamOperator} executes the same statements
+ * without the database and is much faster.
+ * <p>
  * @displayName Derby Sql Stream
  * @category Streamquery
  * @tags sql, in-memory, input operator
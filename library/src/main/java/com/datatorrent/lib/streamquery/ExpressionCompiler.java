@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.validation.constraints.NotNull;
+
+import com.datatorrent.lib.streamquery.condition.BetweenCondition;
+import com.datatorrent.lib.streamquery.condition.CompoundCondition;
+import com.datatorrent.lib.streamquery.condition.Condition;
+import com.datatorrent.lib.streamquery.condition.EqualValueCondition;
+import com.datatorrent.lib.streamquery.condition.InCondition;
+import com.datatorrent.lib.streamquery.condition.LikeCondition;
+import com.datatorrent.lib.streamquery.index.ColumnIndex;
+import com.datatorrent.lib.streamquery.index.Index;
+import com.datatorrent.lib.streamquery.index.NegateExpression;
+import com.datatorrent.lib.streamquery.index.SumExpression;
+import com.datatorrent.lib.streamquery.schema.Row;
+import com.datatorrent.lib.streamquery.schema.Schema;
+
+/**
+ * Compiles condition and index trees into evaluators specialized for the tree, which the streamquery operators
+ * build once in setup and then use for every row.
+ * <p>
+ * The compiled evaluators give the same results as {@link Condition#isValidRow} and {@link Index#filter} but do
+ * less work per row: nested AND/OR conditions are flattened into arrays, constant values are cast and collected
+ * once, output names are resolved once and a column is looked up in the row only once. The columns of a
+ * {@link Row} are read by slot, the slot of a column is resolved again only when the schema of the rows changes.
+ * Conditions and indexes of other types are evaluated through their own implementation.
+ * </p>
+ * A compiled evaluator keeps state, it must not be shared by operators.
+ *
+ * @since 2.0.0
+ */
+public class ExpressionCompiler
+{
+  /**
+   * Compiled select condition.
+   */
+  public interface CompiledCondition
+  {
+    boolean isValidRow(@NotNull Map<String, Object> row);
+  }
+
+  private ExpressionCompiler()
+  {
+  }
+
+  /**
+   * @param condition condition to compile.
+   * @return compiled condition, null if condition is null.
+   */
+  public static CompiledCondition compile(Condition condition)
+  {
+    if (condition == null) {
+      return null;
+    }
+    if (condition instanceof CompoundCondition) {
+      CompoundCondition compound = (CompoundCondition) condition;
+      List<CompiledCondition> operands = new ArrayList<CompiledCondition>();
+      addOperands(compound, compound.isLogicalOr(), operands);
+      CompiledCondition[] array = operands.toArray(new CompiledCondition[operands.size()]);
+      return compound.isLogicalOr() ? new OrCondition(array) : new AndCondition(array);
+    }
+    if (condition instanceof EqualValueCondition) {
+      return new CompiledEqualValueCondition(((EqualValueCondition) condition).getEqualValues());
+    }
+    if (condition instanceof BetweenCondition) {
+      return new CompiledBetweenCondition((BetweenCondition) condition);
+    }
+    if (condition instanceof InCondition) {
+      return new CompiledInCondition(((InCondition) condition).getColumn(), ((InCondition) condition).getInValues());
+    }
+    if (condition instanceof LikeCondition) {
+      return new CompiledLikeCondition(((LikeCondition) condition).getColumn(), ((LikeCondition) condition).getPattern());
+    }
+    return new InterpretedCondition(condition);
+  }
+
+  /**
+   * Collects the operands of nested compound conditions of the same logical operation.
+   */
+  private static void addOperands(Condition condition, boolean logicalOr, List<CompiledCondition> operands)
+  {
+    if (condition instanceof CompoundCondition && ((CompoundCondition) condition).isLogicalOr() == logicalOr) {
+      addOperands(((CompoundCondition) condition).getLeftCondition(), logicalOr, operands);
+      addOperands(((CompoundCondition) condition).getRightCondition(), logicalOr, operands);
+    }
+    else {
+      operands.add(compile(condition));
+    }
+  }
+
+  /**
+   * @param indexes select indexes to compile.
+   * @return compiled indexes in the same order.
+   */
+  public static Index[] compile(@NotNull List<? extends Index> indexes)
+  {
+    Index[] compiled = new Index[indexes.size()];
+    for (int i = 0; i < compiled.length; i++) {
+      compiled[i] = compile(indexes.get(i));
+    }
+    return compiled;
+  }
+
+  private static Index compile(Index index)
+  {
+    //subclasses of ColumnIndex override filter
+    if (index.getClass() == ColumnIndex.class) {
+      ColumnIndex column = (ColumnIndex) index;
+      return new CompiledColumnIndex(column.getAlias() != null ? column.getAlias() : column.getColumn());
+    }
+    if (index.getClass() == SumExpression.class) {
+      SumExpression sum = (SumExpression) index;
+      return new CompiledSumExpression(sum.getLeft(), sum.getRight(), sum.getAlias());
+    }
+    if (index.getClass() == NegateExpression.class) {
+      NegateExpression negate = (NegateExpression) index;
+      return new CompiledNegateExpression(negate.getColumn(), negate.getAlias());
+    }
+    return index;
+  }
+
+  /**
+   * Reads a column of the rows, by slot when the row is a {@link Row}.
+   */
+  private static class Column
+  {
+    final String name;
+    private Schema schema;
+    private int slot;
+
+    Column(String name)
+    {
+      this.name = name;
+    }
+
+    private int slot(Row row)
+    {
+      if (row.getSchema() != schema) {
+        schema = row.getSchema();
+        slot = schema.getSlot(name);
+      }
+      return slot;
+    }
+
+    Object get(Map<String, Object> row)
+    {
+      if (row instanceof Row) {
+        int slot = slot((Row) row);
+        return slot < 0 ? null : ((Row) row).get(slot);
+      }
+      return row.get(name);
+    }
+
+    boolean isSet(Map<String, Object> row)
+    {
+      if (row instanceof Row) {
+        int slot = slot((Row) row);
+        return slot >= 0 && ((Row) row).isSet(slot);
+      }
+      return row.containsKey(name);
+    }
+  }
+
+  private static class InterpretedCondition implements CompiledCondition
+  {
+    private final Condition condition;
+
+    InterpretedCondition(Condition condition)
+    {
+      this.condition = condition;
+    }
+
+    @Override
+    public boolean isValidRow(Map<String, Object> row)
+    {
+      return condition.isValidRow(row);
+    }
+  }
+
+  private static class AndCondition implements CompiledCondition
+  {
+    private final CompiledCondition[] operands;
+
+    AndCondition(CompiledCondition[] operands)
+    {
+      this.operands = operands;
+    }
+
+    @Override
+    public boolean isValidRow(Map<String, Object> row)
+    {
+      for (CompiledCondition operand : operands) {
+        if (!operand.isValidRow(row)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class OrCondition implements CompiledCondition
+  {
+    private final CompiledCondition[] operands;
+
+    OrCondition(CompiledCondition[] operands)
+    {
+      this.operands = operands;
+    }
+
+    @Override
+    public boolean isValidRow(Map<String, Object> row)
+    {
+      for (CompiledCondition operand : operands) {
+        if (operand.isValidRow(row)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Same checks in the same order as {@link EqualValueCondition}, including that an expected null value
+   * which matches validates the row.
+   */
+  private static class CompiledEqualValueCondition implements CompiledCondition
+  {
+    private final Column[] columns;
+    private final Object[] values;
+
+    CompiledEqualValueCondition(Map<String, Object> equalValues)
+    {
+      columns = new Column[equalValues.size()];
+      values = new Object[equalValues.size()];
+      int i = 0;
+      for (Map.Entry<String, Object> entry : equalValues.entrySet()) {
+        columns[i] = new Column(entry.getKey());
+        values[i++] = entry.getValue();
+      }
+    }
+
+    @Override
+    public boolean isValidRow(Map<String, Object> row)
+    {
+      for (int i = 0; i < columns.length; i++) {
+        Object value = columns[i].get(row);
+        if (value == null) {
+          if (!columns[i].isSet(row)) {
+            return false;
+          }
+          return values[i] == null;
+        }
+        if (values[i] == null || !values[i].equals(value)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static class CompiledBetweenCondition implements CompiledCondition
+  {
+    private final Column column;
+    private final Comparable leftValue;
+    private final Comparable rightValue;
+
+    CompiledBetweenCondition(BetweenCondition condition)
+    {
+      column = new Column(condition.getColumn());
+      leftValue = (Comparable) condition.getLeftValue();
+      rightValue = (Comparable) condition.getRightValue();
+    }
+
+    @Override
+    public boolean isValidRow(Map<String, Object> row)
+    {
+      Comparable value = (Comparable) column.get(row);
+      return value != null && value.compareTo(leftValue) >= 0 && value.compareTo(rightValue) <= 0;
+    }
+  }
+
+  private static class CompiledInCondition implements CompiledCondition
+  {
+    private final Column column;
+    private final Set<Object> inValues;
+    private final boolean nullIn;
+
+    CompiledInCondition(String column, Set<Object> inValues)
+    {
+      this.column = new Column(column);
+      this.inValues = inValues;
+      nullIn = inValues.contains(null);
+    }
+
+    @Override
+    public boolean isValidRow(Map<String, Object> row)
+    {
+      Object value = column.get(row);
+      if (value == null) {
+        return nullIn && column.isSet(row);
+      }
+      return inValues.contains(value);
+    }
+  }
+
+  private static class CompiledLikeCondition implements CompiledCondition
+  {
+    private final Column column;
+    private final Matcher matcher;
+
+    CompiledLikeCondition(String column, String pattern)
+    {
+      this.column = new Column(column);
+      matcher = Pattern.compile(pattern).matcher("");
+    }
+
+    @Override
+    public boolean isValidRow(Map<String, Object> row)
+    {
+      Object value = column.get(row);
+      if (value == null && !column.isSet(row)) {
+        return false;
+      }
+      return matcher.reset((CharSequence) value).find();
+    }
+  }
+
+  /**
+   * {@link ColumnIndex} reads the output name from the row.
+   */
+  private static class CompiledColumnIndex implements Index
+  {
+    private final Column column;
+
+    CompiledColumnIndex(String name)
+    {
+      column = new Column(name);
+    }
+
+    @Override
+    public void filter(Map<String, Object> row, Map<String, Object> collect)
+    {
+      collect.put(column.name, column.get(row));
+    }
+  }
+
+  private static class CompiledSumExpression implements Index
+  {
+    private final Column left;
+    private final Column right;
+    private final String alias;
+
+    CompiledSumExpression(String left, String right, String alias)
+    {
+      this.left = new Column(left);
+      this.right = new Column(right);
+      this.alias = alias;
+    }
+
+    @Override
+    public void filter(Map<String, Object> row, Map<String, Object> collect)
+    {
+      Number leftValue = (Number) left.get(row);
+      if (leftValue == null && !left.isSet(row)) {
+        return;
+      }
+      Number rightValue = (Number) right.get(row);
+      if (rightValue == null && !right.isSet(row)) {
+        return;
+      }
+      collect.put(alias, leftValue.doubleValue() + rightValue.doubleValue());
+    }
+  }
+
+  private static class CompiledNegateExpression implements Index
+  {
+    private final Column column;
+    private final String alias;
+
+    CompiledNegateExpression(String column, String alias)
+    {
+      this.column = new Column(column);
+      this.alias = alias;
+    }
+
+    @Override
+    public void filter(Map<String, Object> row, Map<String, Object> collect)
+    {
+      Number value = (Number) column.get(row);
+      if (value == null && !column.isSet(row)) {
+        return;
+      }
+      collect.put(alias, -value.doubleValue());
+    }
+  }
+}
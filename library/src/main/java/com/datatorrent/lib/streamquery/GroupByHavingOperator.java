@@ -16,19 +16,32 @@
 package com.datatorrent.lib.streamquery;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.datatorrent.api.BaseOperator;
+import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
-import com.datatorrent.api.annotation.OperatorAnnotation;
+import com.datatorrent.api.Operator.Unifier;
+import com.datatorrent.api.Partitioner;
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.lib.partitioner.PartialAggregationPartitioner;
 import com.datatorrent.lib.streamquery.condition.Condition;
 import com.datatorrent.lib.streamquery.condition.HavingCondition;
 import com.datatorrent.lib.streamquery.function.FunctionIndex;
+import com.datatorrent.lib.streamquery.function.IncrementalFunction;
 import com.datatorrent.lib.streamquery.index.ColumnIndex;
+import com.datatorrent.lib.streamquery.schema.Row;
+import com.datatorrent.lib.streamquery.schema.RowStreamCodec;
+import com.datatorrent.lib.streamquery.schema.Schema;
 
 /**
  * An implementation of BaseOperator that provides sql group by querying semantics on live data stream. <br>
@@ -39,8 +52,16 @@ import com.datatorrent.lib.streamquery.index.ColumnIndex;
  * satisfied by row. HashMap of column name(s) and aggregate alias is emitted on
  * output port. <br>
  * <br>
+ * When all the aggregate functions, including the ones of the having conditions, are
+ * {@link IncrementalFunction}s and the having conditions implement {@link HavingCondition#isValidResult(Object)},
+ * every row updates the accumulators of its group on arrival and the rows are not kept till the end of the window.
+ * Otherwise the rows of the window are buffered and aggregated in endWindow. An aggregate whose column value
+ * cannot be aggregated, like a null or a value which is not a number, is left out of the result of the group. <br>
+ * <br>
  * <b>StateFull : Yes,</b> Operator aggregates input over application window. <br>
- * <b>Partitions : No, </b> will yield wrong result(s). <br>
+ * <b>Partitions : Yes, </b> for incremental aggregation. The partitions emit the partial
+ * aggregates of their groups, which are merged by the unifier before the having conditions are
+ * applied. The number of partitions is set by partitionCount. <br>
  * <br>
  * <b>Ports</b>:<br>
  * <b> inport : </b> Input hash map(row) port, expects
@@ -53,15 +74,22 @@ import com.datatorrent.lib.streamquery.index.ColumnIndex;
  * <b> columnGroupIndexes : </b> Group by names list. <br>
  * <b> indexes : </b> Select column indexes. <br>
  * <b> havingConditions : </b> Having filter conditions for aggregate(s). <br>
+ * <b> incremental : </b> Aggregate rows on arrival when possible, true by default. <br>
+ * <b> partitionCount : </b> Number of partitions. <br>
+ * <b> inputSchema : </b> Schema of the input rows, rows are streamed with {@link RowStreamCodec} if set. <br>
+ * <b> outputSchema : </b> Schema of the result rows, {@link Row}s are emitted instead of hash maps if set. <br>
  * <br>
  * @displayName GroupBy Having Operator
  * @category Streamquery
  * @tags sql, groupby operator, condition, index
  * @since 0.3.4
  */
-@OperatorAnnotation(partitionable = false)
-public class GroupByHavingOperator extends BaseOperator
+public class GroupByHavingOperator extends BaseOperator implements Unifier<Map<String, Object>>, Partitioner<GroupByHavingOperator>
 {
+  /**
+   * Key of the partial aggregates in the rows emitted by a partition.
+   */
+  public static final String PARTIAL_AGGREGATES = "_partialAggregates";
 
   /**
    * aggregate indexes.
@@ -88,6 +116,30 @@ public class GroupByHavingOperator extends BaseOperator
    */
   private ArrayList<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
 
+  /**
+   * Aggregate rows on arrival when all functions support it.
+   */
+  private boolean incremental = true;
+
+  @Min(1)
+  private int partitionCount = 1;
+
+  /**
+   * Set on the partitions when the operator is partitioned.
+   */
+  private boolean partialAggregation;
+
+  private Schema inputSchema;
+  private Schema outputSchema;
+
+  /**
+   * Accumulators of the groups for incremental aggregation.
+   */
+  private transient HashMap<MultiKeyCompare, Group> groups;
+  private transient boolean aggregateOnArrival;
+  private transient ExpressionCompiler.CompiledCondition compiledCondition;
+  private transient Schema resultSchema;
+
   public void addAggregateIndex(@NotNull FunctionIndex index)
   {
     aggregates.add(index);
@@ -111,6 +163,32 @@ public class GroupByHavingOperator extends BaseOperator
     this.condition = condition;
   }
 
+  public Schema getInputSchema()
+  {
+    return inputSchema;
+  }
+
+  /**
+   * Sets the schema of the input rows.
+   */
+  public void setInputSchema(Schema inputSchema)
+  {
+    this.inputSchema = inputSchema;
+  }
+
+  public Schema getOutputSchema()
+  {
+    return outputSchema;
+  }
+
+  /**
+   * Sets the schema of the result rows, partial aggregates are always emitted as hash maps.
+   */
+  public void setOutputSchema(Schema outputSchema)
+  {
+    this.outputSchema = outputSchema;
+  }
+
   /**
    * Input port that takes a map of &lt;string,object&gt;.
    */
@@ -120,16 +198,74 @@ public class GroupByHavingOperator extends BaseOperator
     @Override
     public void process(Map<String, Object> tuple)
     {
-      if ((condition != null) && (!condition.isValidRow(tuple)))
+      if ((compiledCondition != null) && (!compiledCondition.isValidRow(tuple)))
+        return;
+      if (aggregateOnArrival) {
+        if (columnGroupIndexes.size() > 0) {
+          accumulate(tuple);
+        }
         return;
+      }
       rows.add(tuple);
     }
+
+    @Override
+    public StreamCodec<Map<String, Object>> getStreamCodec()
+    {
+      if (inputSchema != null) {
+        return new RowStreamCodec(inputSchema);
+      }
+      return super.getStreamCodec();
+    }
   };
 
   /**
    * Output port that emits a map of &lt;string,object&gt;.
    */
-  public final transient DefaultOutputPort<Map<String, Object>> outport = new DefaultOutputPort<Map<String, Object>>();
+  public final transient DefaultOutputPort<Map<String, Object>> outport = new DefaultOutputPort<Map<String, Object>>()
+  {
+    @Override
+    public Unifier<Map<String, Object>> getUnifier()
+    {
+      GroupByHavingOperator unifier = new GroupByHavingOperator();
+      unifier.aggregates = aggregates;
+      unifier.columnGroupIndexes = columnGroupIndexes;
+      unifier.havingConditions = havingConditions;
+      unifier.outputSchema = outputSchema;
+      return unifier;
+    }
+  };
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    aggregateOnArrival = isIncrementalSupported();
+    compiledCondition = ExpressionCompiler.compile(condition);
+    groups = new HashMap<MultiKeyCompare, Group>();
+    resultSchema = outputSchema;
+  }
+
+  /**
+   * Merges the partial aggregates emitted by the partitions, used when the operator is the unifier.
+   */
+  @Override
+  public void process(Map<String, Object> tuple)
+  {
+    Object[] partials = (Object[]) tuple.get(PARTIAL_AGGREGATES);
+    if (partials == null) {
+      outport.emit(tuple);
+      return;
+    }
+    Group group = getGroup(tuple);
+    for (int i = 0; i < partials.length; i++) {
+      if (partials[i] == null) {
+        group.accumulators[i] = null;
+      }
+      else if (group.accumulators[i] != null) {
+        getFunction(i).merge(group.accumulators[i], partials[i]);
+      }
+    }
+  }
 
   /**
    * Create aggregate at end window.
@@ -137,6 +273,19 @@ public class GroupByHavingOperator extends BaseOperator
   @Override
   public void endWindow()
   {
+    if (aggregateOnArrival) {
+      for (Group group : groups.values()) {
+        if (partialAggregation) {
+          emitPartial(group);
+        }
+        else {
+          emitResult(group);
+        }
+      }
+      groups.clear();
+      return;
+    }
+
     // group names
     if (columnGroupIndexes.size() == 0) {
       rows = new ArrayList<Map<String, Object>>();
@@ -197,11 +346,180 @@ public class GroupByHavingOperator extends BaseOperator
     rows = new ArrayList<Map<String, Object>>();
   }
 
+  /**
+   * Checks whether all the aggregate functions can be computed incrementally.
+   */
+  private boolean isIncrementalSupported()
+  {
+    if (!incremental) {
+      return false;
+    }
+    for (FunctionIndex aggregate : aggregates) {
+      if (!(aggregate instanceof IncrementalFunction)) {
+        return false;
+      }
+    }
+    for (HavingCondition having : havingConditions) {
+      if (!(having.getAggregateIndex() instanceof IncrementalFunction) || !having.isIncrementalSupported()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Accumulators of the aggregates are followed by the accumulators of the having conditions.
+   */
+  private IncrementalFunction getFunction(int i)
+  {
+    if (i < aggregates.size()) {
+      return (IncrementalFunction) aggregates.get(i);
+    }
+    return (IncrementalFunction) havingConditions.get(i - aggregates.size()).getAggregateIndex();
+  }
+
+  private Group getGroup(Map<String, Object> row)
+  {
+    MultiKeyCompare key = new MultiKeyCompare();
+    for (ColumnIndex index : columnGroupIndexes) {
+      key.addCompareKey(row.get(index.getColumn()));
+    }
+    Group group = groups.get(key);
+    if (group == null) {
+      group = new Group();
+      group.row = row;
+      group.accumulators = new Object[aggregates.size() + havingConditions.size()];
+      for (int i = 0; i < group.accumulators.length; i++) {
+        group.accumulators[i] = getFunction(i).createAccumulator();
+      }
+      groups.put(key, group);
+    }
+    return group;
+  }
+
+  private void accumulate(Map<String, Object> row)
+  {
+    Group group = getGroup(row);
+    for (int i = 0; i < group.accumulators.length; i++) {
+      if (group.accumulators[i] == null) {
+        continue;
+      }
+      try {
+        getFunction(i).accumulate(group.accumulators[i], row);
+      }
+      catch (RuntimeException e) {
+        // like the aggregation in endWindow, an aggregate which fails is left out of the result
+        logger.warn("cannot aggregate row {}", row, e);
+        group.accumulators[i] = null;
+      }
+    }
+  }
+
+  private void emitPartial(Group group)
+  {
+    Map<String, Object> partial = new HashMap<String, Object>();
+    for (ColumnIndex index : columnGroupIndexes) {
+      index.filter(group.row, partial);
+      partial.put(index.getColumn(), group.row.get(index.getColumn()));
+    }
+    partial.put(PARTIAL_AGGREGATES, group.accumulators);
+    outport.emit(partial);
+  }
+
+  private void emitResult(Group group)
+  {
+    Map<String, Object> result = resultSchema == null ? new HashMap<String, Object>() : new Row(resultSchema);
+    for (ColumnIndex index : columnGroupIndexes) {
+      index.filter(group.row, result);
+    }
+    for (int i = 0; i < aggregates.size(); i++) {
+      if (group.accumulators[i] != null) {
+        result.put(aggregates.get(i).getOutputName(), getFunction(i).getResult(group.accumulators[i]));
+      }
+    }
+    for (int i = 0; i < havingConditions.size(); i++) {
+      int index = aggregates.size() + i;
+      if (group.accumulators[index] == null || !havingConditions.get(i).isValidResult(getFunction(index).getResult(group.accumulators[index]))) {
+        return;
+      }
+    }
+    if (resultSchema != null) {
+      resultSchema = ((Row) result).getSchema();
+    }
+    outport.emit(result);
+  }
+
+  /**
+   * Partitions can only merge their aggregates in the unifier with incremental aggregation,
+   * otherwise the operator is not partitioned.
+   */
+  @Override
+  public Collection<Partition<GroupByHavingOperator>> definePartitions(Collection<Partition<GroupByHavingOperator>> partitions, PartitioningContext context)
+  {
+    if (!isIncrementalSupported()) {
+      if (partitionCount > 1) {
+        logger.warn("aggregates cannot be computed incrementally, the operator is not partitioned");
+      }
+      return partitions;
+    }
+    return new PartialAggregationPartitioner<GroupByHavingOperator>(partitionCount)
+    {
+      @Override
+      protected void setPartialAggregation(GroupByHavingOperator operator, boolean partialAggregation)
+      {
+        operator.partialAggregation = partialAggregation;
+      }
+    }.definePartitions(partitions, context);
+  }
+
+  @Override
+  public void partitioned(Map<Integer, Partition<GroupByHavingOperator>> partitions)
+  {
+  }
+
+  public boolean isIncremental()
+  {
+    return incremental;
+  }
+
+  /**
+   * @param incremental aggregate rows on arrival when all functions support it.
+   */
+  public void setIncremental(boolean incremental)
+  {
+    this.incremental = incremental;
+  }
+
+  public int getPartitionCount()
+  {
+    return partitionCount;
+  }
+
+  /**
+   * @param partitionCount number of partitions, used only for incremental aggregation.
+   */
+  public void setPartitionCount(int partitionCount)
+  {
+    this.partitionCount = partitionCount;
+  }
+
+  /**
+   * First row and accumulators of a group.
+   */
+  private static class Group
+  {
+    Map<String, Object> row;
+    /**
+     * Accumulators, null for the aggregates which failed.
+     */
+    Object[] accumulators;
+  }
+
   /**
    * multi key compare class.
    */
   @SuppressWarnings("rawtypes")
-  private class MultiKeyCompare implements Comparable
+  private static class MultiKeyCompare implements Comparable
   {
 
     /**
@@ -251,4 +569,6 @@ public class GroupByHavingOperator extends BaseOperator
       compareKeys.add(value);
     }
   }
+
+  private static final Logger logger = LoggerFactory.getLogger(GroupByHavingOperator.class);
 }
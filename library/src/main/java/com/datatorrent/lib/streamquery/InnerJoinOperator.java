@@ -16,16 +16,31 @@
 package com.datatorrent.lib.streamquery;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import javax.validation.constraints.Min;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.DefaultPartition;
 import com.datatorrent.api.Operator;
-import com.datatorrent.api.annotation.OperatorAnnotation;
+import com.datatorrent.api.Partitioner;
+import com.datatorrent.api.StreamCodec;
 import com.datatorrent.lib.streamquery.condition.Condition;
+import com.datatorrent.lib.streamquery.condition.JoinColumnEqualCondition;
 import com.datatorrent.lib.streamquery.index.Index;
+import com.datatorrent.lib.streamquery.schema.Row;
+import com.datatorrent.lib.streamquery.schema.RowStreamCodec;
+import com.datatorrent.lib.streamquery.schema.Schema;
 
 /**
  * An implementation of Operator that reads table row data from two table data input ports. <br>
@@ -33,8 +48,16 @@ import com.datatorrent.lib.streamquery.index.Index;
  * Operator joins row on given condition and selected names, emits
  * joined result at output port.
  *  <br>
+ *  When the join condition is a {@link JoinColumnEqualCondition}, the operator performs a symmetric hash join:
+ *  the rows of each table are indexed by the value of their join column and an arriving row is only matched against
+ *  the rows of the other table with the same value, the rows are only kept in the indexes. Other conditions are
+ *  evaluated against every row of the other table.
+ *  <br>
  *  <b>StateFull : Yes,</b> Operator aggregates input over application window. <br>
- *  <b>Partitions : No, </b> will yield wrong result(s). <br>
+ *  <b>Partitions : Yes for {@link JoinColumnEqualCondition}, </b> the input ports partition the rows by the value of the
+ *  join column with {@link ColumnPartitionStreamCodec}, so the matching rows of both tables meet in the same partition.
+ *  The number of partitions is set by partitionCount, the operator is not partitioned by default and cannot be
+ *  partitioned with any other condition. <br>
  *  <br>
  *  <b>Ports : </b> <br>
  *  <b> inport1 : </b> Input port for table 1, expects HashMap&lt;String, Object&gt; <br>
@@ -45,6 +68,10 @@ import com.datatorrent.lib.streamquery.index.Index;
  *  <b> joinCondition : </b> Join condition for table rows. <br>
  *  <b> table1Columns : </b> Columns to be selected from table1. <br>
  *  <b> table2Columns : </b> Columns to be selected from table2. <br>
+ *  <b> table1Schema : </b> Schema of the table1 rows, rows are streamed with {@link RowStreamCodec} if set. <br>
+ *  <b> table2Schema : </b> Schema of the table2 rows, rows are streamed with {@link RowStreamCodec} if set. <br>
+ *  <b> outputSchema : </b> Schema of the joined rows, {@link Row}s are emitted instead of hash maps if set. <br>
+ *  <b> partitionCount : </b> Number of partitions, only with a {@link JoinColumnEqualCondition}. <br>
  *  <br>
  * @displayName Inner join
  * @category Streamquery
@@ -52,8 +79,7 @@ import com.datatorrent.lib.streamquery.index.Index;
  *
  * @since 0.3.3
  */
-@OperatorAnnotation(partitionable = false)
-public class InnerJoinOperator implements Operator
+public class InnerJoinOperator implements Operator, Partitioner<InnerJoinOperator>
 {
 
   /**
@@ -72,15 +98,37 @@ public class InnerJoinOperator implements Operator
   private ArrayList<Index> table2Columns = new ArrayList<Index>();
 
   /**
-   * Collect data rows from input port 1.
+   * Collect data rows from input port 1, not used for an equi-join.
    */
   protected ArrayList<Map<String, Object>> table1;
 
   /**
-   * Collect data from input port 2.
+   * Collect data from input port 2, not used for an equi-join.
    */
   protected ArrayList<Map<String, Object>> table2;
 
+  /**
+   * Rows of table1 by the value of the join column, only used for an equi-join. Rows without a value never join,
+   * they are kept under the null key.
+   */
+  protected HashMap<Object, List<Map<String, Object>>> table1Index;
+
+  /**
+   * Rows of table2 by the value of the join column, only used for an equi-join. Rows without a value never join,
+   * they are kept under the null key.
+   */
+  protected HashMap<Object, List<Map<String, Object>>> table2Index;
+
+  private Schema table1Schema;
+  private Schema table2Schema;
+  private Schema outputSchema;
+  @Min(1)
+  private int partitionCount = 1;
+
+  /**
+   * schema the joined rows ended up with, rows are created with it so they do not change schema.
+   */
+  private transient Schema joinSchema;
   /**
    * Input port 1 that takes a map of &lt;string,object&gt;.
    */
@@ -89,6 +137,19 @@ public class InnerJoinOperator implements Operator
     @Override
     public void process(Map<String, Object> tuple)
     {
+      if (joinCondition instanceof JoinColumnEqualCondition) {
+        Object key = tuple.get(((JoinColumnEqualCondition) joinCondition).getColumn1());
+        addToIndex(table1Index, key, tuple);
+        if (key != null) {
+          List<Map<String, Object>> matches = table2Index.get(key);
+          if (matches != null) {
+            for (Map<String, Object> match : matches) {
+              joinRows(tuple, match);
+            }
+          }
+        }
+        return;
+      }
       table1.add(tuple);
       for (int j = 0; j < table2.size(); j++) {
         if ((joinCondition == null)
@@ -96,37 +157,70 @@ public class InnerJoinOperator implements Operator
           joinRows(tuple, table2.get(j));
         }
       }
-		}
-	};
-	
-	/**
-	 * Input port 2 that takes a map of &lt;string,object&gt;.
-	 */
-	public final transient DefaultInputPort<Map<String, Object>> inport2 = new DefaultInputPort<Map<String, Object>>() {
-		@Override
-		public void process(Map<String, Object> tuple)
-		{
-	    table2.add(tuple);
+    }
+
+    @Override
+    public StreamCodec<Map<String, Object>> getStreamCodec()
+    {
+      String joinColumn = joinCondition instanceof JoinColumnEqualCondition ? ((JoinColumnEqualCondition) joinCondition).getColumn1() : null;
+      StreamCodec<Map<String, Object>> codec = createStreamCodec(table1Schema, joinColumn);
+      return codec != null ? codec : super.getStreamCodec();
+    }
+  };
+
+  /**
+   * Input port 2 that takes a map of &lt;string,object&gt;.
+   */
+  public final transient DefaultInputPort<Map<String, Object>> inport2 = new DefaultInputPort<Map<String, Object>>()
+  {
+    @Override
+    public void process(Map<String, Object> tuple)
+    {
+      if (joinCondition instanceof JoinColumnEqualCondition) {
+        Object key = tuple.get(((JoinColumnEqualCondition) joinCondition).getColumn2());
+        addToIndex(table2Index, key, tuple);
+        if (key != null) {
+          List<Map<String, Object>> matches = table1Index.get(key);
+          if (matches != null) {
+            for (Map<String, Object> match : matches) {
+              joinRows(match, tuple);
+            }
+          }
+        }
+        return;
+      }
+      table2.add(tuple);
       for (int j = 0; j < table1.size(); j++) {
         if ((joinCondition == null)
                 || (joinCondition.isValidJoin(table1.get(j), tuple))) {
           joinRows(table1.get(j), tuple);
         }
       }
-		}
-	};
-	
-	/**
-	 * Output port that emits a map of &lt;string,object&gt;.
-	 */
-	public final transient DefaultOutputPort<Map<String, Object>> outport =  
-			new DefaultOutputPort<Map<String, Object>>();
-	
-	@Override
+    }
+
+    @Override
+    public StreamCodec<Map<String, Object>> getStreamCodec()
+    {
+      String joinColumn = joinCondition instanceof JoinColumnEqualCondition ? ((JoinColumnEqualCondition) joinCondition).getColumn2() : null;
+      StreamCodec<Map<String, Object>> codec = createStreamCodec(table2Schema, joinColumn);
+      return codec != null ? codec : super.getStreamCodec();
+    }
+  };
+
+  /**
+   * Output port that emits a map of &lt;string,object&gt;.
+   */
+  public final transient DefaultOutputPort<Map<String, Object>> outport =
+      new DefaultOutputPort<Map<String, Object>>();
+
+  @Override
   public void setup(OperatorContext arg0)
   {
     table1 = new ArrayList<Map<String, Object>>();
     table2 = new ArrayList<Map<String, Object>>();
+    table1Index = new LinkedHashMap<Object, List<Map<String, Object>>>();
+    table2Index = new LinkedHashMap<Object, List<Map<String, Object>>>();
+    joinSchema = outputSchema;
   }
 
   @Override
@@ -144,6 +238,76 @@ public class InnerJoinOperator implements Operator
   {
     table1.clear();
     table2.clear();
+    table1Index.clear();
+    table2Index.clear();
+  }
+
+  private static void addToIndex(HashMap<Object, List<Map<String, Object>>> index, Object key, Map<String, Object> row)
+  {
+    List<Map<String, Object>> rows = index.get(key);
+    if (rows == null) {
+      rows = new ArrayList<Map<String, Object>>(1);
+      index.put(key, rows);
+    }
+    rows.add(row);
+  }
+
+  private static StreamCodec<Map<String, Object>> createStreamCodec(Schema schema, String joinColumn)
+  {
+    if (schema != null) {
+      return joinColumn == null ? new RowStreamCodec(schema) : new RowStreamCodec(schema, joinColumn);
+    }
+    return joinColumn == null ? null : new ColumnPartitionStreamCodec(joinColumn);
+  }
+
+  /**
+   * @return rows of table1 received in the window.
+   */
+  protected Iterable<Map<String, Object>> getTable1Rows()
+  {
+    return joinCondition instanceof JoinColumnEqualCondition ? Iterables.concat(table1Index.values()) : table1;
+  }
+
+  /**
+   * @return rows of table2 received in the window.
+   */
+  protected Iterable<Map<String, Object>> getTable2Rows()
+  {
+    return joinCondition instanceof JoinColumnEqualCondition ? Iterables.concat(table2Index.values()) : table2;
+  }
+
+  /**
+   * Checks whether a row of table1 joins with any row of table2.
+   */
+  protected boolean hasTable2Match(Map<String, Object> row1)
+  {
+    if (joinCondition instanceof JoinColumnEqualCondition) {
+      Object key = row1.get(((JoinColumnEqualCondition) joinCondition).getColumn1());
+      return key != null && table2Index.containsKey(key);
+    }
+    for (int j = 0; j < table2.size(); j++) {
+      if ((joinCondition == null) || (joinCondition.isValidJoin(row1, table2.get(j)))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether a row of table2 joins with any row of table1.
+   */
+  protected boolean hasTable1Match(Map<String, Object> row2)
+  {
+    if (joinCondition instanceof JoinColumnEqualCondition) {
+      Object key = row2.get(((JoinColumnEqualCondition) joinCondition).getColumn2());
+      return key != null && table1Index.containsKey(key);
+    }
+    for (int j = 0; j < table1.size(); j++) {
+      if ((joinCondition == null) || (joinCondition.isValidJoin(table1.get(j), row2))) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -162,6 +326,91 @@ public class InnerJoinOperator implements Operator
     this.joinCondition = joinCondition;
   }
 
+  public Schema getTable1Schema()
+  {
+    return table1Schema;
+  }
+
+  /**
+   * Sets the schema of the table1 rows.
+   */
+  public void setTable1Schema(Schema table1Schema)
+  {
+    this.table1Schema = table1Schema;
+  }
+
+  public Schema getTable2Schema()
+  {
+    return table2Schema;
+  }
+
+  /**
+   * Sets the schema of the table2 rows.
+   */
+  public void setTable2Schema(Schema table2Schema)
+  {
+    this.table2Schema = table2Schema;
+  }
+
+  public Schema getOutputSchema()
+  {
+    return outputSchema;
+  }
+
+  /**
+   * Sets the schema of the joined rows.
+   */
+  public void setOutputSchema(Schema outputSchema)
+  {
+    this.outputSchema = outputSchema;
+  }
+
+  public int getPartitionCount()
+  {
+    return partitionCount;
+  }
+
+  /**
+   * Sets the number of partitions, more than 1 requires a {@link JoinColumnEqualCondition}.
+   */
+  public void setPartitionCount(int partitionCount)
+  {
+    this.partitionCount = partitionCount;
+  }
+
+  /**
+   * Only an equi-join brings the matching rows of both tables to the same partition, so the operator is not
+   * partitioned with other conditions. Both input ports are partitioned by the join column.
+   */
+  @Override
+  public Collection<Partition<InnerJoinOperator>> definePartitions(Collection<Partition<InnerJoinOperator>> partitions, PartitioningContext context)
+  {
+    int newPartitionCount = DefaultPartition.getRequiredPartitionCount(context, partitionCount);
+    if (newPartitionCount > 1 && !(joinCondition instanceof JoinColumnEqualCondition)) {
+      throw new IllegalArgumentException("only a join on equal columns can be partitioned");
+    }
+    Partition<InnerJoinOperator> partition = partitions.iterator().next();
+    if (partition.getStats() != null) {
+      // the partitions keep their rows till the end of the window, the partitioning is not changed
+      return partitions;
+    }
+    InnerJoinOperator template = partition.getPartitionedInstance();
+    Collection<Partition<InnerJoinOperator>> newPartitions = Lists.newArrayList();
+    for (int i = 0; i < newPartitionCount; i++) {
+      newPartitions.add(new DefaultPartition<InnerJoinOperator>(template));
+    }
+    if (newPartitionCount > 1) {
+      DefaultPartition.assignPartitionKeys(Collections.unmodifiableCollection(newPartitions), template.inport1);
+      DefaultPartition.assignPartitionKeys(Collections.unmodifiableCollection(newPartitions), template.inport2);
+    }
+    return newPartitions;
+  }
+
+  @Override
+  public void partitioned(Map<Integer, Partition<InnerJoinOperator>> partitions)
+  {
+  }
+
   /**
    * Select table1 column name.
    */
@@ -184,7 +433,7 @@ public class InnerJoinOperator implements Operator
   protected void joinRows(Map<String, Object> row1, Map<String, Object> row2)
   {
     // joined row
-    Map<String, Object> join = new HashMap<String, Object>();
+    Map<String, Object> join = joinSchema == null ? new HashMap<String, Object>() : new Row(joinSchema);
 
     // filter table1 columns
     if (row1 != null) {
@@ -201,6 +450,9 @@ public class InnerJoinOperator implements Operator
     }
 
     // emit row
+    if (joinSchema != null) {
+      joinSchema = ((Row) join).getSchema();
+    }
     outport.emit(join);
   }
 
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.lib.streamquery.AbstractSqlStreamOperator.InputSchema.ColumnInfo;
+import com.datatorrent.lib.streamquery.sql.SelectStatement;
+import com.datatorrent.lib.streamquery.sql.SqlParser;
+
+/**
+ * An implementation of AbstractSqlStreamOperator which executes the statements itself instead of going through
+ * an embedded database.
+ * <p>
+ * The tuples of a window are kept as arrays of the column values of their input schema and the statements are
+ * executed on them at the end of the window. The statements are parsed and planned once in setup, see
+ * {@link SqlParser} for the supported SQL. The table names in the statements may be qualified by a schema, like
+ * SESSION.t1, so statements written for {@link DerbySqlStreamOperator} work unchanged.
+ * </p>
+ * Values are converted to the column types of the input schema: char types to String, int types to Integer,
+ * bigint to Long, float, double, real, decimal and numeric to Double and boolean to Boolean. Other types are
+ * kept as they are. Result rows have the upper case names of the selected columns or aliases.
+ * <br>
+ * <b>Ports</b>:<br>
+ * <b> in1 - in5 : </b> rows of the tables of the input schemas, expects HashMap&lt;String,Object&gt;<br>
+ * <b> bindingsPort : </b> values of the ? parameters of the statements for the window<br>
+ * <b> result : </b> result rows of the statements, emits HashMap&lt;String,Object&gt;<br>
+ * <br>
+ * <b> Properties : </b> <br>
+ * <b> statement : </b> SELECT statement, not to be set along with execStmtStringList. <br>
+ * <b> execStmtStringList : </b> SELECT statements, executed in order as by {@link DerbySqlStreamOperator}. <br>
+ * <b> inputSchemas : </b> Table name and column types of the input ports. <br>
+ * <br>
+ * @displayName Native Sql Stream
+ * @category Streamquery
+ * @tags sql, in-memory, input operator
+ * @since 2.0.0
+ */
+public class NativeSqlStreamOperator extends AbstractSqlStreamOperator
+{
+  private enum ColumnType
+  {
+    STRING, INTEGER, LONG, DOUBLE, BOOLEAN, OBJECT
+  }
+
+  @NotNull
+  protected List<String> execStmtStringList = new ArrayList<String>();
+
+  private transient List<SelectStatement> statements;
+  private transient List<List<Object[]>> tables;
+  private transient List<Map<String, Integer>> columnSlots;
+  private transient List<ColumnType[]> columnTypes;
+
+  public void addExecStatementString(String stmt)
+  {
+    execStmtStringList.add(stmt);
+  }
+
+  public List<String> getExecStmtStringList()
+  {
+    return execStmtStringList;
+  }
+
+  public void setExecStmtStringList(List<String> execStmtStringList)
+  {
+    this.execStmtStringList = execStmtStringList;
+  }
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    List<SelectStatement.Table> definitions = new ArrayList<SelectStatement.Table>();
+    tables = new ArrayList<List<Object[]>>();
+    columnSlots = new ArrayList<Map<String, Integer>>();
+    columnTypes = new ArrayList<ColumnType[]>();
+    for (InputSchema inputSchema : inputSchemas) {
+      Map<String, Integer> slots = new HashMap<String, Integer>();
+      List<ColumnType> types = new ArrayList<ColumnType>();
+      List<String> columns = new ArrayList<String>();
+      if (inputSchema != null) {
+        for (Map.Entry<String, ColumnInfo> entry : inputSchema.columnInfoMap.entrySet()) {
+          slots.put(entry.getKey(), columns.size());
+          columns.add(entry.getKey());
+          types.add(getColumnType(entry.getValue().type));
+        }
+        definitions.add(new SelectStatement.Table(inputSchema.name, columns.toArray(new String[columns.size()])));
+      }
+      else {
+        definitions.add(null);
+      }
+      tables.add(new ArrayList<Object[]>());
+      columnSlots.add(slots);
+      columnTypes.add(types.toArray(new ColumnType[types.size()]));
+    }
+
+    //DerbySqlStreamOperator executes only execStmtStringList, a statement set as well would be silently dropped there
+    if (statement != null && !execStmtStringList.isEmpty()) {
+      throw new IllegalArgumentException("set either statement or execStmtStringList");
+    }
+    statements = new ArrayList<SelectStatement>();
+    List<String> sqls = statement != null ? Collections.singletonList(statement) : execStmtStringList;
+    for (String sql : sqls) {
+      SelectStatement select = SqlParser.parse(sql);
+      select.prepare(definitions);
+      statements.add(select);
+    }
+  }
+
+  private static ColumnType getColumnType(String sqlType)
+  {
+    String type = sqlType == null ? "" : sqlType.toLowerCase(Locale.ENGLISH);
+    if (type.contains("char") || type.contains("clob") || type.contains("text")) {
+      return ColumnType.STRING;
+    }
+    if (type.startsWith("bigint")) {
+      return ColumnType.LONG;
+    }
+    if (type.startsWith("int") || type.startsWith("smallint") || type.startsWith("tinyint")) {
+      return ColumnType.INTEGER;
+    }
+    if (type.startsWith("float") || type.startsWith("double") || type.startsWith("real") || type.startsWith("decimal") || type.startsWith("numeric")) {
+      return ColumnType.DOUBLE;
+    }
+    if (type.startsWith("boolean")) {
+      return ColumnType.BOOLEAN;
+    }
+    return ColumnType.OBJECT;
+  }
+
+  private static Object convert(Object value, ColumnType type)
+  {
+    if (value == null) {
+      return null;
+    }
+    switch (type) {
+      case STRING:
+        return value.toString();
+      case INTEGER:
+        return value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(value.toString().trim());
+      case LONG:
+        return value instanceof Number ? ((Number) value).longValue() : Long.valueOf(value.toString().trim());
+      case DOUBLE:
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.valueOf(value.toString().trim());
+      case BOOLEAN:
+        return value instanceof Boolean ? value : Boolean.valueOf(value.toString().trim());
+      default:
+        return value;
+    }
+  }
+
+  @Override
+  public void processTuple(int tableNum, HashMap<String, Object> tuple)
+  {
+    Map<String, Integer> slots = columnSlots.get(tableNum);
+    ColumnType[] types = columnTypes.get(tableNum);
+    Object[] row = new Object[types.length];
+    for (Map.Entry<String, Object> entry : tuple.entrySet()) {
+      Integer slot = slots.get(entry.getKey());
+      if (slot != null) {
+        row[slot] = convert(entry.getValue(), types[slot]);
+      }
+    }
+    tables.get(tableNum).add(row);
+  }
+
+  @Override
+  public void endWindow()
+  {
+    for (SelectStatement select : statements) {
+      select.setParameters(bindings);
+      String[] names = select.getResultNames();
+      for (Object[] values : select.execute(tables)) {
+        HashMap<String, Object> resultRow = new HashMap<String, Object>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+          resultRow.put(names[i], values[i]);
+        }
+        result.emit(resultRow);
+      }
+    }
+    for (List<Object[]> table : tables) {
+      table.clear();
+    }
+    bindings = null;
+  }
+}
@@ -15,21 +15,34 @@
  */
 package com.datatorrent.lib.streamquery;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Map;
 
+import javax.validation.constraints.Min;
+
+import com.datatorrent.api.DAG;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.Unifier;
+import com.datatorrent.lib.util.ExternalSorter;
 
 /**
  *  An implementation of Operator that provides sql order by operator semantic over live stream data. <br>
  * <p>
  * Input data rows are ordered by order rules, ordered result is emitted on output port. <br>
+ * The last rule is the most significant, rows which are equal for it are ordered by the previous rules.
+ * Rows without a value for a rule column are dropped. <br>
+ * <br>
+ * At most maxRowsInMemory rows of a window are kept in memory, the rows beyond are sorted in runs which
+ * are spilled to spillDirectory and merged at the end of the window. The runs are named after the application and
+ * the operator, the runs left by a previous attempt of the operator are deleted in setup. With a limit, only the first limit rows
+ * of the order are emitted and only those are kept. <br>
  * <br>
- *  *  <br>
  *  <b>StateFull : Yes,</b> Operator aggregates input over application window. <br>
  *  <b>Partitions : Yes, </b> This operator is also unifier on output port. <br>
  *  <br>
@@ -38,7 +51,10 @@ import com.datatorrent.api.Operator.Unifier;
  * <b> outport : </b> Output hash map(row) port, emits  HashMap&lt;String,Object&gt;<br>
  * <br>
  * <b> Properties : </b> <br>
- * <b> oredrByRules : </b>List of order by rules for tuples.
+ * <b> oredrByRules : </b>List of order by rules for tuples. <br>
+ * <b> limit : </b>Number of rows to emit from the start of the order, 0 for all. <br>
+ * <b> maxRowsInMemory : </b>Number of rows kept in memory before they are spilled. <br>
+ * <b> spillDirectory : </b>Directory of the spilled rows, the temporary directory if not set. <br>
  * @displayName OrderBy
  * @category Streamquery
  * @tags orderby operator
@@ -55,11 +71,19 @@ public class OrderByOperator implements Operator, Unifier<Map<String, Object>>
 	 * Descending flag.
 	 */
 	private boolean isDescending;
-	
+
+  @Min(0)
+  private int limit;
+
+  @Min(1)
+  private int maxRowsInMemory = 100000;
+
+  private String spillDirectory;
+
 	/**
 	 * collected rows.
 	 */
-	private ArrayList<Map<String, Object>> rows;
+	private transient ExternalSorter<Map<String, Object>> rows;
 
 	/**
 	 * Add order by rule.
@@ -85,43 +109,111 @@ public class OrderByOperator implements Operator, Unifier<Map<String, Object>>
 	  this.isDescending = isDescending;
   }
 
+  public int getLimit()
+  {
+    return limit;
+  }
+
+  /**
+   * @param limit number of rows to emit from the start of the order, 0 for all.
+   */
+  public void setLimit(int limit)
+  {
+    this.limit = limit;
+  }
+
+  public int getMaxRowsInMemory()
+  {
+    return maxRowsInMemory;
+  }
+
+  /**
+   * @param maxRowsInMemory number of rows kept in memory before they are spilled.
+   */
+  public void setMaxRowsInMemory(int maxRowsInMemory)
+  {
+    this.maxRowsInMemory = maxRowsInMemory;
+  }
+
+  public String getSpillDirectory()
+  {
+    return spillDirectory;
+  }
+
+  /**
+   * @param spillDirectory directory of the spilled rows, the temporary directory if null.
+   */
+  public void setSpillDirectory(String spillDirectory)
+  {
+    this.spillDirectory = spillDirectory;
+  }
+
 	@Override
   public void process(Map<String, Object> tuple)
   {
-	  rows.add(tuple);
+    for (int i = 0; i < oredrByRules.size(); i++) {
+      if (tuple.get(oredrByRules.get(i).getColumnName()) == null) {
+        return;
+      }
+    }
+    rows.add(tuple);
   }
 
   @Override
   public void beginWindow(long arg0)
   {
-    rows = new ArrayList<Map<String, Object>>();
   }
 
   @Override
   public void endWindow()
   {
-    for (int i=0; i < oredrByRules.size(); i++) {
-      rows = oredrByRules.get(i).sort(rows);
-    }
-    if (isDescending) {
-      for (int i=0; i < rows.size(); i++)  outport.emit(rows.get(i));
-    } else {
-      for (int i=rows.size()-1; i >= 0;  i--)  outport.emit(rows.get(i));
+    Iterator<Map<String, Object>> iterator = rows.iterator();
+    while (iterator.hasNext()) {
+      outport.emit(iterator.next());
     }
+    rows.clear();
   }
 
+  /**
+   * Rows are sorted by the rules, the order is reversed unless isDescending is set.
+   */
   @Override
-  public void setup(OperatorContext arg0)
+  public void setup(OperatorContext context)
   {
-    // TODO Auto-generated method stub
-    
+    final String[] columns = new String[oredrByRules.size()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = oredrByRules.get(i).getColumnName();
+    }
+    Comparator<Map<String, Object>> comparator = new Comparator<Map<String, Object>>()
+    {
+      @Override
+      @SuppressWarnings({"rawtypes", "unchecked"})
+      public int compare(Map<String, Object> row1, Map<String, Object> row2)
+      {
+        for (int i = columns.length - 1; i >= 0; i--) {
+          int result = ((Comparable) row1.get(columns[i])).compareTo(row2.get(columns[i]));
+          if (result != 0) {
+            return result;
+          }
+        }
+        return 0;
+      }
+    };
+    File directory = spillDirectory == null ? null : new File(spillDirectory);
+    if (context == null) {
+      rows = new ExternalSorter<Map<String, Object>>(comparator, !isDescending, maxRowsInMemory, limit, directory);
+    }
+    else {
+      String runPrefix = "orderby-" + context.getValue(DAG.APPLICATION_ID) + "-" + context.getId() + "-";
+      ExternalSorter.deleteRuns(directory, runPrefix);
+      rows = new ExternalSorter<Map<String, Object>>(comparator, !isDescending, maxRowsInMemory, limit, directory, runPrefix);
+    }
   }
 
   @Override
   public void teardown()
   {
-    // TODO Auto-generated method stub
-    
+    rows.clear();
   }
   
   /**
@@ -131,7 +223,7 @@ public class OrderByOperator implements Operator, Unifier<Map<String, Object>>
     @Override
     public void process(Map<String, Object> tuple)
     {
-      rows.add(tuple);
+      OrderByOperator.this.process(tuple);
     }
   };
   
@@ -147,6 +239,9 @@ public class OrderByOperator implements Operator, Unifier<Map<String, Object>>
              unifier.addOrderByRule(oredrByRules.get(i));
            }
            unifier.setDescending(isDescending);
+           unifier.setLimit(limit);
+           unifier.setMaxRowsInMemory(maxRowsInMemory);
+           unifier.setSpillDirectory(spillDirectory);
            return unifier;
          }
       };
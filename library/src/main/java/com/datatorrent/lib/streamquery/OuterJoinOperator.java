@@ -15,6 +15,8 @@
  */
 package com.datatorrent.lib.streamquery;
 
+import java.util.Map;
+
 /**
  * An operator that provides sql left,right and full outer join metric semantics on live stream. <br>
  * <p>
@@ -38,63 +40,23 @@ public class OuterJoinOperator extends InnerJoinOperator
   @Override
   public void endWindow()
   {
-    // full outer join
-    if (isFullJoin) {
-      for (int i = 0; i < table1.size(); i++) {
-        boolean merged = false;
-        for (int j = 0; j < table2.size(); j++) {
-          if ((joinCondition == null)
-              || (joinCondition.isValidJoin(table1.get(i), table2.get(j)))) {
-            merged = true;
-          }
-        }
-        if (!merged) {
-          joinRows(table1.get(i), null);
-        }
-      }
-      for (int i = 0; i < table2.size(); i++) {
-        boolean merged = false;
-        for (int j = 0; j < table1.size(); j++) {
-          if ((joinCondition == null)
-              || (joinCondition.isValidJoin(table1.get(j), table2.get(i)))) {
-            merged = true;
-          }
-        }
-        if (!merged) { // only output non merged rows
-          joinRows(null, table2.get(i));
+    // full outer join or left join: non merged rows of table1
+    if (isFullJoin || isLeftJoin) {
+      for (Map<String, Object> row : getTable1Rows()) {
+        if (!hasTable2Match(row)) {
+          joinRows(row, null);
         }
       }
-      return;
     }
-
-    // left or right join
-    if (isLeftJoin) {
-      for (int i = 0; i < table1.size(); i++) {
-        boolean merged = false;
-        for (int j = 0; j < table2.size(); j++) {
-          if ((joinCondition == null)
-              || (joinCondition.isValidJoin(table1.get(i), table2.get(j)))) {
-            merged = true;
-          }
-        }
-        if (!merged) {
-          joinRows(table1.get(i), null);
-        }
-      }
-    } else {
-      for (int i = 0; i < table2.size(); i++) {
-        boolean merged = false;
-        for (int j = 0; j < table1.size(); j++) {
-          if ((joinCondition == null)
-              || (joinCondition.isValidJoin(table1.get(j), table2.get(i)))) {
-            merged = true;
-          }
-        }
-        if (!merged) { // only output non merged rows
-          joinRows(null, table2.get(i));
+    // full outer join or right join: non merged rows of table2
+    if (isFullJoin || !isLeftJoin) {
+      for (Map<String, Object> row : getTable2Rows()) {
+        if (!hasTable1Match(row)) {
+          joinRows(null, row);
         }
       }
     }
+    super.endWindow();
   }
 
   public void setLeftJoin()
@@ -19,12 +19,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.annotation.OperatorAnnotation;
 import com.datatorrent.lib.streamquery.function.FunctionIndex;
+import com.datatorrent.lib.streamquery.function.IncrementalFunction;
 
 /**
  *  An implementation of Operator that applies sql top or limit semantics on incoming tuple(s). <br>
@@ -56,6 +60,11 @@ public class SelectFunctionOperator implements Operator
    */
   private ArrayList<FunctionIndex> functions = new ArrayList<FunctionIndex>();
 
+  /**
+   * Accumulators of the functions when all of them are incremental, the rows are not kept then.
+   */
+  private transient Object[] accumulators;
+
   /**
    * Input port that takes a map of &lt;string,object&gt;.
    */
@@ -65,6 +74,22 @@ public class SelectFunctionOperator implements Operator
     @Override
     public void process(Map<String, Object> row)
     {
+      if (accumulators != null) {
+        for (int i = 0; i < accumulators.length; i++) {
+          if (accumulators[i] == null) {
+            continue;
+          }
+          try {
+            ((IncrementalFunction) functions.get(i)).accumulate(accumulators[i], row);
+          }
+          catch (RuntimeException e) {
+            // like the functions computed in endWindow, a function which fails is left out of the result
+            logger.warn("cannot aggregate row {}", row, e);
+            accumulators[i] = null;
+          }
+        }
+        return;
+      }
       rows.add(row);
     }
   };
@@ -72,8 +97,6 @@ public class SelectFunctionOperator implements Operator
   @Override
   public void setup(OperatorContext context)
   {
-    // TODO Auto-generated method stub
-
   }
 
   @Override
@@ -86,14 +109,44 @@ public class SelectFunctionOperator implements Operator
   @Override
   public void beginWindow(long windowId)
   {
+    if (isIncremental()) {
+      accumulators = new Object[functions.size()];
+      for (int i = 0; i < accumulators.length; i++) {
+        accumulators[i] = ((IncrementalFunction) functions.get(i)).createAccumulator();
+      }
+      return;
+    }
+    accumulators = null;
     rows = new ArrayList<Map<String, Object>>();
   }
 
+  /**
+   * Functions are computed on arrival of rows when all of them are incremental.
+   */
+  private boolean isIncremental()
+  {
+    if (functions.size() == 0) return false;
+    for (FunctionIndex function : functions) {
+      if (!(function instanceof IncrementalFunction)) return false;
+    }
+    return true;
+  }
+
   @Override
   public void endWindow()
   {
     if (functions.size() == 0) return;
     Map<String, Object>  collect = new HashMap<String, Object>();
+    if (accumulators != null) {
+      for (int i = 0; i < accumulators.length; i++) {
+        if (accumulators[i] == null) {
+          continue;
+        }
+        collect.put(functions.get(i).getOutputName(), ((IncrementalFunction) functions.get(i)).getResult(accumulators[i]));
+      }
+      outport.emit(collect);
+      return;
+    }
     for (FunctionIndex function : functions) {
       try {
         function.filter(rows, collect);
@@ -118,4 +171,6 @@ public class SelectFunctionOperator implements Operator
   {
     functions.add(function);
   }
+
+  private static final Logger logger = LoggerFactory.getLogger(SelectFunctionOperator.class);
 }
@@ -20,10 +20,15 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.datatorrent.api.BaseOperator;
+import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.StreamCodec;
 import com.datatorrent.lib.streamquery.condition.Condition;
 import com.datatorrent.lib.streamquery.index.Index;
+import com.datatorrent.lib.streamquery.schema.Row;
+import com.datatorrent.lib.streamquery.schema.RowStreamCodec;
+import com.datatorrent.lib.streamquery.schema.Schema;
 
 /**
  * An implementation of that provides sql select query semantics on live data stream. <br>
@@ -42,6 +47,8 @@ import com.datatorrent.lib.streamquery.index.Index;
  * <b> Properties : <b> <br>
  * <b> condition : </b> Select condition for selecting rows. <br>
  * <b> columns : </b> Column names/aggregate functions for select. <br>
+ * <b> inputSchema : </b> Schema of the input rows, rows are streamed with {@link RowStreamCodec} if set. <br>
+ * <b> outputSchema : </b> Schema of the output rows, {@link Row}s are emitted instead of hash maps if set. <br>
  * <br>
  * @displayName Select
  * @category Streamquery
@@ -61,6 +68,20 @@ public class SelectOperator extends BaseOperator
    */
   private Condition condition = null;
 
+  /**
+   * condition and indexes compiled in setup.
+   */
+  private transient ExpressionCompiler.CompiledCondition compiledCondition;
+  private transient Index[] compiledIndexes;
+
+  private Schema inputSchema;
+  private Schema outputSchema;
+
+  /**
+   * schema the output rows ended up with, rows are created with it so they do not change schema.
+   */
+  private transient Schema resultSchema;
+
   /**
    * add index.
    */
@@ -77,6 +98,32 @@ public class SelectOperator extends BaseOperator
     this.condition = condition;
   }
 
+  public Schema getInputSchema()
+  {
+    return inputSchema;
+  }
+
+  /**
+   * Sets the schema of the input rows.
+   */
+  public void setInputSchema(Schema inputSchema)
+  {
+    this.inputSchema = inputSchema;
+  }
+
+  public Schema getOutputSchema()
+  {
+    return outputSchema;
+  }
+
+  /**
+   * Sets the schema of the output rows.
+   */
+  public void setOutputSchema(Schema outputSchema)
+  {
+    this.outputSchema = outputSchema;
+  }
+
   /**
    * Input port that takes a map of &lt;string,object&gt;.
    */
@@ -86,22 +133,48 @@ public class SelectOperator extends BaseOperator
     @Override
     public void process(Map<String, Object> tuple)
     {
-      if ((condition != null) && (!condition.isValidRow(tuple)))
+      if ((compiledCondition != null) && (!compiledCondition.isValidRow(tuple)))
         return;
-      if (indexes.size() == 0) {
+      if (compiledIndexes.length == 0) {
         outport.emit(tuple);
         return;
       }
-      Map<String, Object> result = new HashMap<String, Object>();
-      for (int i = 0; i < indexes.size(); i++) {
-        indexes.get(i).filter(tuple, result);
+      if (resultSchema != null) {
+        Row result = new Row(resultSchema);
+        for (Index index : compiledIndexes) {
+          index.filter(tuple, result);
+        }
+        resultSchema = result.getSchema();
+        outport.emit(result);
+        return;
+      }
+      Map<String, Object> result = new HashMap<String, Object>(compiledIndexes.length * 2);
+      for (Index index : compiledIndexes) {
+        index.filter(tuple, result);
       }
       outport.emit(result);
     }
+
+    @Override
+    public StreamCodec<Map<String, Object>> getStreamCodec()
+    {
+      if (inputSchema != null) {
+        return new RowStreamCodec(inputSchema);
+      }
+      return super.getStreamCodec();
+    }
   };
 
   /**
    * Output port that emits a map of &lt;string,object&gt;.
    */
   public final transient DefaultOutputPort<Map<String, Object>> outport = new DefaultOutputPort<Map<String, Object>>();
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    compiledCondition = ExpressionCompiler.compile(condition);
+    compiledIndexes = ExpressionCompiler.compile(indexes);
+    resultSchema = outputSchema;
+  }
 }
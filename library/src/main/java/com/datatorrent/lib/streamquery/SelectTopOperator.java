@@ -26,6 +26,8 @@ import com.datatorrent.api.Operator;
  * <b> topValue : </b> top values count. <br>
  * <b> isPercentage : </b> top values count is percentage flag.
  * <br>
+ * Only the first topValue rows of a window are kept unless isPercentage is set. To select the top rows of an
+ * order, set the limit of {@link OrderByOperator} instead, which keeps only the top rows while sorting. <br>
  * @displayName Select Top
  * @category Streamquery
  * @tags sql select, sql top operator
@@ -44,7 +46,9 @@ public class SelectTopOperator implements Operator
     @Override
     public void process(Map<String, Object> tuple)
     {
-      list.add(tuple);
+      if (isPercentage || list.size() < topValue) {
+        list.add(tuple);
+      }
     }
   };
   
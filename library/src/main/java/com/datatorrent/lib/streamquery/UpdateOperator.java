@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.datatorrent.api.BaseOperator;
+import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.lib.streamquery.condition.Condition;
@@ -55,6 +56,11 @@ public class UpdateOperator extends BaseOperator
 	 *  condition.
 	 */
 	private Condition condition = null;
+
+  /**
+   * condition compiled in setup.
+   */
+  private transient ExpressionCompiler.CompiledCondition compiledCondition;
 	
 	/**
 	 * set condition.
@@ -71,7 +77,7 @@ public class UpdateOperator extends BaseOperator
     @Override
     public void process(Map<String, Object> tuple)
     {
-      if ((condition != null)&&(!condition.isValidRow(tuple)))return;
+      if ((compiledCondition != null)&&(!compiledCondition.isValidRow(tuple)))return;
       if (updates.size() == 0) {
         outport.emit(tuple);
         return;
@@ -92,6 +98,12 @@ public class UpdateOperator extends BaseOperator
    * Output port that emits a map of &lt;string,object&gt;.
    */
   public final transient DefaultOutputPort<Map<String, Object>> outport =  new DefaultOutputPort<Map<String, Object>>();
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    compiledCondition = ExpressionCompiler.compile(condition);
+  }
   
   /**
    * Add update value.
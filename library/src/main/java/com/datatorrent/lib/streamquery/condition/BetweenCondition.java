@@ -89,4 +89,18 @@ public class BetweenCondition  extends Condition
     return false;
   }
 
+  public String getColumn()
+  {
+    return column;
+  }
+
+  public Object getLeftValue()
+  {
+    return leftValue;
+  }
+
+  public Object getRightValue()
+  {
+    return rightValue;
+  }
 }
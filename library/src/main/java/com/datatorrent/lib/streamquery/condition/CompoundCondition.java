@@ -117,4 +117,9 @@ public class CompoundCondition extends Condition
   public void setLogicalAnd() {
     this.logicalOr = false;
   }
+
+  public boolean isLogicalOr()
+  {
+    return logicalOr;
+  }
 }
@@ -85,4 +85,12 @@ public class EqualValueCondition extends Condition
   {
     return false;
   }
+
+  /**
+   * @return column equal value map.
+   */
+  public Map<String, Object> getEqualValues()
+  {
+    return equalMap;
+  }
 }
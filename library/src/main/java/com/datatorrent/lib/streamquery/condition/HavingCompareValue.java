@@ -68,7 +68,14 @@ public class HavingCompareValue<T extends Comparable>   extends HavingCondition
   public boolean isValidAggregate(@NotNull ArrayList<Map<String, Object>> rows) throws Exception
   {
       Object computed = aggregateIndex.compute(rows);
-      return (compareType == compareValue.compareTo(computed));
+      return isValidResult(computed);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean isValidResult(Object computed)
+  {
+    return (compareType == compareValue.compareTo(computed));
   }
 
 }
@@ -49,4 +49,35 @@ public abstract class HavingCondition
    *  Check if aggregate is valid.
    */
   abstract public boolean isValidAggregate(@NotNull ArrayList<Map<String, Object>> rows) throws Exception;
+
+  /**
+   *  Check if already computed aggregate value is valid, used for incremental aggregation.
+   *  Subclasses supporting incremental aggregation must override this.
+   */
+  public boolean isValidResult(Object result)
+  {
+    throw new UnsupportedOperationException(getClass().getName() + " does not support incremental aggregation");
+  }
+
+  /**
+   * @return whether {@link #isValidResult(Object)} is overridden, otherwise the rows are aggregated at the end of
+   * the window and checked by {@link #isValidAggregate(ArrayList)}.
+   */
+  public boolean isIncrementalSupported()
+  {
+    try {
+      return getClass().getMethod("isValidResult", Object.class).getDeclaringClass() != HavingCondition.class;
+    }
+    catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return aggregate index to be validated.
+   */
+  public FunctionIndex getAggregateIndex()
+  {
+    return aggregateIndex;
+  }
 }
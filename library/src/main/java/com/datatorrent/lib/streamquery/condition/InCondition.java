@@ -79,5 +79,9 @@ public class InCondition extends Condition
   public void addInValue(Object value) {
     this.inValues.add(value);
   }
-   
+
+  public Set<Object> getInValues()
+  {
+    return inValues;
+  }
 }
@@ -94,4 +94,8 @@ public class LikeCondition extends Condition
     this.pattern = Pattern.compile(pattern);
   }
 
+  public String getPattern()
+  {
+    return pattern.pattern();
+  }
 }
@@ -35,7 +35,7 @@ import org.apache.commons.lang.StringUtils;
  * @tags sql average
  * @since 0.3.4
  */
-public class AverageFunction  extends FunctionIndex
+public class AverageFunction  extends FunctionIndex implements IncrementalFunction
 {
   /**
    * @param column Aggregate over given column values, must be non null. 
@@ -60,6 +60,39 @@ public class AverageFunction  extends FunctionIndex
     return sum/rows.size();
   }
 
+  /**
+   * Accumulator is a double array with the sum and the count of values.
+   */
+  @Override
+  public Object createAccumulator()
+  {
+    return new double[2];
+  }
+
+  @Override
+  public void accumulate(Object accumulator, Map<String, Object> row)
+  {
+    double[] sumCount = (double[]) accumulator;
+    sumCount[0] += ((Number)row.get(column)).doubleValue();
+    sumCount[1]++;
+  }
+
+  @Override
+  public void merge(Object accumulator, Object other)
+  {
+    double[] sumCount = (double[]) accumulator;
+    sumCount[0] += ((double[]) other)[0];
+    sumCount[1] += ((double[]) other)[1];
+  }
+
+  @Override
+  public Object getResult(Object accumulator)
+  {
+    double[] sumCount = (double[]) accumulator;
+    if (sumCount[1] == 0) return 0.0;
+    return sumCount[0]/sumCount[1];
+  }
+
   /**
    * Get aggregate name.
    * @return name.
@@ -36,7 +36,7 @@ import org.apache.commons.lang.StringUtils;
  * @tags sql count
  * @since 0.3.4
  */
-public class CountFunction extends FunctionIndex
+public class CountFunction extends FunctionIndex implements IncrementalFunction
 {
   /**
    * @param column column for values count, must be non null. 
@@ -62,6 +62,37 @@ public class CountFunction extends FunctionIndex
     return count;
   }
 
+  /**
+   * Accumulator is a long array with the count.
+   */
+  @Override
+  public Object createAccumulator()
+  {
+    return new long[1];
+  }
+
+  @Override
+  public void accumulate(Object accumulator, Map<String, Object> row)
+  {
+    if (column.equals("*") || (row.containsKey(column) && (row.get(column) != null))) {
+      ((long[]) accumulator)[0]++;
+    }
+  }
+
+  @Override
+  public void merge(Object accumulator, Object other)
+  {
+    ((long[]) accumulator)[0] += ((long[]) other)[0];
+  }
+
+  @Override
+  public Object getResult(Object accumulator)
+  {
+    long count = ((long[]) accumulator)[0];
+    if (column.equals("*")) return (int) count;
+    return count;
+  }
+
   /**
    * Aggregate output name.
    * @return name string.
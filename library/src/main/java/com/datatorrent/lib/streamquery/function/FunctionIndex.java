@@ -76,9 +76,18 @@ abstract public class FunctionIndex
   public void filter(ArrayList<Map<String, Object>> rows, Map<String, Object> collect) throws Exception
   {
     if (rows == null) return;
+    collect.put(getOutputName(), compute(rows));
+  }
+
+  /**
+   * Get name of the aggregate value in the output row.
+   * @return name string.
+   */
+  public String getOutputName()
+  {
     String name = column;
     if (alias != null) name = alias;
     if (name == null) name = aggregateName();
-    collect.put(name, compute(rows));
+    return name;
   }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery.function;
+
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * An aggregate function which can be computed one row at a time.&nbsp;
+ * Implemented by the {@link FunctionIndex} subclasses whose result can be kept as a small accumulator.
+ * <p>
+ * The accumulator is updated in place for every row, and the accumulators of two sets of rows
+ * can be merged, which lets partitions send partial aggregates to a unifier.
+ * Accumulators are sent between containers, so they must be serializable by Kryo.
+ * </p>
+ * @since 2.0.0
+ */
+public interface IncrementalFunction
+{
+  /**
+   * @return accumulator of an empty set of rows.
+   */
+  Object createAccumulator();
+
+  /**
+   * Adds a row to the accumulator.
+   * @param accumulator accumulator created by this function.
+   * @param row row to add.
+   */
+  void accumulate(@NotNull Object accumulator, @NotNull Map<String, Object> row);
+
+  /**
+   * Adds the rows of another accumulator to the accumulator.
+   * @param accumulator accumulator to update.
+   * @param other accumulator to merge, it is not modified.
+   */
+  void merge(@NotNull Object accumulator, @NotNull Object other);
+
+  /**
+   * @param accumulator accumulator created by this function.
+   * @return the same value as {@link FunctionIndex#compute} for the accumulated rows.
+   */
+  Object getResult(@NotNull Object accumulator);
+}
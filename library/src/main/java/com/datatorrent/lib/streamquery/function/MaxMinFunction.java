@@ -36,7 +36,7 @@ import org.apache.commons.lang.StringUtils;
  * @tags sql max, sql min
  * @since 0.3.4
  */
-public class MaxMinFunction extends FunctionIndex
+public class MaxMinFunction extends FunctionIndex implements IncrementalFunction
 {
   /**
    * Flag to indicate max/min compute value, compute max if true.
@@ -69,6 +69,38 @@ public class MaxMinFunction extends FunctionIndex
     return minMax;
   }
 
+  /**
+   * Accumulator is a double array with the max/min value, which starts at 0 like {@link #compute}.
+   */
+  @Override
+  public Object createAccumulator()
+  {
+    return new double[1];
+  }
+
+  @Override
+  public void accumulate(Object accumulator, Map<String, Object> row)
+  {
+    update((double[]) accumulator, ((Number)row.get(column)).doubleValue());
+  }
+
+  @Override
+  public void merge(Object accumulator, Object other)
+  {
+    update((double[]) accumulator, ((double[]) other)[0]);
+  }
+
+  private void update(double[] minMax, double value)
+  {
+    if ((isMax && (minMax[0] < value))||(!isMax && (minMax[0] > value))) minMax[0] = value;
+  }
+
+  @Override
+  public Object getResult(Object accumulator)
+  {
+    return ((double[]) accumulator)[0];
+  }
+
   /**
    * Aggregate output name.
    * @return name string.
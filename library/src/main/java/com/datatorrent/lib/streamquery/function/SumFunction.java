@@ -15,7 +15,7 @@ import javax.validation.constraints.NotNull;
  * @tags sql sum, aggregate
  * @since 0.3.4
  */
-public class SumFunction extends FunctionIndex
+public class SumFunction extends FunctionIndex implements IncrementalFunction
 {
   public SumFunction(String column, String alias) throws Exception
   {
@@ -33,6 +33,35 @@ public class SumFunction extends FunctionIndex
     return result;
   }
 
+  /**
+   * Accumulator is a double array with the sum.
+   */
+  @Override
+  public Object createAccumulator()
+  {
+    return new double[1];
+  }
+
+  @Override
+  public void accumulate(Object accumulator, Map<String, Object> row)
+  {
+    if (row.containsKey(column)) {
+      ((double[]) accumulator)[0] += ((Number)row.get(column)).doubleValue();
+    }
+  }
+
+  @Override
+  public void merge(Object accumulator, Object other)
+  {
+    ((double[]) accumulator)[0] += ((double[]) other)[0];
+  }
+
+  @Override
+  public Object getResult(Object accumulator)
+  {
+    return ((double[]) accumulator)[0];
+  }
+
   @Override
   protected String aggregateName()
   {
@@ -57,6 +57,16 @@ abstract public class BinaryExpression  implements Index
     this.right = right;
   }
 
+  public String getLeft()
+  {
+    return left;
+  }
+
+  public String getRight()
+  {
+    return right;
+  }
+
   public String getAlias()
   {
     return alias;
@@ -63,4 +63,9 @@ public class ColumnIndex implements Index
   {
     this.column = column;
   }
+
+  public String getAlias()
+  {
+    return alias;
+  }
 }
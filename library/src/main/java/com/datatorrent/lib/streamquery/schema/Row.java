@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery.schema;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.validation.constraints.NotNull;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+
+/**
+ * A table row which keeps its values in the slots of a {@link Schema} instead of a hash map.
+ * <p>
+ * Row is a Map&lt;String, Object&gt;, so it can be used wherever the streamquery and pigquery operators expect a row.
+ * Values of the primitive fields of the schema are stored unboxed and can be read and written without boxing
+ * through the slot accessors. Putting a field which is not in the schema moves the row to a schema with the
+ * additional field.
+ * </p>
+ * Use {@link RowStreamCodec} to send rows without their field names. Kryo serializes the fields of a row
+ * rather than its entries, so a row keeps its schema in checkpoints.
+ *
+ * @since 2.0.0
+ */
+@DefaultSerializer(FieldSerializer.class)
+public class Row extends AbstractMap<String, Object> implements Serializable
+{
+  private static final byte ABSENT = 0;
+  private static final byte VALUE = 1;
+  private static final byte PRIMITIVE = 2;
+
+  @NotNull
+  private Schema schema;
+  private byte[] states;
+  private Object[] values;
+  private long[] primitives;
+  private int size;
+
+  @SuppressWarnings("unused")
+  private Row()
+  {
+    //for kryo
+  }
+
+  /**
+   * Creates an empty row.
+   *
+   * @param schema schema of the row.
+   */
+  public Row(@NotNull Schema schema)
+  {
+    this.schema = schema;
+    states = new byte[schema.size()];
+    values = new Object[schema.size()];
+    if (schema.hasPrimitiveTypes()) {
+      primitives = new long[schema.size()];
+    }
+  }
+
+  /**
+   * Creates a row with the entries of the map.
+   *
+   * @param schema schema of the row, it is extended with the fields of the map missing from it.
+   * @param map entries of the row.
+   */
+  public Row(@NotNull Schema schema, @NotNull Map<String, Object> map)
+  {
+    this(schema);
+    putAll(map);
+  }
+
+  public Schema getSchema()
+  {
+    return schema;
+  }
+
+  /**
+   * @param slot slot of a field.
+   * @return true if the field is set, even to null.
+   */
+  public boolean isSet(int slot)
+  {
+    return states[slot] != ABSENT;
+  }
+
+  /**
+   * @return true if the field is stored unboxed.
+   */
+  boolean isPrimitive(int slot)
+  {
+    return states[slot] == PRIMITIVE;
+  }
+
+  /**
+   * @return the unboxed value of a primitive field, a double is stored as its raw long bits.
+   */
+  long getBits(int slot)
+  {
+    return primitives[slot];
+  }
+
+  void setBits(int slot, long bits)
+  {
+    if (states[slot] == ABSENT) {
+      size++;
+    }
+    primitives[slot] = bits;
+    values[slot] = null;
+    states[slot] = PRIMITIVE;
+  }
+
+  /**
+   * @param slot slot of a field.
+   * @return value of the field, null if not set.
+   */
+  public Object get(int slot)
+  {
+    switch (states[slot]) {
+      case VALUE:
+        return values[slot];
+      case PRIMITIVE:
+        switch (schema.getType(slot)) {
+          case INTEGER:
+            return (int) primitives[slot];
+          case LONG:
+            return primitives[slot];
+          case DOUBLE:
+            return Double.longBitsToDouble(primitives[slot]);
+          default:
+            return primitives[slot] != 0;
+        }
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Reads a numeric field without boxing when it is an integer or long field.
+   *
+   * @param slot slot of a field which is set to a number.
+   * @return value of the field.
+   */
+  public long getLong(int slot)
+  {
+    if (states[slot] == PRIMITIVE) {
+      return schema.getType(slot) == Schema.Type.DOUBLE ? (long) Double.longBitsToDouble(primitives[slot]) : primitives[slot];
+    }
+    return ((Number) values[slot]).longValue();
+  }
+
+  /**
+   * Reads a numeric field without boxing when it is a primitive field.
+   *
+   * @param slot slot of a field which is set to a number.
+   * @return value of the field.
+   */
+  public double getDouble(int slot)
+  {
+    if (states[slot] == PRIMITIVE) {
+      return schema.getType(slot) == Schema.Type.DOUBLE ? Double.longBitsToDouble(primitives[slot]) : primitives[slot];
+    }
+    return ((Number) values[slot]).doubleValue();
+  }
+
+  /**
+   * @param slot slot of a field.
+   * @param value new value of the field.
+   */
+  public void set(int slot, Object value)
+  {
+    Schema.Type type = schema.getType(slot);
+    if (value != null && type.isPrimitive() && value.getClass() == type.getValueClass()) {
+      switch (type) {
+        case INTEGER:
+        case LONG:
+          setBits(slot, ((Number) value).longValue());
+          break;
+        case DOUBLE:
+          setBits(slot, Double.doubleToRawLongBits((Double) value));
+          break;
+        default:
+          setBits(slot, (Boolean) value ? 1 : 0);
+      }
+      return;
+    }
+    if (states[slot] == ABSENT) {
+      size++;
+    }
+    values[slot] = value;
+    states[slot] = VALUE;
+  }
+
+  /**
+   * Sets an integer or long field without boxing.
+   *
+   * @param slot slot of an integer or long field.
+   * @param value new value of the field.
+   */
+  public void setLong(int slot, long value)
+  {
+    Schema.Type type = schema.getType(slot);
+    if (type != Schema.Type.LONG && type != Schema.Type.INTEGER) {
+      throw new IllegalArgumentException(schema.getName(slot) + " is a " + type + " field");
+    }
+    setBits(slot, type == Schema.Type.INTEGER ? (int) value : value);
+  }
+
+  /**
+   * Sets a double field without boxing.
+   *
+   * @param slot slot of a double field.
+   * @param value new value of the field.
+   */
+  public void setDouble(int slot, double value)
+  {
+    if (schema.getType(slot) != Schema.Type.DOUBLE) {
+      throw new IllegalArgumentException(schema.getName(slot) + " is a " + schema.getType(slot) + " field");
+    }
+    setBits(slot, Double.doubleToRawLongBits(value));
+  }
+
+  /**
+   * Unsets a field.
+   *
+   * @param slot slot of a field.
+   */
+  public void unset(int slot)
+  {
+    if (states[slot] != ABSENT) {
+      size--;
+      states[slot] = ABSENT;
+      values[slot] = null;
+    }
+  }
+
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key)
+  {
+    int slot = key instanceof String ? schema.getSlot((String) key) : -1;
+    return slot >= 0 && states[slot] != ABSENT;
+  }
+
+  @Override
+  public Object get(Object key)
+  {
+    int slot = key instanceof String ? schema.getSlot((String) key) : -1;
+    return slot < 0 ? null : get(slot);
+  }
+
+  @Override
+  public Object put(String key, Object value)
+  {
+    int slot = schema.getSlot(key);
+    if (slot < 0) {
+      extend(key);
+      slot = schema.size() - 1;
+    }
+    Object old = get(slot);
+    set(slot, value);
+    return old;
+  }
+
+  @Override
+  public Object remove(Object key)
+  {
+    int slot = key instanceof String ? schema.getSlot((String) key) : -1;
+    if (slot < 0) {
+      return null;
+    }
+    Object old = get(slot);
+    unset(slot);
+    return old;
+  }
+
+  @Override
+  public void clear()
+  {
+    Arrays.fill(states, ABSENT);
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  private void extend(String key)
+  {
+    schema = schema.withField(key);
+    states = Arrays.copyOf(states, schema.size());
+    values = Arrays.copyOf(values, schema.size());
+    if (primitives != null) {
+      primitives = Arrays.copyOf(primitives, schema.size());
+    }
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet()
+  {
+    return new AbstractSet<Map.Entry<String, Object>>()
+    {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator()
+      {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size()
+      {
+        return size;
+      }
+    };
+  }
+
+  private class EntryIterator implements Iterator<Map.Entry<String, Object>>
+  {
+    private int next = nextSet(0);
+    private int last = -1;
+
+    private int nextSet(int slot)
+    {
+      while (slot < states.length && states[slot] == ABSENT) {
+        slot++;
+      }
+      return slot;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return next < states.length;
+    }
+
+    @Override
+    public Map.Entry<String, Object> next()
+    {
+      if (next >= states.length) {
+        throw new NoSuchElementException();
+      }
+      last = next;
+      next = nextSet(next + 1);
+      return new Entry(last);
+    }
+
+    @Override
+    public void remove()
+    {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      unset(last);
+      last = -1;
+    }
+  }
+
+  private class Entry implements Map.Entry<String, Object>
+  {
+    private final int slot;
+
+    Entry(int slot)
+    {
+      this.slot = slot;
+    }
+
+    @Override
+    public String getKey()
+    {
+      return schema.getName(slot);
+    }
+
+    @Override
+    public Object getValue()
+    {
+      return get(slot);
+    }
+
+    @Override
+    public Object setValue(Object value)
+    {
+      Object old = get(slot);
+      set(slot, value);
+      return old;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+      Object value = getValue();
+      return getKey().equals(entry.getKey()) && (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+    }
+
+    @Override
+    public int hashCode()
+    {
+      Object value = getValue();
+      return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public String toString()
+    {
+      return getKey() + "=" + getValue();
+    }
+  }
+
+  private static final long serialVersionUID = 201410201020L;
+}
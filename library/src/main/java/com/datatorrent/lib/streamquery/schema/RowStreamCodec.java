@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery.schema;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.datatorrent.common.util.Slice;
+import com.datatorrent.lib.codec.KryoSerializableStreamCodec;
+
+/**
+ * A stream codec for table rows of a known {@link Schema}.&nbsp; Both ends of the stream know the schema,
+ * so only the values of the fields are sent, primitive fields without boxing.
+ * <p>
+ * Rows of the schema and maps whose keys are all fields of the schema are encoded this way and decoded as
+ * {@link Row}s. Other maps are serialized with Kryo along with their keys.
+ * The rows are partitioned by the values of the partition columns when they are given,
+ * otherwise by the hash code of the row.
+ * </p>
+ * @since 2.0.0
+ */
+public class RowStreamCodec extends KryoSerializableStreamCodec<Map<String, Object>>
+{
+  private static final byte ROW = 0;
+  private static final byte MAP = 1;
+
+  private static final byte ABSENT = 0;
+  private static final byte NULL = 1;
+  private static final byte PRIMITIVE = 2;
+  private static final byte STRING = 3;
+  private static final byte OBJECT = 4;
+
+  @NotNull
+  private Schema schema;
+  private String[] partitionColumns;
+
+  private transient Output output;
+  /**
+   * Slots of the partition columns in the schema of the last partitioned row.
+   */
+  private transient Schema partitionSchema;
+  private transient int[] partitionSlots;
+
+  @SuppressWarnings("unused")
+  private RowStreamCodec()
+  {
+    //for kryo
+  }
+
+  /**
+   * @param schema schema of the rows.
+   * @param partitionColumns columns to partition the rows by, the hash code of the row is used if none.
+   */
+  public RowStreamCodec(@NotNull Schema schema, String... partitionColumns)
+  {
+    this.schema = schema;
+    this.partitionColumns = partitionColumns;
+  }
+
+  @Override
+  public Slice toByteArray(Map<String, Object> map)
+  {
+    if (output == null) {
+      output = new Output(4096, -1);
+    }
+    output.clear();
+    if (map instanceof Row && schema.equals(((Row) map).getSchema())) {
+      output.writeByte(ROW);
+      Row row = (Row) map;
+      for (int slot = 0; slot < schema.size(); slot++) {
+        if (row.isPrimitive(slot)) {
+          output.writeByte(PRIMITIVE);
+          writePrimitive(slot, row.getBits(slot));
+        }
+        else {
+          writeValue(slot, row.isSet(slot), row.get(slot));
+        }
+      }
+    }
+    else if (hasSchemaFields(map)) {
+      output.writeByte(ROW);
+      for (int slot = 0; slot < schema.size(); slot++) {
+        Object value = map.get(schema.getName(slot));
+        writeValue(slot, value != null || map.containsKey(schema.getName(slot)), value);
+      }
+    }
+    else {
+      output.writeByte(MAP);
+      kryo.writeClassAndObject(output, map);
+    }
+    return new Slice(output.toBytes());
+  }
+
+  private boolean hasSchemaFields(Map<String, Object> map)
+  {
+    for (String key : map.keySet()) {
+      if (schema.getSlot(key) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void writeValue(int slot, boolean present, Object value)
+  {
+    Schema.Type type = schema.getType(slot);
+    if (!present) {
+      output.writeByte(ABSENT);
+    }
+    else if (value == null) {
+      output.writeByte(NULL);
+    }
+    else if (type.isPrimitive() && value.getClass() == type.getValueClass()) {
+      output.writeByte(PRIMITIVE);
+      switch (type) {
+        case DOUBLE:
+          writePrimitive(slot, Double.doubleToRawLongBits((Double) value));
+          break;
+        case BOOLEAN:
+          writePrimitive(slot, (Boolean) value ? 1 : 0);
+          break;
+        default:
+          writePrimitive(slot, ((Number) value).longValue());
+      }
+    }
+    else if (value instanceof String) {
+      output.writeByte(STRING);
+      output.writeString((String) value);
+    }
+    else {
+      output.writeByte(OBJECT);
+      kryo.writeClassAndObject(output, value);
+    }
+  }
+
+  private void writePrimitive(int slot, long bits)
+  {
+    switch (schema.getType(slot)) {
+      case INTEGER:
+        output.writeInt((int) bits, false);
+        break;
+      case LONG:
+        output.writeLong(bits, false);
+        break;
+      case DOUBLE:
+        output.writeLong(bits);
+        break;
+      default:
+        output.writeBoolean(bits != 0);
+    }
+  }
+
+  @Override
+  public Object fromByteArray(Slice fragment)
+  {
+    Input input = new Input(fragment.buffer, fragment.offset, fragment.length);
+    if (input.readByte() == MAP) {
+      return kryo.readClassAndObject(input);
+    }
+    Row row = new Row(schema);
+    for (int slot = 0; slot < schema.size(); slot++) {
+      switch (input.readByte()) {
+        case NULL:
+          row.set(slot, null);
+          break;
+        case PRIMITIVE:
+          row.setBits(slot, readPrimitive(input, schema.getType(slot)));
+          break;
+        case STRING:
+          row.set(slot, input.readString());
+          break;
+        case OBJECT:
+          row.set(slot, kryo.readClassAndObject(input));
+          break;
+        default:
+          break;
+      }
+    }
+    return row;
+  }
+
+  private static long readPrimitive(Input input, Schema.Type type)
+  {
+    switch (type) {
+      case INTEGER:
+        return input.readInt(false);
+      case LONG:
+        return input.readLong(false);
+      case DOUBLE:
+        return input.readLong();
+      default:
+        return input.readBoolean() ? 1 : 0;
+    }
+  }
+
+  @Override
+  public int getPartition(Map<String, Object> row)
+  {
+    if (partitionColumns == null || partitionColumns.length == 0) {
+      return row.hashCode();
+    }
+    if (partitionColumns.length == 1) {
+      Object value = getPartitionValue(row, 0);
+      return value == null ? 0 : value.hashCode();
+    }
+    Object[] values = new Object[partitionColumns.length];
+    for (int i = 0; i < partitionColumns.length; i++) {
+      values[i] = getPartitionValue(row, i);
+    }
+    return Arrays.hashCode(values);
+  }
+
+  private Object getPartitionValue(Map<String, Object> row, int column)
+  {
+    if (row instanceof Row) {
+      Row schemaRow = (Row) row;
+      if (schemaRow.getSchema() != partitionSchema) {
+        partitionSchema = schemaRow.getSchema();
+        partitionSlots = new int[partitionColumns.length];
+        for (int i = 0; i < partitionColumns.length; i++) {
+          partitionSlots[i] = partitionSchema.getSlot(partitionColumns[i]);
+        }
+      }
+      int slot = partitionSlots[column];
+      return slot < 0 ? null : schemaRow.get(slot);
+    }
+    return row.get(partitionColumns[column]);
+  }
+
+  public Schema getSchema()
+  {
+    return schema;
+  }
+
+  public String[] getPartitionColumns()
+  {
+    return partitionColumns;
+  }
+
+  private static final long serialVersionUID = 201410201030L;
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery.schema;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Field names and types of {@link Row}s.&nbsp; Every field is stored at a fixed slot of a row.
+ * <p>
+ * Fields of the primitive types are stored unboxed in the rows when the values have the declared type.
+ * A row which gets a field missing from its schema moves to a schema with the additional field. These schemas
+ * are cached, so rows built the same way share the same schema instances.
+ * </p>
+ * Schemas are immutable and can be shared by operators.
+ *
+ * @since 2.0.0
+ */
+public class Schema implements Serializable
+{
+  /**
+   * Type of a field.
+   */
+  public enum Type
+  {
+    OBJECT(null), STRING(String.class), INTEGER(Integer.class), LONG(Long.class), DOUBLE(Double.class), BOOLEAN(Boolean.class);
+
+    private final Class<?> valueClass;
+
+    Type(Class<?> valueClass)
+    {
+      this.valueClass = valueClass;
+    }
+
+    /**
+     * @return true if the values are stored unboxed.
+     */
+    public boolean isPrimitive()
+    {
+      return this == INTEGER || this == LONG || this == DOUBLE || this == BOOLEAN;
+    }
+
+    /**
+     * @return class of the values of the type, null for any object.
+     */
+    public Class<?> getValueClass()
+    {
+      return valueClass;
+    }
+  }
+
+  public static final Schema EMPTY = new Schema(new String[0], new Type[0]);
+
+  @NotNull
+  private String[] names;
+  @NotNull
+  private Type[] types;
+  private boolean primitive;
+
+  private transient volatile Map<String, Integer> slots;
+  private transient Map<String, Schema> transitions;
+
+  @SuppressWarnings("unused")
+  private Schema()
+  {
+    //for kryo
+  }
+
+  /**
+   * Creates a schema of fields of any type.
+   *
+   * @param names field names.
+   */
+  public Schema(@NotNull String... names)
+  {
+    this(names, createTypes(names.length));
+  }
+
+  /**
+   * @param names field names.
+   * @param types field types.
+   */
+  public Schema(@NotNull String[] names, @NotNull Type[] types)
+  {
+    if (names.length != types.length) {
+      throw new IllegalArgumentException("names and types do not match");
+    }
+    this.names = names.clone();
+    this.types = types.clone();
+    for (Type type : types) {
+      primitive |= type.isPrimitive();
+    }
+    if (slots().size() != names.length) {
+      throw new IllegalArgumentException("duplicate field in " + Arrays.toString(names));
+    }
+  }
+
+  private static Type[] createTypes(int size)
+  {
+    Type[] types = new Type[size];
+    Arrays.fill(types, Type.OBJECT);
+    return types;
+  }
+
+  private Map<String, Integer> slots()
+  {
+    Map<String, Integer> map = slots;
+    if (map == null) {
+      map = new HashMap<String, Integer>(names.length * 2);
+      for (int i = 0; i < names.length; i++) {
+        map.put(names[i], i);
+      }
+      slots = map;
+    }
+    return map;
+  }
+
+  /**
+   * @param name field name.
+   * @return slot of the field, -1 if there is no such field.
+   */
+  public int getSlot(String name)
+  {
+    Integer slot = slots().get(name);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * @return number of fields.
+   */
+  public int size()
+  {
+    return names.length;
+  }
+
+  public String getName(int slot)
+  {
+    return names[slot];
+  }
+
+  public Type getType(int slot)
+  {
+    return types[slot];
+  }
+
+  /**
+   * @return true if any field has a primitive type.
+   */
+  public boolean hasPrimitiveTypes()
+  {
+    return primitive;
+  }
+
+  /**
+   * @param name name of a field which is not in the schema.
+   * @return schema with the fields of this schema followed by the given field of any type.
+   */
+  public synchronized Schema withField(String name)
+  {
+    if (transitions == null) {
+      transitions = new HashMap<String, Schema>();
+    }
+    Schema schema = transitions.get(name);
+    if (schema == null) {
+      String[] newNames = Arrays.copyOf(names, names.length + 1);
+      Type[] newTypes = Arrays.copyOf(types, types.length + 1);
+      newNames[names.length] = name;
+      newTypes[types.length] = Type.OBJECT;
+      schema = new Schema(newNames, newTypes);
+      transitions.put(name, schema);
+    }
+    return schema;
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Schema)) {
+      return false;
+    }
+    Schema schema = (Schema) o;
+    return Arrays.equals(names, schema.names) && Arrays.equals(types, schema.types);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return 31 * Arrays.hashCode(names) + Arrays.hashCode(types);
+  }
+
+  @Override
+  public String toString()
+  {
+    StringBuilder builder = new StringBuilder("Schema{");
+    for (int i = 0; i < names.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(names[i]).append(':').append(types[i]);
+    }
+    return builder.append('}').toString();
+  }
+
+  private static final long serialVersionUID = 201410201015L;
+}
@@ -0,0 +1,662 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A parsed SELECT statement, which is prepared once against the input tables and then executed on the rows
+ * of every window.
+ * <p>
+ * Execution does not go through an intermediate database: the conditions on a single table are applied to
+ * its rows before joining, tables joined by equality conditions are hash joined and other joins are nested
+ * loops. Groups are aggregated in a single pass over the joined rows.
+ * </p>
+ * Names which are not quoted are case insensitive and the result columns are named in upper case, the same
+ * as the embedded database which was used before.
+ *
+ * @since 2.0.0
+ */
+public class SelectStatement
+{
+  /**
+   * An input table, its rows are arrays of the values of the columns in the given order.
+   */
+  public static class Table
+  {
+    private final String name;
+    private final String[] columns;
+
+    /**
+     * @param name table name, case insensitive.
+     * @param columns column names, case insensitive.
+     */
+    public Table(@NotNull String name, @NotNull String... columns)
+    {
+      this.name = name;
+      this.columns = columns;
+    }
+
+    public String getName()
+    {
+      return name;
+    }
+
+    public String[] getColumns()
+    {
+      return columns;
+    }
+  }
+
+  static class SelectItem
+  {
+    final SqlExpression expression;
+    final String alias;
+
+    /**
+     * @param expression selected expression, null for *.
+     */
+    SelectItem(SqlExpression expression, String alias)
+    {
+      this.expression = expression;
+      this.alias = alias;
+    }
+  }
+
+  static class TableRef
+  {
+    final String name;
+    final String alias;
+
+    TableRef(String name, String alias)
+    {
+      this.name = name;
+      this.alias = alias;
+    }
+  }
+
+  static class OrderItem
+  {
+    SqlExpression expression;
+    final boolean descending;
+
+    OrderItem(SqlExpression expression, boolean descending)
+    {
+      this.expression = expression;
+      this.descending = descending;
+    }
+  }
+
+  /*
+   * parsed statement
+   */
+  final List<SelectItem> items = new ArrayList<SelectItem>();
+  final List<TableRef> from = new ArrayList<TableRef>();
+  final List<SqlExpression> conditions = new ArrayList<SqlExpression>();
+  final List<SqlExpression> groupBy = new ArrayList<SqlExpression>();
+  SqlExpression having;
+  final List<OrderItem> orderBy = new ArrayList<OrderItem>();
+  int parameterCount;
+
+  /*
+   * plan
+   */
+  private int[] sources;
+  private Table[] tables;
+  private String[] names;
+  private SqlExpression[] outputs;
+  private Object[] parameters;
+  private final List<SqlExpression.Aggregate> aggregates = new ArrayList<SqlExpression.Aggregate>();
+  private SqlExpression[][] tableFilters;
+  private SqlExpression[][] joinFilters;
+  private SqlExpression[][] probeKeys;
+  private SqlExpression[][] buildKeys;
+  private boolean grouped;
+  private boolean prepared;
+
+  SelectStatement()
+  {
+  }
+
+  /**
+   * Resolves the tables and columns of the statement and plans the execution.
+   *
+   * @param inputTables tables the statement can select from.
+   */
+  public void prepare(@NotNull List<Table> inputTables)
+  {
+    if (prepared) {
+      throw new IllegalStateException("statement is already prepared");
+    }
+    int n = from.size();
+    if (n > 63) {
+      throw new IllegalArgumentException("too many tables");
+    }
+    sources = new int[n];
+    tables = new Table[n];
+    for (int i = 0; i < n; i++) {
+      sources[i] = -1;
+      for (int j = 0; j < inputTables.size(); j++) {
+        if (inputTables.get(j) != null && SqlParser.normalize(inputTables.get(j).name).equals(from.get(i).name)) {
+          sources[i] = j;
+          tables[i] = inputTables.get(j);
+        }
+      }
+      if (sources[i] < 0) {
+        throw new IllegalArgumentException("unknown table " + from.get(i).name);
+      }
+    }
+    parameters = new Object[parameterCount];
+
+    List<String> outputNames = new ArrayList<String>();
+    List<SqlExpression> outputExpressions = new ArrayList<SqlExpression>();
+    for (SelectItem item : items) {
+      if (item.expression == null) {
+        for (int i = 0; i < n; i++) {
+          for (int j = 0; j < tables[i].columns.length; j++) {
+            SqlExpression.Column expression = new SqlExpression.Column(null, SqlParser.normalize(tables[i].columns[j]));
+            expression.tableIndex = i;
+            expression.slot = j;
+            outputNames.add(expression.name);
+            outputExpressions.add(expression);
+          }
+        }
+        continue;
+      }
+      item.expression.prepare(this);
+      if (item.alias != null) {
+        outputNames.add(item.alias);
+      }
+      else if (item.expression instanceof SqlExpression.Column) {
+        outputNames.add(((SqlExpression.Column) item.expression).name);
+      }
+      else {
+        outputNames.add(String.valueOf(outputNames.size() + 1));
+      }
+      outputExpressions.add(item.expression);
+    }
+    names = outputNames.toArray(new String[outputNames.size()]);
+    outputs = outputExpressions.toArray(new SqlExpression[outputExpressions.size()]);
+
+    for (SqlExpression expression : groupBy) {
+      expression.prepare(this);
+      if (expression.hasAggregate()) {
+        throw new IllegalArgumentException("aggregate in GROUP BY");
+      }
+    }
+    if (having != null) {
+      having.prepare(this);
+    }
+    for (OrderItem item : orderBy) {
+      SqlExpression expression = resolveOrderBy(item.expression);
+      if (expression == item.expression) {
+        expression.prepare(this);
+      }
+      item.expression = expression;
+    }
+    grouped = !groupBy.isEmpty() || !aggregates.isEmpty();
+    if (having != null && !grouped) {
+      throw new IllegalArgumentException("HAVING without GROUP BY or aggregate");
+    }
+    planJoins();
+    prepared = true;
+  }
+
+  /**
+   * ORDER BY may refer to a result column by its name or its position.
+   */
+  private SqlExpression resolveOrderBy(SqlExpression expression)
+  {
+    if (expression instanceof SqlExpression.Literal && ((SqlExpression.Literal) expression).value instanceof Integer) {
+      int position = (Integer) ((SqlExpression.Literal) expression).value;
+      if (position < 1 || position > outputs.length) {
+        throw new IllegalArgumentException("ORDER BY position " + position + " is out of range");
+      }
+      return outputs[position - 1];
+    }
+    if (expression instanceof SqlExpression.Column && ((SqlExpression.Column) expression).table == null) {
+      for (int i = 0; i < names.length; i++) {
+        if (names[i].equals(((SqlExpression.Column) expression).name)) {
+          return outputs[i];
+        }
+      }
+    }
+    return expression;
+  }
+
+  private void planJoins()
+  {
+    int n = from.size();
+    List<SqlExpression> conjuncts = new ArrayList<SqlExpression>();
+    for (SqlExpression condition : conditions) {
+      addConjuncts(condition, conjuncts);
+    }
+    List<List<SqlExpression>> tableFilterLists = new ArrayList<List<SqlExpression>>();
+    List<List<SqlExpression>> joinFilterLists = new ArrayList<List<SqlExpression>>();
+    List<List<SqlExpression>> probeKeyLists = new ArrayList<List<SqlExpression>>();
+    List<List<SqlExpression>> buildKeyLists = new ArrayList<List<SqlExpression>>();
+    for (int i = 0; i < n; i++) {
+      tableFilterLists.add(new ArrayList<SqlExpression>());
+      joinFilterLists.add(new ArrayList<SqlExpression>());
+      probeKeyLists.add(new ArrayList<SqlExpression>());
+      buildKeyLists.add(new ArrayList<SqlExpression>());
+    }
+    for (SqlExpression conjunct : conjuncts) {
+      conjunct.prepare(this);
+      if (conjunct.hasAggregate()) {
+        throw new IllegalArgumentException("aggregate in WHERE");
+      }
+      long mask = conjunct.getTables();
+      int last = 63 - Long.numberOfLeadingZeros(mask);
+      if (last < 0) {
+        joinFilterLists.get(0).add(conjunct);
+      }
+      else if (mask == 1L << last) {
+        tableFilterLists.get(last).add(conjunct);
+      }
+      else if (!addJoinKey(conjunct, last, probeKeyLists.get(last), buildKeyLists.get(last))) {
+        joinFilterLists.get(last).add(conjunct);
+      }
+    }
+    tableFilters = toArrays(tableFilterLists);
+    joinFilters = toArrays(joinFilterLists);
+    probeKeys = toArrays(probeKeyLists);
+    buildKeys = toArrays(buildKeyLists);
+  }
+
+  private static void addConjuncts(SqlExpression condition, List<SqlExpression> conjuncts)
+  {
+    if (condition instanceof SqlExpression.And) {
+      for (SqlExpression operand : ((SqlExpression.And) condition).operands) {
+        addConjuncts(operand, conjuncts);
+      }
+    }
+    else {
+      conjuncts.add(condition);
+    }
+  }
+
+  /**
+   * Uses an equality between an expression of the joined tables and an expression of the table as a hash key.
+   */
+  private static boolean addJoinKey(SqlExpression conjunct, int table, List<SqlExpression> probe, List<SqlExpression> build)
+  {
+    if (!(conjunct instanceof SqlExpression.Comparison) || ((SqlExpression.Comparison) conjunct).op != SqlExpression.CompareOp.EQ) {
+      return false;
+    }
+    SqlExpression left = ((SqlExpression.Comparison) conjunct).operands[0];
+    SqlExpression right = ((SqlExpression.Comparison) conjunct).operands[1];
+    long bit = 1L << table;
+    if (right.getTables() == bit && left.getTables() != 0 && (left.getTables() & bit) == 0) {
+      probe.add(left);
+      build.add(right);
+      return true;
+    }
+    if (left.getTables() == bit && right.getTables() != 0 && (right.getTables() & bit) == 0) {
+      probe.add(right);
+      build.add(left);
+      return true;
+    }
+    return false;
+  }
+
+  private static SqlExpression[][] toArrays(List<List<SqlExpression>> lists)
+  {
+    SqlExpression[][] arrays = new SqlExpression[lists.size()][];
+    for (int i = 0; i < arrays.length; i++) {
+      arrays[i] = lists.get(i).toArray(new SqlExpression[lists.get(i).size()]);
+    }
+    return arrays;
+  }
+
+  /**
+   * @return table index in the FROM clause and slot of the column.
+   */
+  int[] resolve(String table, String column)
+  {
+    int[] resolved = null;
+    for (int i = 0; i < from.size(); i++) {
+      TableRef ref = from.get(i);
+      if (table != null && !table.equals(ref.alias) && !table.equals(ref.name)) {
+        continue;
+      }
+      String[] columns = tables[i].columns;
+      for (int j = 0; j < columns.length; j++) {
+        if (SqlParser.normalize(columns[j]).equals(column)) {
+          if (resolved != null) {
+            throw new IllegalArgumentException("ambiguous column " + column);
+          }
+          resolved = new int[] {i, j};
+        }
+      }
+    }
+    if (resolved == null) {
+      throw new IllegalArgumentException("unknown column " + (table == null ? column : table + "." + column));
+    }
+    return resolved;
+  }
+
+  int addAggregate(SqlExpression.Aggregate aggregate)
+  {
+    aggregates.add(aggregate);
+    return aggregates.size() - 1;
+  }
+
+  Object[] getParameters()
+  {
+    return parameters;
+  }
+
+  /**
+   * @return number of ? parameters.
+   */
+  public int getParameterCount()
+  {
+    return parameterCount;
+  }
+
+  /**
+   * Sets the ? parameters for the following executions, missing parameters are NULL.
+   *
+   * @param values parameter values in the order of the parameters, null to clear them.
+   */
+  public void setParameters(List<?> values)
+  {
+    Arrays.fill(parameters, null);
+    if (values != null) {
+      for (int i = 0; i < parameters.length && i < values.size(); i++) {
+        parameters[i] = values.get(i);
+      }
+    }
+  }
+
+  /**
+   * @return names of the result columns, valid after prepare.
+   */
+  public String[] getResultNames()
+  {
+    return names;
+  }
+
+  /**
+   * Executes the statement.
+   *
+   * @param input rows of the tables given to prepare, in the same order.
+   * @return result rows.
+   */
+  public List<Object[]> execute(@NotNull List<? extends List<Object[]>> input)
+  {
+    if (!prepared) {
+      throw new IllegalStateException("statement is not prepared");
+    }
+    int n = from.size();
+    List<Object[][]> joined = new ArrayList<Object[][]>();
+    Object[][] scratch = new Object[n][];
+    for (Object[] row : input.get(sources[0])) {
+      scratch[0] = row;
+      if (isValid(tableFilters[0], scratch) && isValid(joinFilters[0], scratch)) {
+        Object[][] rows = new Object[n][];
+        rows[0] = row;
+        joined.add(rows);
+      }
+    }
+    for (int k = 1; k < n && !joined.isEmpty(); k++) {
+      List<Object[]> tableRows = new ArrayList<Object[]>();
+      for (Object[] row : input.get(sources[k])) {
+        scratch[k] = row;
+        if (isValid(tableFilters[k], scratch)) {
+          tableRows.add(row);
+        }
+      }
+      joined = join(joined, k, tableRows);
+    }
+
+    List<Object[]> results = new ArrayList<Object[]>();
+    List<Object[]> sortKeys = orderBy.isEmpty() ? null : new ArrayList<Object[]>();
+    if (!grouped) {
+      for (Object[][] rows : joined) {
+        addResult(rows, null, results, sortKeys);
+      }
+    }
+    else {
+      aggregate(joined, results, sortKeys);
+    }
+    if (sortKeys != null) {
+      sort(results, sortKeys);
+    }
+    return results;
+  }
+
+  private static boolean isValid(SqlExpression[] filters, Object[][] rows)
+  {
+    for (SqlExpression filter : filters) {
+      if (!SqlExpression.isTrue(filter.evaluate(rows, null))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<Object[][]> join(List<Object[][]> joined, int k, List<Object[]> tableRows)
+  {
+    List<Object[][]> result = new ArrayList<Object[][]>();
+    if (probeKeys[k].length == 0) {
+      for (Object[][] rows : joined) {
+        for (Object[] row : tableRows) {
+          addJoined(rows, k, row, result);
+        }
+      }
+      return result;
+    }
+    Map<Object, List<Object[]>> index = new HashMap<Object, List<Object[]>>();
+    Object[][] scratch = new Object[from.size()][];
+    for (Object[] row : tableRows) {
+      scratch[k] = row;
+      Object key = evaluateKey(buildKeys[k], scratch);
+      if (key != null) {
+        List<Object[]> matches = index.get(key);
+        if (matches == null) {
+          matches = new ArrayList<Object[]>(1);
+          index.put(key, matches);
+        }
+        matches.add(row);
+      }
+    }
+    for (Object[][] rows : joined) {
+      Object key = evaluateKey(probeKeys[k], rows);
+      List<Object[]> matches = key == null ? null : index.get(key);
+      if (matches != null) {
+        for (Object[] row : matches) {
+          addJoined(rows, k, row, result);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void addJoined(Object[][] rows, int k, Object[] row, List<Object[][]> result)
+  {
+    Object[][] combined = rows.clone();
+    combined[k] = row;
+    if (isValid(joinFilters[k], combined)) {
+      result.add(combined);
+    }
+  }
+
+  /**
+   * @return hash key of the values, null if any value is null since NULL joins with nothing.
+   */
+  private static Object evaluateKey(SqlExpression[] expressions, Object[][] rows)
+  {
+    if (expressions.length == 1) {
+      return normalizeKey(expressions[0].evaluate(rows, null));
+    }
+    List<Object> key = new ArrayList<Object>(expressions.length);
+    for (SqlExpression expression : expressions) {
+      Object value = normalizeKey(expression.evaluate(rows, null));
+      if (value == null) {
+        return null;
+      }
+      key.add(value);
+    }
+    return key;
+  }
+
+  /**
+   * Numbers which compare equal must have equal keys.
+   */
+  private static Object normalizeKey(Object value)
+  {
+    if (value instanceof Number) {
+      double d = ((Number) value).doubleValue();
+      long l = ((Number) value).longValue();
+      return d == l ? (Object) l : (Object) d;
+    }
+    return value;
+  }
+
+  private static class Group
+  {
+    final Object[][] rows;
+    final SqlExpression.Accumulator[] accumulators;
+
+    Group(Object[][] rows, List<SqlExpression.Aggregate> aggregates)
+    {
+      this.rows = rows;
+      accumulators = new SqlExpression.Accumulator[aggregates.size()];
+      for (int i = 0; i < accumulators.length; i++) {
+        accumulators[i] = aggregates.get(i).createAccumulator();
+      }
+    }
+  }
+
+  private void aggregate(List<Object[][]> joined, List<Object[]> results, List<Object[]> sortKeys)
+  {
+    Map<Object, Group> groups = new LinkedHashMap<Object, Group>();
+    SqlExpression[] keys = groupBy.toArray(new SqlExpression[groupBy.size()]);
+    for (Object[][] rows : joined) {
+      Object key;
+      if (keys.length == 0) {
+        key = Collections.emptyList();
+      }
+      else {
+        List<Object> values = new ArrayList<Object>(keys.length);
+        for (SqlExpression expression : keys) {
+          values.add(normalizeKey(expression.evaluate(rows, null)));
+        }
+        key = values;
+      }
+      Group group = groups.get(key);
+      if (group == null) {
+        group = new Group(rows, aggregates);
+        groups.put(key, group);
+      }
+      for (int i = 0; i < aggregates.size(); i++) {
+        SqlExpression argument = aggregates.get(i).argument;
+        if (argument == null) {
+          group.accumulators[i].add(Boolean.TRUE);
+        }
+        else {
+          Object value = argument.evaluate(rows, null);
+          if (value != null) {
+            group.accumulators[i].add(value);
+          }
+        }
+      }
+    }
+    if (groups.isEmpty() && keys.length == 0) {
+      //aggregates without GROUP BY give one row, even for no rows
+      Object[][] rows = new Object[from.size()][];
+      for (int i = 0; i < rows.length; i++) {
+        rows[i] = new Object[tables[i].columns.length];
+      }
+      groups.put(Collections.emptyList(), new Group(rows, aggregates));
+    }
+    for (Group group : groups.values()) {
+      Object[] values = new Object[aggregates.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = group.accumulators[i].getResult();
+      }
+      if (having == null || SqlExpression.isTrue(having.evaluate(group.rows, values))) {
+        addResult(group.rows, values, results, sortKeys);
+      }
+    }
+  }
+
+  private void addResult(Object[][] rows, Object[] aggregateValues, List<Object[]> results, List<Object[]> sortKeys)
+  {
+    Object[] result = new Object[outputs.length];
+    for (int i = 0; i < outputs.length; i++) {
+      result[i] = outputs[i].evaluate(rows, aggregateValues);
+    }
+    results.add(result);
+    if (sortKeys != null) {
+      Object[] sortKey = new Object[orderBy.size()];
+      for (int i = 0; i < sortKey.length; i++) {
+        sortKey[i] = orderBy.get(i).expression.evaluate(rows, aggregateValues);
+      }
+      sortKeys.add(sortKey);
+    }
+  }
+
+  /**
+   * Sorts the results by their sort keys, NULL sorts after all other values.
+   */
+  private void sort(List<Object[]> results, final List<Object[]> sortKeys)
+  {
+    Integer[] order = new Integer[results.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>()
+    {
+      @Override
+      public int compare(Integer i1, Integer i2)
+      {
+        Object[] key1 = sortKeys.get(i1);
+        Object[] key2 = sortKeys.get(i2);
+        for (int i = 0; i < key1.length; i++) {
+          int result;
+          if (key1[i] == null || key2[i] == null) {
+            result = key1[i] == null ? (key2[i] == null ? 0 : 1) : -1;
+          }
+          else {
+            result = SqlExpression.compare(key1[i], key2[i]);
+          }
+          if (result != 0) {
+            return orderBy.get(i).descending ? -result : result;
+          }
+        }
+        return 0;
+      }
+    });
+    List<Object[]> sorted = new ArrayList<Object[]>(order.length);
+    for (Integer i : order) {
+      sorted.add(results.get(i));
+    }
+    results.clear();
+    results.addAll(sorted);
+  }
+}
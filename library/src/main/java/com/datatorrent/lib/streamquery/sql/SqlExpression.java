@@ -0,0 +1,783 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery.sql;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * An expression of a SQL statement.
+ * <p>
+ * Expressions are evaluated against a joined row, which holds one row per table of the statement, and the
+ * results of the aggregates of the current group. Column references are resolved to the table and the column
+ * of the row when the statement is prepared, so no names are looked up while evaluating.
+ * NULL follows SQL semantics: comparisons and arithmetic with NULL give NULL, and AND, OR and NOT use three
+ * valued logic.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+public abstract class SqlExpression
+{
+  /**
+   * @param rows rows of the tables of the statement, by table.
+   * @param aggregates results of the aggregates of the group, null before aggregation.
+   * @return value of the expression.
+   */
+  public abstract Object evaluate(Object[][] rows, Object[] aggregates);
+
+  /**
+   * Resolves the column references of the expression.
+   *
+   * @param statement statement the expression belongs to.
+   */
+  void prepare(SelectStatement statement)
+  {
+  }
+
+  /**
+   * @return bit mask of the tables referenced by the expression, valid after prepare.
+   */
+  long getTables()
+  {
+    return 0;
+  }
+
+  /**
+   * @return true if the expression contains an aggregate function.
+   */
+  boolean hasAggregate()
+  {
+    return false;
+  }
+
+  static boolean isTrue(Object value)
+  {
+    return Boolean.TRUE.equals(value);
+  }
+
+  private static boolean isIntegral(Object value)
+  {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
+  /**
+   * Compares two non null values, numbers by their numeric value.
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  static int compare(Object left, Object right)
+  {
+    if (left instanceof Number && right instanceof Number) {
+      if (isIntegral(left) && isIntegral(right)) {
+        long l = ((Number) left).longValue();
+        long r = ((Number) right).longValue();
+        return l < r ? -1 : (l == r ? 0 : 1);
+      }
+      return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+    }
+    if (left instanceof Number && right instanceof String) {
+      return compare(left, Double.valueOf((String) right));
+    }
+    if (left instanceof String && right instanceof Number) {
+      return compare(Double.valueOf((String) left), right);
+    }
+    return ((Comparable) left).compareTo(right);
+  }
+
+  /**
+   * Reference to a column of a table.
+   */
+  static class Column extends SqlExpression
+  {
+    final String table;
+    final String name;
+    int tableIndex;
+    int slot;
+
+    Column(String table, String name)
+    {
+      this.table = table;
+      this.name = name;
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      return rows[tableIndex][slot];
+    }
+
+    @Override
+    void prepare(SelectStatement statement)
+    {
+      int[] resolved = statement.resolve(table, name);
+      tableIndex = resolved[0];
+      slot = resolved[1];
+    }
+
+    @Override
+    long getTables()
+    {
+      return 1L << tableIndex;
+    }
+  }
+
+  static class Literal extends SqlExpression
+  {
+    final Object value;
+
+    Literal(Object value)
+    {
+      this.value = value;
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      return value;
+    }
+  }
+
+  /**
+   * A ? parameter, set from the bindings of the window.
+   */
+  static class Parameter extends SqlExpression
+  {
+    final int index;
+    private Object[] parameters;
+
+    Parameter(int index)
+    {
+      this.index = index;
+    }
+
+    @Override
+    void prepare(SelectStatement statement)
+    {
+      parameters = statement.getParameters();
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      return parameters[index];
+    }
+  }
+
+  /**
+   * Base of the expressions with operands.
+   */
+  abstract static class Composite extends SqlExpression
+  {
+    final SqlExpression[] operands;
+
+    Composite(SqlExpression... operands)
+    {
+      this.operands = operands;
+    }
+
+    @Override
+    void prepare(SelectStatement statement)
+    {
+      for (SqlExpression operand : operands) {
+        operand.prepare(statement);
+      }
+    }
+
+    @Override
+    long getTables()
+    {
+      long tables = 0;
+      for (SqlExpression operand : operands) {
+        tables |= operand.getTables();
+      }
+      return tables;
+    }
+
+    @Override
+    boolean hasAggregate()
+    {
+      for (SqlExpression operand : operands) {
+        if (operand.hasAggregate()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  static class And extends Composite
+  {
+    And(SqlExpression left, SqlExpression right)
+    {
+      super(left, right);
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object left = operands[0].evaluate(rows, aggregates);
+      if (Boolean.FALSE.equals(left)) {
+        return false;
+      }
+      Object right = operands[1].evaluate(rows, aggregates);
+      if (Boolean.FALSE.equals(right)) {
+        return false;
+      }
+      return left == null || right == null ? null : Boolean.TRUE;
+    }
+  }
+
+  static class Or extends Composite
+  {
+    Or(SqlExpression left, SqlExpression right)
+    {
+      super(left, right);
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object left = operands[0].evaluate(rows, aggregates);
+      if (isTrue(left)) {
+        return true;
+      }
+      Object right = operands[1].evaluate(rows, aggregates);
+      if (isTrue(right)) {
+        return true;
+      }
+      return left == null || right == null ? null : Boolean.FALSE;
+    }
+  }
+
+  static class Not extends Composite
+  {
+    Not(SqlExpression operand)
+    {
+      super(operand);
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object value = operands[0].evaluate(rows, aggregates);
+      return value == null ? null : !isTrue(value);
+    }
+  }
+
+  /**
+   * Comparison operators.
+   */
+  enum CompareOp
+  {
+    EQ, NE, LT, LE, GT, GE
+  }
+
+  static class Comparison extends Composite
+  {
+    final CompareOp op;
+
+    Comparison(CompareOp op, SqlExpression left, SqlExpression right)
+    {
+      super(left, right);
+      this.op = op;
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object left = operands[0].evaluate(rows, aggregates);
+      if (left == null) {
+        return null;
+      }
+      Object right = operands[1].evaluate(rows, aggregates);
+      if (right == null) {
+        return null;
+      }
+      int result = compare(left, right);
+      switch (op) {
+        case EQ:
+          return result == 0;
+        case NE:
+          return result != 0;
+        case LT:
+          return result < 0;
+        case LE:
+          return result <= 0;
+        case GT:
+          return result > 0;
+        default:
+          return result >= 0;
+      }
+    }
+  }
+
+  static class Between extends Composite
+  {
+    Between(SqlExpression value, SqlExpression low, SqlExpression high)
+    {
+      super(value, low, high);
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object value = operands[0].evaluate(rows, aggregates);
+      Object low = operands[1].evaluate(rows, aggregates);
+      Object high = operands[2].evaluate(rows, aggregates);
+      if (value == null || low == null || high == null) {
+        return null;
+      }
+      return compare(value, low) >= 0 && compare(value, high) <= 0;
+    }
+  }
+
+  /**
+   * IN with a list of values, the first operand is the tested value.
+   */
+  static class In extends Composite
+  {
+    In(List<SqlExpression> operands)
+    {
+      super(operands.toArray(new SqlExpression[operands.size()]));
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object value = operands[0].evaluate(rows, aggregates);
+      if (value == null) {
+        return null;
+      }
+      boolean unknown = false;
+      for (int i = 1; i < operands.length; i++) {
+        Object item = operands[i].evaluate(rows, aggregates);
+        if (item == null) {
+          unknown = true;
+        }
+        else if (compare(value, item) == 0) {
+          return true;
+        }
+      }
+      return unknown ? null : Boolean.FALSE;
+    }
+  }
+
+  /**
+   * LIKE with the % and _ wildcards, a constant pattern is compiled once.
+   */
+  static class Like extends Composite
+  {
+    private Pattern pattern;
+    private String patternString;
+
+    Like(SqlExpression value, SqlExpression pattern)
+    {
+      super(value, pattern);
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object value = operands[0].evaluate(rows, aggregates);
+      Object like = operands[1].evaluate(rows, aggregates);
+      if (value == null || like == null) {
+        return null;
+      }
+      if (!like.equals(patternString)) {
+        patternString = like.toString();
+        pattern = toPattern(patternString);
+      }
+      return pattern.matcher(value.toString()).matches();
+    }
+
+    static Pattern toPattern(String like)
+    {
+      StringBuilder regex = new StringBuilder();
+      int start = 0;
+      for (int i = 0; i < like.length(); i++) {
+        char c = like.charAt(i);
+        if (c == '%' || c == '_') {
+          if (i > start) {
+            regex.append(Pattern.quote(like.substring(start, i)));
+          }
+          regex.append(c == '%' ? ".*" : ".");
+          start = i + 1;
+        }
+      }
+      if (start < like.length()) {
+        regex.append(Pattern.quote(like.substring(start)));
+      }
+      return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+  }
+
+  static class IsNull extends Composite
+  {
+    IsNull(SqlExpression operand)
+    {
+      super(operand);
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      return operands[0].evaluate(rows, aggregates) == null;
+    }
+  }
+
+  /**
+   * Arithmetic operators, integral operands give an integral result.
+   */
+  enum ArithmeticOp
+  {
+    ADD, SUBTRACT, MULTIPLY, DIVIDE, MODULO
+  }
+
+  static class Arithmetic extends Composite
+  {
+    final ArithmeticOp op;
+
+    Arithmetic(ArithmeticOp op, SqlExpression left, SqlExpression right)
+    {
+      super(left, right);
+      this.op = op;
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object left = operands[0].evaluate(rows, aggregates);
+      if (left == null) {
+        return null;
+      }
+      Object right = operands[1].evaluate(rows, aggregates);
+      if (right == null) {
+        return null;
+      }
+      Number l = toNumber(left);
+      Number r = toNumber(right);
+      if (isIntegral(l) && isIntegral(r)) {
+        long result = calculate(l.longValue(), r.longValue());
+        return l instanceof Long || r instanceof Long ? (Object) result : (Object) (int) result;
+      }
+      return calculate(l.doubleValue(), r.doubleValue());
+    }
+
+    private long calculate(long l, long r)
+    {
+      switch (op) {
+        case ADD:
+          return l + r;
+        case SUBTRACT:
+          return l - r;
+        case MULTIPLY:
+          return l * r;
+        case DIVIDE:
+          return l / r;
+        default:
+          return l % r;
+      }
+    }
+
+    private double calculate(double l, double r)
+    {
+      switch (op) {
+        case ADD:
+          return l + r;
+        case SUBTRACT:
+          return l - r;
+        case MULTIPLY:
+          return l * r;
+        case DIVIDE:
+          return l / r;
+        default:
+          return l % r;
+      }
+    }
+  }
+
+  static Number toNumber(Object value)
+  {
+    if (value instanceof Number) {
+      return (Number) value;
+    }
+    String string = value.toString();
+    try {
+      return Long.valueOf(string);
+    }
+    catch (NumberFormatException e) {
+      return Double.valueOf(string);
+    }
+  }
+
+  static class Negate extends Composite
+  {
+    Negate(SqlExpression operand)
+    {
+      super(operand);
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object value = operands[0].evaluate(rows, aggregates);
+      if (value == null) {
+        return null;
+      }
+      Number number = toNumber(value);
+      if (number instanceof Long) {
+        return -number.longValue();
+      }
+      if (isIntegral(number)) {
+        return -number.intValue();
+      }
+      return -number.doubleValue();
+    }
+  }
+
+  static class Concat extends Composite
+  {
+    Concat(SqlExpression left, SqlExpression right)
+    {
+      super(left, right);
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object left = operands[0].evaluate(rows, aggregates);
+      Object right = operands[1].evaluate(rows, aggregates);
+      return left == null || right == null ? null : left.toString() + right;
+    }
+  }
+
+  /**
+   * Scalar functions.
+   */
+  enum FunctionType
+  {
+    UPPER, LOWER, LENGTH, ABS
+  }
+
+  static class Function extends Composite
+  {
+    final FunctionType type;
+
+    Function(FunctionType type, SqlExpression operand)
+    {
+      super(operand);
+      this.type = type;
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      Object value = operands[0].evaluate(rows, aggregates);
+      if (value == null) {
+        return null;
+      }
+      switch (type) {
+        case UPPER:
+          return value.toString().toUpperCase();
+        case LOWER:
+          return value.toString().toLowerCase();
+        case LENGTH:
+          return value.toString().length();
+        default:
+          Number number = toNumber(value);
+          if (number instanceof Long) {
+            return Math.abs(number.longValue());
+          }
+          return isIntegral(number) ? (Object) Math.abs(number.intValue()) : (Object) Math.abs(number.doubleValue());
+      }
+    }
+  }
+
+  /**
+   * Aggregate functions.
+   */
+  enum AggregateType
+  {
+    COUNT, SUM, AVG, MIN, MAX
+  }
+
+  /**
+   * Call of an aggregate function, its value is the result of the aggregate for the current group.
+   * The argument is null for COUNT(*).
+   */
+  static class Aggregate extends SqlExpression
+  {
+    final AggregateType type;
+    final SqlExpression argument;
+    int index;
+
+    Aggregate(AggregateType type, SqlExpression argument)
+    {
+      this.type = type;
+      this.argument = argument;
+    }
+
+    @Override
+    void prepare(SelectStatement statement)
+    {
+      if (argument != null) {
+        argument.prepare(statement);
+        if (argument.hasAggregate()) {
+          throw new IllegalArgumentException("nested aggregate in " + type);
+        }
+      }
+      index = statement.addAggregate(this);
+    }
+
+    @Override
+    public Object evaluate(Object[][] rows, Object[] aggregates)
+    {
+      return aggregates[index];
+    }
+
+    @Override
+    boolean hasAggregate()
+    {
+      return true;
+    }
+
+    Accumulator createAccumulator()
+    {
+      switch (type) {
+        case COUNT:
+          return new Count();
+        case SUM:
+          return new Sum();
+        case AVG:
+          return new Average();
+        default:
+          return new Extreme(type == AggregateType.MAX);
+      }
+    }
+  }
+
+  /**
+   * Aggregates the values of a group.
+   */
+  abstract static class Accumulator
+  {
+    /**
+     * @param value value of the argument for a row, null values are skipped.
+     */
+    abstract void add(Object value);
+
+    abstract Object getResult();
+  }
+
+  private static class Count extends Accumulator
+  {
+    private int count;
+
+    @Override
+    void add(Object value)
+    {
+      count++;
+    }
+
+    @Override
+    Object getResult()
+    {
+      return count;
+    }
+  }
+
+  private static class Sum extends Accumulator
+  {
+    private long longSum;
+    private double doubleSum;
+    private boolean integral = true;
+    private boolean empty = true;
+
+    @Override
+    void add(Object value)
+    {
+      Number number = toNumber(value);
+      empty = false;
+      if (integral && isIntegral(number)) {
+        longSum += number.longValue();
+        return;
+      }
+      if (integral) {
+        doubleSum = longSum;
+        integral = false;
+      }
+      doubleSum += number.doubleValue();
+    }
+
+    @Override
+    Object getResult()
+    {
+      if (empty) {
+        return null;
+      }
+      return integral ? (Object) longSum : (Object) doubleSum;
+    }
+  }
+
+  private static class Average extends Accumulator
+  {
+    private double sum;
+    private long count;
+
+    @Override
+    void add(Object value)
+    {
+      sum += toNumber(value).doubleValue();
+      count++;
+    }
+
+    @Override
+    Object getResult()
+    {
+      return count == 0 ? null : sum / count;
+    }
+  }
+
+  private static class Extreme extends Accumulator
+  {
+    private final boolean max;
+    private Object value;
+
+    Extreme(boolean max)
+    {
+      this.max = max;
+    }
+
+    @Override
+    void add(Object value)
+    {
+      if (this.value == null) {
+        this.value = value;
+        return;
+      }
+      int result = compare(value, this.value);
+      if (max ? result > 0 : result < 0) {
+        this.value = value;
+      }
+    }
+
+    @Override
+    Object getResult()
+    {
+      return value;
+    }
+  }
+}
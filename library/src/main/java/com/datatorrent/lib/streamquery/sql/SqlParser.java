@@ -0,0 +1,557 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Parses the SELECT statements of the streamquery SQL operators.
+ * <p>
+ * The supported subset is:
+ * <pre>
+ * SELECT * | expression [[AS] alias], ...
+ * FROM table [[AS] alias] {, table [[AS] alias] | [INNER] JOIN table [[AS] alias] ON condition}
+ * [WHERE condition]
+ * [GROUP BY expression, ...]
+ * [HAVING condition]
+ * [ORDER BY expression [ASC | DESC], ...]
+ * </pre>
+ * Expressions are made of columns, optionally qualified by the table or schema and table, string and number
+ * literals, NULL, TRUE, FALSE, ? parameters, the arithmetic operators + - * / %, the string concatenation ||,
+ * the comparisons = &lt;&gt; != &lt; &lt;= &gt; &gt;=, [NOT] BETWEEN, [NOT] IN, [NOT] LIKE, IS [NOT] NULL,
+ * AND, OR, NOT, the functions UPPER, LOWER, LENGTH, ABS and the aggregates COUNT(*), COUNT, SUM, AVG, MIN
+ * and MAX.
+ * </p>
+ * Errors are reported with an IllegalArgumentException which gives the position in the statement.
+ *
+ * @since 2.0.0
+ */
+public class SqlParser
+{
+  private enum TokenType
+  {
+    IDENTIFIER, QUOTED_IDENTIFIER, STRING, NUMBER, SYMBOL, END
+  }
+
+  private final String sql;
+  private int position;
+  private TokenType type;
+  private String token;
+  private int tokenStart;
+  private SelectStatement statement;
+
+  private SqlParser(String sql)
+  {
+    this.sql = sql;
+  }
+
+  /**
+   * @param sql SELECT statement.
+   * @return parsed statement, it must be prepared before it is executed.
+   */
+  public static SelectStatement parse(@NotNull String sql)
+  {
+    SqlParser parser = new SqlParser(sql);
+    parser.next();
+    SelectStatement statement = parser.parseSelect();
+    if (parser.type != TokenType.END) {
+      throw parser.error("unexpected " + parser.token);
+    }
+    return statement;
+  }
+
+  /**
+   * Names which are not quoted are case insensitive.
+   */
+  static String normalize(String name)
+  {
+    return name.toUpperCase(Locale.ENGLISH);
+  }
+
+  private IllegalArgumentException error(String message)
+  {
+    return new IllegalArgumentException(message + " at position " + tokenStart + " in " + sql);
+  }
+
+  private void next()
+  {
+    while (position < sql.length() && Character.isWhitespace(sql.charAt(position))) {
+      position++;
+    }
+    tokenStart = position;
+    if (position == sql.length()) {
+      type = TokenType.END;
+      token = "end of statement";
+      return;
+    }
+    char c = sql.charAt(position);
+    if (Character.isLetter(c) || c == '_') {
+      while (position < sql.length() && (Character.isLetterOrDigit(sql.charAt(position)) || sql.charAt(position) == '_' || sql.charAt(position) == '$')) {
+        position++;
+      }
+      type = TokenType.IDENTIFIER;
+      token = sql.substring(tokenStart, position);
+    }
+    else if (Character.isDigit(c) || (c == '.' && position + 1 < sql.length() && Character.isDigit(sql.charAt(position + 1)))) {
+      while (position < sql.length() && (Character.isDigit(sql.charAt(position)) || sql.charAt(position) == '.')) {
+        position++;
+      }
+      if (position < sql.length() && (sql.charAt(position) == 'e' || sql.charAt(position) == 'E')) {
+        position++;
+        if (position < sql.length() && (sql.charAt(position) == '+' || sql.charAt(position) == '-')) {
+          position++;
+        }
+        while (position < sql.length() && Character.isDigit(sql.charAt(position))) {
+          position++;
+        }
+      }
+      type = TokenType.NUMBER;
+      token = sql.substring(tokenStart, position);
+    }
+    else if (c == '\'' || c == '"') {
+      StringBuilder builder = new StringBuilder();
+      position++;
+      while (true) {
+        if (position == sql.length()) {
+          throw error("unterminated " + (c == '\'' ? "string" : "identifier"));
+        }
+        char ch = sql.charAt(position++);
+        if (ch == c) {
+          if (position < sql.length() && sql.charAt(position) == c) {
+            builder.append(c);
+            position++;
+            continue;
+          }
+          break;
+        }
+        builder.append(ch);
+      }
+      type = c == '\'' ? TokenType.STRING : TokenType.QUOTED_IDENTIFIER;
+      token = builder.toString();
+    }
+    else {
+      String two = position + 2 <= sql.length() ? sql.substring(position, position + 2) : "";
+      if (two.equals("<>") || two.equals("!=") || two.equals("<=") || two.equals(">=") || two.equals("||")) {
+        position += 2;
+        token = two;
+      }
+      else if ("(),.*+-/%=<>?".indexOf(c) >= 0) {
+        position++;
+        token = String.valueOf(c);
+      }
+      else {
+        throw error("unexpected character " + c);
+      }
+      type = TokenType.SYMBOL;
+    }
+  }
+
+  private boolean isKeyword(String keyword)
+  {
+    return type == TokenType.IDENTIFIER && token.equalsIgnoreCase(keyword);
+  }
+
+  private boolean acceptKeyword(String keyword)
+  {
+    if (isKeyword(keyword)) {
+      next();
+      return true;
+    }
+    return false;
+  }
+
+  private void expectKeyword(String keyword)
+  {
+    if (!acceptKeyword(keyword)) {
+      throw error("expected " + keyword + " but found " + token);
+    }
+  }
+
+  private boolean isSymbol(String symbol)
+  {
+    return type == TokenType.SYMBOL && token.equals(symbol);
+  }
+
+  private boolean acceptSymbol(String symbol)
+  {
+    if (isSymbol(symbol)) {
+      next();
+      return true;
+    }
+    return false;
+  }
+
+  private void expectSymbol(String symbol)
+  {
+    if (!acceptSymbol(symbol)) {
+      throw error("expected " + symbol + " but found " + token);
+    }
+  }
+
+  private static final String[] RESERVED = {"SELECT", "FROM", "WHERE", "GROUP", "BY", "HAVING", "ORDER", "ASC", "DESC",
+    "AS", "ON", "JOIN", "INNER", "AND", "OR", "NOT", "IN", "LIKE", "BETWEEN", "IS", "NULL", "TRUE", "FALSE"};
+
+  private boolean isReserved()
+  {
+    if (type != TokenType.IDENTIFIER) {
+      return false;
+    }
+    for (String keyword : RESERVED) {
+      if (token.equalsIgnoreCase(keyword)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return normalized name of an identifier.
+   */
+  private String parseIdentifier()
+  {
+    if (type == TokenType.QUOTED_IDENTIFIER) {
+      String name = token;
+      next();
+      return name;
+    }
+    if (type != TokenType.IDENTIFIER || isReserved()) {
+      throw error("expected name but found " + token);
+    }
+    String name = normalize(token);
+    next();
+    return name;
+  }
+
+  private String parseAlias()
+  {
+    if (acceptKeyword("AS") || type == TokenType.QUOTED_IDENTIFIER || (type == TokenType.IDENTIFIER && !isReserved())) {
+      return parseIdentifier();
+    }
+    return null;
+  }
+
+  private SelectStatement parseSelect()
+  {
+    statement = new SelectStatement();
+    expectKeyword("SELECT");
+    do {
+      if (acceptSymbol("*")) {
+        statement.items.add(new SelectStatement.SelectItem(null, null));
+      }
+      else {
+        SqlExpression expression = parseExpression();
+        statement.items.add(new SelectStatement.SelectItem(expression, parseAlias()));
+      }
+    }
+    while (acceptSymbol(","));
+
+    expectKeyword("FROM");
+    parseTableRef();
+    while (true) {
+      if (acceptSymbol(",")) {
+        parseTableRef();
+      }
+      else if (isKeyword("JOIN") || isKeyword("INNER")) {
+        acceptKeyword("INNER");
+        expectKeyword("JOIN");
+        parseTableRef();
+        expectKeyword("ON");
+        statement.conditions.add(parseExpression());
+      }
+      else {
+        break;
+      }
+    }
+    if (acceptKeyword("WHERE")) {
+      statement.conditions.add(parseExpression());
+    }
+    if (acceptKeyword("GROUP")) {
+      expectKeyword("BY");
+      do {
+        statement.groupBy.add(parseExpression());
+      }
+      while (acceptSymbol(","));
+    }
+    if (acceptKeyword("HAVING")) {
+      statement.having = parseExpression();
+    }
+    if (acceptKeyword("ORDER")) {
+      expectKeyword("BY");
+      do {
+        SqlExpression expression = parseExpression();
+        boolean descending = acceptKeyword("DESC");
+        if (!descending) {
+          acceptKeyword("ASC");
+        }
+        statement.orderBy.add(new SelectStatement.OrderItem(expression, descending));
+      }
+      while (acceptSymbol(","));
+    }
+    return statement;
+  }
+
+  /**
+   * Table names may be qualified by a schema, like SESSION.t1, the schema is ignored.
+   */
+  private void parseTableRef()
+  {
+    String name = parseIdentifier();
+    while (acceptSymbol(".")) {
+      name = parseIdentifier();
+    }
+    statement.from.add(new SelectStatement.TableRef(name, parseAlias()));
+  }
+
+  private SqlExpression parseExpression()
+  {
+    SqlExpression left = parseAnd();
+    while (acceptKeyword("OR")) {
+      left = new SqlExpression.Or(left, parseAnd());
+    }
+    return left;
+  }
+
+  private SqlExpression parseAnd()
+  {
+    SqlExpression left = parseNot();
+    while (acceptKeyword("AND")) {
+      left = new SqlExpression.And(left, parseNot());
+    }
+    return left;
+  }
+
+  private SqlExpression parseNot()
+  {
+    if (acceptKeyword("NOT")) {
+      return new SqlExpression.Not(parseNot());
+    }
+    return parsePredicate();
+  }
+
+  private SqlExpression parsePredicate()
+  {
+    SqlExpression left = parseAdditive();
+    if (type == TokenType.SYMBOL) {
+      SqlExpression.CompareOp op = null;
+      if (token.equals("=")) {
+        op = SqlExpression.CompareOp.EQ;
+      }
+      else if (token.equals("<>") || token.equals("!=")) {
+        op = SqlExpression.CompareOp.NE;
+      }
+      else if (token.equals("<")) {
+        op = SqlExpression.CompareOp.LT;
+      }
+      else if (token.equals("<=")) {
+        op = SqlExpression.CompareOp.LE;
+      }
+      else if (token.equals(">")) {
+        op = SqlExpression.CompareOp.GT;
+      }
+      else if (token.equals(">=")) {
+        op = SqlExpression.CompareOp.GE;
+      }
+      if (op != null) {
+        next();
+        return new SqlExpression.Comparison(op, left, parseAdditive());
+      }
+      return left;
+    }
+    if (acceptKeyword("IS")) {
+      boolean not = acceptKeyword("NOT");
+      expectKeyword("NULL");
+      SqlExpression isNull = new SqlExpression.IsNull(left);
+      return not ? new SqlExpression.Not(isNull) : isNull;
+    }
+    boolean not = acceptKeyword("NOT");
+    SqlExpression predicate;
+    if (acceptKeyword("BETWEEN")) {
+      SqlExpression low = parseAdditive();
+      expectKeyword("AND");
+      predicate = new SqlExpression.Between(left, low, parseAdditive());
+    }
+    else if (acceptKeyword("IN")) {
+      List<SqlExpression> operands = new ArrayList<SqlExpression>();
+      operands.add(left);
+      expectSymbol("(");
+      do {
+        operands.add(parseAdditive());
+      }
+      while (acceptSymbol(","));
+      expectSymbol(")");
+      predicate = new SqlExpression.In(operands);
+    }
+    else if (acceptKeyword("LIKE")) {
+      predicate = new SqlExpression.Like(left, parseAdditive());
+    }
+    else if (not) {
+      throw error("expected BETWEEN, IN or LIKE but found " + token);
+    }
+    else {
+      return left;
+    }
+    return not ? new SqlExpression.Not(predicate) : predicate;
+  }
+
+  private SqlExpression parseAdditive()
+  {
+    SqlExpression left = parseMultiplicative();
+    while (true) {
+      if (acceptSymbol("+")) {
+        left = new SqlExpression.Arithmetic(SqlExpression.ArithmeticOp.ADD, left, parseMultiplicative());
+      }
+      else if (acceptSymbol("-")) {
+        left = new SqlExpression.Arithmetic(SqlExpression.ArithmeticOp.SUBTRACT, left, parseMultiplicative());
+      }
+      else if (acceptSymbol("||")) {
+        left = new SqlExpression.Concat(left, parseMultiplicative());
+      }
+      else {
+        return left;
+      }
+    }
+  }
+
+  private SqlExpression parseMultiplicative()
+  {
+    SqlExpression left = parseUnary();
+    while (true) {
+      if (acceptSymbol("*")) {
+        left = new SqlExpression.Arithmetic(SqlExpression.ArithmeticOp.MULTIPLY, left, parseUnary());
+      }
+      else if (acceptSymbol("/")) {
+        left = new SqlExpression.Arithmetic(SqlExpression.ArithmeticOp.DIVIDE, left, parseUnary());
+      }
+      else if (acceptSymbol("%")) {
+        left = new SqlExpression.Arithmetic(SqlExpression.ArithmeticOp.MODULO, left, parseUnary());
+      }
+      else {
+        return left;
+      }
+    }
+  }
+
+  private SqlExpression parseUnary()
+  {
+    if (acceptSymbol("-")) {
+      SqlExpression operand = parseUnary();
+      if (operand instanceof SqlExpression.Literal && ((SqlExpression.Literal) operand).value instanceof Number) {
+        return new SqlExpression.Literal(new SqlExpression.Negate(operand).evaluate(null, null));
+      }
+      return new SqlExpression.Negate(operand);
+    }
+    acceptSymbol("+");
+    return parsePrimary();
+  }
+
+  private SqlExpression parsePrimary()
+  {
+    switch (type) {
+      case STRING: {
+        String value = token;
+        next();
+        return new SqlExpression.Literal(value);
+      }
+      case NUMBER:
+        return new SqlExpression.Literal(parseNumber());
+      case SYMBOL:
+        if (acceptSymbol("?")) {
+          return new SqlExpression.Parameter(statement.parameterCount++);
+        }
+        if (acceptSymbol("(")) {
+          SqlExpression expression = parseExpression();
+          expectSymbol(")");
+          return expression;
+        }
+        throw error("unexpected " + token);
+      default:
+        break;
+    }
+    if (acceptKeyword("NULL")) {
+      return new SqlExpression.Literal(null);
+    }
+    if (acceptKeyword("TRUE")) {
+      return new SqlExpression.Literal(Boolean.TRUE);
+    }
+    if (acceptKeyword("FALSE")) {
+      return new SqlExpression.Literal(Boolean.FALSE);
+    }
+    if (type == TokenType.IDENTIFIER && !isReserved()) {
+      String function = normalize(token);
+      int start = position;
+      next();
+      if (acceptSymbol("(")) {
+        return parseFunction(function);
+      }
+      //not a function, parse again as a column
+      position = start;
+      type = TokenType.IDENTIFIER;
+      token = function;
+    }
+    return parseColumn();
+  }
+
+  private Object parseNumber()
+  {
+    String number = token;
+    next();
+    if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+      long value = Long.parseLong(number);
+      return value == (int) value ? (Object) (int) value : (Object) value;
+    }
+    return Double.valueOf(number);
+  }
+
+  private SqlExpression parseFunction(String function)
+  {
+    for (SqlExpression.AggregateType aggregate : SqlExpression.AggregateType.values()) {
+      if (aggregate.name().equals(function)) {
+        SqlExpression argument = null;
+        if (aggregate != SqlExpression.AggregateType.COUNT || !acceptSymbol("*")) {
+          argument = parseExpression();
+        }
+        expectSymbol(")");
+        return new SqlExpression.Aggregate(aggregate, argument);
+      }
+    }
+    for (SqlExpression.FunctionType scalar : SqlExpression.FunctionType.values()) {
+      if (scalar.name().equals(function)) {
+        SqlExpression argument = parseExpression();
+        expectSymbol(")");
+        return new SqlExpression.Function(scalar, argument);
+      }
+    }
+    throw error("unknown function " + function);
+  }
+
+  /**
+   * A column may be qualified by the table or by the schema and the table, like SESSION.t1.s0.
+   */
+  private SqlExpression parseColumn()
+  {
+    List<String> names = new ArrayList<String>();
+    names.add(parseIdentifier());
+    while (acceptSymbol(".")) {
+      names.add(parseIdentifier());
+    }
+    String table = names.size() > 1 ? names.get(names.size() - 2) : null;
+    return new SqlExpression.Column(table, names.get(names.size() - 1));
+  }
+}
@@ -19,6 +19,7 @@ import com.datatorrent.api.BaseOperator;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.InputOperator;
 import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.lib.util.DoubleBatch;
 
 import java.util.Random;
 import javax.validation.constraints.Min;
@@ -35,6 +36,7 @@ import javax.validation.constraints.Min;
  * <b>Port Interface</b>
  * <b>string_data</b>: Emits String tuples<br>
  * <b>integer_data</b>: Emits Integer tuples<br>
+ * <b>batch_data</b>: Emits a DoubleBatch of the tuplesBlast numbers generated at a time<br>
  * <b>Properties</b>:
  * <b>key</b> is an optional parameter, the generator sends an HashMap if key is specified<br>
  * <b>min_value</b> is the minimum value of the range of numbers. Default is 0<br>
@@ -68,6 +70,10 @@ public class RandomEventGenerator extends BaseOperator implements InputOperator
    * The output port on which randomly generated integers are emitted.
    */
   public final transient DefaultOutputPort<Integer> integer_data = new DefaultOutputPort<Integer>();
+  /**
+   * The output port on which the randomly generated integers are emitted in batches.
+   */
+  public final transient DefaultOutputPort<DoubleBatch> batch_data = new DefaultOutputPort<DoubleBatch>();
   private int maxCountOfWindows = Integer.MAX_VALUE;
   @Min(1)
   private int tuplesBlast = 1000;
@@ -149,9 +155,13 @@ public class RandomEventGenerator extends BaseOperator implements InputOperator
   public void emitTuples()
   {
     int range = max_value - min_value + 1;
+    DoubleBatch batch = batch_data.isConnected() ? new DoubleBatch(tuplesBlast) : null;
     int i = 0;
     while (i < tuplesBlast) {
       int rval = min_value + random.nextInt(range);
+      if (batch != null) {
+        batch.add(rval);
+      }
       if (integer_data.isConnected()) {
         integer_data.emit(rval);
       }
@@ -160,6 +170,9 @@ public class RandomEventGenerator extends BaseOperator implements InputOperator
       }
       i++;
     }
+    if (batch != null) {
+      batch_data.emit(batch);
+    }
 
     if (tuplesBlastIntervalMillis > 0) {
       try {
@@ -17,6 +17,7 @@ package com.datatorrent.lib.util;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -62,14 +63,13 @@ public abstract class AbstractBaseNNonUniqueOperatorMap<K, V> extends AbstractBa
    * Inserts tuples into the queue
    * @param tuple to insert in the queue
    */
-  @SuppressWarnings({ "unchecked", "rawtypes" })
   @Override
   public void processTuple(Map<K, V> tuple)
   {
     for (Map.Entry<K, V> e: tuple.entrySet()) {
-      TopNSort pqueue = kmap.get(e.getKey());
+      TopNHeap<V> pqueue = kmap.get(e.getKey());
       if (pqueue == null) {
-        pqueue = new TopNSort<V>(5, n, isAscending());
+        pqueue = new TopNHeap<V>(n, isAscending(), false);
         kmap.put(cloneKey(e.getKey()), pqueue);
         pqueue.offer(cloneValue(e.getValue()));
       }
@@ -79,20 +79,26 @@ public abstract class AbstractBaseNNonUniqueOperatorMap<K, V> extends AbstractBa
     }
   }
 
-  protected HashMap<K, TopNSort<V>> kmap = new HashMap<K, TopNSort<V>>();
+  protected HashMap<K, TopNHeap<V>> kmap = new HashMap<K, TopNHeap<V>>();
 
   /**
    * Emits the result
-   * Clears the internal data
+   * Clears the internal data, the heaps of the keys of the window are kept for the next window
    */
   @Override
   public void endWindow()
   {
-    for (Map.Entry<K, TopNSort<V>> e: kmap.entrySet()) {
+    for (Iterator<Map.Entry<K, TopNHeap<V>>> iterator = kmap.entrySet().iterator(); iterator.hasNext();) {
+      Map.Entry<K, TopNHeap<V>> e = iterator.next();
+      if (e.getValue().isEmpty()) {
+        // the key was not in this window
+        iterator.remove();
+        continue;
+      }
       HashMap<K, ArrayList<V>> tuple = new HashMap<K, ArrayList<V>>(1);
-      tuple.put(e.getKey(), (ArrayList<V>)e.getValue().getTopN(getN()));
+      tuple.put(e.getKey(), e.getValue().getTopN(getN()));
       emit(tuple);
+      e.getValue().clear();
     }
-    kmap.clear();
   }
 }
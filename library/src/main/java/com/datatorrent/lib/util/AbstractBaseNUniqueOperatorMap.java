@@ -17,6 +17,7 @@ package com.datatorrent.lib.util;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -31,7 +32,7 @@ import java.util.Map;
  */
 public abstract class AbstractBaseNUniqueOperatorMap<K, V> extends AbstractBaseNOperatorMap<K, V>
 {
-  HashMap<K, TopNUniqueSort<V>> kmap = new HashMap<K, TopNUniqueSort<V>>();
+  HashMap<K, TopNHeap<V>> kmap = new HashMap<K, TopNHeap<V>>();
 
   /**
    * Override to decide the direction (ascending vs descending)
@@ -55,9 +56,9 @@ public abstract class AbstractBaseNUniqueOperatorMap<K, V> extends AbstractBaseN
   {
     for (Map.Entry<K, V> e: tuple.entrySet()) {
 
-      TopNUniqueSort<V> pqueue = kmap.get(e.getKey());
+      TopNHeap<V> pqueue = kmap.get(e.getKey());
       if (pqueue == null) {
-        pqueue = new TopNUniqueSort<V>(5, n, isAscending());
+        pqueue = new TopNHeap<V>(n, isAscending(), true);
         kmap.put(cloneKey(e.getKey()), pqueue);
         pqueue.offer(cloneValue(e.getValue()));
       }
@@ -68,17 +69,22 @@ public abstract class AbstractBaseNUniqueOperatorMap<K, V> extends AbstractBaseN
   }
 
   /**
-   * Emits the result
+   * Emits the result, the heaps of the keys of the window are kept for the next window
    */
-  @SuppressWarnings("unchecked")
   @Override
   public void endWindow()
   {
-    for (Map.Entry<K, TopNUniqueSort<V>> e: kmap.entrySet()) {
+    for (Iterator<Map.Entry<K, TopNHeap<V>>> iterator = kmap.entrySet().iterator(); iterator.hasNext();) {
+      Map.Entry<K, TopNHeap<V>> e = iterator.next();
+      if (e.getValue().isEmpty()) {
+        // the key was not in this window
+        iterator.remove();
+        continue;
+      }
       HashMap<K, ArrayList<HashMap<V,Integer>>> tuple = new HashMap<K, ArrayList<HashMap<V,Integer>>>(1);
-      tuple.put(e.getKey(), e.getValue().getTopN(getN()));
+      tuple.put(e.getKey(), e.getValue().getTopNCounts(getN()));
       emit(tuple);
+      e.getValue().clear();
     }
-    kmap.clear();
   }
 }
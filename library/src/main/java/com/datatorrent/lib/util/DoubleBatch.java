@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.util;
+
+import java.util.Arrays;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A batch of doubles sent as a single tuple.&nbsp; The values are kept in a primitive array, so a batch of
+ * thousands of values costs one tuple instead of thousands of boxed numbers.
+ * <p>
+ * Batches are serialized by Kryo as the number of values followed by the values, without the unused capacity.
+ * A batch is not thread safe and should not be changed once it is emitted.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+@DefaultSerializer(DoubleBatch.BatchSerializer.class)
+public class DoubleBatch
+{
+  private double[] values;
+  private int size;
+
+  public DoubleBatch()
+  {
+    this(16);
+  }
+
+  /**
+   * @param capacity initial number of values the batch can hold.
+   */
+  public DoubleBatch(int capacity)
+  {
+    values = new double[capacity];
+  }
+
+  /**
+   * Wraps values, the array is not copied.
+   *
+   * @param values values of the batch.
+   * @param size number of values used from the start of the array.
+   */
+  public DoubleBatch(double[] values, int size)
+  {
+    this.values = values;
+    this.size = size;
+  }
+
+  public void add(double value)
+  {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, Math.max(16, size * 2));
+    }
+    values[size++] = value;
+  }
+
+  public double get(int index)
+  {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + " size " + size);
+    }
+    return values[index];
+  }
+
+  /**
+   * @return the array of the values, only the first size values are used.
+   */
+  public double[] getValues()
+  {
+    return values;
+  }
+
+  public int size()
+  {
+    return size;
+  }
+
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  public double sum()
+  {
+    double sum = 0;
+    for (int i = 0; i < size; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  /**
+   * @return smallest value, NaN if the batch is empty.
+   */
+  public double min()
+  {
+    if (size == 0) {
+      return Double.NaN;
+    }
+    double min = values[0];
+    for (int i = 1; i < size; i++) {
+      if (values[i] < min) {
+        min = values[i];
+      }
+    }
+    return min;
+  }
+
+  /**
+   * @return largest value, NaN if the batch is empty.
+   */
+  public double max()
+  {
+    if (size == 0) {
+      return Double.NaN;
+    }
+    double max = values[0];
+    for (int i = 1; i < size; i++) {
+      if (values[i] > max) {
+        max = values[i];
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Removes the values, keeps the capacity.
+   */
+  public void clear()
+  {
+    size = 0;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "DoubleBatch{size=" + size + ", values=" + Arrays.toString(Arrays.copyOf(values, Math.min(size, 10))) + '}';
+  }
+
+  /**
+   * Writes the values of a batch contiguously.
+   */
+  public static class BatchSerializer extends Serializer<DoubleBatch>
+  {
+    @Override
+    public void write(Kryo kryo, Output output, DoubleBatch batch)
+    {
+      output.writeInt(batch.size, true);
+      for (int i = 0; i < batch.size; i++) {
+        output.writeDouble(batch.values[i]);
+      }
+    }
+
+    @Override
+    public DoubleBatch read(Kryo kryo, Input input, Class<DoubleBatch> type)
+    {
+      int size = input.readInt(true);
+      double[] values = new double[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = input.readDouble();
+      }
+      return new DoubleBatch(values, size);
+    }
+  }
+}
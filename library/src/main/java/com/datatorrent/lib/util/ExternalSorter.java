@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Sorts more items than fit in memory.&nbsp; The sort is stable, items which compare equal keep the order in which
+ * they were added.
+ * <p>
+ * Items are buffered in memory until there are maxInMemory of them, then the buffer is sorted and spilled to a run
+ * file in the spill directory. The sorted items are read by merging the runs with the items left in the buffer.
+ * With a limit only the first limit items of the order are wanted, they are kept in a bounded heap and nothing is
+ * spilled.
+ * </p>
+ * Items are serialized with Kryo, they must be serializable by Kryo. The sorter is not thread safe.
+ *
+ * @param <T> type of the items.
+ * @since 2.0.0
+ */
+public class ExternalSorter<T>
+{
+  private final Comparator<Entry<T>> entryComparator;
+  private final int maxInMemory;
+  private final int limit;
+  private final File spillDirectory;
+  private final String runPrefix;
+  private final Kryo kryo = new Kryo();
+
+  private final ArrayList<Entry<T>> buffer = new ArrayList<Entry<T>>();
+  private final PriorityQueue<Entry<T>> heap;
+  private final List<Run<T>> runs = new ArrayList<Run<T>>();
+  private long sequence;
+
+  /**
+   * @param comparator order of the items.
+   * @param reverse reverses the order, including the order of items which compare equal.
+   * @param maxInMemory maximum number of items buffered in memory before they are spilled.
+   * @param limit number of items wanted from the start of the order, 0 for all.
+   * @param spillDirectory directory of the run files, the temporary directory if null.
+   */
+  public ExternalSorter(@NotNull final Comparator<? super T> comparator, final boolean reverse, int maxInMemory, int limit, File spillDirectory)
+  {
+    this(comparator, reverse, maxInMemory, limit, spillDirectory, DEFAULT_RUN_PREFIX);
+  }
+
+  /**
+   * @param comparator order of the items.
+   * @param reverse reverses the order, including the order of items which compare equal.
+   * @param maxInMemory maximum number of items buffered in memory before they are spilled.
+   * @param limit number of items wanted from the start of the order, 0 for all.
+   * @param spillDirectory directory of the run files, the temporary directory if null.
+   * @param runPrefix prefix of the run file names, at least three characters, see {@link #deleteRuns(File, String)}.
+   */
+  public ExternalSorter(@NotNull final Comparator<? super T> comparator, final boolean reverse, int maxInMemory, int limit, File spillDirectory, @NotNull String runPrefix)
+  {
+    if (maxInMemory < 1) {
+      throw new IllegalArgumentException("maxInMemory must be positive");
+    }
+    if (runPrefix.length() < 3) {
+      throw new IllegalArgumentException("runPrefix must have at least three characters");
+    }
+    this.maxInMemory = maxInMemory;
+    this.limit = limit;
+    this.spillDirectory = spillDirectory;
+    this.runPrefix = runPrefix;
+    entryComparator = new Comparator<Entry<T>>()
+    {
+      @Override
+      public int compare(Entry<T> e1, Entry<T> e2)
+      {
+        int result = comparator.compare(e1.item, e2.item);
+        if (result == 0) {
+          result = e1.sequence < e2.sequence ? -1 : (e1.sequence == e2.sequence ? 0 : 1);
+        }
+        return reverse ? -result : result;
+      }
+    };
+    heap = limit > 0 ? new PriorityQueue<Entry<T>>(limit + 1, Collections.reverseOrder(entryComparator)) : null;
+  }
+
+  private static class Entry<T>
+  {
+    final long sequence;
+    final T item;
+
+    Entry(long sequence, T item)
+    {
+      this.sequence = sequence;
+      this.item = item;
+    }
+  }
+
+  /**
+   * A sorted run spilled to a file.
+   */
+  private static class Run<T>
+  {
+    final File file;
+    final int size;
+    Input input;
+
+    Run(File file, int size)
+    {
+      this.file = file;
+      this.size = size;
+    }
+  }
+
+  public void add(T item)
+  {
+    Entry<T> entry = new Entry<T>(sequence++, item);
+    if (heap != null) {
+      //keep the first limit items, the heap has the last of them on top
+      if (heap.size() < limit) {
+        heap.add(entry);
+      }
+      else if (entryComparator.compare(entry, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(entry);
+      }
+      return;
+    }
+    buffer.add(entry);
+    if (buffer.size() >= maxInMemory) {
+      spill();
+    }
+  }
+
+  /**
+   * @return number of items added since the last clear.
+   */
+  public long size()
+  {
+    return sequence;
+  }
+
+  /**
+   * @return number of runs spilled since the last clear.
+   */
+  public int getSpilledRuns()
+  {
+    return runs.size();
+  }
+
+  private void spill()
+  {
+    Collections.sort(buffer, entryComparator);
+    File file;
+    Output output = null;
+    try {
+      file = File.createTempFile(runPrefix, RUN_SUFFIX, spillDirectory);
+      output = new Output(new BufferedOutputStream(new FileOutputStream(file)));
+      for (Entry<T> entry : buffer) {
+        output.writeLong(entry.sequence, true);
+        kryo.writeClassAndObject(output, entry.item);
+      }
+    }
+    catch (IOException ex) {
+      throw new RuntimeException("could not spill sorted run", ex);
+    }
+    finally {
+      if (output != null) {
+        output.close();
+      }
+    }
+    logger.debug("spilled {} items to {}", buffer.size(), file);
+    runs.add(new Run<T>(file, buffer.size()));
+    buffer.clear();
+  }
+
+  /**
+   * Returns the sorted items. No items should be added while they are read.
+   *
+   * @return iterator over the sorted items.
+   */
+  public Iterator<T> iterator()
+  {
+    if (heap != null) {
+      List<Entry<T>> entries = new ArrayList<Entry<T>>(heap);
+      Collections.sort(entries, entryComparator);
+      return new EntryIterator<T>(entries.iterator());
+    }
+    Collections.sort(buffer, entryComparator);
+    if (runs.isEmpty()) {
+      return new EntryIterator<T>(buffer.iterator());
+    }
+    return new MergeIterator();
+  }
+
+  private static class EntryIterator<T> implements Iterator<T>
+  {
+    private final Iterator<Entry<T>> iterator;
+
+    EntryIterator(Iterator<Entry<T>> iterator)
+    {
+      this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return iterator.hasNext();
+    }
+
+    @Override
+    public T next()
+    {
+      return iterator.next().item;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Merges the runs and the buffer, the buffer is the last run.
+   */
+  private class MergeIterator implements Iterator<T>
+  {
+    private final PriorityQueue<Head> heads = new PriorityQueue<Head>();
+
+    private class Head implements Comparable<Head>
+    {
+      final int run;
+      int remaining;
+      Entry<T> entry;
+
+      Head(int run, int remaining)
+      {
+        this.run = run;
+        this.remaining = remaining;
+      }
+
+      @SuppressWarnings("unchecked")
+      boolean advance()
+      {
+        if (remaining == 0) {
+          return false;
+        }
+        remaining--;
+        if (run == runs.size()) {
+          entry = buffer.get(buffer.size() - remaining - 1);
+        }
+        else {
+          Input input = runs.get(run).input;
+          long sequence = input.readLong(true);
+          entry = new Entry<T>(sequence, (T) kryo.readClassAndObject(input));
+        }
+        return true;
+      }
+
+      @Override
+      public int compareTo(Head head)
+      {
+        return entryComparator.compare(entry, head.entry);
+      }
+    }
+
+    MergeIterator()
+    {
+      for (int i = 0; i <= runs.size(); i++) {
+        Head head;
+        if (i < runs.size()) {
+          Run<T> run = runs.get(i);
+          try {
+            run.input = new Input(new BufferedInputStream(new FileInputStream(run.file)));
+          }
+          catch (IOException ex) {
+            throw new RuntimeException("could not read sorted run", ex);
+          }
+          head = new Head(i, run.size);
+        }
+        else {
+          head = new Head(i, buffer.size());
+        }
+        if (head.advance()) {
+          heads.add(head);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public T next()
+    {
+      Head head = heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      T item = head.entry.item;
+      if (head.advance()) {
+        heads.add(head);
+      }
+      return item;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Removes all the items and deletes the run files.
+   */
+  public void clear()
+  {
+    for (Run<T> run : runs) {
+      if (run.input != null) {
+        run.input.close();
+      }
+      if (!run.file.delete()) {
+        logger.warn("could not delete {}", run.file);
+      }
+    }
+    runs.clear();
+    buffer.clear();
+    if (heap != null) {
+      heap.clear();
+    }
+    sequence = 0;
+  }
+
+  /**
+   * Deletes the run files left with the given prefix, for example by a sorter of a process which was killed before
+   * it could clear. The run files are not deleted on exit, the prefix should identify the owner of the runs.
+   *
+   * @param spillDirectory directory of the run files, the temporary directory if null.
+   * @param runPrefix prefix of the run file names.
+   * @return number of deleted run files.
+   */
+  public static int deleteRuns(File spillDirectory, @NotNull String runPrefix)
+  {
+    File directory = spillDirectory == null ? new File(System.getProperty("java.io.tmpdir")) : spillDirectory;
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return 0;
+    }
+    int deleted = 0;
+    for (File file : files) {
+      String name = file.getName();
+      if (name.startsWith(runPrefix) && name.endsWith(RUN_SUFFIX) && file.isFile()) {
+        if (file.delete()) {
+          deleted++;
+        }
+        else {
+          logger.warn("could not delete {}", file);
+        }
+      }
+    }
+    if (deleted > 0) {
+      logger.info("deleted {} stale runs {}*{} in {}", deleted, runPrefix, RUN_SUFFIX, directory);
+    }
+    return deleted;
+  }
+
+  private static final String DEFAULT_RUN_PREFIX = "sort";
+  private static final String RUN_SUFFIX = ".run";
+  private static final Logger logger = LoggerFactory.getLogger(ExternalSorter.class);
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.util;
+
+import java.util.Arrays;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A batch of key value pairs with double values sent as a single tuple.&nbsp; The keys and the values are kept
+ * in two columns, the values in a primitive array, so a batch costs one tuple instead of one KeyValPair and one
+ * boxed number per pair.
+ * <p>
+ * Batches are serialized by Kryo as the number of pairs followed by the keys and then by the values.
+ * A batch is not thread safe and should not be changed once it is emitted.
+ * </p>
+ *
+ * @param <K> type of the keys.
+ * @since 2.0.0
+ */
+@DefaultSerializer(KeyValDoubleBatch.BatchSerializer.class)
+public class KeyValDoubleBatch<K>
+{
+  private Object[] keys;
+  private double[] values;
+  private int size;
+
+  public KeyValDoubleBatch()
+  {
+    this(16);
+  }
+
+  /**
+   * @param capacity initial number of pairs the batch can hold.
+   */
+  public KeyValDoubleBatch(int capacity)
+  {
+    keys = new Object[capacity];
+    values = new double[capacity];
+  }
+
+  public void add(K key, double value)
+  {
+    if (size == keys.length) {
+      int capacity = Math.max(16, size * 2);
+      keys = Arrays.copyOf(keys, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+    keys[size] = key;
+    values[size++] = value;
+  }
+
+  @SuppressWarnings("unchecked")
+  public K getKey(int index)
+  {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + " size " + size);
+    }
+    return (K)keys[index];
+  }
+
+  public double getValue(int index)
+  {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + " size " + size);
+    }
+    return values[index];
+  }
+
+  public int size()
+  {
+    return size;
+  }
+
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Removes the pairs, keeps the capacity.
+   */
+  public void clear()
+  {
+    Arrays.fill(keys, 0, size, null);
+    size = 0;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "KeyValDoubleBatch{size=" + size + '}';
+  }
+
+  /**
+   * Writes the keys and then the values of a batch contiguously.
+   */
+  @SuppressWarnings("rawtypes")
+  public static class BatchSerializer extends Serializer<KeyValDoubleBatch>
+  {
+    @Override
+    public void write(Kryo kryo, Output output, KeyValDoubleBatch batch)
+    {
+      output.writeInt(batch.size, true);
+      for (int i = 0; i < batch.size; i++) {
+        kryo.writeClassAndObject(output, batch.keys[i]);
+      }
+      for (int i = 0; i < batch.size; i++) {
+        output.writeDouble(batch.values[i]);
+      }
+    }
+
+    @Override
+    public KeyValDoubleBatch read(Kryo kryo, Input input, Class<KeyValDoubleBatch> type)
+    {
+      int size = input.readInt(true);
+      KeyValDoubleBatch<Object> batch = new KeyValDoubleBatch<Object>(size);
+      for (int i = 0; i < size; i++) {
+        batch.keys[i] = kryo.readClassAndObject(input);
+      }
+      for (int i = 0; i < size; i++) {
+        batch.values[i] = input.readDouble();
+      }
+      batch.size = size;
+      return batch;
+    }
+  }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * Keeps the top N objects in ascending or descending order in a bounded heap.&nbsp;
+ * The heap is an array with the object which would be dropped first at its root, so an object which does not make it
+ * to the top N is rejected after one comparison and one which does replaces the root in O(log N). The arrays are kept
+ * when the heap is cleared, so a heap reused across windows does not allocate.
+ * <p>
+ * A unique heap counts the occurrences of every object in a primitive array instead of keeping it several times, the
+ * position of an object in the heap is found through a small open addressing index, like {@link TopNUniqueSort}
+ * objects which are dropped are not counted any more.
+ * </p>
+ * Heaps of partitions of the objects are merged in O(k log N) for k objects, so unifiers merge the top N of the
+ * partitions without sorting them again. Objects must be Comparable, the heap is not thread safe.
+ *
+ * @param <E> type of the objects.
+ * @since 2.0.0
+ */
+public class TopNHeap<E>
+{
+  private static final int INITIAL_CAPACITY = 8;
+
+  private int bound;
+  private boolean ascending;
+  private boolean unique;
+  /**
+   * Heap of the objects, the root is the object which is dropped first.
+   */
+  private Object[] heap;
+  private int[] counts;
+  private int size;
+  /**
+   * Open addressing index from the objects of a unique heap to their positions plus one, rebuilt after
+   * deserialization since hash codes may change.
+   */
+  private transient int[] index;
+
+  @SuppressWarnings("unused")
+  private TopNHeap()
+  {
+    //for kryo
+  }
+
+  /**
+   * @param bound number of objects kept.
+   * @param ascending true to keep the largest objects, false to keep the smallest ones.
+   * @param unique true to count equal objects once.
+   */
+  public TopNHeap(int bound, boolean ascending, boolean unique)
+  {
+    if (bound < 1) {
+      throw new IllegalArgumentException("bound must be positive");
+    }
+    this.bound = bound;
+    this.ascending = ascending;
+    this.unique = unique;
+    heap = new Object[Math.min(bound, INITIAL_CAPACITY)];
+    if (unique) {
+      counts = new int[heap.length];
+    }
+  }
+
+  public int getBound()
+  {
+    return bound;
+  }
+
+  public boolean isAscending()
+  {
+    return ascending;
+  }
+
+  public boolean isUnique()
+  {
+    return unique;
+  }
+
+  /**
+   * @return number of objects kept.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * @return negative if the first object ranks below the second one, that is would be dropped first.
+   */
+  @SuppressWarnings("unchecked")
+  private int rank(Object o1, Object o2)
+  {
+    int result = ((Comparable<Object>)o1).compareTo(o2);
+    return ascending ? result : -result;
+  }
+
+  public boolean offer(E e)
+  {
+    return offer(e, 1);
+  }
+
+  /**
+   * Adds occurrences of an object.
+   *
+   * @param e object to add.
+   * @param occurrences number of occurrences, only counted by a unique heap.
+   * @return whether the object is kept.
+   */
+  public boolean offer(E e, int occurrences)
+  {
+    if (unique) {
+      if (index == null) {
+        rebuildIndex();
+      }
+      int slot = find(e);
+      if (slot >= 0) {
+        counts[index[slot] - 1] += occurrences;
+        return true;
+      }
+    }
+    if (size < bound) {
+      if (size == heap.length) {
+        grow();
+      }
+      set(size, e, occurrences);
+      if (unique) {
+        index[~find(e)] = size + 1;
+      }
+      siftUp(size++);
+      return true;
+    }
+    // objects which rank like the root are not worth replacing it
+    if (rank(e, heap[0]) <= 0) {
+      return false;
+    }
+    if (unique) {
+      removeFromIndex(0);
+      set(0, e, occurrences);
+      index[~find(e)] = 1;
+    }
+    else {
+      heap[0] = e;
+    }
+    siftDown(0);
+    return true;
+  }
+
+  /**
+   * Adds the objects of another heap, with their occurrences if both heaps are unique.
+   *
+   * @param other heap to merge, it is not changed.
+   */
+  @SuppressWarnings("unchecked")
+  public void merge(TopNHeap<E> other)
+  {
+    for (int i = 0; i < other.size; i++) {
+      offer((E)other.heap[i], other.unique ? other.counts[i] : 1);
+    }
+  }
+
+  /**
+   * Returns the top objects, the heap is not changed.
+   *
+   * @param n number of objects.
+   * @return at most n objects, from the top one.
+   */
+  @SuppressWarnings("unchecked")
+  public ArrayList<E> getTopN(int n)
+  {
+    int[] order = sortedPositions();
+    int count = Math.min(n, size);
+    ArrayList<E> list = new ArrayList<E>(count);
+    for (int i = 0; i < count; i++) {
+      list.add((E)heap[order[i]]);
+    }
+    return list;
+  }
+
+  /**
+   * Returns the top objects of a unique heap with their occurrences, like {@link TopNUniqueSort#getTopN(int)}.
+   *
+   * @param n number of objects.
+   * @return at most n maps of an object to its occurrences, from the top one.
+   */
+  @SuppressWarnings("unchecked")
+  public ArrayList<HashMap<E, Integer>> getTopNCounts(int n)
+  {
+    if (!unique) {
+      throw new UnsupportedOperationException("occurrences are only counted by unique heaps");
+    }
+    int[] order = sortedPositions();
+    int count = Math.min(n, size);
+    ArrayList<HashMap<E, Integer>> list = new ArrayList<HashMap<E, Integer>>(count);
+    for (int i = 0; i < count; i++) {
+      HashMap<E, Integer> entry = new HashMap<E, Integer>(1);
+      entry.put((E)heap[order[i]], counts[order[i]]);
+      list.add(entry);
+    }
+    return list;
+  }
+
+  /**
+   * @return positions of the objects from the top one.
+   */
+  private int[] sortedPositions()
+  {
+    Integer[] positions = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      positions[i] = i;
+    }
+    Arrays.sort(positions, new Comparator<Integer>()
+    {
+      @Override
+      public int compare(Integer p1, Integer p2)
+      {
+        return rank(heap[p2], heap[p1]);
+      }
+    });
+    int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = positions[i];
+    }
+    return order;
+  }
+
+  /**
+   * Removes all the objects, the arrays are kept.
+   */
+  public void clear()
+  {
+    Arrays.fill(heap, 0, size, null);
+    size = 0;
+    if (index != null) {
+      Arrays.fill(index, 0);
+    }
+  }
+
+  private void set(int position, Object e, int occurrences)
+  {
+    heap[position] = e;
+    if (unique) {
+      counts[position] = occurrences;
+    }
+  }
+
+  private void grow()
+  {
+    int capacity = (int)Math.min(bound, heap.length * 2L);
+    heap = Arrays.copyOf(heap, capacity);
+    if (unique) {
+      counts = Arrays.copyOf(counts, capacity);
+      rebuildIndex();
+    }
+  }
+
+  private void siftUp(int position)
+  {
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (rank(heap[parent], heap[position]) <= 0) {
+        break;
+      }
+      swap(parent, position);
+      position = parent;
+    }
+  }
+
+  private void siftDown(int position)
+  {
+    int half = size >>> 1;
+    while (position < half) {
+      int child = 2 * position + 1;
+      if (child + 1 < size && rank(heap[child + 1], heap[child]) < 0) {
+        child++;
+      }
+      if (rank(heap[position], heap[child]) <= 0) {
+        break;
+      }
+      swap(position, child);
+      position = child;
+    }
+  }
+
+  private void swap(int i, int j)
+  {
+    if (unique) {
+      int slotI = slotOf(i);
+      int slotJ = slotOf(j);
+      index[slotI] = j + 1;
+      index[slotJ] = i + 1;
+      int count = counts[i];
+      counts[i] = counts[j];
+      counts[j] = count;
+    }
+    Object e = heap[i];
+    heap[i] = heap[j];
+    heap[j] = e;
+  }
+
+  private static int hash(Object e)
+  {
+    int h = e.hashCode() * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return slot of the object in the index, or the complement of the empty slot where it would be.
+   */
+  private int find(Object e)
+  {
+    int mask = index.length - 1;
+    int slot = hash(e) & mask;
+    while (index[slot] != 0) {
+      if (heap[index[slot] - 1].equals(e)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return ~slot;
+  }
+
+  /**
+   * @return slot of the object at a position of the heap.
+   */
+  private int slotOf(int position)
+  {
+    int mask = index.length - 1;
+    int slot = hash(heap[position]) & mask;
+    while (index[slot] != position + 1) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void removeFromIndex(int position)
+  {
+    int mask = index.length - 1;
+    int hole = slotOf(position);
+    index[hole] = 0;
+    // move back the following entries which cannot be found past the hole any more
+    for (int slot = (hole + 1) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+      int home = hash(heap[index[slot] - 1]) & mask;
+      if (hole <= slot ? (home <= hole || home > slot) : (home <= hole && home > slot)) {
+        index[hole] = index[slot];
+        index[slot] = 0;
+        hole = slot;
+      }
+    }
+  }
+
+  private void rebuildIndex()
+  {
+    int length = Integer.highestOneBit(heap.length * 2 - 1) << 1;
+    index = new int[length];
+    for (int i = 0; i < size; i++) {
+      index[~find(heap[i])] = i + 1;
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "TopNHeap{bound=" + bound + ", top=" + getTopN(size) + '}';
+  }
+}
@@ -31,7 +31,9 @@ import javax.validation.constraints.Min;
  * once all the inserts are done<br>
  *
  * @since 0.3.2
+ * @deprecated Please use {@link TopNHeap} instead, which keeps the top N without re-sorting them and can be reused.
  */
+@Deprecated
 public class TopNSort<E>
 {
   @Min(1)
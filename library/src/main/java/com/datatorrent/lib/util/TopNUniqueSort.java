@@ -30,7 +30,9 @@ import org.apache.commons.lang.mutable.MutableInt;
  * once all the inserts are done<br>
  *
  * @since 0.3.2
+ * @deprecated Please use {@link TopNHeap} instead, which keeps the top N without re-sorting them and can be reused.
  */
+@Deprecated
 public class TopNUniqueSort<E>
 {
   @Min(1)
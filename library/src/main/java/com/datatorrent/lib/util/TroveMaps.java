@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.util;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+import gnu.trove.map.hash.TObjectLongHashMap;
+
+import com.datatorrent.lib.statistics.DimensionsComputation.ExternalizableSerializer;
+
+/**
+ * Open addressing maps from objects to primitive values which can be checkpointed.&nbsp;
+ * The trove maps keep their entries in transient arrays, these subclasses are serialized by Kryo through
+ * their Externalizable implementation.
+ *
+ * @since 2.0.0
+ */
+public class TroveMaps
+{
+  /**
+   * Map from keys to doubles, 0 for missing keys.
+   *
+   * @param <K> type of the keys.
+   */
+  @DefaultSerializer(ExternalizableSerializer.class)
+  public static class ObjectDoubleMap<K> extends TObjectDoubleHashMap<K>
+  {
+  }
+
+  /**
+   * Map from keys to longs, 0 for missing keys.
+   *
+   * @param <K> type of the keys.
+   */
+  @DefaultSerializer(ExternalizableSerializer.class)
+  public static class ObjectLongMap<K> extends TObjectLongHashMap<K>
+  {
+  }
+
+  /**
+   * Map from longs to longs, 0 for missing keys.
+   */
+  @DefaultSerializer(ExternalizableSerializer.class)
+  public static class LongLongMap extends TLongLongHashMap
+  {
+  }
+
+  private TroveMaps()
+  {
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+
+import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.TestUtils;
+
+/**
+ * Functional tests for {@link ExpiringDistinct}.
+ */
+public class ExpiringDistinctTest
+{
+  /**
+   * Key whose hash code does not identify it.
+   */
+  public static class Point
+  {
+    private int x;
+    private int y;
+
+    @SuppressWarnings("unused")
+    private Point()
+    {
+      //for kryo
+    }
+
+    Point(int x, int y)
+    {
+      this.x = x;
+      this.y = y;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      return o instanceof Point && ((Point)o).x == x && ((Point)o).y == y;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return 1;
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testNodeProcessing() throws Exception
+  {
+    ExpiringDistinct<String> oper = new ExpiringDistinct<String>();
+    oper.setSliceWindows(2);
+    oper.setSliceCount(3);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.distinct.setSink(sink);
+
+    oper.beginWindow(0);
+    oper.data.process("a");
+    oper.data.process("b");
+    oper.data.process("a");
+    oper.endWindow();
+    Assert.assertEquals("distinct", Arrays.asList("a", "b"), sink.collectedTuples);
+
+    // duplicates across windows are dropped
+    sink.clear();
+    for (long windowId = 1; windowId < 5; windowId++) {
+      oper.beginWindow(windowId);
+      oper.data.process("a");
+      oper.data.process("c");
+      oper.endWindow();
+    }
+    Assert.assertEquals("distinct", Arrays.asList("c"), sink.collectedTuples);
+    Assert.assertEquals("fingerprints", 3, oper.size());
+
+    // the state survives a checkpoint
+    oper = TestUtils.clone(new Kryo(), oper);
+    oper.distinct.setSink(sink);
+
+    // the slice of windows 0 and 1, where a, b and c were first seen, is reused for windows 6 and 7
+    sink.clear();
+    oper.beginWindow(5);
+    oper.data.process("b");
+    oper.endWindow();
+    Assert.assertTrue("remembered", sink.collectedTuples.isEmpty());
+    oper.beginWindow(6);
+    oper.data.process("b");
+    oper.data.process("a");
+    oper.data.process("c");
+    oper.endWindow();
+    Assert.assertEquals("expired", Arrays.asList("b", "a", "c"), sink.collectedTuples);
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testNumbers()
+  {
+    ExpiringDistinct<Long> oper = new ExpiringDistinct<Long>();
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.distinct.setSink(sink);
+    for (long windowId = 0; windowId < 10; windowId++) {
+      oper.beginWindow(windowId);
+      for (long i = 0; i < 10000; i++) {
+        oper.data.process(windowId * 5000 + i);
+      }
+      oper.endWindow();
+    }
+    // the fingerprints of numbers do not collide
+    Assert.assertEquals("distinct", 55000, sink.collectedTuples.size());
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testObjects()
+  {
+    ExpiringDistinct<Object> oper = new ExpiringDistinct<Object>();
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.distinct.setSink(sink);
+    oper.beginWindow(0);
+    for (int i = 0; i < 100; i++) {
+      oper.data.process(new Point(i, i % 3));
+      oper.data.process(new Point(i, i % 3));
+      oper.data.process(i / 10.0);
+      oper.data.process(i / 10.0);
+    }
+    oper.data.process(-0.0);
+    oper.data.process(true);
+    oper.data.process(true);
+    oper.endWindow();
+    // keys with equal hash codes are told apart by their content
+    Assert.assertEquals("distinct", 202, sink.collectedTuples.size());
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testNull()
+  {
+    ExpiringDistinct<Object> oper = new ExpiringDistinct<Object>();
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.distinct.setSink(sink);
+    oper.beginWindow(0);
+    oper.data.process(null);
+    oper.data.process(0);
+    oper.data.process(false);
+    oper.data.process((char)0);
+    oper.data.process(null);
+    oper.data.process(0L);
+    oper.endWindow();
+    Assert.assertEquals("distinct", Arrays.asList(null, 0, false, (char)0), sink.collectedTuples);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+
+import com.datatorrent.lib.util.TestUtils;
+
+/**
+ * Tests for {@link FingerprintSet}.
+ */
+public class FingerprintSetTest
+{
+  @Test
+  public void testAdd()
+  {
+    Random random = new Random(7);
+    FingerprintSet fingerprints = new FingerprintSet();
+    Set<Long> expected = new HashSet<Long>();
+    for (int i = 0; i < 100000; i++) {
+      // few distinct values in the low bits to exercise the probing
+      long fingerprint = random.nextInt(50000) * 0x10000L;
+      Assert.assertEquals("added " + fingerprint, expected.add(fingerprint), fingerprints.add(fingerprint));
+    }
+    Assert.assertEquals("size", expected.size(), fingerprints.size());
+    for (long fingerprint = 0; fingerprint < 60000; fingerprint++) {
+      Assert.assertEquals("contains " + fingerprint, expected.contains(fingerprint * 0x10000L), fingerprints.contains(fingerprint * 0x10000L));
+    }
+    Assert.assertFalse("contains", fingerprints.contains(1));
+  }
+
+  @Test
+  public void testClear() throws Exception
+  {
+    FingerprintSet fingerprints = new FingerprintSet(1000);
+    Assert.assertTrue("added", fingerprints.add(0));
+    Assert.assertFalse("added", fingerprints.add(0));
+    Assert.assertTrue("added", fingerprints.add(HyperLogLog.hash("a")));
+    Assert.assertEquals("size", 2, fingerprints.size());
+
+    fingerprints = TestUtils.clone(new Kryo(), fingerprints);
+    Assert.assertTrue("contains", fingerprints.contains(0));
+    Assert.assertTrue("contains", fingerprints.contains(HyperLogLog.hash("a")));
+
+    fingerprints.clear();
+    Assert.assertTrue("empty", fingerprints.isEmpty());
+    Assert.assertFalse("contains", fingerprints.contains(0));
+    Assert.assertTrue("added", fingerprints.add(HyperLogLog.hash("a")));
+  }
+}
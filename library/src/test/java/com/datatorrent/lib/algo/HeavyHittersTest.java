@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Operator.Unifier;
+import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Functional tests for {@link HeavyHitters} and {@link SpaceSavingUnifier}
+ */
+public class HeavyHittersTest
+{
+  @Test
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public void testNodeProcessing()
+  {
+    HeavyHitters<String> oper = new HeavyHitters<String>();
+    oper.setCapacity(5);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.summary.setSink(sink);
+    oper.setup(null);
+
+    oper.beginWindow(0);
+    for (int i = 0; i < 10; i++) {
+      oper.data.process("a");
+      oper.data.process(i % 2 == 0 ? "b" : "c");
+      oper.data.process("x" + i);
+    }
+    oper.endWindow();
+
+    Assert.assertEquals("summaries", 1, sink.collectedTuples.size());
+    SpaceSaving<String> summary = (SpaceSaving<String>)sink.collectedTuples.get(0);
+    Assert.assertEquals("total", 30, summary.getTotal());
+    Assert.assertEquals("keys", 5, summary.size());
+    // the error of the counts is at most 30 / 5
+    Assert.assertTrue("count", summary.getCount("a") >= 10 && summary.getCount("a") <= 16);
+    List<KeyValPair<String, Long>> top = summary.getTopCounts(2);
+    Assert.assertEquals("top", 2, top.size());
+    Assert.assertTrue("descending", top.get(0).getValue() >= top.get(1).getValue());
+
+    oper.beginWindow(1);
+    oper.data.process("z");
+    oper.endWindow();
+    summary = (SpaceSaving<String>)sink.collectedTuples.get(1);
+    Assert.assertEquals("next window", 1, summary.getTotal());
+    Assert.assertEquals("next window key", "z", summary.getTop(1).get(0).getKey());
+  }
+
+  @Test
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public void testCumulative()
+  {
+    HeavyHitters<String> oper = new HeavyHitters<String>();
+    oper.setCumulative(true);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.summary.setSink(sink);
+    oper.setup(null);
+
+    oper.beginWindow(0);
+    oper.data.process("a");
+    oper.endWindow();
+    oper.beginWindow(1);
+    oper.data.process("a");
+    oper.data.process("b");
+    oper.endWindow();
+
+    Assert.assertEquals("first window", 1, ((SpaceSaving<String>)sink.collectedTuples.get(0)).getTotal());
+    SpaceSaving<String> summary = (SpaceSaving<String>)sink.collectedTuples.get(1);
+    Assert.assertEquals("total", 3, summary.getTotal());
+    Assert.assertEquals("count", 2, summary.getCount("a"));
+  }
+
+  @Test
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public void testUnifier()
+  {
+    HeavyHitters<String> oper1 = new HeavyHitters<String>();
+    HeavyHitters<String> oper2 = new HeavyHitters<String>();
+    Unifier<SpaceSaving<String>> unifier = oper1.summary.getUnifier();
+    CollectorTestSink sink = new CollectorTestSink();
+    ((SpaceSavingUnifier<String>)unifier).mergedport.setSink(sink);
+    CollectorTestSink partitionSink = new CollectorTestSink();
+    oper1.summary.setSink(partitionSink);
+    oper2.summary.setSink(partitionSink);
+    oper1.setup(null);
+    oper2.setup(null);
+
+    oper1.beginWindow(0);
+    oper2.beginWindow(0);
+    for (int i = 0; i < 5; i++) {
+      oper1.data.process("a");
+      oper2.data.process("a");
+      oper2.data.process("b");
+    }
+    oper1.endWindow();
+    oper2.endWindow();
+
+    unifier.beginWindow(0);
+    for (Object tuple : partitionSink.collectedTuples) {
+      unifier.process((SpaceSaving<String>)tuple);
+    }
+    unifier.endWindow();
+
+    Assert.assertEquals("summaries", 1, sink.collectedTuples.size());
+    SpaceSaving<String> summary = (SpaceSaving<String>)sink.collectedTuples.get(0);
+    Assert.assertEquals("total", 15, summary.getTotal());
+    Assert.assertEquals("a", 10, summary.getCount("a"));
+    Assert.assertEquals("b", 5, summary.getCount("b"));
+    Assert.assertEquals("most frequent", "a", summary.getTop(1).get(0).getKey());
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link HyperLogLog}.
+ */
+public class HyperLogLogTest
+{
+  @Test
+  public void testPrecision()
+  {
+    Assert.assertEquals("1% error", 14, HyperLogLog.getPrecision(0.01));
+    Assert.assertEquals("bounded", HyperLogLog.MAX_PRECISION, HyperLogLog.getPrecision(0.0001));
+    Assert.assertEquals("bounded", HyperLogLog.MIN_PRECISION, HyperLogLog.getPrecision(0.9));
+  }
+
+  @Test
+  public void testSparse()
+  {
+    HyperLogLog hll = new HyperLogLog(14);
+    Assert.assertEquals("empty", 0, hll.cardinality());
+    for (int i = 0; i < 1000; i++) {
+      hll.add("user" + i);
+      hll.add("user" + i);
+    }
+    Assert.assertTrue("sparse", hll.isSparse());
+    Assert.assertEquals("nearly exact", 1000, hll.cardinality(), 2);
+  }
+
+  @Test
+  public void testDense()
+  {
+    for (int n : new int[] {5000, 100000, 1000000}) {
+      HyperLogLog hll = new HyperLogLog(14);
+      for (long i = 0; i < n; i++) {
+        hll.add(i);
+      }
+      Assert.assertFalse("dense", hll.isSparse());
+      // 4 standard errors
+      Assert.assertEquals("cardinality of " + n, n, hll.cardinality(), n * 0.04);
+    }
+  }
+
+  @Test
+  public void testMerge()
+  {
+    HyperLogLog all = new HyperLogLog(12);
+    HyperLogLog sparse = new HyperLogLog(12);
+    HyperLogLog dense = new HyperLogLog(12);
+    for (int i = 0; i < 200; i++) {
+      sparse.add(i);
+      all.add(i);
+    }
+    for (int i = 100; i < 50000; i++) {
+      dense.add(i);
+      all.add(i);
+    }
+    Assert.assertTrue("sparse", sparse.isSparse());
+    HyperLogLog merged = new HyperLogLog(sparse);
+    merged.merge(dense);
+    Assert.assertEquals("union", all.cardinality(), merged.cardinality());
+    Assert.assertEquals("copy unchanged", sparse.cardinality(), new HyperLogLog(sparse).cardinality());
+
+    HyperLogLog sparse2 = new HyperLogLog(12);
+    for (int i = 150; i < 300; i++) {
+      sparse2.add(i);
+    }
+    sparse.merge(sparse2);
+    Assert.assertEquals("sparse union", 300, sparse.cardinality(), 1);
+  }
+
+  @Test
+  public void testMergePrecision()
+  {
+    try {
+      new HyperLogLog(12).merge(new HyperLogLog(13));
+      Assert.fail("different precision");
+    }
+    catch (IllegalArgumentException e) {
+      //expected
+    }
+  }
+}
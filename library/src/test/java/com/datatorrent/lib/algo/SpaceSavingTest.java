@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.algo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Functional tests for {@link SpaceSaving}
+ */
+public class SpaceSavingTest
+{
+  /**
+   * Adds zipf distributed keys to the summaries and counts them exactly.
+   */
+  private static void addKeys(Random random, int tuples, Map<Integer, Long> exact, SpaceSaving<Integer>... summaries)
+  {
+    for (int i = 0; i < tuples; i++) {
+      // about zipf distributed over 100000 keys
+      int key = (int)Math.floor(Math.pow(100000, random.nextDouble()));
+      summaries[i % summaries.length].add(key);
+      Long count = exact.get(key);
+      exact.put(key, count == null ? 1 : count + 1);
+    }
+  }
+
+  private static void assertBounds(SpaceSaving<Integer> summary, Map<Integer, Long> exact)
+  {
+    long bound = summary.getTotal() / summary.getCapacity();
+    for (SpaceSaving.Counter<Integer> counter : summary.getTop(summary.getCapacity())) {
+      long occurrences = exact.containsKey(counter.getKey()) ? exact.get(counter.getKey()) : 0;
+      Assert.assertTrue("overestimated " + counter, counter.getCount() >= occurrences);
+      Assert.assertTrue("error " + counter, counter.getCount() - counter.getError() <= occurrences);
+      Assert.assertTrue("error bound " + counter, counter.getError() <= bound);
+    }
+    for (Map.Entry<Integer, Long> entry : exact.entrySet()) {
+      if (entry.getValue() > bound) {
+        Assert.assertTrue("heavy hitter " + entry, summary.getCount(entry.getKey()) >= entry.getValue());
+      }
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testErrorBound()
+  {
+    SpaceSaving<Integer> summary = new SpaceSaving<Integer>(100);
+    Map<Integer, Long> exact = new HashMap<Integer, Long>();
+    addKeys(new Random(1), 100000, exact, summary);
+
+    Assert.assertEquals("total", 100000, summary.getTotal());
+    Assert.assertEquals("size", 100, summary.size());
+    assertBounds(summary, exact);
+    List<KeyValPair<Integer, Long>> top = summary.getTopCounts(3);
+    Assert.assertEquals("top", 3, top.size());
+    Assert.assertEquals("most frequent", 1, top.get(0).getKey().intValue());
+    Assert.assertTrue("descending", top.get(0).getValue() >= top.get(1).getValue() && top.get(1).getValue() >= top.get(2).getValue());
+  }
+
+  @Test
+  public void testExactBelowCapacity()
+  {
+    SpaceSaving<String> summary = new SpaceSaving<String>(10);
+    summary.add("a");
+    summary.add("b", 3);
+    summary.add("a");
+    summary.add("c");
+
+    List<SpaceSaving.Counter<String>> top = summary.getTop(10);
+    Assert.assertEquals("keys", 3, top.size());
+    Assert.assertEquals("first", "b", top.get(0).getKey());
+    Assert.assertEquals("count", 3, top.get(0).getCount());
+    Assert.assertEquals("second", "a", top.get(1).getKey());
+    Assert.assertEquals("error", 0, top.get(1).getError());
+    Assert.assertEquals("missing key", 0, summary.getCount("d"));
+
+    summary.clear();
+    Assert.assertEquals("cleared", 0, summary.size());
+    Assert.assertEquals("cleared total", 0, summary.getTotal());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testMerge()
+  {
+    SpaceSaving<Integer> summary1 = new SpaceSaving<Integer>(100);
+    SpaceSaving<Integer> summary2 = new SpaceSaving<Integer>(100);
+    SpaceSaving<Integer> summary3 = new SpaceSaving<Integer>(100);
+    Map<Integer, Long> exact = new HashMap<Integer, Long>();
+    addKeys(new Random(2), 150000, exact, summary1, summary2, summary3);
+
+    SpaceSaving<Integer> merged = new SpaceSaving<Integer>(summary1);
+    merged.merge(summary2);
+    merged.merge(summary3);
+    Assert.assertEquals("total", 150000, merged.getTotal());
+    Assert.assertEquals("size", 100, merged.size());
+    assertBounds(merged, exact);
+    Assert.assertEquals("merged summary unchanged", 50000, summary2.getTotal());
+    Assert.assertEquals("most frequent", 1, merged.getTop(1).get(0).getKey().intValue());
+  }
+}
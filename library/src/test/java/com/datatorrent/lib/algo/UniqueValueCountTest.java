@@ -15,6 +15,7 @@
  */
 package com.datatorrent.lib.algo;
 
+import com.datatorrent.api.Operator;
 import com.datatorrent.lib.testbench.CollectorTestSink;
 import com.datatorrent.lib.util.KeyValPair;
 import com.google.common.collect.ImmutableMap;
@@ -72,4 +73,45 @@ public class UniqueValueCountTest {
         LOG.debug("Done unique count testing testing\n") ;
     }
 
+    @Test
+    @SuppressWarnings({"rawtypes","unchecked"})
+    public void approximateCountTest(){
+        UniqueValueCount<String> partition1 = new UniqueValueCount<String>();
+        UniqueValueCount<String> partition2 = new UniqueValueCount<String>();
+        UniqueValueCount.UniqueCountUnifier<String> unifier = (UniqueValueCount.UniqueCountUnifier<String>)(Operator.Unifier)partition1.output.getUnifier();
+        CollectorTestSink outputSink = new CollectorTestSink();
+        unifier.output.setSink(outputSink);
+        CollectorTestSink partialSink = new CollectorTestSink();
+        for (UniqueValueCount<String> partition : new UniqueValueCount[]{partition1, partition2}) {
+            partition.setRelativeError(0.01);
+            partition.setCumulative(true);
+            partition.output.setSink(partialSink);
+            partition.setup(null);
+        }
+
+        for (int window = 0; window < 2; window++) {
+            partition1.beginWindow(window);
+            partition2.beginWindow(window);
+            unifier.beginWindow(window);
+            for (int i = 0; i < 10000; i++) {
+                // the values of the windows and partitions overlap
+                partition1.input.process(new KeyValPair<String, Object>("test1", window * 5000 + i));
+                partition2.input.process(new KeyValPair<String, Object>("test1", window * 5000 + i + 2000));
+            }
+            partition1.endWindow();
+            partition2.endWindow();
+            for (Object partial : partialSink.collectedTuples) {
+                unifier.process((UniqueValueCount.InternalCountOutput<String>)partial);
+            }
+            partialSink.clear();
+            unifier.endWindow();
+        }
+
+        Assert.assertEquals("number emitted tuples", 2, outputSink.collectedTuples.size());
+        KeyValPair<String,Integer> first = (KeyValPair<String,Integer>)outputSink.collectedTuples.get(0);
+        Assert.assertEquals("first window", 12000, first.getValue().intValue(), 12000 * 0.04);
+        KeyValPair<String,Integer> second = (KeyValPair<String,Integer>)outputSink.collectedTuples.get(1);
+        Assert.assertEquals("both windows", 17000, second.getValue().intValue(), 17000 * 0.04);
+    }
+
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.db.cache;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.datatorrent.lib.db.Connectable;
+import com.datatorrent.lib.helper.OperatorContextTestHelper;
+import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Tests for the asynchronous lookups of {@link AbstractDBLookupCacheBackedOperator}
+ */
+public class AsyncLookupCacheBackedOperatorTest
+{
+  private static class DummyStore implements Connectable
+  {
+    @Override
+    public void connect() throws IOException
+    {
+    }
+
+    @Override
+    public void disconnect() throws IOException
+    {
+    }
+
+    @Override
+    public boolean isConnected()
+    {
+      return true;
+    }
+  }
+
+  private static class TestLookupOperator extends AbstractDBLookupCacheBackedOperator<Integer, DummyStore>
+  {
+    final List<List<Object>> batches = Lists.newArrayList();
+
+    TestLookupOperator()
+    {
+      store = new DummyStore();
+    }
+
+    @Override
+    protected Object getKeyFromTuple(Integer tuple)
+    {
+      return tuple;
+    }
+
+    @Override
+    public Map<Object, Object> loadInitialData()
+    {
+      Map<Object, Object> initial = Maps.newHashMap();
+      initial.put(0, "v0");
+      return initial;
+    }
+
+    @Override
+    public Object get(Object key)
+    {
+      throw new UnsupportedOperationException("async lookups should use getAll");
+    }
+
+    @Override
+    public synchronized List<Object> getAll(List<Object> keys)
+    {
+      batches.add(Lists.newArrayList(keys));
+      List<Object> values = Lists.newArrayList();
+      for (Object key : keys) {
+        values.add((Integer)key < 0 ? null : "v" + key);
+      }
+      return values;
+    }
+
+    @Override
+    public void put(Object key, Object value)
+    {
+    }
+
+    @Override
+    public void putAll(Map<Object, Object> m)
+    {
+    }
+
+    @Override
+    public void remove(Object key)
+    {
+    }
+  }
+
+  @Test
+  public void testOrderedAsyncLookup()
+  {
+    TestLookupOperator operator = new TestLookupOperator();
+    operator.setAsyncLookup(true);
+    operator.setPreserveOrder(true);
+    operator.setLookupBatchSize(2);
+    CollectorTestSink<Object> sink = new CollectorTestSink<Object>();
+    operator.output.setSink(sink);
+    operator.setup(new OperatorContextTestHelper.TestIdOperatorContext(1));
+
+    operator.beginWindow(0);
+    int[] input = new int[] {1, 0, 2, 1, -1, 3};
+    for (int tuple : input) {
+      operator.input.process(tuple);
+    }
+    operator.endWindow();
+
+    List<Object> expected = Lists.newArrayList();
+    for (int tuple : input) {
+      if (tuple >= 0) {
+        expected.add(new KeyValPair<Object, Object>(tuple, "v" + tuple));
+      }
+    }
+    Assert.assertEquals("emitted in order", expected, sink.collectedTuples);
+    Assert.assertEquals("batches", 2, operator.batches.size());
+    Assert.assertEquals("first batch", Lists.<Object>newArrayList(1, 2), operator.batches.get(0));
+
+    sink.clear();
+    operator.beginWindow(1);
+    operator.input.process(3);
+    operator.endWindow();
+    Assert.assertEquals("cached value", 1, sink.collectedTuples.size());
+    Assert.assertEquals("no new batch", 2, operator.batches.size());
+    operator.teardown();
+  }
+}
@@ -16,8 +16,11 @@
 package com.datatorrent.lib.db.cache;
 
 import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -27,13 +30,14 @@ import org.junit.Test;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * Tests for {@link CacheManager}
  */
 public class CacheManagerTest
 {
-  private static class DummyBackupStore implements CacheManager.Backup
+  static class DummyBackupStore implements CacheManager.Backup
   {
 
     private static final Map<Object, Object> backupMap = Maps.newHashMap();
@@ -128,4 +132,48 @@ public class CacheManagerTest
     Assert.assertEquals("backup hit", "six", manager.get(6));
     Assert.assertEquals("primary updated- total", 6, manager.primary.getKeys().size());
   }
+
+  @Test
+  public void testRefreshOnCallingThread() throws Exception
+  {
+    final Set<Thread> refreshThreads = Sets.newHashSet();
+    CacheManager manager = new CacheManager();
+    manager.setBackup(new DummyBackupStore()
+    {
+      @Override
+      public List<Object> getAll(List<Object> keys)
+      {
+        synchronized (refreshThreads) {
+          refreshThreads.add(Thread.currentThread());
+        }
+        return super.getAll(keys);
+      }
+
+    });
+    // the daily refresh is due right away
+    manager.setRefreshTime(new SimpleDateFormat("HH:mm:ss").format(Calendar.getInstance().getTime()));
+    manager.setRefreshBatchSize(2);
+    manager.initialize();
+    try {
+      Thread.sleep(200);
+      synchronized (refreshThreads) {
+        Assert.assertTrue("backup not used by the timer", refreshThreads.isEmpty());
+      }
+
+      manager.refreshDueKeys();
+      synchronized (refreshThreads) {
+        Assert.assertEquals("backup used by the calling thread", Sets.newHashSet(Thread.currentThread()), refreshThreads);
+      }
+      // one batch per call
+      Assert.assertEquals("refreshed keys", 2, manager.getCounters().getCounter(CacheManager.CacheCounters.REFRESHED_KEYS).longValue());
+      manager.refreshDueKeys();
+      manager.refreshDueKeys();
+      Assert.assertEquals("refreshed keys", 5, manager.getCounters().getCounter(CacheManager.CacheCounters.REFRESHED_KEYS).longValue());
+      manager.refreshDueKeys();
+      Assert.assertEquals("all keys refreshed", 5, manager.getCounters().getCounter(CacheManager.CacheCounters.REFRESHED_KEYS).longValue());
+    }
+    finally {
+      manager.close();
+    }
+  }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.db.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.datatorrent.lib.util.TestUtils;
+
+/**
+ * Tests for {@link MappedFileCacheStore}
+ */
+public class MappedFileCacheStoreTest
+{
+  @Rule
+  public TestUtils.TestInfo testInfo = new TestUtils.TestInfo();
+
+  private MappedFileCacheStore createStore() throws IOException
+  {
+    MappedFileCacheStore store = new MappedFileCacheStore();
+    store.setDirectory(testInfo.getDir());
+    store.setSegmentSizeInBytes(4096);
+    store.setMaxSizeInBytes(4 * 4096);
+    return store;
+  }
+
+  @Test
+  public void testReuseAfterRestart() throws IOException
+  {
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+    MappedFileCacheStore store = createStore();
+    store.connect();
+    for (int i = 0; i < 100; i++) {
+      store.put(i, "value" + i);
+    }
+    store.put(5, "five");
+    store.remove(6);
+    Assert.assertEquals("updated", "five", store.get(5));
+    Assert.assertNull("removed", store.get(6));
+    Assert.assertEquals("value", "value7", store.get(7));
+    store.disconnect();
+
+    MappedFileCacheStore restarted = createStore();
+    restarted.connect();
+    Assert.assertEquals("entries", 99, restarted.size());
+    Assert.assertEquals("updated", "five", restarted.get(5));
+    Assert.assertNull("removed", restarted.get(6));
+    Assert.assertEquals("value", "value99", restarted.get(99));
+    restarted.put(100, "value100");
+    Assert.assertEquals("appended", "value100", restarted.get(100));
+    restarted.disconnect();
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+  }
+
+  @Test
+  public void testSizeBound() throws IOException
+  {
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+    MappedFileCacheStore store = createStore();
+    store.connect();
+    for (int i = 0; i < 10000; i++) {
+      store.put(i, "value" + i);
+    }
+    Assert.assertNull("evicted", store.get(0));
+    Assert.assertEquals("latest", "value9999", store.get(9999));
+    Assert.assertTrue("bounded", store.size() < 10000);
+    Assert.assertTrue("segments", new File(testInfo.getDir(), store.getStoreName()).list().length <= 4);
+    store.disconnect();
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+  }
+
+  @Test
+  public void testSecondaryInCacheManager() throws IOException
+  {
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+    CacheManager manager = new CacheManager();
+    manager.setSecondary(createStore());
+    manager.setBackup(new CacheManagerTest.DummyBackupStore());
+    manager.initialize();
+
+    Assert.assertEquals("backup hit", "six", manager.get(6));
+    Assert.assertEquals("saved in secondary", "six", manager.getSecondary().get(6));
+
+    manager.getPrimary().remove(6);
+    Assert.assertEquals("secondary hit", "six", manager.getCached(6));
+    Assert.assertEquals("copied to primary", "six", manager.getPrimary().get(6));
+    manager.close();
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+  }
+
+  @Test
+  public void testStoreNames() throws IOException
+  {
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+    MappedFileCacheStore store1 = createStore();
+    store1.setStoreName("store1");
+    store1.connect();
+    MappedFileCacheStore store2 = createStore();
+    store2.setStoreName("store2");
+    store2.connect();
+    store1.put(1, "one");
+    store2.put(1, "uno");
+    store1.disconnect();
+    store2.disconnect();
+
+    store1.connect();
+    Assert.assertEquals("own segments", "one", store1.get(1));
+    store1.disconnect();
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+  }
+
+  @Test
+  public void testTruncatedRecord() throws IOException
+  {
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+    MappedFileCacheStore store = createStore();
+    store.connect();
+    store.put(1, "one");
+    store.put(2, "two");
+    store.put(3, "three");
+    store.disconnect();
+
+    // cut the last record in the middle, as if the container went down while it was written
+    RandomAccessFile segment = new RandomAccessFile(new File(new File(testInfo.getDir(), store.getStoreName()), "segment-0"), "rw");
+    try {
+      long position = 0;
+      for (int i = 0; i < 2; i++) {
+        segment.seek(position);
+        position += 16 + segment.readInt() + segment.readInt();
+      }
+      segment.setLength(position + 20);
+    }
+    finally {
+      segment.close();
+    }
+
+    store.connect();
+    Assert.assertEquals("complete record", "two", store.get(2));
+    Assert.assertNull("truncated record", store.get(3));
+    store.put(4, "four");
+    Assert.assertEquals("appended", "four", store.get(4));
+    store.disconnect();
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+  }
+
+  @Test
+  public void testExpiry() throws Exception
+  {
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+    MappedFileCacheStore store = createStore();
+    store.setEntryExpiryDurationInMillis(100);
+    store.connect();
+    store.put(1, "one");
+    Assert.assertEquals("fresh", "one", store.get(1));
+    store.put(2, "two");
+    Thread.sleep(150);
+    store.put(2, "deux");
+    Assert.assertNull("expired", store.get(1));
+    Assert.assertEquals("rewritten", "deux", store.get(2));
+    store.disconnect();
+
+    // expired entries are not served after a restart either
+    store.connect();
+    Assert.assertEquals("entries", 1, store.size());
+    Assert.assertNull("expired", store.get(1));
+    store.disconnect();
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+  }
+
+  @Test
+  public void testRefreshSecondary() throws IOException
+  {
+    FileUtils.deleteDirectory(new File(testInfo.getDir()));
+    CacheManager manager = new CacheManager();
+    manager.setSecondary(createStore());
+    manager.setBackup(new CacheManagerTest.DummyBackupStore());
+    // the daily refresh is due right away
+    manager.setRefreshTime(new SimpleDateFormat("HH:mm:ss").format(Calendar.getInstance().getTime()));
+    manager.initialize();
+    manager.getSecondary().put(7, "stale");
+    manager.getSecondary().put(42, "removed from the backup");
+    try {
+      long timeout = System.currentTimeMillis() + 5000;
+      while ("stale".equals(manager.getSecondary().get(7)) && System.currentTimeMillis() < timeout) {
+        manager.refreshDueKeys();
+      }
+      Assert.assertEquals("refreshed", "seven", manager.getSecondary().get(7));
+      Assert.assertNull("removed", manager.getSecondary().get(42));
+    }
+    finally {
+      manager.close();
+      FileUtils.deleteDirectory(new File(testInfo.getDir()));
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.db.cache;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link WeightedCacheStore}
+ */
+public class WeightedCacheStoreTest
+{
+  private static class UnitWeigher implements WeightedCacheStore.Weigher
+  {
+    @Override
+    public long weigh(Object key, Object value)
+    {
+      return 1;
+    }
+  }
+
+  private static WeightedCacheStore createStore(long maxWeight) throws IOException
+  {
+    WeightedCacheStore store = new WeightedCacheStore();
+    store.setMaxWeightInBytes(maxWeight);
+    store.setWindowPercentage(10);
+    store.setWeigher(new UnitWeigher());
+    store.setEntryExpiryDurationInMillis(0);
+    store.connect();
+    return store;
+  }
+
+  @Test
+  public void testWeightBound() throws IOException
+  {
+    WeightedCacheStore store = createStore(100);
+    for (int i = 0; i < 1000; i++) {
+      store.put(i, "v" + i);
+    }
+    Assert.assertEquals("weight", 100, store.getWeight());
+    Assert.assertEquals("entries", 100, store.getKeys().size());
+    Assert.assertEquals("evictions", 900, store.getEvictionCount());
+    store.disconnect();
+  }
+
+  @Test
+  public void testFrequentEntriesSurviveScan() throws IOException
+  {
+    WeightedCacheStore store = createStore(100);
+    for (int i = 0; i < 50; i++) {
+      store.put(i, "v" + i);
+    }
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 50; i++) {
+        Assert.assertNotNull("hot entry " + i, store.get(i));
+      }
+    }
+    //a scan of keys which are used only once
+    for (int i = 1000; i < 5000; i++) {
+      store.get(i);
+      store.put(i, "v" + i);
+    }
+    int present = 0;
+    for (int i = 0; i < 50; i++) {
+      if (store.get(i) != null) {
+        present++;
+      }
+    }
+    Assert.assertEquals("hot entries retained", 50, present);
+    Assert.assertTrue("rejections", store.getRejectionCount() > 0);
+    store.disconnect();
+  }
+
+  @Test
+  public void testDefaultWeigher() throws IOException
+  {
+    WeightedCacheStore store = new WeightedCacheStore();
+    store.setMaxWeightInBytes(1000);
+    store.connect();
+    store.put(1, "abc");
+    Assert.assertEquals("weight", new WeightedCacheStore.DefaultWeigher().weigh(1, "abc"), store.getWeight());
+    store.put(2, new byte[2000]);
+    Assert.assertNull("too large entry", store.get(2));
+    store.disconnect();
+  }
+
+  @Test
+  public void testRefreshAhead() throws Exception
+  {
+    WeightedCacheStore store = createStore(100);
+    store.setEntryExpiryDurationInMillis(200);
+    store.setRefreshAheadInMillis(150);
+    store.put(1, "one");
+    store.put(2, "two");
+
+    Assert.assertEquals("fresh entry", "one", store.get(1));
+    Assert.assertTrue("nothing to refresh", store.pollKeysToRefresh(10).isEmpty());
+
+    Thread.sleep(60);
+    Assert.assertEquals("entry close to expiry", "one", store.get(1));
+    List<Object> keys = store.pollKeysToRefresh(10);
+    Assert.assertEquals("keys to refresh", 1, keys.size());
+    Assert.assertEquals("key to refresh", 1, keys.get(0));
+
+    store.put(1, "uno");
+    Thread.sleep(160);
+    Assert.assertEquals("refreshed entry", "uno", store.get(1));
+    Assert.assertNull("expired entry", store.get(2));
+    store.disconnect();
+  }
+}
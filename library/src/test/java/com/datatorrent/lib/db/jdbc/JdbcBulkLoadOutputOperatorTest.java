@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.db.jdbc;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.datatorrent.api.DAG;
+
+import com.datatorrent.lib.helper.OperatorContextTestHelper;
+
+import static com.datatorrent.lib.db.jdbc.JdbcOperatorTest.DB_DRIVER;
+import static com.datatorrent.lib.db.jdbc.JdbcOperatorTest.URL;
+
+/**
+ * Tests for {@link AbstractJdbcBulkLoadOutputOperator}
+ */
+public class JdbcBulkLoadOutputOperatorTest
+{
+  private static final String TABLE_NAME = "test_event_table";
+  private static final String APP_ID = "JdbcBulkLoadOutputOperatorTest";
+  private static final int OPERATOR_ID = 1;
+
+  private static class TestOutputOperator extends AbstractJdbcBulkLoadOutputOperator<Integer>
+  {
+    @Nonnull
+    @Override
+    protected String getTableName()
+    {
+      return TABLE_NAME;
+    }
+
+    @Nonnull
+    @Override
+    protected String[] getColumnNames()
+    {
+      return new String[] {"ID"};
+    }
+
+    @Override
+    protected void getColumnValues(Integer tuple, Object[] values)
+    {
+      values[0] = tuple;
+    }
+  }
+
+  @BeforeClass
+  public static void setup()
+  {
+    JdbcOperatorTest.setup();
+  }
+
+  private static int getNumOfEventsInStore()
+  {
+    try {
+      Connection con = DriverManager.getConnection(URL);
+      Statement stmt = con.createStatement();
+      ResultSet resultSet = stmt.executeQuery("SELECT count(*) from " + TABLE_NAME);
+      resultSet.next();
+      return resultSet.getInt(1);
+    }
+    catch (SQLException e) {
+      throw new RuntimeException("fetching count", e);
+    }
+  }
+
+  @Test
+  public void testGenericLoad()
+  {
+    JdbcOperatorTest.cleanTable();
+    JdbcTransactionalStore store = new JdbcTransactionalStore();
+    store.setDbDriver(DB_DRIVER);
+    store.setDbUrl(URL);
+
+    com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap attributeMap = new com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap();
+    attributeMap.put(DAG.APPLICATION_ID, APP_ID);
+    OperatorContextTestHelper.TestIdOperatorContext context = new OperatorContextTestHelper.TestIdOperatorContext(OPERATOR_ID, attributeMap);
+
+    TestOutputOperator outputOperator = new TestOutputOperator();
+    outputOperator.setMaxBufferedRows(4);
+    outputOperator.setStore(store);
+    outputOperator.setup(context);
+
+    outputOperator.beginWindow(0);
+    for (int i = 0; i < 10; i++) {
+      outputOperator.input.process(i);
+    }
+    outputOperator.endWindow();
+
+    Assert.assertEquals("rows in db", 10, getNumOfEventsInStore());
+    Assert.assertEquals("committed window", 0, store.getCommittedWindowIdHelper(APP_ID, OPERATOR_ID).longValue());
+    outputOperator.teardown();
+  }
+
+  @Test
+  public void testDetectDialect()
+  {
+    Assert.assertEquals(AbstractJdbcBulkLoadOutputOperator.Dialect.MYSQL, AbstractJdbcBulkLoadOutputOperator.detectDialect("jdbc:mysql://localhost/test"));
+    Assert.assertEquals(AbstractJdbcBulkLoadOutputOperator.Dialect.POSTGRESQL, AbstractJdbcBulkLoadOutputOperator.detectDialect("jdbc:postgresql://localhost/test"));
+    Assert.assertEquals(AbstractJdbcBulkLoadOutputOperator.Dialect.GENERIC, AbstractJdbcBulkLoadOutputOperator.detectDialect(URL));
+  }
+
+  /**
+   * Stands for a driver statement with the LOAD DATA LOCAL INFILE stream.
+   */
+  public static class LocalInfileStatement
+  {
+    public void setLocalInfileInputStream(InputStream stream)
+    {
+    }
+  }
+
+  @Test
+  public void testResolveDialect()
+  {
+    // the test class path has neither the mysql nor the postgresql driver
+    Assert.assertEquals(AbstractJdbcBulkLoadOutputOperator.Dialect.GENERIC, AbstractJdbcBulkLoadOutputOperator.resolveDialect(AbstractJdbcBulkLoadOutputOperator.Dialect.AUTO, "jdbc:mysql://localhost/test"));
+    Assert.assertEquals(AbstractJdbcBulkLoadOutputOperator.Dialect.GENERIC, AbstractJdbcBulkLoadOutputOperator.resolveDialect(AbstractJdbcBulkLoadOutputOperator.Dialect.POSTGRESQL, URL));
+    Assert.assertEquals(AbstractJdbcBulkLoadOutputOperator.Dialect.GENERIC, AbstractJdbcBulkLoadOutputOperator.resolveDialect(AbstractJdbcBulkLoadOutputOperator.Dialect.AUTO, URL));
+
+    Method method = AbstractJdbcBulkLoadOutputOperator.findMethod(new String[] {"com.mysql.cj.jdbc.JdbcStatement", LocalInfileStatement.class.getName()}, "setLocalInfileInputStream", InputStream.class);
+    Assert.assertNotNull("method of the first class found", method);
+    Assert.assertEquals(LocalInfileStatement.class, method.getDeclaringClass());
+    Assert.assertNull("no such method", AbstractJdbcBulkLoadOutputOperator.findMethod(new String[] {Object.class.getName()}, "setLocalInfileInputStream", InputStream.class));
+  }
+
+  @Test
+  public void testAppendValue()
+  {
+    StringBuilder buffer = new StringBuilder();
+    AbstractJdbcBulkLoadOutputOperator.appendValue(buffer, null);
+    buffer.append('|');
+    AbstractJdbcBulkLoadOutputOperator.appendValue(buffer, true);
+    buffer.append('|');
+    AbstractJdbcBulkLoadOutputOperator.appendValue(buffer, 12.5);
+    buffer.append('|');
+    AbstractJdbcBulkLoadOutputOperator.appendValue(buffer, "a\tb\nc\\d");
+    Assert.assertEquals("\\N|1|12.5|a\\tb\\nc\\\\d", buffer.toString());
+  }
+}
@@ -196,6 +196,65 @@ public class JdbcNonTransactionalBatchOutputOperatorTest
     outputOperator.teardown();
   }
 
+  @Test
+  public void testAsyncBatch()
+  {
+    JdbcOperatorTest.cleanTable();
+    Random random = new Random();
+    TestOutputOperator outputOperator = new TestOutputOperator();
+    outputOperator.setAsyncBatchExecution(true);
+    outputOperator.setConnectionPoolSize(2);
+    outputOperator.setMaxPendingBatches(2);
+
+    JdbcNonTransactionalStore store = new JdbcNonTransactionalStore();
+    store.setDbDriver(JdbcNonTransactionalOutputOperatorTest.DB_DRIVER);
+    store.setDbUrl(JdbcNonTransactionalOutputOperatorTest.URL);
+    outputOperator.setStore(store);
+    outputOperator.setBatchSize(BATCH_SIZE);
+
+    com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap attributeMap = new com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap();
+    attributeMap.put(OperatorContext.PROCESSING_MODE, ProcessingMode.AT_LEAST_ONCE);
+    attributeMap.put(OperatorContext.ACTIVATION_WINDOW_ID, -1L);
+    attributeMap.put(DAG.APPLICATION_ID, APP_ID);
+    outputOperator.setup(new OperatorContextTestHelper.TestIdOperatorContext(OPERATOR_ID, attributeMap));
+
+    outputOperator.beginWindow(0);
+
+    for(int batchCounter = 0;
+        batchCounter < 4 * BATCH_SIZE + HALF_BATCH_SIZE;
+        batchCounter++) {
+      outputOperator.input.put(new TestEvent(random.nextInt()));
+    }
+
+    outputOperator.endWindow();
+
+    Assert.assertEquals("Commit window id ",
+                        0,
+                        outputOperator.getStore().getCommittedWindowId(APP_ID, OPERATOR_ID));
+    Assert.assertEquals("Full batches should be written",
+                        4 * BATCH_SIZE,
+                        outputOperator.getNumOfEventsInStore(outputOperator.getStore().connection));
+
+    outputOperator.beginWindow(1);
+
+    for(int batchCounter = 0;
+        batchCounter < HALF_BATCH_SIZE;
+        batchCounter++) {
+      outputOperator.input.put(new TestEvent(random.nextInt()));
+    }
+
+    outputOperator.endWindow();
+
+    Assert.assertEquals("Commit window id ",
+                        1,
+                        outputOperator.getStore().getCommittedWindowId(APP_ID, OPERATOR_ID));
+    Assert.assertEquals("Batch should be written",
+                        5 * BATCH_SIZE,
+                        outputOperator.getNumOfEventsInStore(outputOperator.getStore().connection));
+
+    outputOperator.teardown();
+  }
+
   @Test
   public void testAtLeastOnceFullBatch()
   {
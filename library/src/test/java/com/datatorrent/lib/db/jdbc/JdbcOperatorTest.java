@@ -197,6 +197,38 @@ public class JdbcOperatorTest
     Assert.assertEquals("rows in db", 10, outputOperator.getNumOfEventsInStore());
   }
 
+  @Test
+  public void testJdbcOutputOperatorAsyncBatches()
+  {
+    JdbcTransactionalStore transactionalStore = new JdbcTransactionalStore();
+    transactionalStore.setDbDriver(DB_DRIVER);
+    transactionalStore.setDbUrl(URL);
+
+    com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap attributeMap = new com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap();
+    attributeMap.put(DAG.APPLICATION_ID, APP_ID);
+    OperatorContextTestHelper.TestIdOperatorContext context = new OperatorContextTestHelper.TestIdOperatorContext(OPERATOR_ID, attributeMap);
+
+    TestOutputOperator outputOperator = new TestOutputOperator();
+    outputOperator.setBatchSize(3);
+    outputOperator.setAsyncBatchExecution(true);
+    outputOperator.setMaxPendingBatches(2);
+    outputOperator.setStore(transactionalStore);
+
+    outputOperator.setup(context);
+
+    for (int window = 0; window < 2; window++) {
+      outputOperator.beginWindow(window);
+      for (int i = 0; i < 10; i++) {
+        outputOperator.input.process(new TestEvent(i));
+      }
+      outputOperator.endWindow();
+    }
+
+    Assert.assertEquals("rows in db", 20, outputOperator.getNumOfEventsInStore());
+    Assert.assertEquals("committed window", 1, transactionalStore.getCommittedWindowIdHelper(APP_ID, OPERATOR_ID).longValue());
+    outputOperator.teardown();
+  }
+
   @Test
   public void TestJdbcInputOperator()
   {
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.math;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Context.OperatorContext;
+
+import com.datatorrent.lib.helper.OperatorContextTestHelper;
+import com.datatorrent.lib.partitioner.StatelessPartitioner;
+import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.KeyValDoubleBatch;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Functional tests for {@link com.datatorrent.lib.math.AverageKeyValDouble}.
+ */
+public class AverageKeyValDoubleTest
+{
+  /**
+   * Test operator logic emits correct results.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testNodeProcessing()
+  {
+    AverageKeyValDouble<String> oper = new AverageKeyValDouble<String>();
+    CollectorTestSink averageSink = new CollectorTestSink();
+    oper.average.setSink(averageSink);
+
+    oper.beginWindow(0);
+    oper.data.process(new KeyValPair("a", 2));
+    oper.data.process(new KeyValPair("b", 20.0));
+    oper.data.process(new KeyValPair("a", 1.0));
+    oper.data.process(new KeyValPair("a", 6L));
+    oper.data.process(new KeyValPair("c", 1000.0));
+    oper.endWindow();
+
+    Assert.assertEquals("number emitted tuples", 3, averageSink.collectedTuples.size());
+    Map<String, Double> averages = new HashMap<String, Double>();
+    for (Object o : averageSink.collectedTuples) {
+      KeyValPair<String, Double> e = (KeyValPair<String, Double>)o;
+      averages.put(e.getKey(), e.getValue());
+    }
+    Assert.assertEquals("a", 3.0, averages.get("a"), 0);
+    Assert.assertEquals("b", 20.0, averages.get("b"), 0);
+    Assert.assertEquals("c", 1000.0, averages.get("c"), 0);
+
+    averageSink.clear();
+    oper.beginWindow(1);
+    oper.data.process(new KeyValPair("a", 4.0));
+    oper.endWindow();
+    Assert.assertEquals("next window", 4.0, ((KeyValPair<String, Double>)averageSink.collectedTuples.get(0)).getValue(), 0);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testBatch()
+  {
+    AverageKeyValDouble<String> oper = new AverageKeyValDouble<String>();
+    CollectorTestSink averageSink = new CollectorTestSink();
+    oper.average.setSink(averageSink);
+
+    oper.beginWindow(0);
+    KeyValDoubleBatch<String> batch = new KeyValDoubleBatch<String>(2);
+    batch.add("a", 1.0);
+    batch.add("a", 2.0);
+    batch.add("a", 3.0);
+    oper.batch.process(batch);
+    oper.data.process(new KeyValPair("a", 6.0));
+    oper.endWindow();
+
+    Assert.assertEquals("number emitted tuples", 1, averageSink.collectedTuples.size());
+    Assert.assertEquals("a", 3.0, ((KeyValPair<String, Double>)averageSink.collectedTuples.get(0)).getValue(), 0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPartitionedBatch()
+  {
+    AverageKeyValDouble<String> oper = new AverageKeyValDouble<String>();
+    oper.batch.setConnected(true);
+    com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap attributes = new com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap();
+    attributes.put(OperatorContext.PARTITIONER, new StatelessPartitioner<AverageKeyValDouble<String>>(2));
+    oper.setup(new OperatorContextTestHelper.TestIdOperatorContext(0, attributes));
+  }
+}
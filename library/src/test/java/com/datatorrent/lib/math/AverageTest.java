@@ -19,6 +19,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.DoubleBatch;
 
 /**
  *
@@ -99,4 +100,22 @@ public class AverageTest
 					1157 / 12), val);
 		}
 	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testBatch()
+	{
+		Average<Double> oper = new Average<Double>();
+		oper.setType(Double.class);
+		CollectorTestSink averageSink = new CollectorTestSink();
+		oper.average.setSink(averageSink);
+
+		oper.beginWindow(0);
+		oper.batch.process(new DoubleBatch(new double[] {1, 2, 3}, 3));
+		oper.data.process(6.0);
+		oper.endWindow();
+
+		Assert.assertEquals("number emitted tuples", 1, averageSink.collectedTuples.size());
+		Assert.assertEquals("average", 3.0, averageSink.collectedTuples.get(0));
+	}
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.math;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.Operator;
+import com.datatorrent.lib.testbench.CountTestSink;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Benchmark of the keyed aggregation operators, compares {@link SumKeyVal} and {@link AverageKeyVal} with their
+ * primitive variants.
+ */
+public class KeyValAggregationBenchmark
+{
+  private static Logger log = LoggerFactory.getLogger(KeyValAggregationBenchmark.class);
+  private static final int numTuples = 10000000;
+  private static final int numKeys = 10000;
+  private static final int numRuns = 3;
+
+  private final List<KeyValPair<String, Double>> tuples = new ArrayList<KeyValPair<String, Double>>(numKeys * 10);
+
+  public KeyValAggregationBenchmark()
+  {
+    for (int i = 0; i < numKeys * 10; i++) {
+      tuples.add(new KeyValPair<String, Double>("key" + (i % numKeys), (double)i));
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private void benchmark(String name, Operator oper, Operator.InputPort data)
+  {
+    // the first runs warm up the compiler
+    for (int run = 0; run < numRuns; run++) {
+      long startTime = System.nanoTime();
+      for (int window = 0; window < numTuples / tuples.size(); window++) {
+        oper.beginWindow(window);
+        for (KeyValPair<String, Double> tuple : tuples) {
+          data.getSink().put(tuple);
+        }
+        oper.endWindow();
+      }
+      long total = (System.nanoTime() - startTime) / 1000000;
+      log.debug(String.format("%s: benchmarked %d tuples of %d keys in %d ms", name, numTuples, numKeys, total));
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testSum()
+  {
+    SumKeyVal<String, Double> sum = new SumKeyVal<String, Double>();
+    sum.setType(Double.class);
+    sum.sumDouble.setSink(new CountTestSink());
+    benchmark("SumKeyVal", sum, sum.data);
+
+    SumKeyValDouble<String> sumDouble = new SumKeyValDouble<String>();
+    sumDouble.sum.setSink(new CountTestSink());
+    benchmark("SumKeyValDouble", sumDouble, sumDouble.data);
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testAverage()
+  {
+    AverageKeyVal<String> average = new AverageKeyVal<String>();
+    average.doubleAverage.setSink(new CountTestSink());
+    benchmark("AverageKeyVal", average, average.data);
+
+    AverageKeyValDouble<String> averageDouble = new AverageKeyValDouble<String>();
+    averageDouble.average.setSink(new CountTestSink());
+    benchmark("AverageKeyValDouble", averageDouble, averageDouble.data);
+  }
+}
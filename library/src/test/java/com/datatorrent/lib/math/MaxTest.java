@@ -19,6 +19,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.DoubleBatch;
 
 /**
  * Functional tests for {@link com.datatorrent.lib.math.Max}.
@@ -76,4 +77,24 @@ public class MaxTest
       Assert.assertEquals("emitted high value was ", new Double(1000.0), val);
     }
   }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Test
+  public void testBatch()
+  {
+    Max<Integer> oper = new Max<Integer>();
+    oper.setType(Integer.class);
+    CollectorTestSink maxSink = new CollectorTestSink();
+    oper.max.setSink(maxSink);
+
+    oper.beginWindow(0);
+    oper.data.process(20);
+    oper.batch.process(new DoubleBatch(new double[] {3, 42, -7}, 3));
+    oper.batch.process(new DoubleBatch());
+    oper.data.process(5);
+    oper.endWindow();
+
+    Assert.assertEquals("number emitted tuples", 1, maxSink.collectedTuples.size());
+    Assert.assertEquals("max", 42, maxSink.collectedTuples.get(0));
+  }
 }
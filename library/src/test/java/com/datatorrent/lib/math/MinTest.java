@@ -19,6 +19,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.datatorrent.lib.testbench.CountAndLastTupleTestSink;
+import com.datatorrent.lib.util.DoubleBatch;
 
 /**
  *
@@ -73,4 +74,21 @@ public class MinTest
     Assert.assertEquals("number emitted tuples", 1, minSink.count);
     Assert.assertEquals("emitted high value was ", new Double(1.0), minSink.tuple);
   }
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testBatch()
+	{
+		Min<Double> oper = new Min<Double>();
+		CountAndLastTupleTestSink minSink = new CountAndLastTupleTestSink();
+		oper.min.setSink(minSink);
+
+		oper.beginWindow(0);
+		oper.batch.process(new DoubleBatch(new double[] {3, 42, -7, 100}, 3));
+		oper.data.process(1.0);
+		oper.endWindow();
+
+		Assert.assertEquals("number emitted tuples", 1, minSink.count);
+		Assert.assertEquals("min", -7.0, minSink.tuple);
+	}
 }
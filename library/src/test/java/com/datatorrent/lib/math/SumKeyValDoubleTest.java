@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.math;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+
+import com.datatorrent.api.Context.OperatorContext;
+
+import com.datatorrent.lib.helper.OperatorContextTestHelper;
+import com.datatorrent.lib.partitioner.StatelessPartitioner;
+import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.KeyValDoubleBatch;
+import com.datatorrent.lib.util.KeyValPair;
+import com.datatorrent.lib.util.TestUtils;
+
+/**
+ * Functional tests for {@link com.datatorrent.lib.math.SumKeyValDouble}.
+ */
+public class SumKeyValDoubleTest
+{
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Map<String, Double> collect(CollectorTestSink sink)
+  {
+    Map<String, Double> sums = new HashMap<String, Double>();
+    for (Object o : sink.collectedTuples) {
+      KeyValPair<String, Double> e = (KeyValPair<String, Double>)o;
+      sums.put(e.getKey(), e.getValue());
+    }
+    sink.clear();
+    return sums;
+  }
+
+  /**
+   * Test operator logic emits correct results.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testNodeProcessing()
+  {
+    SumKeyValDouble<String> oper = new SumKeyValDouble<String>();
+    CollectorTestSink sumSink = new CollectorTestSink();
+    oper.sum.setSink(sumSink);
+
+    oper.beginWindow(0);
+    oper.data.process(new KeyValPair("a", 2.0));
+    oper.data.process(new KeyValPair("b", 20));
+    oper.data.process(new KeyValPair("c", 1000L));
+    oper.data.process(new KeyValPair("a", 1.0));
+    oper.data.process(new KeyValPair("a", 10.0));
+    oper.data.process(new KeyValPair("b", 5.0));
+    oper.data.process(new KeyValPair("d", 55.0));
+    oper.data.process(new KeyValPair("d", 14.2));
+    oper.endWindow();
+
+    Map<String, Double> sums = collect(sumSink);
+    Assert.assertEquals("number emitted tuples", 4, sums.size());
+    Assert.assertEquals("a", 13.0, sums.get("a"), 0);
+    Assert.assertEquals("b", 25.0, sums.get("b"), 0);
+    Assert.assertEquals("c", 1000.0, sums.get("c"), 0);
+    Assert.assertEquals("d", 69.2, sums.get("d"), 1e-9);
+
+    oper.beginWindow(1);
+    oper.data.process(new KeyValPair("a", 1.0));
+    oper.endWindow();
+    sums = collect(sumSink);
+    Assert.assertEquals("number emitted tuples", 1, sums.size());
+    Assert.assertEquals("a", 1.0, sums.get("a"), 0);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testCumulative() throws Exception
+  {
+    SumKeyValDouble<String> oper = new SumKeyValDouble<String>();
+    oper.setCumulative(true);
+    oper.setFilterBy(new String[] {"c"});
+    oper.setInverse(true);
+    CollectorTestSink sumSink = new CollectorTestSink();
+    oper.sum.setSink(sumSink);
+
+    oper.beginWindow(0);
+    oper.data.process(new KeyValPair("a", 2.0));
+    oper.data.process(new KeyValPair("b", 3.0));
+    oper.data.process(new KeyValPair("c", 4.0));
+    oper.endWindow();
+    Assert.assertEquals("filtered", 2, collect(sumSink).size());
+
+    // the sums survive a checkpoint
+    oper = TestUtils.clone(new Kryo(), oper);
+    oper.sum.setSink(sumSink);
+
+    oper.beginWindow(1);
+    oper.data.process(new KeyValPair("a", 5.0));
+    oper.endWindow();
+    Map<String, Double> sums = collect(sumSink);
+    Assert.assertEquals("only changed keys", 1, sums.size());
+    Assert.assertEquals("a", 7.0, sums.get("a"), 0);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testBatch()
+  {
+    SumKeyValDouble<String> oper = new SumKeyValDouble<String>();
+    CollectorTestSink sumSink = new CollectorTestSink();
+    oper.sum.setSink(sumSink);
+
+    oper.beginWindow(0);
+    KeyValDoubleBatch<String> batch = new KeyValDoubleBatch<String>();
+    batch.add("a", 1.0);
+    batch.add("b", 2.0);
+    batch.add("a", 3.0);
+    oper.batch.process(batch);
+    oper.data.process(new KeyValPair("b", 4.0));
+    oper.endWindow();
+
+    Map<String, Double> sums = collect(sumSink);
+    Assert.assertEquals("number emitted tuples", 2, sums.size());
+    Assert.assertEquals("a", 4.0, sums.get("a"), 0);
+    Assert.assertEquals("b", 6.0, sums.get("b"), 0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPartitionedBatch()
+  {
+    SumKeyValDouble<String> oper = new SumKeyValDouble<String>();
+    oper.batch.setConnected(true);
+    com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap attributes = new com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap();
+    attributes.put(OperatorContext.PARTITIONER, new StatelessPartitioner<SumKeyValDouble<String>>(2));
+    oper.setup(new OperatorContextTestHelper.TestIdOperatorContext(0, attributes));
+  }
+}
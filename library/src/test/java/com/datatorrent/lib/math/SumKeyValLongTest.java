@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.math;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Functional tests for {@link com.datatorrent.lib.math.SumKeyValLong}.
+ */
+public class SumKeyValLongTest
+{
+  /**
+   * Test operator logic emits correct results.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testNodeProcessing()
+  {
+    SumKeyValLong<Integer> oper = new SumKeyValLong<Integer>();
+    oper.setCumulative(true);
+    CollectorTestSink sumSink = new CollectorTestSink();
+    oper.sum.setSink(sumSink);
+
+    oper.beginWindow(0);
+    for (int i = 0; i < 1000; i++) {
+      oper.data.process(new KeyValPair(i % 10, (long)i));
+    }
+    oper.endWindow();
+    oper.beginWindow(1);
+    oper.data.process(new KeyValPair(3, 7));
+    oper.endWindow();
+
+    Assert.assertEquals("number emitted tuples", 11, sumSink.collectedTuples.size());
+    Map<Integer, Long> sums = new HashMap<Integer, Long>();
+    for (int i = 0; i < 10; i++) {
+      KeyValPair<Integer, Long> e = (KeyValPair<Integer, Long>)sumSink.collectedTuples.get(i);
+      sums.put(e.getKey(), e.getValue());
+    }
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("sum of " + i, Long.valueOf(49500 + 100 * i), sums.get(i));
+    }
+    KeyValPair<Integer, Long> last = (KeyValPair<Integer, Long>)sumSink.collectedTuples.get(10);
+    Assert.assertEquals("cumulative key", Integer.valueOf(3), last.getKey());
+    Assert.assertEquals("cumulative sum", Long.valueOf(49807), last.getValue());
+  }
+}
@@ -19,6 +19,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.DoubleBatch;
 
 
 /**
@@ -98,4 +99,33 @@ public class SumTest
 					.assertEquals("emitted sum value was was ", new Double(1157.0), val);
 		}
 	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testBatch()
+	{
+		Sum<Integer> oper = new Sum<Integer>();
+		oper.setType(Integer.class);
+		CollectorTestSink sumSink = new CollectorTestSink();
+		oper.sum.setSink(sumSink);
+
+		oper.beginWindow(0);
+		DoubleBatch batch = new DoubleBatch();
+		for (int i = 1; i <= 100; i++) {
+			batch.add(i);
+		}
+		oper.batch.process(batch);
+		oper.data.process(50);
+		oper.batch.process(new DoubleBatch());
+		oper.endWindow();
+
+		Assert.assertEquals("number emitted tuples", 1, sumSink.collectedTuples.size());
+		Assert.assertEquals("sum", 5100, sumSink.collectedTuples.get(0));
+
+		// an empty batch is no tuple
+		oper.beginWindow(1);
+		oper.batch.process(new DoubleBatch());
+		oper.endWindow();
+		Assert.assertEquals("number emitted tuples", 1, sumSink.collectedTuples.size());
+	}
 }
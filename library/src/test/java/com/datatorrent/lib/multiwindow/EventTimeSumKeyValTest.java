@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+import org.apache.commons.lang.mutable.MutableLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+
+import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.TestUtils;
+
+/**
+ * Functional tests for {@link com.datatorrent.lib.multiwindow.EventTimeSumKeyVal}.
+ */
+public class EventTimeSumKeyValTest
+{
+  private static void assertSum(Object tuple, String key, double sum, long start, long end, boolean update)
+  {
+    @SuppressWarnings("unchecked")
+    WindowedKeyValPair<String, Double> pair = (WindowedKeyValPair<String, Double>)tuple;
+    Assert.assertEquals("key", key, pair.getKey());
+    Assert.assertEquals("sum of " + key, sum, pair.getValue(), 0);
+    Assert.assertEquals("window of " + key, new EventTimeWindow(start, end), pair.getWindow());
+    Assert.assertEquals("update of " + key, update, pair.isUpdate());
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testTumbling()
+  {
+    EventTimeSumKeyVal<String, Integer> oper = new EventTimeSumKeyVal<String, Integer>();
+    oper.setWindowSize(10);
+    oper.setMaxOutOfOrderness(5);
+    CollectorTestSink sumSink = new CollectorTestSink();
+    CollectorTestSink watermarkSink = new CollectorTestSink();
+    CollectorTestSink lateSink = new CollectorTestSink();
+    oper.sum.setSink(sumSink);
+    oper.outputWatermark.setSink(watermarkSink);
+    oper.late.setSink(lateSink);
+    oper.setup(null);
+
+    oper.beginWindow(0);
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 1, 1));
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 2, 8));
+    oper.data.process(new TimedKeyValPair<String, Integer>("b", 3, 12));
+    oper.endWindow();
+    Assert.assertEquals("windows are open", 0, sumSink.collectedTuples.size());
+    Assert.assertEquals("watermark", 7L, watermarkSink.collectedTuples.get(0));
+
+    oper.beginWindow(1);
+    // out of order but its window is still open
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 4, 3));
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 5, 16));
+    oper.endWindow();
+    Assert.assertEquals("closed windows", 1, sumSink.collectedTuples.size());
+    assertSum(sumSink.collectedTuples.get(0), "a", 7, 0, 10, false);
+
+    oper.beginWindow(2);
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 6, 2));
+    oper.data.process(new TimedKeyValPair<String, Integer>("b", 1, 30));
+    oper.endWindow();
+    Assert.assertEquals("late tuples", 1, lateSink.collectedTuples.size());
+    Assert.assertEquals("closed windows", 3, sumSink.collectedTuples.size());
+    assertSum(sumSink.collectedTuples.get(1), "a", 5, 10, 20, false);
+    assertSum(sumSink.collectedTuples.get(2), "b", 3, 10, 20, false);
+    Assert.assertEquals("watermarks", 3, watermarkSink.collectedTuples.size());
+    Assert.assertEquals("watermark", 25L, watermarkSink.collectedTuples.get(2));
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testSliding()
+  {
+    EventTimeSumKeyVal<String, Integer> oper = new EventTimeSumKeyVal<String, Integer>();
+    oper.setWindowType(AbstractEventTimeWindowAggregator.WindowType.SLIDING);
+    oper.setWindowSize(10);
+    oper.setSlide(5);
+    CollectorTestSink sumSink = new CollectorTestSink();
+    oper.sum.setSink(sumSink);
+    oper.setup(null);
+
+    oper.beginWindow(0);
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 1, 7));
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 2, 12));
+    oper.endWindow();
+    Assert.assertEquals("closed windows", 1, sumSink.collectedTuples.size());
+    assertSum(sumSink.collectedTuples.get(0), "a", 1, 0, 10, false);
+
+    oper.beginWindow(1);
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 4, 30));
+    oper.endWindow();
+    Assert.assertEquals("closed windows", 3, sumSink.collectedTuples.size());
+    assertSum(sumSink.collectedTuples.get(1), "a", 3, 5, 15, false);
+    assertSum(sumSink.collectedTuples.get(2), "a", 2, 10, 20, false);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testSession()
+  {
+    EventTimeSumKeyVal<String, Integer> oper = new EventTimeSumKeyVal<String, Integer>();
+    oper.setWindowType(AbstractEventTimeWindowAggregator.WindowType.SESSION);
+    oper.setSessionGap(15);
+    oper.setMaxOutOfOrderness(15);
+    CollectorTestSink sumSink = new CollectorTestSink();
+    oper.sum.setSink(sumSink);
+    oper.setup(null);
+
+    oper.beginWindow(0);
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 1, 0));
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 2, 25));
+    oper.data.process(new TimedKeyValPair<String, Integer>("b", 8, 20));
+    oper.endWindow();
+    Assert.assertEquals("sessions are open", 0, sumSink.collectedTuples.size());
+
+    oper.beginWindow(1);
+    // joins both sessions of a
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 4, 12));
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 3, 100));
+    oper.endWindow();
+    Assert.assertEquals("closed sessions", 2, sumSink.collectedTuples.size());
+    assertSum(sumSink.collectedTuples.get(0), "a", 7, 0, 40, false);
+    assertSum(sumSink.collectedTuples.get(1), "b", 8, 20, 35, false);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testAllowedLateness() throws Exception
+  {
+    EventTimeSumKeyVal<String, Integer> oper = new EventTimeSumKeyVal<String, Integer>();
+    oper.setWindowSize(10);
+    oper.setAllowedLateness(10);
+    CollectorTestSink sumSink = new CollectorTestSink();
+    CollectorTestSink lateSink = new CollectorTestSink();
+    oper.sum.setSink(sumSink);
+    oper.late.setSink(lateSink);
+    oper.setup(null);
+
+    oper.beginWindow(0);
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 1, 5));
+    oper.inputWatermark.process(10L);
+    oper.endWindow();
+    Assert.assertEquals("closed windows", 1, sumSink.collectedTuples.size());
+    assertSum(sumSink.collectedTuples.get(0), "a", 1, 0, 10, false);
+
+    // the windows survive a checkpoint
+    oper = TestUtils.clone(new Kryo(), oper);
+    oper.sum.setSink(sumSink);
+    oper.late.setSink(lateSink);
+
+    oper.beginWindow(1);
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 2, 7));
+    oper.endWindow();
+    Assert.assertEquals("updated windows", 2, sumSink.collectedTuples.size());
+    assertSum(sumSink.collectedTuples.get(1), "a", 3, 0, 10, true);
+
+    oper.beginWindow(2);
+    oper.inputWatermark.process(20L);
+    oper.endWindow();
+    Assert.assertEquals("unchanged windows", 2, sumSink.collectedTuples.size());
+
+    oper.beginWindow(3);
+    oper.data.process(new TimedKeyValPair<String, Integer>("a", 5, 9));
+    oper.endWindow();
+    Assert.assertEquals("expired windows", 2, sumSink.collectedTuples.size());
+    Assert.assertEquals("late tuples", 1, lateSink.collectedTuples.size());
+  }
+
+  /**
+   * Counts the tuples of the windows, without merge.
+   */
+  private static class CountOperator extends AbstractEventTimeWindowAggregator<String, TimedKeyValPair<String, Integer>, MutableLong>
+  {
+    @Override
+    protected String getKey(TimedKeyValPair<String, Integer> tuple)
+    {
+      return tuple.getKey();
+    }
+
+    @Override
+    protected long getTime(TimedKeyValPair<String, Integer> tuple)
+    {
+      return tuple.getTime();
+    }
+
+    @Override
+    protected MutableLong createAggregate()
+    {
+      return new MutableLong(0);
+    }
+
+    @Override
+    protected void aggregate(MutableLong aggregate, TimedKeyValPair<String, Integer> tuple)
+    {
+      aggregate.increment();
+    }
+
+    @Override
+    protected void emitAggregate(String key, EventTimeWindow window, MutableLong aggregate, boolean update)
+    {
+    }
+  }
+
+  @Test
+  public void testSessionWithoutMerge()
+  {
+    CountOperator oper = new CountOperator();
+    oper.setup(null);
+    oper.setWindowType(AbstractEventTimeWindowAggregator.WindowType.SESSION);
+    try {
+      oper.setup(null);
+      Assert.fail("session windows without merge");
+    }
+    catch (IllegalArgumentException e) {
+      //expected
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.multiwindow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+
+import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.HighLow;
+import com.datatorrent.lib.util.KeyValPair;
+import com.datatorrent.lib.util.TestUtils;
+
+/**
+ * Functional tests for {@link com.datatorrent.lib.multiwindow.AbstractSlidingWindowAggregator} and its operators,
+ * compared with the values of the sliding window computed again at every window.
+ */
+public class SlidingWindowAggregatorTest
+{
+  private static final int WINDOW_SIZE = 5;
+  private static final String[] KEYS = {"a", "b", "c", "d"};
+
+  /**
+   * Values of every key in every streaming window, keys are missing from some windows.
+   */
+  private static List<Map<String, List<Integer>>> generate(int windows)
+  {
+    Random random = new Random(7);
+    List<Map<String, List<Integer>>> data = new ArrayList<Map<String, List<Integer>>>();
+    for (int i = 0; i < windows; i++) {
+      Map<String, List<Integer>> window = new HashMap<String, List<Integer>>();
+      for (String key : KEYS) {
+        if (random.nextInt(3) == 0) {
+          continue;
+        }
+        List<Integer> values = new ArrayList<Integer>();
+        for (int j = random.nextInt(4) + 1; j > 0; j--) {
+          values.add(random.nextInt(200) - 100);
+        }
+        window.put(key, values);
+      }
+      data.add(window);
+    }
+    return data;
+  }
+
+  /**
+   * @return values of every key over the sliding window ending at the window.
+   */
+  private static Map<String, List<Integer>> slidingValues(List<Map<String, List<Integer>>> data, int window)
+  {
+    Map<String, List<Integer>> values = new HashMap<String, List<Integer>>();
+    for (int i = Math.max(0, window - WINDOW_SIZE + 1); i <= window; i++) {
+      for (Map.Entry<String, List<Integer>> entry : data.get(i).entrySet()) {
+        if (!values.containsKey(entry.getKey())) {
+          values.put(entry.getKey(), new ArrayList<Integer>());
+        }
+        values.get(entry.getKey()).addAll(entry.getValue());
+      }
+    }
+    return values;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> Map<String, V> collect(CollectorTestSink<Object> sink)
+  {
+    Map<String, V> collected = new HashMap<String, V>();
+    for (Object o : sink.collectedTuples) {
+      KeyValPair<String, V> pair = (KeyValPair<String, V>)o;
+      Assert.assertNull("key emitted once", collected.put(pair.getKey(), pair.getValue()));
+    }
+    sink.clear();
+    return collected;
+  }
+
+  private static <A> void process(AbstractSlidingWindowAggregator<String, Integer, A> oper, Map<String, List<Integer>> window, long windowId)
+  {
+    oper.beginWindow(windowId);
+    for (Map.Entry<String, List<Integer>> entry : window.entrySet()) {
+      for (Integer value : entry.getValue()) {
+        oper.data.process(new KeyValPair<String, Integer>(entry.getKey(), value));
+      }
+    }
+    oper.endWindow();
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testSumAndAverage()
+  {
+    SlidingWindowSumKeyVal<String, Integer> sumOper = new SlidingWindowSumKeyVal<String, Integer>();
+    SlidingWindowAverageKeyVal<String, Integer> averageOper = new SlidingWindowAverageKeyVal<String, Integer>();
+    sumOper.setWindowSize(WINDOW_SIZE);
+    averageOper.setWindowSize(WINDOW_SIZE);
+    CollectorTestSink sumSink = new CollectorTestSink();
+    CollectorTestSink averageSink = new CollectorTestSink();
+    sumOper.sum.setSink(sumSink);
+    averageOper.average.setSink(averageSink);
+    sumOper.setup(null);
+    averageOper.setup(null);
+
+    List<Map<String, List<Integer>>> data = generate(100);
+    for (int i = 0; i < data.size(); i++) {
+      process(sumOper, data.get(i), i);
+      process(averageOper, data.get(i), i);
+      Map<String, Double> sums = collect(sumSink);
+      Map<String, Double> averages = collect(averageSink);
+      Map<String, List<Integer>> expected = slidingValues(data, i);
+      Assert.assertEquals("keys of window " + i, expected.keySet(), sums.keySet());
+      Assert.assertEquals("keys of window " + i, expected.keySet(), averages.keySet());
+      for (Map.Entry<String, List<Integer>> entry : expected.entrySet()) {
+        double sum = 0;
+        for (Integer value : entry.getValue()) {
+          sum += value;
+        }
+        Assert.assertEquals("sum of " + entry.getKey() + " in window " + i, sum, sums.get(entry.getKey()), 1e-9);
+        Assert.assertEquals("average of " + entry.getKey() + " in window " + i, sum / entry.getValue().size(), averages.get(entry.getKey()), 1e-9);
+      }
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test
+  public void testRange() throws Exception
+  {
+    SlidingWindowRangeKeyVal<String, Integer> oper = new SlidingWindowRangeKeyVal<String, Integer>();
+    oper.setWindowSize(WINDOW_SIZE);
+    CollectorTestSink rangeSink = new CollectorTestSink();
+    oper.range.setSink(rangeSink);
+    oper.setup(null);
+
+    List<Map<String, List<Integer>>> data = generate(100);
+    for (int i = 0; i < data.size(); i++) {
+      if (i == 50) {
+        // the panes survive a checkpoint
+        oper = TestUtils.clone(new Kryo(), oper);
+        oper.range.setSink(rangeSink);
+        oper.setup(null);
+      }
+      process(oper, data.get(i), i);
+      Map<String, HighLow<Integer>> ranges = collect(rangeSink);
+      Map<String, List<Integer>> expected = slidingValues(data, i);
+      Assert.assertEquals("keys of window " + i, expected.keySet(), ranges.keySet());
+      for (Map.Entry<String, List<Integer>> entry : expected.entrySet()) {
+        int high = Integer.MIN_VALUE;
+        int low = Integer.MAX_VALUE;
+        for (Integer value : entry.getValue()) {
+          high = Math.max(high, value);
+          low = Math.min(low, value);
+        }
+        Assert.assertEquals("high of " + entry.getKey() + " in window " + i, high, ranges.get(entry.getKey()).getHigh().intValue());
+        Assert.assertEquals("low of " + entry.getKey() + " in window " + i, low, ranges.get(entry.getKey()).getLow().intValue());
+      }
+    }
+  }
+}
@@ -19,12 +19,14 @@ package com.datatorrent.lib.multiwindow;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.ObjectUtils.Null;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.datatorrent.api.StreamCodec;
 import com.datatorrent.lib.testbench.CollectorTestSink;
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
@@ -148,6 +150,62 @@ public class SortedMovingWindowTest
   
   
   
+  /**
+   * Test sorting tuples which arrive in reverse order within every streaming window
+   */
+  @Test
+  public void testSortingReversedTuples()
+  {
+    SortedMovingWindow<Integer, Null> smw = new SortedMovingWindow<Integer, Null>();
+    CollectorTestSink<Object> testSink = new CollectorTestSink<Object>();
+    smw.outputPort.setSink(testSink);
+    smw.setup(null);
+
+    Integer[][] windows = new Integer[4][];
+    List<Integer> expected = Lists.newArrayList();
+    for (int i = 0; i < windows.length; i++) {
+      windows[i] = new Integer[20];
+      for (int j = 0; j < 20; j++) {
+        windows[i][j] = i * 20 + 19 - j;
+        expected.add(i * 20 + j);
+      }
+    }
+    emitObjects(smw, windows);
+    smw.beginWindow(4);
+    smw.endWindow();
+    smw.beginWindow(5);
+    smw.endWindow();
+
+    Assert.assertEquals(expected, testSink.collectedTuples);
+  }
+
+  /**
+   * Test the stream codec partitions the tuples by their key
+   */
+  @Test
+  public void testPartitionByKey()
+  {
+    SortedMovingWindow<Map<String, Object>, String> smw = new SortedMovingWindow<Map<String, Object>, String>();
+    smw.setFunction(new Function<Map<String, Object>, String>()
+    {
+      @Override
+      public String apply(Map<String, Object> input)
+      {
+        return (String) input.get("name");
+      }
+    });
+    Assert.assertNull("default codec", smw.getStreamCodec());
+
+    smw.setPartitionByKey(true);
+    StreamCodec<Map<String, Object>> codec = smw.getStreamCodec();
+    Map<String, Object> tuple = new HashMap<String, Object>();
+    tuple.put("name", "bob");
+    tuple.put("number", 1);
+    Assert.assertEquals("partition", "bob".hashCode(), codec.getPartition(tuple));
+    tuple.put("number", 2);
+    Assert.assertEquals("same key same partition", "bob".hashCode(), codec.getPartition(tuple));
+  }
+
   @SuppressWarnings({ "rawtypes", "unchecked" })
   private void emitObjects(SortedMovingWindow win, Object[][] obj){
     for (int i = 0; i < obj.length; i++) {
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.partitioner;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.Operator;
+import com.datatorrent.api.Partitioner;
+import com.datatorrent.api.Partitioner.Partition;
+import com.datatorrent.lib.partitioner.StatelessPartitionerTest.DummyOperator;
+import com.datatorrent.lib.partitioner.StatelessPartitionerTest.PartitioningContextImpl;
+
+public class PartialAggregationPartitionerTest
+{
+  /**
+   * Defines the partitions of an operator the way the engine does when the application is launched.
+   *
+   * @param partitioner partitioner of the operator, usually the operator itself.
+   * @param template operator to partition.
+   * @return partitioned instances.
+   */
+  public static <T extends Operator> List<T> definePartitions(Partitioner<T> partitioner, T template)
+  {
+    Collection<Partition<T>> partitions = Lists.newArrayList();
+    partitions.add(new DefaultPartition<T>(template));
+    List<T> instances = Lists.newArrayList();
+    for (Partition<T> partition : partitioner.definePartitions(partitions, new PartitioningContextImpl(null, 0))) {
+      instances.add(partition.getPartitionedInstance());
+    }
+    return instances;
+  }
+
+  public static class PartialOperator extends DummyOperator
+  {
+    private boolean partialAggregation;
+  }
+
+  private static PartialAggregationPartitioner<PartialOperator> createPartitioner(int partitionCount)
+  {
+    return new PartialAggregationPartitioner<PartialOperator>(partitionCount)
+    {
+      @Override
+      protected void setPartialAggregation(PartialOperator operator, boolean partialAggregation)
+      {
+        operator.partialAggregation = partialAggregation;
+      }
+    };
+  }
+
+  @Test
+  public void testPartialAggregation()
+  {
+    List<PartialOperator> instances = definePartitions(createPartitioner(3), new PartialOperator());
+    Assert.assertEquals("partitions", 3, instances.size());
+    for (PartialOperator instance : instances) {
+      Assert.assertTrue("partial aggregates", instance.partialAggregation);
+    }
+
+    PartialOperator template = new PartialOperator();
+    template.partialAggregation = true;
+    instances = definePartitions(createPartitioner(1), template);
+    Assert.assertEquals("partitions", 1, instances.size());
+    Assert.assertFalse("final aggregates", instances.get(0).partialAggregation);
+  }
+}
@@ -16,10 +16,18 @@
 package com.datatorrent.lib.pigquery;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import com.datatorrent.lib.partitioner.PartialAggregationPartitionerTest;
 import com.datatorrent.lib.pigquery.condition.PigNameGroupCondition;
+import com.datatorrent.lib.pigquery.generate.SumGenerate;
+import com.datatorrent.lib.streamquery.function.CountFunction;
+import com.datatorrent.lib.streamquery.function.FirstLastFunction;
+import com.datatorrent.lib.streamquery.function.SumFunction;
 import com.datatorrent.lib.testbench.CollectorTestSink;
 
 /**
@@ -69,4 +77,174 @@ public class PigGroupOperatorTest1
   	
   	System.out.println(sink.collectedTuples.toString());
   }
+
+  private static PigGroupOperator createAggregateOperator() throws Exception
+  {
+    PigGroupOperator oper = new PigGroupOperator(new PigNameGroupCondition("a"));
+    oper.addGenerate(new SumGenerate("b", "c", "d"));
+    oper.addAggregate(new SumFunction("d", "total"));
+    oper.addAggregate(new CountFunction("b", "count"));
+    return oper;
+  }
+
+  private static void processTuples(PigGroupOperator oper, int from, int to)
+  {
+    for (int i = from; i < to; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("a", i % 3);
+      tuple.put("b", i);
+      tuple.put("c", 1);
+      oper.inport.process(tuple);
+    }
+  }
+
+  private static Map<Object, Map<String, Object>> byGroup(List<Object> tuples)
+  {
+    Map<Object, Map<String, Object>> groups = new HashMap<Object, Map<String, Object>>();
+    for (Object tuple : tuples) {
+      @SuppressWarnings("unchecked")
+      Map<String, Object> row = (Map<String, Object>) tuple;
+      groups.put(row.get(PigGroupOperator.GROUP), row);
+    }
+    return groups;
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testAggregates() throws Exception
+  {
+    PigGroupOperator oper = createAggregateOperator();
+    CollectorTestSink bagSink = new CollectorTestSink();
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.outport.setSink(bagSink);
+    oper.aggregateOutport.setSink(sink);
+
+    oper.setup(null);
+    oper.beginWindow(1);
+    processTuples(oper, 0, 6);
+    oper.endWindow();
+
+    Assert.assertEquals("no bags", 0, bagSink.collectedTuples.size());
+    Map<Object, Map<String, Object>> groups = byGroup(sink.collectedTuples);
+    Assert.assertEquals("groups", 3, groups.size());
+    // group 0 has b = 0 and 3, d = b + c
+    Assert.assertEquals("total", 5.0, ((Number) groups.get(0).get("total")).doubleValue(), 0);
+    Assert.assertEquals("count", 2, ((Number) groups.get(0).get("count")).intValue());
+    Assert.assertEquals("total", 9.0, ((Number) groups.get(2).get("total")).doubleValue(), 0);
+
+    // groups are not carried over to the next window
+    sink.clear();
+    oper.beginWindow(2);
+    processTuples(oper, 0, 1);
+    oper.endWindow();
+    Assert.assertEquals("groups", 1, sink.collectedTuples.size());
+    oper.teardown();
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testPartialAggregation() throws Exception
+  {
+    PigGroupOperator single = createAggregateOperator();
+    CollectorTestSink singleSink = new CollectorTestSink();
+    single.aggregateOutport.setSink(singleSink);
+    single.setup(null);
+    single.beginWindow(1);
+    processTuples(single, 0, 30);
+    single.endWindow();
+
+    PigGroupOperator unifier = (PigGroupOperator) single.aggregateOutport.getUnifier();
+    CollectorTestSink unifierSink = new CollectorTestSink();
+    unifier.aggregateOutport.setSink(unifierSink);
+    unifier.setup(null);
+    unifier.beginWindow(1);
+    PigGroupOperator template = createAggregateOperator();
+    template.setPartitionCount(3);
+    List<PigGroupOperator> partitions = PartialAggregationPartitionerTest.definePartitions(template, template);
+    Assert.assertEquals("partitions", 3, partitions.size());
+
+    int from = 0;
+    for (PigGroupOperator oper : partitions) {
+      CollectorTestSink partialSink = new CollectorTestSink();
+      oper.aggregateOutport.setSink(partialSink);
+      oper.setup(null);
+      oper.beginWindow(1);
+      processTuples(oper, from, from + 10);
+      from += 10;
+      oper.endWindow();
+      for (Object partial : partialSink.collectedTuples) {
+        Assert.assertTrue("partial aggregates", ((Map) partial).containsKey(PigGroupOperator.PARTIAL_AGGREGATES));
+        unifier.process((Map<String, Object>) partial);
+      }
+    }
+    unifier.endWindow();
+
+    Assert.assertEquals("groups", 3, unifierSink.collectedTuples.size());
+    Assert.assertEquals("same result", byGroup(singleSink.collectedTuples), byGroup(unifierSink.collectedTuples));
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testNullValue() throws Exception
+  {
+    PigGroupOperator oper = new PigGroupOperator(new PigNameGroupCondition("a"));
+    oper.addAggregate(new SumFunction("b", "total"));
+    oper.addAggregate(new CountFunction("b", "count"));
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.aggregateOutport.setSink(sink);
+    oper.setup(null);
+    oper.beginWindow(1);
+    processTuples(oper, 0, 6);
+    HashMap<String, Object> tuple = new HashMap<String, Object>();
+    tuple.put("a", 0);
+    tuple.put("b", null);
+    oper.inport.process(tuple);
+    oper.endWindow();
+
+    // the sum of group 0 fails on the null value and is left out, the count skips the null value
+    Map<Object, Map<String, Object>> groups = byGroup(sink.collectedTuples);
+    Assert.assertEquals("groups", 3, groups.size());
+    Assert.assertFalse("total", groups.get(0).containsKey("total"));
+    Assert.assertEquals("count", 2, ((Number) groups.get(0).get("count")).intValue());
+    Assert.assertEquals("total", 7.0, ((Number) groups.get(2).get("total")).doubleValue(), 0);
+
+    // a failed partial aggregate is left out of the merged result
+    oper.setPartitionCount(2);
+    List<PigGroupOperator> partitions = PartialAggregationPartitionerTest.definePartitions(oper, oper);
+    PigGroupOperator unifier = (PigGroupOperator) oper.aggregateOutport.getUnifier();
+    CollectorTestSink unifierSink = new CollectorTestSink();
+    unifier.aggregateOutport.setSink(unifierSink);
+    unifier.setup(null);
+    unifier.beginWindow(2);
+    for (PigGroupOperator partition : partitions) {
+      CollectorTestSink partialSink = new CollectorTestSink();
+      partition.aggregateOutport.setSink(partialSink);
+      partition.beginWindow(2);
+      partition.inport.process(tuple);
+      tuple = new HashMap<String, Object>();
+      tuple.put("a", 0);
+      tuple.put("b", 1);
+      partition.endWindow();
+      for (Object partial : partialSink.collectedTuples) {
+        unifier.process((Map<String, Object>) partial);
+      }
+    }
+    unifier.endWindow();
+    groups = byGroup(unifierSink.collectedTuples);
+    Assert.assertFalse("total", groups.get(0).containsKey("total"));
+    Assert.assertEquals("count", 1, ((Number) groups.get(0).get("count")).intValue());
+  }
+
+  @Test
+  public void testNonIncrementalAggregate() throws Exception
+  {
+    PigGroupOperator oper = new PigGroupOperator(new PigNameGroupCondition("a"));
+    try {
+      oper.addAggregate(new FirstLastFunction("b", null, true));
+      Assert.fail("not incremental");
+    }
+    catch (IllegalArgumentException e) {
+      //expected
+    }
+  }
 }
@@ -24,39 +24,50 @@ import org.slf4j.LoggerFactory;
 import com.datatorrent.lib.testbench.CollectorTestSink;
 
 /**
- * Functional tests for {@link com.datatorrent.lib.script.BashOperator}.
+ * Benchmark of {@link com.datatorrent.lib.script.JavaScriptOperator}, compares invoking a function for every tuple
+ * with invoking it for batches of tuples.
  */
 public class JavaScriptOperatorBenchMark
 {
-	private static Logger log = LoggerFactory.getLogger(JavaScriptOperatorBenchMark.class);
+  private static Logger log = LoggerFactory.getLogger(JavaScriptOperatorBenchMark.class);
+  private static final int numTuples = 1000000;
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private void benchmark(String name, JavaScriptOperator oper)
+  {
+    oper.setup(null);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.result.setSink(sink);
+
+    long startTime = System.nanoTime();
+    oper.beginWindow(0);
+    for (int i = 0; i < numTuples; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("val", i);
+      oper.inBindings.process(tuple);
+    }
+    oper.endWindow();
+    long total = (System.nanoTime() - startTime) / 1000000;
+    log.debug(String.format("%s: benchmarked %d tuples in %d ms", name, numTuples, total));
+  }
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
   @Test
-	public void testJavaOperator()
-	{
-		// Create bash operator instance (calculate suqare).
-		JavaScriptOperator oper = new JavaScriptOperator();
-		StringBuilder builder = new StringBuilder();
-		builder.append("val = val * val;");
-		oper.addSetupScript("function square() { return val*val;}");
-		oper.setup(null);
-		oper.setInvoke("square");
-		oper.setPassThru(true);
-		CollectorTestSink sink = new CollectorTestSink();
-		oper.result.setSink(sink);
-
-	  // generate process tuples
-		long startTime = System.nanoTime();
-		oper.beginWindow(0);
-		int numTuples = 10000000;
-		for (int i = 0; i < numTuples; i++)
-		{
-			HashMap<String, Object> tuple = new HashMap<String, Object>();
-			tuple.put("val", new Integer(i));
-		}
-		oper.endWindow();
-		long endTime = System.nanoTime();
-		long total = (startTime - endTime)/1000;
-		log.debug(String.format("\nBenchmarked %d tuples in %d ms", numTuples, total));
-	};
+  public void testJavaOperator()
+  {
+    JavaScriptOperator oper = new JavaScriptOperator();
+    oper.addSetupScript("function square() { return val*val;}");
+    oper.setInvoke("square");
+    benchmark("bindings", oper);
+
+    oper = new JavaScriptOperator();
+    oper.addSetupScript("function square(val) { return val*val;}");
+    oper.setInvoke("square", "val");
+    benchmark("arguments", oper);
+
+    oper = new JavaScriptOperator();
+    oper.addSetupScript("function square(val, results) { for (var i = 0; i < val.length; i++) { results.add(val[i]*val[i]); } }");
+    oper.setInvoke("square", "val");
+    oper.setBatchSize(1000);
+    benchmark("batch", oper);
+  }
 }
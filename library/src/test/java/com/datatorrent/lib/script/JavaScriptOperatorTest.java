@@ -58,5 +58,104 @@ public class JavaScriptOperatorTest
     }
   }
 
-  ;
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testCompiledEval()
+  {
+    JavaScriptOperator oper = new JavaScriptOperator();
+    oper.setEval("val * 2");
+    oper.setup(null);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.result.setSink(sink);
+
+    oper.beginWindow(0);
+    for (int i = 0; i < 3; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("val", i);
+      oper.inBindings.process(tuple);
+    }
+    oper.endWindow();
+
+    Assert.assertEquals("number emitted tuples", 3, sink.collectedTuples.size());
+    Assert.assertEquals("last", 4.0, ((Number) sink.collectedTuples.get(2)).doubleValue(), 0);
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testInvokeArguments()
+  {
+    JavaScriptOperator oper = new JavaScriptOperator();
+    oper.addSetupScript("function add(a, b) { return a + b; }");
+    oper.setInvoke("add", "a", "b");
+    oper.setup(null);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.result.setSink(sink);
+
+    oper.beginWindow(0);
+    for (int i = 0; i < 3; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("a", i);
+      tuple.put("b", 10);
+      oper.inBindings.process(tuple);
+    }
+    oper.endWindow();
+
+    Assert.assertEquals("number emitted tuples", 3, sink.collectedTuples.size());
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals("sum", 10.0 + i, ((Number) sink.collectedTuples.get(i)).doubleValue(), 0);
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testBatch()
+  {
+    JavaScriptOperator oper = new JavaScriptOperator();
+    oper.addSetupScript("function filter(values, results) { for (var i = 0; i < values.length; i++) { if (values[i] > 10) { results.add(values[i]); } } }");
+    oper.setInvoke("filter", "val");
+    oper.setBatchSize(4);
+    oper.setup(null);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.result.setSink(sink);
+
+    oper.beginWindow(0);
+    for (int i = 0; i < 6; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("val", i * 5);
+      oper.inBindings.process(tuple);
+    }
+    // the first batch of 4 is processed when it is full
+    Assert.assertEquals("number emitted tuples", 1, sink.collectedTuples.size());
+    oper.endWindow();
+
+    // 15, 20 and 25 pass the filter, the last 2 tuples are processed at the end of the window
+    Assert.assertEquals("number emitted tuples", 3, sink.collectedTuples.size());
+    Assert.assertEquals("last", 25.0, ((Number) sink.collectedTuples.get(2)).doubleValue(), 0);
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testBatchTuples()
+  {
+    JavaScriptOperator oper = new JavaScriptOperator();
+    oper.addSetupScript("function sum(tuples, results) { var s = 0; for (var i = 0; i < tuples.length; i++) { s += tuples[i].get('val'); } results.add(s); }");
+    oper.setInvoke("sum");
+    oper.setBatchSize(3);
+    oper.setup(null);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.result.setSink(sink);
+
+    oper.beginWindow(0);
+    for (int i = 1; i <= 5; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("val", i);
+      oper.inBindings.process(tuple);
+    }
+    oper.endWindow();
+
+    // without argument names the function gets the tuple maps
+    Assert.assertEquals("number emitted tuples", 2, sink.collectedTuples.size());
+    Assert.assertEquals("first batch", 6.0, ((Number)sink.collectedTuples.get(0)).doubleValue(), 0);
+    Assert.assertEquals("last batch", 9.0, ((Number)sink.collectedTuples.get(1)).doubleValue(), 0);
+  }
 }
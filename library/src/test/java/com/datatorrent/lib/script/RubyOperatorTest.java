@@ -84,4 +84,60 @@ public class RubyOperatorTest {
     }
   }
 
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Test
+  public void TestRubyOperatorBatch() {
+
+    RubyOperator oper = new RubyOperator();
+    String setupScript = "def square_all(tuples)\n";
+    setupScript += "  tuples.map { |t| t['val'] * t['val'] }\nend\n";
+    oper.addSetupScript(setupScript);
+    oper.setInvoke("square_all");
+    oper.setBatchSize(2);
+    oper.setPassThru(true);
+
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.result.setSink(sink);
+    oper.setup(null);
+    oper.beginWindow(0);
+    for (int i = 1; i <= 3; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("val", new Integer(i));
+      oper.inBindings.process(tuple);
+    }
+    Assert.assertEquals("first batch", 2, sink.collectedTuples.size());
+    oper.endWindow();
+
+    Assert.assertEquals("number emitted tuples", 3, sink.collectedTuples.size());
+    for (int i = 1; i <= 3; i++) {
+      Integer val = Integer.parseInt(sink.collectedTuples.get(i - 1).toString());
+      Assert.assertEquals("emitted should be square", new Integer(i * i), val);
+    }
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Test
+  public void TestRubyOperatorBatchScalar() {
+
+    RubyOperator oper = new RubyOperator();
+    oper.setEval("tuples.map { |t| t['val'] }.inject(:+)");
+    oper.setBatchSize(2);
+    oper.setPassThru(true);
+
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.result.setSink(sink);
+    oper.setup(null);
+    oper.beginWindow(0);
+    for (int i = 1; i <= 3; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("val", new Integer(i));
+      oper.inBindings.process(tuple);
+    }
+    oper.endWindow();
+
+    Assert.assertEquals("one result per batch", 2, sink.collectedTuples.size());
+    Assert.assertEquals("sum of first batch", new Integer(3), Integer.valueOf(sink.collectedTuples.get(0).toString()));
+    Assert.assertEquals("sum of last batch", new Integer(3), Integer.valueOf(sink.collectedTuples.get(1).toString()));
+  }
+
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.lib.partitioner.PartialAggregationPartitionerTest;
+import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Functional tests for {@link VarianceKeyVal}, {@link CovarianceKeyVal} and {@link HistogramKeyVal}.
+ */
+public class KeyValStatisticsTest
+{
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static <S> Map<String, S> byKey(List tuples)
+  {
+    Map<String, S> states = new HashMap<String, S>();
+    for (Object tuple : tuples) {
+      KeyValPair<String, S> kv = (KeyValPair<String, S>)tuple;
+      Assert.assertNull("key emitted once", states.put(kv.getKey(), kv.getValue()));
+    }
+    return states;
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testVariance()
+  {
+    VarianceKeyVal<String> oper = new VarianceKeyVal<String>();
+    oper.setFilterBy(new String[] {"c"});
+    oper.setInverse(true);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.moments.setSink(sink);
+    oper.setup(null);
+
+    oper.beginWindow(0);
+    for (double value : new double[] {1, 7, 3, 9}) {
+      oper.data.process(new KeyValPair<String, Double>("a", value));
+      oper.data.process(new KeyValPair<String, Integer>("b", 2));
+      oper.data.process(new KeyValPair<String, Double>("c", value));
+    }
+    oper.endWindow();
+    Map<String, Moments> moments = byKey(sink.collectedTuples);
+    Assert.assertEquals("keys", 2, moments.size());
+    Assert.assertEquals("variance of a", 10, moments.get("a").getVariance(), 1e-12);
+    Assert.assertEquals("variance of b", 0, moments.get("b").getVariance(), 0);
+
+    // every window starts over
+    sink.clear();
+    oper.beginWindow(1);
+    oper.data.process(new KeyValPair<String, Double>("a", 4.0));
+    oper.endWindow();
+    Assert.assertEquals("count of a", 1, byKey(sink.collectedTuples).size());
+    Assert.assertEquals("mean of a", 4, ((Moments)byKey(sink.collectedTuples).get("a")).getMean(), 0);
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testCovariance()
+  {
+    CovarianceKeyVal<String> oper = new CovarianceKeyVal<String>();
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.comoments.setSink(sink);
+    oper.setup(null);
+
+    oper.beginWindow(0);
+    for (int i = 0; i < 10; i++) {
+      oper.data.process(new KeyValPair<String, Number[]>("a", new Number[] {i, 3 * i + 1}));
+      oper.data.process(new KeyValPair<String, Number[]>("b", new Number[] {i, -i}));
+    }
+    oper.endWindow();
+    Map<String, CoMoments> comoments = byKey(sink.collectedTuples);
+    Assert.assertEquals("covariance of a", 3 * 8.25, comoments.get("a").getCovariance(), 1e-9);
+    Assert.assertEquals("correlation of a", 1, comoments.get("a").getCorrelation(), 1e-12);
+    Assert.assertEquals("correlation of b", -1, comoments.get("b").getCorrelation(), 1e-12);
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testPartitions()
+  {
+    HistogramKeyVal<String> single = new HistogramKeyVal<String>();
+    single.setPrecision(5);
+    CollectorTestSink singleSink = new CollectorTestSink();
+    single.histogram.setSink(singleSink);
+    single.setup(null);
+    single.beginWindow(0);
+
+    HistogramKeyVal<String> template = new HistogramKeyVal<String>();
+    template.setPrecision(5);
+    template.setPartitionCount(3);
+    List<AbstractKeyValStatistics<String, Number, LogHistogram>> partitions = PartialAggregationPartitionerTest.definePartitions(template, template);
+    Assert.assertEquals("partitions", 3, partitions.size());
+
+    HistogramKeyVal<String> unifier = (HistogramKeyVal<String>)template.histogram.getUnifier();
+    CollectorTestSink unifierSink = new CollectorTestSink();
+    unifier.histogram.setSink(unifierSink);
+    unifier.setup(null);
+    unifier.beginWindow(0);
+
+    int i = 0;
+    for (AbstractKeyValStatistics<String, Number, LogHistogram> partition : partitions) {
+      HistogramKeyVal<String> oper = (HistogramKeyVal<String>)partition;
+      Assert.assertEquals("precision", 5, oper.getPrecision());
+      CollectorTestSink partialSink = new CollectorTestSink();
+      oper.histogram.setSink(partialSink);
+      oper.setup(null);
+      oper.beginWindow(0);
+      // every partition sees every key
+      for (int end = i + 1000; i < end; i++) {
+        oper.data.process(new KeyValPair<String, Integer>("a", i));
+        oper.data.process(new KeyValPair<String, Integer>("b", i % 7));
+      }
+      oper.endWindow();
+      for (Object partial : partialSink.collectedTuples) {
+        unifier.process((KeyValPair<String, LogHistogram>)partial);
+      }
+    }
+    unifier.endWindow();
+    for (i = 0; i < 3000; i++) {
+      single.data.process(new KeyValPair<String, Integer>("a", i));
+      single.data.process(new KeyValPair<String, Integer>("b", i % 7));
+    }
+    single.endWindow();
+
+    Map<String, LogHistogram> expected = byKey(singleSink.collectedTuples);
+    Map<String, LogHistogram> actual = byKey(unifierSink.collectedTuples);
+    Assert.assertEquals("keys", 2, actual.size());
+    Assert.assertEquals("count", 3000, actual.get("a").getCount());
+    Assert.assertEquals("median", expected.get("a").quantile(0.5), actual.get("a").quantile(0.5), 0);
+    Assert.assertEquals("mode", 0, actual.get("b").getMode(), 0);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+
+import com.datatorrent.lib.util.TestUtils;
+
+/**
+ * Tests for {@link LogHistogram}.
+ */
+public class LogHistogramTest
+{
+  @Test
+  public void testQuantiles()
+  {
+    LogHistogram histogram = new LogHistogram(7);
+    for (int i = 1; i <= 10000; i++) {
+      histogram.add(i);
+    }
+    Assert.assertEquals("count", 10000, histogram.getCount());
+    Assert.assertEquals("min", 1, histogram.getMin(), 0);
+    Assert.assertEquals("max", 10000, histogram.getMax(), 0);
+    double error = 1.0 / (1 << 7);
+    Assert.assertEquals("median", 5000, histogram.quantile(0.5), 5000 * error);
+    Assert.assertEquals("p99", 9900, histogram.quantile(0.99), 9900 * error);
+    Assert.assertEquals("p0", 1, histogram.quantile(0), error);
+    Assert.assertTrue("bounded buckets", histogram.getBuckets().size() < 14 * 128);
+  }
+
+  @Test
+  public void testModeAndBuckets()
+  {
+    LogHistogram histogram = new LogHistogram(4);
+    histogram.add(-3);
+    histogram.add(0);
+    histogram.add(100, 5);
+    histogram.add(101);
+    histogram.add(1000, 2);
+    Assert.assertEquals("mode", 100, histogram.getMode(), 100.0 / 16);
+
+    List<LogHistogram.Bucket> buckets = histogram.getBuckets();
+    Assert.assertEquals("buckets", 4, buckets.size());
+    Assert.assertTrue("negative first", buckets.get(0).getLow() <= -3 && buckets.get(0).getHigh() >= -3);
+    Assert.assertTrue("zero", buckets.get(1).getLow() < 0 && buckets.get(1).getHigh() > 0);
+    Assert.assertEquals("count of 100", 6, buckets.get(2).getCount());
+    for (LogHistogram.Bucket bucket : buckets.subList(2, buckets.size())) {
+      Assert.assertTrue("width", bucket.getHigh() - bucket.getLow() <= Math.max(Math.abs(bucket.getLow()), Math.abs(bucket.getHigh())) / 16);
+    }
+  }
+
+  @Test
+  public void testMerge() throws Exception
+  {
+    LogHistogram all = new LogHistogram();
+    LogHistogram part1 = new LogHistogram();
+    LogHistogram part2 = new LogHistogram();
+    for (int i = 0; i < 1000; i++) {
+      double value = i * 0.37 - 50;
+      all.add(value);
+      (i % 2 == 0 ? part1 : part2).add(value);
+    }
+    // the counts survive serialization
+    part2 = TestUtils.clone(new Kryo(), part2);
+    part1.merge(part2);
+    Assert.assertEquals("count", all.getCount(), part1.getCount());
+    Assert.assertEquals("buckets", all.getBuckets().size(), part1.getBuckets().size());
+    for (double q = 0; q <= 1; q += 0.1) {
+      Assert.assertEquals("quantile " + q, all.quantile(q), part1.quantile(q), 0);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergePrecision()
+  {
+    new LogHistogram(5).merge(new LogHistogram(6));
+  }
+}
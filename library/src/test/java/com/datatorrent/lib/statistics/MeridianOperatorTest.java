@@ -43,4 +43,31 @@ public class MeridianOperatorTest
     Assert.assertEquals("Must be one tuple in sink", sink.collectedTuples.size(), 1);
     Assert.assertEquals("Median value", sink.collectedTuples.get(0), 5.0);
   }
+
+  @Test
+  public void testExactBelowTwiceCompression()
+  {
+    MedianOperator oper = new MedianOperator();
+    CollectorTestSink<Object> sink = new CollectorTestSink<Object>();
+    oper.median.setSink(sink);
+    oper.setup(null);
+    int exactCount = 2 * (int) oper.getCompression() - 1;
+
+    oper.beginWindow(0);
+    for (int i = exactCount - 1; i >= 0; i--) {
+      oper.data.process(i * i);
+    }
+    oper.endWindow();
+    int middle = exactCount / 2;
+    Assert.assertEquals("exact median", (double) middle * middle, sink.collectedTuples.get(0));
+
+    // from 2 * compression values on, the values around the median are merged into centroids
+    oper.beginWindow(1);
+    for (int i = exactCount + 1; i >= 0; i--) {
+      oper.data.process(i * i);
+    }
+    oper.endWindow();
+    double exact = (middle + 1) * (middle + 1);
+    Assert.assertFalse("approximate median", sink.collectedTuples.get(1).equals(exact));
+  }
 }
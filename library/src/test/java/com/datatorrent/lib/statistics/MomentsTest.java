@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Moments} and {@link CoMoments}.
+ */
+public class MomentsTest
+{
+  @Test
+  public void testVariance()
+  {
+    Moments moments = new Moments();
+    Assert.assertTrue("empty", Double.isNaN(moments.getVariance()));
+    for (double value : new double[] {1, 7, 3, 9}) {
+      moments.add(value);
+    }
+    Assert.assertEquals("count", 4, moments.getCount());
+    Assert.assertEquals("mean", 5, moments.getMean(), 1e-12);
+    Assert.assertEquals("variance", 10, moments.getVariance(), 1e-12);
+    Assert.assertEquals("sample variance", 40.0 / 3, moments.getSampleVariance(), 1e-12);
+    Assert.assertEquals("standard deviation", Math.sqrt(10), moments.getStandardDeviation(), 1e-12);
+  }
+
+  @Test
+  public void testLargeMean()
+  {
+    // the sum of squares loses all the digits of the deviations here
+    Moments moments = new Moments();
+    for (int i = 0; i < 1000; i++) {
+      moments.add(1e9 + (i % 2 == 0 ? 1 : -1));
+    }
+    Assert.assertEquals("variance", 1, moments.getVariance(), 1e-6);
+  }
+
+  @Test
+  public void testMerge()
+  {
+    Random random = new Random(1);
+    Moments all = new Moments();
+    Moments[] parts = {new Moments(), new Moments(), new Moments()};
+    CoMoments allPairs = new CoMoments();
+    CoMoments[] pairParts = {new CoMoments(), new CoMoments(), new CoMoments()};
+    for (int i = 0; i < 3000; i++) {
+      double x = random.nextGaussian() * 10 + 50;
+      double y = 2 * x + random.nextGaussian();
+      all.add(x);
+      parts[i % 3 == 0 ? 0 : (i < 1000 ? 1 : 2)].add(x);
+      allPairs.add(x, y);
+      pairParts[i % 3].add(x, y);
+    }
+    Moments merged = new Moments(parts[0]);
+    merged.merge(parts[1]);
+    merged.merge(parts[2]);
+    merged.merge(new Moments());
+    Assert.assertEquals("count", all.getCount(), merged.getCount());
+    Assert.assertEquals("mean", all.getMean(), merged.getMean(), 1e-9);
+    Assert.assertEquals("variance", all.getVariance(), merged.getVariance(), 1e-9);
+
+    CoMoments mergedPairs = new CoMoments();
+    for (CoMoments part : pairParts) {
+      mergedPairs.merge(part);
+    }
+    Assert.assertEquals("count", allPairs.getCount(), mergedPairs.getCount());
+    Assert.assertEquals("covariance", allPairs.getCovariance(), mergedPairs.getCovariance(), 1e-9);
+    Assert.assertEquals("covariance of x", 2 * allPairs.getVarianceX(), allPairs.getCovariance(), 2);
+    Assert.assertEquals("correlation", allPairs.getCorrelation(), mergedPairs.getCorrelation(), 1e-12);
+    Assert.assertTrue("correlation", allPairs.getCorrelation() > 0.99);
+  }
+}
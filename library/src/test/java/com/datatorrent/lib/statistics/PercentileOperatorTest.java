@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.lib.partitioner.PartialAggregationPartitionerTest;
+import com.datatorrent.lib.statistics.PercentileOperator.Percentiles;
+import com.datatorrent.lib.testbench.CollectorTestSink;
+import com.datatorrent.lib.util.KeyValPair;
+
+/**
+ * Functional tests for {@link PercentileOperator}.
+ */
+public class PercentileOperatorTest
+{
+  private static void processValues(PercentileOperator<String> oper, int from, int to)
+  {
+    for (int i = from; i < to; i++) {
+      oper.data.process(new KeyValPair<String, Integer>("a", i));
+      oper.data.process(new KeyValPair<String, Integer>("b", i * 2));
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static Map<String, Percentiles> byKey(List tuples)
+  {
+    Map<String, Percentiles> percentiles = new HashMap<String, Percentiles>();
+    for (Object tuple : tuples) {
+      KeyValPair<String, Percentiles> kv = (KeyValPair<String, Percentiles>)tuple;
+      percentiles.put(kv.getKey(), kv.getValue());
+    }
+    return percentiles;
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testPercentiles()
+  {
+    PercentileOperator<String> oper = new PercentileOperator<String>();
+    oper.setQuantiles(0.5, 0.99);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.percentiles.setSink(sink);
+
+    oper.setup(null);
+    oper.beginWindow(0);
+    processValues(oper, 0, 101);
+    oper.endWindow();
+
+    Map<String, Percentiles> percentiles = byKey(sink.collectedTuples);
+    Assert.assertEquals("keys", 2, percentiles.size());
+    Assert.assertEquals("count", 101, percentiles.get("a").getCount());
+    Assert.assertEquals("median", 50.0, percentiles.get("a").get(0.5), 0);
+    Assert.assertEquals("p99", 198.0, percentiles.get("b").get(0.99), 2.0);
+
+    // every window starts over
+    sink.clear();
+    oper.beginWindow(1);
+    oper.data.process(new KeyValPair<String, Integer>("a", 7));
+    oper.endWindow();
+    Assert.assertEquals("keys", 1, sink.collectedTuples.size());
+    Assert.assertEquals("median", 7.0, byKey(sink.collectedTuples).get("a").get(0.5), 0);
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testPartitions()
+  {
+    PercentileOperator<String> single = new PercentileOperator<String>();
+    CollectorTestSink singleSink = new CollectorTestSink();
+    single.percentiles.setSink(singleSink);
+    single.setup(null);
+    single.beginWindow(0);
+    processValues(single, 0, 3000);
+    single.endWindow();
+
+    PercentileOperator<String> unifier = (PercentileOperator<String>)single.percentiles.getUnifier();
+    CollectorTestSink unifierSink = new CollectorTestSink();
+    unifier.percentiles.setSink(unifierSink);
+    unifier.setup(null);
+    unifier.beginWindow(0);
+
+    PercentileOperator<String> template = new PercentileOperator<String>();
+    template.setPartitionCount(3);
+    List<PercentileOperator<String>> partitions = PartialAggregationPartitionerTest.definePartitions(template, template);
+    Assert.assertEquals("partitions", 3, partitions.size());
+
+    int from = 0;
+    for (PercentileOperator<String> oper : partitions) {
+      CollectorTestSink partialSink = new CollectorTestSink();
+      oper.percentiles.setSink(partialSink);
+      oper.setup(null);
+      oper.beginWindow(0);
+      processValues(oper, from, from + 1000);
+      from += 1000;
+      oper.endWindow();
+      for (Object partial : partialSink.collectedTuples) {
+        unifier.process((KeyValPair<String, Percentiles>)partial);
+      }
+    }
+    unifier.endWindow();
+
+    Map<String, Percentiles> expected = byKey(singleSink.collectedTuples);
+    Map<String, Percentiles> actual = byKey(unifierSink.collectedTuples);
+    Assert.assertEquals("keys", 2, actual.size());
+    for (String key : expected.keySet()) {
+      Assert.assertEquals("count", expected.get(key).getCount(), actual.get(key).getCount());
+      for (double quantile : expected.get(key).getQuantiles()) {
+        Assert.assertEquals(key + " " + quantile, expected.get(key).get(quantile), actual.get(key).get(quantile), 10.0);
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.statistics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link QuantileSketch}.
+ */
+public class QuantileSketchTest
+{
+  @Test
+  public void testExact()
+  {
+    QuantileSketch sketch = new QuantileSketch();
+    Assert.assertTrue("empty", Double.isNaN(sketch.quantile(0.5)));
+    for (double value : new double[] {9, 1, 7, 3}) {
+      sketch.add(value);
+    }
+    Assert.assertEquals("median", 5.0, sketch.quantile(0.5), 0);
+    Assert.assertEquals("min", 1.0, sketch.quantile(0), 0);
+    Assert.assertEquals("max", 9.0, sketch.quantile(1), 0);
+    sketch.add(4);
+    Assert.assertEquals("median", 4.0, sketch.quantile(0.5), 0);
+  }
+
+  @Test
+  public void testAccuracy()
+  {
+    Random random = new Random(7);
+    int n = 1000000;
+    double[] values = new double[n];
+    QuantileSketch sketch = new QuantileSketch();
+    for (int i = 0; i < n; i++) {
+      // exponential distribution, like latencies
+      values[i] = -Math.log(1 - random.nextDouble()) * 100;
+      sketch.add(values[i]);
+    }
+    Arrays.sort(values);
+    Assert.assertEquals("size", n, sketch.size());
+    for (double q : new double[] {0.01, 0.25, 0.5, 0.9, 0.95, 0.99, 0.999}) {
+      // the rank of the estimate is within 0.5% of the quantile, and much closer at the tails
+      double estimate = sketch.quantile(q);
+      int rank = Arrays.binarySearch(values, estimate);
+      rank = rank < 0 ? -rank - 1 : rank;
+      double error = Math.abs((double)rank / n - q);
+      Assert.assertTrue("rank error " + error + " of quantile " + q, error < 0.005 * Math.min(1, 4 * q * (1 - q)) + 0.0005);
+    }
+    Assert.assertEquals("max", values[n - 1], sketch.getMax(), 0);
+  }
+
+  @Test
+  public void testMerge()
+  {
+    Random random = new Random(11);
+    QuantileSketch all = new QuantileSketch();
+    QuantileSketch[] parts = new QuantileSketch[4];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = new QuantileSketch();
+    }
+    for (int i = 0; i < 100000; i++) {
+      double value = random.nextGaussian();
+      all.add(value);
+      parts[i % parts.length].add(value);
+    }
+    QuantileSketch merged = new QuantileSketch();
+    for (QuantileSketch part : parts) {
+      merged.merge(part);
+    }
+    Assert.assertEquals("size", all.size(), merged.size());
+    for (double q : new double[] {0.05, 0.5, 0.95, 0.99}) {
+      Assert.assertEquals("quantile " + q, all.quantile(q), merged.quantile(q), 0.02);
+    }
+    Assert.assertEquals("min", all.getMin(), merged.getMin(), 0);
+
+    merged.clear();
+    Assert.assertEquals("cleared", 0, merged.size());
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.lib.streamquery.condition.BetweenCondition;
+import com.datatorrent.lib.streamquery.condition.CompoundCondition;
+import com.datatorrent.lib.streamquery.condition.Condition;
+import com.datatorrent.lib.streamquery.condition.EqualValueCondition;
+import com.datatorrent.lib.streamquery.condition.InCondition;
+import com.datatorrent.lib.streamquery.condition.LikeCondition;
+import com.datatorrent.lib.streamquery.index.ColumnIndex;
+import com.datatorrent.lib.streamquery.index.Index;
+import com.datatorrent.lib.streamquery.index.NegateExpression;
+import com.datatorrent.lib.streamquery.index.StringLenIndex;
+import com.datatorrent.lib.streamquery.index.SumExpression;
+import com.datatorrent.lib.streamquery.schema.Row;
+import com.datatorrent.lib.streamquery.schema.Schema;
+
+/**
+ * Tests that {@link ExpressionCompiler} gives the same results as the interpreted conditions and indexes.
+ */
+public class ExpressionCompilerTest
+{
+  private static List<Map<String, Object>> createRows()
+  {
+    Random random = new Random(7);
+    List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+    for (int i = 0; i < 1000; i++) {
+      Map<String, Object> row = new HashMap<String, Object>();
+      if (random.nextInt(10) > 0) {
+        row.put("a", random.nextInt(10));
+      }
+      row.put("b", random.nextInt(10));
+      row.put("c", random.nextInt(5) == 0 ? null : random.nextInt(3));
+      row.put("s", "value" + random.nextInt(20));
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /**
+   * @return the rows as {@link Row}s of changing schemas.
+   */
+  private static List<Map<String, Object>> createSchemaRows()
+  {
+    Schema[] schemas = new Schema[] {
+      new Schema("a", "b", "c", "s"),
+      new Schema(new String[] {"s", "b", "a"}, new Schema.Type[] {Schema.Type.STRING, Schema.Type.INTEGER, Schema.Type.INTEGER}),
+      new Schema("b")
+    };
+    List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+    int i = 0;
+    for (Map<String, Object> row : createRows()) {
+      rows.add(new Row(schemas[i++ / 10 % schemas.length], row));
+    }
+    return rows;
+  }
+
+  private static void assertSameResult(Condition condition)
+  {
+    assertSameResult(condition, createRows());
+    assertSameResult(condition, createSchemaRows());
+  }
+
+  private static void assertSameResult(Condition condition, List<Map<String, Object>> rows)
+  {
+    ExpressionCompiler.CompiledCondition compiled = ExpressionCompiler.compile(condition);
+    int valid = 0;
+    for (Map<String, Object> row : rows) {
+      boolean expected = condition.isValidRow(row);
+      Assert.assertEquals("row " + row, expected, compiled.isValidRow(row));
+      if (expected) {
+        valid++;
+      }
+    }
+    Assert.assertTrue("some valid rows", valid > 0);
+  }
+
+  @Test
+  public void testConditions() throws Exception
+  {
+    EqualValueCondition equal = new EqualValueCondition();
+    equal.addEqualValue("a", 1);
+    equal.addEqualValue("b", 2);
+    assertSameResult(equal);
+
+    EqualValueCondition equalNull = new EqualValueCondition();
+    equalNull.addEqualValue("c", null);
+    assertSameResult(equalNull);
+
+    BetweenCondition between = new BetweenCondition("a", 2, 5);
+    assertSameResult(between);
+
+    InCondition in = new InCondition("c");
+    in.addInValue(1);
+    in.addInValue(null);
+    assertSameResult(in);
+
+    LikeCondition like = new LikeCondition("s", "^value1");
+    assertSameResult(like);
+
+    assertSameResult(new CompoundCondition(between, new CompoundCondition(in, like), true));
+    assertSameResult(new CompoundCondition(new CompoundCondition(equal, between), new CompoundCondition(in, like, true)));
+  }
+
+  @Test
+  public void testIndexes()
+  {
+    List<Index> indexes = new ArrayList<Index>();
+    indexes.add(new ColumnIndex("b", null));
+    indexes.add(new ColumnIndex("b", "a"));
+    indexes.add(new SumExpression("a", "b", null));
+    indexes.add(new NegateExpression("b", "minusB"));
+    indexes.add(new StringLenIndex("s", "length"));
+    Index[] compiled = ExpressionCompiler.compile(indexes);
+
+    List<Map<String, Object>> rows = createRows();
+    rows.addAll(createSchemaRows());
+    for (Map<String, Object> row : rows) {
+      Map<String, Object> expected = new HashMap<String, Object>();
+      for (Index index : indexes) {
+        index.filter(row, expected);
+      }
+      Map<String, Object> result = new HashMap<String, Object>();
+      for (Index index : compiled) {
+        index.filter(row, result);
+      }
+      Assert.assertEquals("row " + row, expected, result);
+    }
+  }
+}
@@ -16,7 +16,11 @@
 package com.datatorrent.lib.streamquery;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.datatorrent.lib.streamquery.condition.Condition;
@@ -82,4 +86,67 @@ public class FullOuterJoinOperatorTest
   	
   	System.out.println(sink.collectedTuples.toString());
   }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testUnmatchedRows()
+  {
+    OuterJoinOperator oper = new OuterJoinOperator();
+    oper.setFullJoin(true);
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.outport.setSink(sink);
+    oper.setJoinCondition(new JoinColumnEqualCondition("a", "a"));
+    oper.selectTable1Column(new ColumnIndex("b", null));
+    oper.selectTable2Column(new ColumnIndex("c", null));
+
+    oper.setup(null);
+    oper.beginWindow(1);
+    HashMap<String, Object> tuple = new HashMap<String, Object>();
+    tuple.put("a", 0);
+    tuple.put("b", 1);
+    oper.inport1.process(tuple);
+    tuple = new HashMap<String, Object>();
+    tuple.put("a", 1);
+    tuple.put("b", 2);
+    oper.inport1.process(tuple);
+    // a row without a join value never matches
+    tuple = new HashMap<String, Object>();
+    tuple.put("b", 3);
+    oper.inport1.process(tuple);
+    tuple = new HashMap<String, Object>();
+    tuple.put("a", 0);
+    tuple.put("c", 4);
+    oper.inport2.process(tuple);
+    tuple = new HashMap<String, Object>();
+    tuple.put("a", 2);
+    tuple.put("c", 5);
+    oper.inport2.process(tuple);
+    oper.endWindow();
+
+    Set<Map<String, Object>> rows = new HashSet<Map<String, Object>>(sink.collectedTuples);
+    Assert.assertEquals("joined and unmatched rows", 4, sink.collectedTuples.size());
+    Assert.assertTrue("joined", rows.contains(row("b", 1, "c", 4)));
+    Assert.assertTrue("unmatched table1", rows.contains(row("b", 2, null, null)));
+    Assert.assertTrue("no join value", rows.contains(row("b", 3, null, null)));
+    Assert.assertTrue("unmatched table2", rows.contains(row(null, null, "c", 5)));
+
+    // the tables are cleared at the end of the window
+    sink.clear();
+    oper.beginWindow(2);
+    oper.endWindow();
+    Assert.assertEquals("rows of previous window", 0, sink.collectedTuples.size());
+    oper.teardown();
+  }
+
+  private static Map<String, Object> row(String column1, Object value1, String column2, Object value2)
+  {
+    Map<String, Object> row = new HashMap<String, Object>();
+    if (column1 != null) {
+      row.put(column1, value1);
+    }
+    if (column2 != null) {
+      row.put(column2, value2);
+    }
+    return row;
+  }
 }
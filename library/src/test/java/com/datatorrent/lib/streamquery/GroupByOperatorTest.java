@@ -15,11 +15,23 @@
  */
 package com.datatorrent.lib.streamquery;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.Sets;
+
+import com.datatorrent.lib.partitioner.PartialAggregationPartitionerTest;
 import com.datatorrent.lib.streamquery.condition.EqualValueCondition;
+import com.datatorrent.lib.streamquery.condition.HavingCompareValue;
+import com.datatorrent.lib.streamquery.condition.HavingCondition;
+import com.datatorrent.lib.streamquery.function.AverageFunction;
+import com.datatorrent.lib.streamquery.function.CountFunction;
+import com.datatorrent.lib.streamquery.function.MaxMinFunction;
 import com.datatorrent.lib.streamquery.function.SumFunction;
 import com.datatorrent.lib.streamquery.index.ColumnIndex;
 import com.datatorrent.lib.testbench.CollectorTestSink;
@@ -83,4 +95,184 @@ public class GroupByOperatorTest
   	
   	System.out.println(sink.collectedTuples.toString());
   }
+
+  private static GroupByHavingOperator createOperator(boolean incremental) throws Exception
+  {
+    GroupByHavingOperator oper = new GroupByHavingOperator();
+    oper.addColumnGroupByIndex(new ColumnIndex("b", null));
+    oper.addAggregateIndex(new SumFunction("c", "sum"));
+    oper.addAggregateIndex(new CountFunction("*", "count"));
+    oper.addAggregateIndex(new AverageFunction("c", "avg"));
+    oper.addAggregateIndex(new MaxMinFunction("c", "max", false));
+    oper.addHavingCondition(new HavingCompareValue<Long>(new CountFunction("c", null), 3L, -1));
+    oper.setIncremental(incremental);
+    return oper;
+  }
+
+  private static void processRows(GroupByHavingOperator oper, int from, int to)
+  {
+    for (int i = from; i < to; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("b", i % 5);
+      tuple.put("c", i);
+      oper.inport.process(tuple);
+    }
+  }
+
+  private static Map<Object, Map<String, Object>> byGroup(List<Object> rows)
+  {
+    Map<Object, Map<String, Object>> groups = new HashMap<Object, Map<String, Object>>();
+    for (Object row : rows) {
+      @SuppressWarnings("unchecked")
+      Map<String, Object> map = (Map<String, Object>) row;
+      groups.put(map.get("b"), map);
+    }
+    return groups;
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Test
+  public void testIncrementalGroupBy() throws Exception
+  {
+    GroupByHavingOperator buffered = createOperator(false);
+    CollectorTestSink bufferedSink = new CollectorTestSink();
+    buffered.outport.setSink(bufferedSink);
+    buffered.setup(null);
+    buffered.beginWindow(1);
+    processRows(buffered, 0, 17);
+    buffered.endWindow();
+
+    GroupByHavingOperator incremental = createOperator(true);
+    CollectorTestSink incrementalSink = new CollectorTestSink();
+    incremental.outport.setSink(incrementalSink);
+    incremental.setup(null);
+    incremental.beginWindow(1);
+    processRows(incremental, 0, 17);
+    incremental.endWindow();
+
+    // groups 0 and 1 have 4 rows, the others 3 rows which fail the having condition
+    Assert.assertEquals("groups", 2, incrementalSink.collectedTuples.size());
+    Assert.assertEquals("same result", byGroup(bufferedSink.collectedTuples), byGroup(incrementalSink.collectedTuples));
+    Map<Object, Map<String, Object>> groups = byGroup(incrementalSink.collectedTuples);
+    Map<String, Object> group1 = groups.get(1);
+    Assert.assertEquals("sum", 34.0, group1.get("sum"));
+    Assert.assertEquals("count", 4, group1.get("count"));
+    Assert.assertEquals("avg", 8.5, group1.get("avg"));
+    Assert.assertEquals("max", 16.0, group1.get("max"));
+
+    incrementalSink.clear();
+    incremental.beginWindow(2);
+    incremental.endWindow();
+    Assert.assertEquals("groups of previous window", 0, incrementalSink.collectedTuples.size());
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Test
+  public void testPartialAggregation() throws Exception
+  {
+    GroupByHavingOperator single = createOperator(true);
+    CollectorTestSink singleSink = new CollectorTestSink();
+    single.outport.setSink(singleSink);
+    single.setup(null);
+    single.beginWindow(1);
+    processRows(single, 0, 30);
+    single.endWindow();
+
+    GroupByHavingOperator unifier = (GroupByHavingOperator) single.outport.getUnifier();
+    CollectorTestSink unifierSink = new CollectorTestSink();
+    unifier.outport.setSink(unifierSink);
+    unifier.setup(null);
+    unifier.beginWindow(1);
+    GroupByHavingOperator template = createOperator(true);
+    template.setPartitionCount(3);
+    List<GroupByHavingOperator> partitions = PartialAggregationPartitionerTest.definePartitions(template, template);
+    Assert.assertEquals("partitions", 3, partitions.size());
+
+    // the partitions process their share of the rows one after the other
+    int from = 0;
+    for (GroupByHavingOperator oper : partitions) {
+      CollectorTestSink partialSink = new CollectorTestSink();
+      oper.outport.setSink(partialSink);
+      oper.setup(null);
+      oper.beginWindow(1);
+      processRows(oper, from, from + 10);
+      from += 10;
+      oper.endWindow();
+      for (Object partial : partialSink.collectedTuples) {
+        Assert.assertTrue("partial aggregates", ((Map) partial).containsKey(GroupByHavingOperator.PARTIAL_AGGREGATES));
+        unifier.process((Map<String, Object>) partial);
+      }
+    }
+    unifier.endWindow();
+
+    Assert.assertEquals("groups", 5, unifierSink.collectedTuples.size());
+    Assert.assertEquals("same result", byGroup(singleSink.collectedTuples), byGroup(unifierSink.collectedTuples));
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Test
+  public void testHavingWithoutResultCheck() throws Exception
+  {
+    GroupByHavingOperator oper = new GroupByHavingOperator();
+    oper.addColumnGroupByIndex(new ColumnIndex("b", null));
+    oper.addAggregateIndex(new SumFunction("c", "sum"));
+    // a condition which only checks the rows, the rows are aggregated at the end of the window
+    oper.addHavingCondition(new HavingCondition(new SumFunction("c", null))
+    {
+      @Override
+      public boolean isValidAggregate(ArrayList<Map<String, Object>> rows) throws Exception
+      {
+        return ((Number) aggregateIndex.compute(rows)).doubleValue() > 40;
+      }
+
+    });
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.outport.setSink(sink);
+    oper.setup(null);
+    oper.beginWindow(1);
+    processRows(oper, 0, 20);
+    oper.endWindow();
+
+    // the sums of groups 3 and 4 are 42 and 46, the others at most 38
+    Map<Object, Map<String, Object>> groups = byGroup(sink.collectedTuples);
+    Assert.assertEquals("groups", Sets.newHashSet(3, 4), groups.keySet());
+    Assert.assertEquals("sum", 42.0, groups.get(3).get("sum"));
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Test
+  public void testInvalidValues() throws Exception
+  {
+    Map<Object, Map<String, Object>> expected = null;
+    for (boolean incremental : new boolean[] {false, true}) {
+      GroupByHavingOperator oper = new GroupByHavingOperator();
+      oper.addColumnGroupByIndex(new ColumnIndex("b", null));
+      oper.addAggregateIndex(new SumFunction("c", "sum"));
+      oper.addAggregateIndex(new CountFunction("*", "count"));
+      oper.setIncremental(incremental);
+      CollectorTestSink sink = new CollectorTestSink();
+      oper.outport.setSink(sink);
+      oper.setup(null);
+      oper.beginWindow(1);
+      Object[][] rows = {{0, 1}, {0, null}, {1, 2}, {1, 3}, {0, "x"}};
+      for (Object[] row : rows) {
+        HashMap<String, Object> tuple = new HashMap<String, Object>();
+        tuple.put("b", row[0]);
+        tuple.put("c", row[1]);
+        oper.inport.process(tuple);
+      }
+      oper.endWindow();
+
+      Map<Object, Map<String, Object>> groups = byGroup(sink.collectedTuples);
+      Assert.assertEquals("groups", 2, groups.size());
+      // the sum of group 0 cannot be computed and is left out
+      Assert.assertFalse("sum", groups.get(0).containsKey("sum"));
+      Assert.assertEquals("count", 3, groups.get(0).get("count"));
+      Assert.assertEquals("sum", 5.0, groups.get(1).get("sum"));
+      if (expected != null) {
+        Assert.assertEquals("same result", expected, groups);
+      }
+      expected = groups;
+    }
+  }
 }
@@ -15,10 +15,18 @@
  */
 package com.datatorrent.lib.streamquery;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Map;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
+import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.Partitioner.Partition;
+import com.datatorrent.lib.partitioner.StatelessPartitionerTest.PartitioningContextImpl;
 import com.datatorrent.lib.streamquery.condition.Condition;
 import com.datatorrent.lib.streamquery.condition.JoinColumnEqualCondition;
 import com.datatorrent.lib.streamquery.index.ColumnIndex;
@@ -80,4 +88,104 @@ public class InnerJoinOperatorTest
   	
   	System.out.println(sink.collectedTuples.toString());
   }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Test
+  public void testHashJoin()
+  {
+    InnerJoinOperator oper = new InnerJoinOperator();
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.outport.setSink(sink);
+    oper.setJoinCondition(new JoinColumnEqualCondition("a", "d"));
+    oper.selectTable1Column(new ColumnIndex("b", null));
+    oper.selectTable2Column(new ColumnIndex("e", null));
+
+    oper.setup(null);
+    oper.beginWindow(1);
+    for (int i = 0; i < 100; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("a", i % 10);
+      tuple.put("b", i);
+      oper.inport1.process(tuple);
+    }
+    for (int i = 0; i < 20; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("d", i);
+      tuple.put("e", i);
+      oper.inport2.process(tuple);
+    }
+    oper.endWindow();
+    Assert.assertEquals("joined rows", 100, sink.collectedTuples.size());
+    for (Object row : sink.collectedTuples) {
+      Map<String, Object> joined = (Map<String, Object>) row;
+      Assert.assertEquals("join column", ((Integer) joined.get("b")) % 10, joined.get("e"));
+    }
+
+    sink.clear();
+    oper.beginWindow(2);
+    HashMap<String, Object> tuple = new HashMap<String, Object>();
+    tuple.put("d", 1);
+    tuple.put("e", 1);
+    oper.inport2.process(tuple);
+    oper.endWindow();
+    Assert.assertEquals("rows of previous window", 0, sink.collectedTuples.size());
+    oper.teardown();
+  }
+
+  @Test
+  public void testPartitionCodec()
+  {
+    InnerJoinOperator oper = new InnerJoinOperator();
+    oper.setJoinCondition(new JoinColumnEqualCondition("a", "d"));
+    HashMap<String, Object> row1 = new HashMap<String, Object>();
+    row1.put("a", "key");
+    row1.put("b", 1);
+    HashMap<String, Object> row2 = new HashMap<String, Object>();
+    row2.put("d", "key");
+    row2.put("e", 2);
+    Assert.assertEquals("same partition", oper.inport1.getStreamCodec().getPartition(row1),
+                        oper.inport2.getStreamCodec().getPartition(row2));
+  }
+
+  private static Collection<Partition<InnerJoinOperator>> definePartitions(InnerJoinOperator oper)
+  {
+    Collection<Partition<InnerJoinOperator>> partitions = Lists.newArrayList();
+    partitions.add(new DefaultPartition<InnerJoinOperator>(oper));
+    return oper.definePartitions(partitions, new PartitioningContextImpl(null, 0));
+  }
+
+  @Test
+  public void testPartitions()
+  {
+    InnerJoinOperator oper = new OuterJoinOperator();
+    oper.setJoinCondition(new JoinColumnEqualCondition("a", "d"));
+    oper.setPartitionCount(3);
+    Assert.assertEquals("partitions", 3, definePartitions(oper).size());
+
+    oper.setJoinCondition(new Condition()
+    {
+      @Override
+      public boolean isValidRow(Map<String, Object> row)
+      {
+        return true;
+      }
+
+      @Override
+      public boolean isValidJoin(Map<String, Object> row1, Map<String, Object> row2)
+      {
+        return true;
+      }
+
+    });
+    try {
+      definePartitions(oper);
+      Assert.fail("only an equi-join can be partitioned");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+    // not partitioned by default
+    oper.setPartitionCount(1);
+    Assert.assertEquals("partitions", 1, definePartitions(oper).size());
+  }
 }
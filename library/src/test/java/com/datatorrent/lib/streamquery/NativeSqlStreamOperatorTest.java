@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.lib.streamquery.sql.SqlParser;
+import com.datatorrent.lib.testbench.CollectorTestSink;
+
+/**
+ * Functional tests for {@link NativeSqlStreamOperator}.
+ */
+public class NativeSqlStreamOperatorTest
+{
+  private static HashMap<String, Object> tuple(Object... keyValues)
+  {
+    HashMap<String, Object> tuple = new HashMap<String, Object>();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      tuple.put((String) keyValues[i], keyValues[i + 1]);
+    }
+    return tuple;
+  }
+
+  private static NativeSqlStreamOperator createOperator(String... statements)
+  {
+    NativeSqlStreamOperator oper = new NativeSqlStreamOperator();
+    AbstractSqlStreamOperator.InputSchema inputSchema1 = new AbstractSqlStreamOperator.InputSchema("t1");
+    inputSchema1.setColumnInfo("s0", "varchar(100)", true);
+    inputSchema1.setColumnInfo("l1", "float", false);
+    inputSchema1.setColumnInfo("v", "int", false);
+    AbstractSqlStreamOperator.InputSchema inputSchema2 = new AbstractSqlStreamOperator.InputSchema("t2");
+    inputSchema2.setColumnInfo("s0", "varchar(100)", true);
+    inputSchema2.setColumnInfo("e0", "float", false);
+    oper.setInputSchema(0, inputSchema1);
+    oper.setInputSchema(1, inputSchema2);
+    for (String statement : statements) {
+      oper.addExecStatementString(statement);
+    }
+    return oper;
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static List<Map<String, Object>> run(NativeSqlStreamOperator oper, List<HashMap<String, Object>> table1, List<HashMap<String, Object>> table2, ArrayList<Object> bindings)
+  {
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.result.setSink(sink);
+    oper.setup(null);
+    oper.beginWindow(1);
+    if (bindings != null) {
+      oper.bindingsPort.process(bindings);
+    }
+    for (HashMap<String, Object> tuple : table1) {
+      oper.in1.process(tuple);
+    }
+    for (HashMap<String, Object> tuple : table2) {
+      oper.in2.process(tuple);
+    }
+    oper.endWindow();
+    oper.teardown();
+    return sink.collectedTuples;
+  }
+
+  private static List<HashMap<String, Object>> quotes()
+  {
+    List<HashMap<String, Object>> quotes = new ArrayList<HashMap<String, Object>>();
+    quotes.add(tuple("s0", "YHOO", "l1", "40.0", "v", 10));
+    quotes.add(tuple("s0", "GOOG", "l1", 500.0, "v", "20"));
+    quotes.add(tuple("s0", "YHOO", "l1", 42.0, "v", 30));
+    quotes.add(tuple("s0", "IBM", "l1", 180.0));
+    return quotes;
+  }
+
+  @Test
+  public void testJoin()
+  {
+    NativeSqlStreamOperator oper = createOperator("SELECT SESSION.t1.s0 AS symbol, SESSION.t1.l1 / SESSION.t2.e0 AS pe_ratio "
+        + "FROM SESSION.t1,SESSION.t2 WHERE SESSION.t1.s0 = SESSION.t2.s0 ORDER BY pe_ratio DESC");
+    List<HashMap<String, Object>> eps = new ArrayList<HashMap<String, Object>>();
+    eps.add(tuple("s0", "YHOO", "e0", 2.0));
+    eps.add(tuple("s0", "GOOG", "e0", 25.0));
+    eps.add(tuple("s0", "AAPL", "e0", 10.0));
+
+    List<Map<String, Object>> result = run(oper, quotes(), eps, null);
+    List<Map<String, Object>> expected = new ArrayList<Map<String, Object>>();
+    expected.add(tuple("SYMBOL", "YHOO", "PE_RATIO", 21.0));
+    expected.add(tuple("SYMBOL", "YHOO", "PE_RATIO", 20.0));
+    expected.add(tuple("SYMBOL", "GOOG", "PE_RATIO", 20.0));
+    Assert.assertEquals(expected, result);
+  }
+
+  @Test
+  public void testFilter()
+  {
+    NativeSqlStreamOperator oper = createOperator(
+        "SELECT s0 AS symbol, l1 AS last_trade FROM SESSION.t1 WHERE SESSION.t1.s0 = 'YHOO' AND SESSION.t1.l1 < 41",
+        "SELECT s0, v FROM t1 WHERE v IS NULL OR (s0 LIKE 'G%' AND v NOT BETWEEN 1 AND 10) OR s0 IN (?, 'MSFT')");
+    ArrayList<Object> bindings = new ArrayList<Object>();
+    bindings.add("IBM");
+
+    List<Map<String, Object>> result = run(oper, quotes(), new ArrayList<HashMap<String, Object>>(), bindings);
+    List<Map<String, Object>> expected = new ArrayList<Map<String, Object>>();
+    expected.add(tuple("SYMBOL", "YHOO", "LAST_TRADE", 40.0));
+    expected.add(tuple("S0", "GOOG", "V", 20));
+    expected.add(tuple("S0", "IBM", "V", null));
+    Assert.assertEquals(expected, result);
+  }
+
+  @Test
+  public void testGroupBy()
+  {
+    NativeSqlStreamOperator oper = createOperator(
+        "SELECT s0, COUNT(*) AS n, SUM(v) AS total, MAX(l1) AS high, AVG(l1) FROM t1 GROUP BY s0 HAVING COUNT(v) > 0 ORDER BY 1",
+        "SELECT COUNT(*) AS n, SUM(v) AS total FROM t1 WHERE s0 = 'none'");
+
+    List<Map<String, Object>> result = run(oper, quotes(), new ArrayList<HashMap<String, Object>>(), null);
+    List<Map<String, Object>> expected = new ArrayList<Map<String, Object>>();
+    expected.add(tuple("S0", "GOOG", "N", 1, "TOTAL", 20L, "HIGH", 500.0, "5", 500.0));
+    expected.add(tuple("S0", "YHOO", "N", 2, "TOTAL", 40L, "HIGH", 42.0, "5", 41.0));
+    expected.add(tuple("N", 0, "TOTAL", null));
+    Assert.assertEquals(expected, result);
+  }
+
+  @Test
+  public void testStatementProperty()
+  {
+    NativeSqlStreamOperator oper = createOperator();
+    oper.setStatement("SELECT s0 FROM t1 WHERE v > 15");
+    List<Map<String, Object>> result = run(oper, quotes(), new ArrayList<HashMap<String, Object>>(), null);
+    List<Map<String, Object>> expected = new ArrayList<Map<String, Object>>();
+    expected.add(tuple("S0", "GOOG"));
+    expected.add(tuple("S0", "YHOO"));
+    Assert.assertEquals(expected, result);
+
+    oper = createOperator("SELECT s0 FROM t1");
+    oper.setStatement("SELECT v FROM t1");
+    try {
+      oper.setup(null);
+      Assert.fail("statement and execStmtStringList");
+    }
+    catch (IllegalArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testStatementErrors()
+  {
+    String[] invalid = {"SELECT FROM t1", "SELECT s0 FROM t1 WHERE", "SELECT s0 FROM t1 WHERE s0 = 'x", "SELECT s0 t1"};
+    for (String sql : invalid) {
+      try {
+        SqlParser.parse(sql);
+        Assert.fail("invalid statement " + sql);
+      }
+      catch (IllegalArgumentException e) {
+        //expected
+      }
+    }
+    try {
+      createOperator("SELECT unknown FROM t1").setup(null);
+      Assert.fail("unknown column");
+    }
+    catch (IllegalArgumentException e) {
+      //expected
+    }
+    try {
+      createOperator("SELECT s0 FROM t1, t2").setup(null);
+      Assert.fail("ambiguous column");
+    }
+    catch (IllegalArgumentException e) {
+      //expected
+    }
+  }
+}
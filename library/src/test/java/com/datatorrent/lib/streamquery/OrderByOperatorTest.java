@@ -15,10 +15,22 @@
  */
 package com.datatorrent.lib.streamquery;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import com.datatorrent.api.DAG;
+import com.datatorrent.api.Context.OperatorContext;
+
+import com.datatorrent.lib.helper.OperatorContextTestHelper;
 import com.datatorrent.lib.testbench.CollectorTestSink;
 
 /**
@@ -82,4 +94,90 @@ public class OrderByOperatorTest
   	
   	System.out.println(sink.collectedTuples.toString());
   }
+
+  private static ArrayList<Map<String, Object>> createRows()
+  {
+    Random random = new Random(3);
+    ArrayList<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+    for (int i = 0; i < 1000; i++) {
+      HashMap<String, Object> row = new HashMap<String, Object>();
+      row.put("a", random.nextInt(100));
+      row.put("b", random.nextInt(10));
+      row.put("id", i);
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static List<Map<String, Object>> sort(OrderByOperator oper, List<Map<String, Object>> rows)
+  {
+    return sort(oper, rows, null);
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static List<Map<String, Object>> sort(OrderByOperator oper, List<Map<String, Object>> rows, OperatorContext context)
+  {
+    oper.addOrderByRule(new OrderByRule<Integer>("a"));
+    oper.addOrderByRule(new OrderByRule<Integer>("b"));
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.outport.setSink(sink);
+    oper.setup(context);
+    for (int window = 0; window < 2; window++) {
+      sink.clear();
+      oper.beginWindow(window);
+      for (Map<String, Object> row : rows) {
+        oper.inport.process(row);
+      }
+      oper.endWindow();
+    }
+    oper.teardown();
+    return sink.collectedTuples;
+  }
+
+  @Test
+  public void testSpill() throws IOException
+  {
+    ArrayList<Map<String, Object>> rows = createRows();
+    ArrayList<Map<String, Object>> expected = new OrderByRule<Integer>("b").sort(new OrderByRule<Integer>("a").sort(rows));
+    Collections.reverse(expected);
+
+    File spillDirectory = new File("target/" + OrderByOperatorTest.class.getSimpleName());
+    spillDirectory.mkdirs();
+    OrderByOperator oper = new OrderByOperator();
+    oper.setMaxRowsInMemory(64);
+    oper.setSpillDirectory(spillDirectory.getPath());
+    Assert.assertEquals("spilled order", expected, sort(oper, rows));
+    Assert.assertEquals("run files are deleted", 0, spillDirectory.list().length);
+
+    // runs left by a previous attempt of the operator are deleted in setup, other files are kept
+    File staleRun = new File(spillDirectory, "orderby-app1-7-123.run");
+    File otherRun = new File(spillDirectory, "orderby-app1-8-123.run");
+    Assert.assertTrue("stale run", staleRun.createNewFile());
+    Assert.assertTrue("other run", otherRun.createNewFile());
+    com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap attributes = new com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap();
+    attributes.put(DAG.APPLICATION_ID, "app1");
+    oper = new OrderByOperator();
+    oper.setMaxRowsInMemory(64);
+    oper.setSpillDirectory(spillDirectory.getPath());
+    Assert.assertEquals("spilled order", expected, sort(oper, rows, new OperatorContextTestHelper.TestIdOperatorContext(7, attributes)));
+    Assert.assertFalse("stale run is deleted", staleRun.exists());
+    Assert.assertTrue("other run is kept", otherRun.delete());
+    Assert.assertEquals("run files are deleted", 0, spillDirectory.list().length);
+
+    oper = new OrderByOperator();
+    oper.setDescending(true);
+    Collections.reverse(expected);
+    Assert.assertEquals("in memory order", expected, sort(oper, rows));
+  }
+
+  @Test
+  public void testLimit()
+  {
+    ArrayList<Map<String, Object>> rows = createRows();
+    List<Map<String, Object>> all = sort(new OrderByOperator(), rows);
+    OrderByOperator oper = new OrderByOperator();
+    oper.setLimit(25);
+    Assert.assertEquals("top rows", all.subList(0, 25), sort(oper, rows));
+  }
 }
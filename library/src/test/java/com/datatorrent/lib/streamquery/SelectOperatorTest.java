@@ -17,11 +17,14 @@ package com.datatorrent.lib.streamquery;
 
 import java.util.HashMap;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.datatorrent.lib.streamquery.SelectOperator;
 import com.datatorrent.lib.streamquery.condition.EqualValueCondition;
 import com.datatorrent.lib.streamquery.index.ColumnIndex;
+import com.datatorrent.lib.streamquery.schema.Row;
+import com.datatorrent.lib.streamquery.schema.Schema;
 import com.datatorrent.lib.testbench.CollectorTestSink;
 
 /**
@@ -71,4 +74,40 @@ public class SelectOperatorTest
   	
   	System.out.println(sink.collectedTuples.toString());
   }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testRowOutput()
+  {
+    SelectOperator oper = new SelectOperator();
+    oper.addIndex(new ColumnIndex("b", null));
+    oper.addIndex(new ColumnIndex("c", null));
+    Schema schema = new Schema(new String[] {"b", "c"}, new Schema.Type[] {Schema.Type.INTEGER, Schema.Type.INTEGER});
+    oper.setOutputSchema(schema);
+
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.outport.setSink(sink);
+
+    oper.setup(null);
+    oper.beginWindow(1);
+    for (int i = 0; i < 3; i++) {
+      HashMap<String, Object> tuple = new HashMap<String, Object>();
+      tuple.put("a", i);
+      tuple.put("b", i + 1);
+      tuple.put("c", i + 2);
+      oper.inport.process(tuple);
+    }
+    oper.endWindow();
+    oper.teardown();
+
+    Assert.assertEquals("rows", 3, sink.collectedTuples.size());
+    for (int i = 0; i < 3; i++) {
+      Row row = (Row) sink.collectedTuples.get(i);
+      Assert.assertSame("schema", schema, row.getSchema());
+      HashMap<String, Object> expected = new HashMap<String, Object>();
+      expected.put("b", i + 1);
+      expected.put("c", i + 2);
+      Assert.assertEquals("row", expected, row);
+    }
+  }
 }
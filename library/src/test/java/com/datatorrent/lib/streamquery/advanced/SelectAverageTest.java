@@ -16,11 +16,14 @@
 package com.datatorrent.lib.streamquery.advanced;
 
 import java.util.HashMap;
+import java.util.Map;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.datatorrent.lib.streamquery.SelectFunctionOperator;
 import com.datatorrent.lib.streamquery.function.AverageFunction;
+import com.datatorrent.lib.streamquery.function.CountFunction;
 import com.datatorrent.lib.testbench.CollectorTestSink;
 
 /**
@@ -65,4 +68,30 @@ public class SelectAverageTest
   	
   	System.out.println(sink.collectedTuples.toString());
   }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Test
+  public void testInvalidValues()
+  {
+    SelectFunctionOperator oper = new SelectFunctionOperator();
+    oper.addSqlFunction(new AverageFunction("b", "avg"));
+    oper.addSqlFunction(new CountFunction("*", "count"));
+    CollectorTestSink sink = new CollectorTestSink();
+    oper.outport.setSink(sink);
+    oper.setup(null);
+    oper.beginWindow(1);
+    HashMap<String, Object> tuple = new HashMap<String, Object>();
+    tuple.put("b", 1);
+    oper.inport.process(tuple);
+    tuple = new HashMap<String, Object>();
+    tuple.put("b", null);
+    oper.inport.process(tuple);
+    oper.endWindow();
+
+    // the average fails on the null value and is left out, the count is still emitted
+    Assert.assertEquals("results", 1, sink.collectedTuples.size());
+    Map<String, Object> result = (Map<String, Object>) sink.collectedTuples.get(0);
+    Assert.assertFalse("average", result.containsKey("avg"));
+    Assert.assertEquals("count", 2, result.get("count"));
+  }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery.schema;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.common.util.Slice;
+import com.datatorrent.lib.streamquery.ColumnPartitionStreamCodec;
+
+/**
+ * Functional tests for {@link RowStreamCodec}.
+ */
+public class RowStreamCodecTest
+{
+  private static final Schema SCHEMA = new Schema(new String[] {"id", "count", "name", "price", "active", "date"},
+      new Schema.Type[] {Schema.Type.LONG, Schema.Type.INTEGER, Schema.Type.STRING, Schema.Type.DOUBLE,
+        Schema.Type.BOOLEAN, Schema.Type.OBJECT});
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> roundTrip(RowStreamCodec codec, Map<String, Object> tuple)
+  {
+    Slice slice = codec.toByteArray(tuple);
+    Map<String, Object> result = (Map<String, Object>) codec.fromByteArray(slice);
+    Assert.assertEquals(tuple, result);
+    return result;
+  }
+
+  @Test
+  public void testRoundTrip()
+  {
+    RowStreamCodec codec = new RowStreamCodec(SCHEMA);
+    Row row = new Row(SCHEMA);
+    row.put("id", 1234567890123L);
+    row.put("count", -3);
+    row.put("name", "pen");
+    row.put("price", 1.75);
+    row.put("active", false);
+    row.put("date", new Date(0));
+    Assert.assertTrue(roundTrip(codec, row) instanceof Row);
+
+    //absent, null and boxed values of another class
+    Row sparse = new Row(SCHEMA);
+    sparse.put("name", null);
+    sparse.put("count", 3L);
+    Map<String, Object> result = roundTrip(codec, sparse);
+    Assert.assertFalse(result.containsKey("id"));
+    Assert.assertTrue(result.containsKey("name"));
+
+    //a hash map with the fields of the schema is sent as a row
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("id", 7L);
+    map.put("price", 2.0);
+    Assert.assertTrue(roundTrip(codec, map) instanceof Row);
+
+    //other rows are sent with their keys
+    map.put("discount", 0.5);
+    Assert.assertTrue(roundTrip(codec, map) instanceof HashMap);
+    Row extended = new Row(SCHEMA, map);
+    Assert.assertEquals(extended.getSchema(), ((Row) roundTrip(codec, extended)).getSchema());
+  }
+
+  @Test
+  public void testPartition()
+  {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("id", 7L);
+    map.put("name", "pen");
+    Row row = new Row(SCHEMA, map);
+    ColumnPartitionStreamCodec columnCodec = new ColumnPartitionStreamCodec("id");
+    RowStreamCodec codec = new RowStreamCodec(SCHEMA, "id");
+    Assert.assertEquals(columnCodec.getPartition(map), codec.getPartition(row));
+    Assert.assertEquals(codec.getPartition(map), codec.getPartition(row));
+    Assert.assertEquals(map.hashCode(), new RowStreamCodec(SCHEMA).getPartition(row));
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.streamquery.schema;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Functional tests for {@link Row} and {@link Schema}.
+ */
+public class RowTest
+{
+  private static final Schema SCHEMA = new Schema(new String[] {"id", "name", "price", "active"},
+      new Schema.Type[] {Schema.Type.LONG, Schema.Type.STRING, Schema.Type.DOUBLE, Schema.Type.BOOLEAN});
+
+  @Test
+  public void testMapSemantics()
+  {
+    Row row = new Row(SCHEMA);
+    Map<String, Object> map = new HashMap<String, Object>();
+    Assert.assertEquals(map, row);
+
+    row.put("id", 5L);
+    row.put("name", "book");
+    row.put("price", null);
+    map.put("id", 5L);
+    map.put("name", "book");
+    map.put("price", null);
+    Assert.assertEquals(map, row);
+    Assert.assertEquals(map.hashCode(), row.hashCode());
+    Assert.assertEquals(3, row.size());
+    Assert.assertTrue(row.containsKey("price"));
+    Assert.assertFalse(row.containsKey("active"));
+    Assert.assertNull(row.get("unknown"));
+
+    Assert.assertEquals("book", row.remove("name"));
+    map.remove("name");
+    Assert.assertEquals(map, row);
+
+    Iterator<Map.Entry<String, Object>> iterator = row.entrySet().iterator();
+    iterator.next().setValue(6L);
+    iterator.next();
+    iterator.remove();
+    Assert.assertFalse(iterator.hasNext());
+    Assert.assertEquals(1, row.size());
+    Assert.assertEquals(6L, row.get("id"));
+  }
+
+  @Test
+  public void testPrimitiveSlots()
+  {
+    Row row = new Row(SCHEMA);
+    int id = SCHEMA.getSlot("id");
+    int price = SCHEMA.getSlot("price");
+    row.setLong(id, 10);
+    row.setDouble(price, 2.5);
+    row.put("active", true);
+    Assert.assertEquals(10L, row.get("id"));
+    Assert.assertEquals(2.5, row.get("price"));
+    Assert.assertEquals(Boolean.TRUE, row.get("active"));
+    Assert.assertEquals(2.5, row.getDouble(price), 0);
+    Assert.assertEquals(10.0, row.getDouble(id), 0);
+    Assert.assertTrue(row.isPrimitive(id));
+
+    //a value of another class is kept boxed
+    row.put("id", 3);
+    Assert.assertFalse(row.isPrimitive(id));
+    Assert.assertEquals(3, row.get("id"));
+    Assert.assertEquals(3, row.getLong(id));
+
+    try {
+      row.setLong(price, 1);
+      Assert.fail("price is a double field");
+    }
+    catch (IllegalArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testSchemaTransitions()
+  {
+    Row row1 = new Row(SCHEMA);
+    Row row2 = new Row(SCHEMA);
+    row1.put("id", 1L);
+    row1.put("discount", 0.1);
+    row2.put("discount", 0.2);
+    Assert.assertSame(row1.getSchema(), row2.getSchema());
+    Assert.assertEquals(5, row1.getSchema().size());
+    Assert.assertEquals(Schema.Type.OBJECT, row1.getSchema().getType(4));
+    Assert.assertEquals(0.1, row1.get("discount"));
+    Assert.assertEquals(1L, row1.get("id"));
+
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("name", "pen");
+    map.put("color", "red");
+    Row row3 = new Row(SCHEMA, map);
+    Assert.assertEquals(map, row3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateField()
+  {
+    new Schema("a", "b", "a");
+  }
+}
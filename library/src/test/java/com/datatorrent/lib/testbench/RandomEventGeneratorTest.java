@@ -17,6 +17,9 @@ package com.datatorrent.lib.testbench;
 
 import org.junit.Test;
 
+import com.datatorrent.lib.util.DoubleBatch;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -82,4 +85,27 @@ public class RandomEventGeneratorTest
     assertTrue("tuple blast" , integer_data.collectedTuples.size() == 5000);
     assertTrue("tuple blast" , string_data.collectedTuples.size() == 5000);
   }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void testBatch() throws Exception
+  {
+    RandomEventGenerator node = new RandomEventGenerator();
+    node.setMinvalue(0);
+    node.setMaxvalue(999);
+    node.setTuplesBlast(5000);
+    node.setTuplesBlastIntervalMillis(0);
+    CollectorTestSink batch_data = new CollectorTestSink();
+    node.batch_data.setSink(batch_data);
+
+    node.setup(null);
+    node.beginWindow(1);
+    node.emitTuples();
+    node.endWindow();
+    node.teardown();
+    assertEquals("batches", 1, batch_data.collectedTuples.size());
+    DoubleBatch batch = (DoubleBatch)batch_data.collectedTuples.get(0);
+    assertEquals("tuple blast", 5000, batch.size());
+    assertTrue("range", batch.min() >= 0 && batch.max() <= 999);
+  }
 }
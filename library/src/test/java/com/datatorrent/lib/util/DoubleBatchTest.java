@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * Functional tests for {@link DoubleBatch} and {@link KeyValDoubleBatch}
+ */
+public class DoubleBatchTest
+{
+  @Test
+  public void testBatch() throws Exception
+  {
+    DoubleBatch batch = new DoubleBatch(1);
+    for (int i = 0; i < 100; i++) {
+      batch.add(i - 50);
+    }
+    Assert.assertEquals("size", 100, batch.size());
+    Assert.assertEquals("sum", -50, batch.sum(), 0);
+    Assert.assertEquals("min", -50, batch.min(), 0);
+    Assert.assertEquals("max", 49, batch.max(), 0);
+    Assert.assertEquals("value", 7, batch.get(57), 0);
+
+    DoubleBatch copy = TestUtils.clone(new Kryo(), batch);
+    Assert.assertEquals("serialized size", 100, copy.size());
+    Assert.assertEquals("serialized capacity", 100, copy.getValues().length);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals("serialized value", batch.get(i), copy.get(i), 0);
+    }
+
+    batch.clear();
+    Assert.assertTrue("cleared", batch.isEmpty());
+    Assert.assertTrue("empty max", Double.isNaN(batch.max()));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testIndex()
+  {
+    DoubleBatch batch = new DoubleBatch(10);
+    batch.add(1);
+    batch.get(1);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testKeyValBatch() throws Exception
+  {
+    KeyValDoubleBatch<String> batch = new KeyValDoubleBatch<String>(0);
+    for (int i = 0; i < 100; i++) {
+      batch.add("key" + i % 7, i);
+    }
+    Assert.assertEquals("size", 100, batch.size());
+    Assert.assertEquals("key", "key3", batch.getKey(10));
+    Assert.assertEquals("value", 10, batch.getValue(10), 0);
+
+    KeyValDoubleBatch<String> copy = TestUtils.clone(new Kryo(), batch);
+    Assert.assertEquals("serialized size", 100, copy.size());
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals("serialized key", batch.getKey(i), copy.getKey(i));
+      Assert.assertEquals("serialized value", batch.getValue(i), copy.getValue(i), 0);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014 DataTorrent, Inc. ALL Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.lib.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * Tests for {@link TopNHeap}, compared with {@link TopNSort} and {@link TopNUniqueSort}.
+ */
+@SuppressWarnings("deprecation")
+public class TopNHeapTest
+{
+  @Test
+  public void testTopN()
+  {
+    Random random = new Random(3);
+    for (boolean ascending : new boolean[] {true, false}) {
+      for (int bound : new int[] {1, 5, 20}) {
+        TopNHeap<Integer> heap = new TopNHeap<Integer>(bound, ascending, false);
+        TopNSort<Integer> sort = new TopNSort<Integer>(5, bound, ascending);
+        List<Integer> all = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+          int value = random.nextInt(500);
+          heap.offer(value);
+          sort.offer(value);
+          all.add(value);
+        }
+        Collections.sort(all);
+        if (ascending) {
+          Collections.reverse(all);
+        }
+        Assert.assertEquals("top " + bound, all.subList(0, bound), heap.getTopN(bound));
+        Assert.assertEquals("top " + bound, sort.getTopN(bound), heap.getTopN(bound));
+        Assert.assertEquals("fewer", all.subList(0, 1), heap.getTopN(1));
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testUnique()
+  {
+    Random random = new Random(5);
+    for (boolean ascending : new boolean[] {true, false}) {
+      for (int bound : new int[] {1, 3, 10}) {
+        TopNHeap<String> heap = new TopNHeap<String>(bound, ascending, true);
+        TopNUniqueSort<String> sort = new TopNUniqueSort<String>(5, bound, ascending);
+        for (int i = 0; i < 2000; i++) {
+          // later values are larger, so the top values are evicted now and then
+          String value = "v" + (10000 + random.nextInt(20) + i / 10);
+          heap.offer(value);
+          sort.offer(value);
+        }
+        Assert.assertEquals("top " + bound, sort.getTopN(bound), heap.getTopNCounts(bound));
+      }
+    }
+  }
+
+  @Test
+  public void testClearAndMerge()
+  {
+    TopNHeap<Integer> heap = new TopNHeap<Integer>(3, true, true);
+    for (int value : new int[] {5, 1, 5, 7, 2, 7, 7}) {
+      heap.offer(value);
+    }
+    Assert.assertEquals("top", 3, heap.size());
+    Assert.assertEquals("counts", "[{7=3}, {5=2}, {2=1}]", heap.getTopNCounts(3).toString());
+
+    TopNHeap<Integer> other = new TopNHeap<Integer>(3, true, true);
+    other.offer(5);
+    other.offer(9);
+    other.offer(1);
+    heap.merge(other);
+    Assert.assertEquals("merged", "[{9=1}, {7=3}, {5=3}]", heap.getTopNCounts(3).toString());
+
+    heap.clear();
+    Assert.assertTrue("cleared", heap.isEmpty());
+    heap.offer(4);
+    heap.offer(4);
+    Assert.assertEquals("reused", "[{4=2}]", heap.getTopNCounts(3).toString());
+  }
+
+  @Test
+  public void testSerialization() throws Exception
+  {
+    TopNHeap<String> heap = new TopNHeap<String>(4, false, true);
+    for (String value : new String[] {"d", "b", "a", "c", "b", "e"}) {
+      heap.offer(value);
+    }
+    heap = TestUtils.clone(new Kryo(), heap);
+    heap.offer("a");
+    heap.offer("0");
+    Assert.assertEquals("top", "[{0=1}, {a=2}, {b=2}, {c=1}]", heap.getTopNCounts(4).toString());
+  }
+}